@@ -19,21 +19,33 @@
 
 #include "Logger/Logger.h"
 #include "OSDependent/omnisci_path.h"
+#include "Shared/scope.h"
 
 #include <jni.h>
 
+#include <limits>
+#include <map>
+#include <mutex>
+#include <type_traits>
+#include <unordered_map>
+#include <unordered_set>
+#include <vector>
+
 using namespace std::string_literals;
 
 namespace {
 
+// InvalidParseRequest code used by CalciteServerHandler when a query refers
+// to a schema version it doesn't know.
+constexpr int kUnknownSchemaVersionCode = -8;
+// Initial size of the per thread buffer CalciteServerHandler writes plans to.
+constexpr size_t kInitialPlanBufferSize = 64 * 1024;
+
 class JVM {
  public:
   class JNIEnvWrapper {
    public:
-    JNIEnvWrapper(JVM* jvm, JNIEnv* env, bool detach_thread_on_destruction)
-        : jvm_(jvm)
-        , env_(env)
-        , detach_thread_on_destruction_(detach_thread_on_destruction) {
+    JNIEnvWrapper(JNIEnv* env) : env_(env) {
       if (env_) {
         auto res = env_->PushLocalFrame(100);
         if (!res) {
@@ -49,14 +61,8 @@ class JVM {
     JNIEnvWrapper& operator=(const JNIEnvWrapper& other) = delete;
 
     JNIEnvWrapper& operator=(JNIEnvWrapper&& other) {
-      jvm_ = other.jvm_;
       env_ = other.env_;
-      detach_thread_on_destruction_ = other.detach_thread_on_destruction_;
-
-      other.detach_thread_on_destruction_ = false;
       other.env_ = nullptr;
-      other.jvm_ = nullptr;
-
       return *this;
     }
 
@@ -64,9 +70,6 @@ class JVM {
       if (env_) {
         env_->PopLocalFrame(nullptr);
       }
-      if (detach_thread_on_destruction_) {
-        jvm_->detachThread();
-      }
     }
 
     JNIEnv* get() const { return env_; }
@@ -74,9 +77,7 @@ class JVM {
     JNIEnv* operator->() const { return env_; }
 
    private:
-    JVM* jvm_;
     JNIEnv* env_;
-    bool detach_thread_on_destruction_;
   };
 
   static std::shared_ptr<JVM> getInstance(size_t max_mem_mb) {
@@ -87,9 +88,11 @@ class JVM {
   // Get JNI environment for the current thread.
   // You souldn't pass this obect between threads. It should be deallocated
   // in the same thread it was requrested in. It shouldn't outlive JVM object.
+  // A thread is attached on its first call and stays attached (as a daemon
+  // thread, so it doesn't keep the JVM alive) until it exits. Attaching on
+  // every call would put thread attach/detach on every query's path.
   JNIEnvWrapper getEnv() {
     JNIEnv* env;
-    bool need_detach = false;
 
     auto res = jvm_->GetEnv((void**)&env, JNI_VERSION_1_8);
     if (res != JNI_OK) {
@@ -101,17 +104,21 @@ class JVM {
       args.version = JNI_VERSION_1_8;
       args.group = nullptr;
       args.name = nullptr;
-      res = jvm_->AttachCurrentThread((void**)&env, &args);
+      res = jvm_->AttachCurrentThreadAsDaemon((void**)&env, &args);
       if (res != JNI_OK) {
         LOG(FATAL) << "Cannot attach thread to JavaVM: error code " << res;
       }
-      need_detach = true;
+      thread_local ThreadDetacher detacher(jvm_);
     }
 
-    return {this, env, need_detach};
+    return {env};
   }
 
-  ~JVM() { jvm_->DestroyJavaVM(); }
+  ~JVM() {
+    std::lock_guard<std::mutex> lock(lifetime().mutex);
+    lifetime().destroyed = true;
+    jvm_->DestroyJavaVM();
+  }
 
  private:
   JVM(JavaVM* jvm) : jvm_(jvm) {}
@@ -140,8 +147,32 @@ class JVM {
     return std::shared_ptr<JVM>(new JVM(jvm));
   }
 
-  // Detach current thread from JVM.
-  void detachThread() { jvm_->DetachCurrentThread(); }
+  // Tells the thread detachers whether the JVM is gone. Threads may exit
+  // after ~JVM() ran, e.g. threads still running during static destruction,
+  // so it is never freed.
+  struct Lifetime {
+    std::mutex mutex;
+    bool destroyed = false;
+  };
+
+  static Lifetime& lifetime() {
+    static Lifetime* lifetime = new Lifetime();
+    return *lifetime;
+  }
+
+  // Detaches the thread it belongs to from JVM on thread exit, unless the JVM
+  // has been destroyed already.
+  struct ThreadDetacher {
+    ThreadDetacher(JavaVM* jvm) : jvm(jvm) {}
+    ~ThreadDetacher() {
+      std::lock_guard<std::mutex> lock(lifetime().mutex);
+      if (!lifetime().destroyed) {
+        jvm->DetachCurrentThread();
+      }
+    }
+
+    JavaVM* jvm;
+  };
 
   JavaVM* jvm_;
 
@@ -172,11 +203,13 @@ class CalciteJNI::Impl {
     findQueryParsingOption(env.get());
     findOptimizationOption(env.get());
     findPlanResult(env.get());
+    findBatchPlanResult(env.get());
     findExtArgumentType(env.get());
     findExtensionFunction(env.get());
     findInvalidParseRequest(env.get());
     findArrayList(env.get());
     findHashMap(env.get());
+    byte_buffer_cls_ = findClass(env.get(), "java/nio/ByteBuffer");
   }
 
   ~Impl() {
@@ -193,53 +226,160 @@ class CalciteJNI::Impl {
                       const bool is_explain,
                       const bool is_view_optimize) {
     auto env = jvm_->getEnv();
-    jstring arg_catalog = env->NewStringUTF(db_name.c_str());
-    jstring arg_query = env->NewStringUTF(sql_string.c_str());
-    jobject arg_parsing_options = env->NewObject(parsing_opts_cls_,
-                                                 parsing_opts_ctor_,
-                                                 (jboolean)legacy_syntax,
-                                                 (jboolean)is_explain,
-                                                 /*check_privileges=*/(jboolean)(false));
-    if (!arg_parsing_options) {
-      throw std::runtime_error("cannot create QueryParsingOption object");
+    // Strings cross JNI as UTF-8 in direct buffers wrapping the native memory.
+    // That saves the modified UTF-8 and UTF-16 conversions of jstring and keeps
+    // characters outside the BMP intact.
+    jobject arg_catalog = newDirectBuffer(env.get(), db_name);
+    jobject arg_query = newDirectBuffer(env.get(), sql_string);
+    jobject arg_parsing_options =
+        newQueryParsingOption(env.get(), legacy_syntax, is_explain);
+    jobject arg_optimization_options =
+        newOptimizationOption(env.get(), filter_push_down_info, is_view_optimize);
+    jobject arg_restriction = nullptr;
+
+    auto& plan_buffer = planBuffer();
+    jobject java_res = callWithSchema(
+        env.get(), "process", "Query: " + sql_string, [&](int64_t schema_version) {
+          jobject arg_plan_buffer =
+              env->NewDirectByteBuffer(plan_buffer.data(), plan_buffer.size());
+          jobject res = env->CallObjectMethod(handler_obj_,
+                                              handler_process_,
+                                              arg_catalog,
+                                              arg_query,
+                                              arg_parsing_options,
+                                              arg_optimization_options,
+                                              arg_restriction,
+                                              (jlong)schema_version,
+                                              arg_plan_buffer);
+          env->DeleteLocalRef(arg_plan_buffer);
+          return res;
+        });
+    return readPlan(env.get(), java_res, &plan_buffer);
+  }
+
+  std::vector<CalciteJNI::BatchResult> processBatch(
+      const std::string& db_name,
+      const std::vector<std::string>& sql_strings,
+      const bool legacy_syntax,
+      const bool is_view_optimize) {
+    auto env = jvm_->getEnv();
+    jobject arg_catalog = newDirectBuffer(env.get(), db_name);
+    jobjectArray arg_queries =
+        env->NewObjectArray((jsize)sql_strings.size(), byte_buffer_cls_, nullptr);
+    if (!arg_queries) {
+      throw std::runtime_error("cannot create query array");
     }
-    jobject arg_filter_push_down_info = env->NewObject(array_list_cls_, array_list_ctor_);
-    if (!filter_push_down_info.empty()) {
-      throw std::runtime_error(
-          "Filter pushdown info is not yet implemented in Calcite JNI client.");
+    for (size_t i = 0; i < sql_strings.size(); ++i) {
+      jobject arg_query = newDirectBuffer(env.get(), sql_strings[i]);
+      env->SetObjectArrayElement(arg_queries, (jsize)i, arg_query);
+      env->DeleteLocalRef(arg_query);
     }
+    jobject arg_parsing_options =
+        newQueryParsingOption(env.get(), legacy_syntax, /*is_explain=*/false);
     jobject arg_optimization_options =
-        env->NewObject(optimization_opts_cls_,
-                       optimization_opts_ctor_,
-                       (jboolean)is_view_optimize,
-                       (jboolean)config_->exec.watchdog.enable,
-                       arg_filter_push_down_info);
+        newOptimizationOption(env.get(), {}, is_view_optimize);
     jobject arg_restriction = nullptr;
-    auto schema_json = schema_to_json(schema_provider_);
-    jstring arg_schema = env->NewStringUTF(schema_json.c_str());
 
+    jobject java_res = callWithSchema(
+        env.get(),
+        "processBatch",
+        "Queries: " + std::to_string(sql_strings.size()),
+        [&](int64_t schema_version) {
+          return env->CallObjectMethod(handler_obj_,
+                                       handler_process_batch_,
+                                       arg_catalog,
+                                       arg_queries,
+                                       arg_parsing_options,
+                                       arg_optimization_options,
+                                       arg_restriction,
+                                       (jlong)schema_version);
+        });
+
+    auto results =
+        (jobjectArray)env->GetObjectField(java_res, batch_plan_result_results_);
+    auto errors = (jobjectArray)env->GetObjectField(java_res, batch_plan_result_errors_);
+    std::vector<CalciteJNI::BatchResult> res(sql_strings.size());
+    for (size_t i = 0; i < sql_strings.size(); ++i) {
+      jobject plan_result = env->GetObjectArrayElement(results, (jsize)i);
+      if (plan_result) {
+        res[i].plan = readPlan(env.get(), plan_result, nullptr);
+        env->DeleteLocalRef(plan_result);
+        continue;
+      }
+      jobject error = env->GetObjectArrayElement(errors, (jsize)i);
+      CHECK(error);
+      res[i].error = env->IsInstanceOf(error, invalid_parse_req_cls_)
+                         ? readStringField(env.get(), error, invalid_parse_req_msg_)
+                         : "CalciteServerHandler::processBatch failed for query " +
+                               std::to_string(i);
+      env->DeleteLocalRef(error);
+    }
+    return res;
+  }
+
+  int64_t submit(const std::string& db_name,
+                 const std::string& sql_string,
+                 const bool legacy_syntax,
+                 const bool is_explain,
+                 const bool is_view_optimize) {
+    auto env = jvm_->getEnv();
+    jobject arg_catalog = newDirectBuffer(env.get(), db_name);
+    jobject arg_query = newDirectBuffer(env.get(), sql_string);
+    jobject arg_parsing_options =
+        newQueryParsingOption(env.get(), legacy_syntax, is_explain);
+    jobject arg_optimization_options =
+        newOptimizationOption(env.get(), {}, is_view_optimize);
+    jobject arg_restriction = nullptr;
+
+    // The query is decoded before submitUtf8 returns, so the buffers don't
+    // have to outlive the call. Only the schema version check can fail here,
+    // planning errors are reported by pollPlan().
+    return callWithSchema(
+        env.get(), "submit", "Query: " + sql_string, [&](int64_t schema_version) {
+          return env->CallLongMethod(handler_obj_,
+                                     handler_submit_,
+                                     arg_catalog,
+                                     arg_query,
+                                     arg_parsing_options,
+                                     arg_optimization_options,
+                                     arg_restriction,
+                                     (jlong)schema_version);
+        });
+  }
+
+  std::optional<std::string> pollPlan(int64_t ticket, int64_t timeout_ms) {
+    auto env = jvm_->getEnv();
+    auto& plan_buffer = planBuffer();
+    jobject arg_plan_buffer =
+        env->NewDirectByteBuffer(plan_buffer.data(), plan_buffer.size());
     jobject java_res = env->CallObjectMethod(handler_obj_,
-                                             handler_process_,
-                                             arg_catalog,
-                                             arg_query,
-                                             arg_parsing_options,
-                                             arg_optimization_options,
-                                             arg_restriction,
-                                             arg_schema);
-    if (!java_res) {
-      if (env->ExceptionCheck() == JNI_FALSE) {
-        throw std::runtime_error(
-            "CalciteServerHandler::process call failed for unknown reason\n  Query: " +
-            sql_string + "\n  Schema: " + schema_json);
-      } else {
-        jthrowable e = env->ExceptionOccurred();
-        CHECK(e);
-        throw std::invalid_argument(
-            readStringField(env.get(), e, invalid_parse_req_msg_));
+                                             handler_poll_,
+                                             (jlong)ticket,
+                                             (jlong)timeout_ms,
+                                             arg_plan_buffer);
+    env->DeleteLocalRef(arg_plan_buffer);
+    if (env->ExceptionCheck() != JNI_FALSE) {
+      jthrowable e = env->ExceptionOccurred();
+      env->ExceptionClear();
+      if (!env->IsInstanceOf(e, invalid_parse_req_cls_)) {
+        throw std::runtime_error("CalciteServerHandler::poll call failed for ticket " +
+                                 std::to_string(ticket));
       }
+      throw std::invalid_argument(readStringField(env.get(), e, invalid_parse_req_msg_));
     }
+    if (!java_res) {
+      return std::nullopt;
+    }
+    return readPlan(env.get(), java_res, &plan_buffer);
+  }
 
-    return readStringField(env.get(), java_res, plan_result_plan_result_);
+  void cancel(int64_t ticket) {
+    auto env = jvm_->getEnv();
+    env->CallVoidMethod(handler_obj_, handler_cancel_, (jlong)ticket);
+    if (env->ExceptionCheck() != JNI_FALSE) {
+      env->ExceptionDescribe();
+      throw std::runtime_error("Failed Java call to cancel");
+    }
   }
 
   std::string getExtensionFunctionWhitelist() {
@@ -263,6 +403,13 @@ class CalciteJNI::Impl {
     return convertJavaString(env.get(), java_res);
   }
 
+  std::string getPlanningMetrics() {
+    auto env = jvm_->getEnv();
+    jstring java_res =
+        (jstring)env->CallObjectMethod(handler_obj_, handler_get_planning_metrics_);
+    return convertJavaString(env.get(), java_res);
+  }
+
   void setRuntimeExtensionFunctions(
       const std::vector<ExtensionFunction>& udfs,
       const std::vector<table_functions::TableFunction>& udtfs,
@@ -289,6 +436,209 @@ class CalciteJNI::Impl {
   }
 
  private:
+  // Bring the schema registered in CalciteServerHandler up to date with the
+  // schema provider and return the resulting schema version. The version is
+  // pinned, so that Calcite retains it until unpinSchemaVersion() is called.
+  // Nothing is listed or compared while the provider's schema version stays
+  // the same. Otherwise tables are compared with the ones sent before by
+  // their columns, only changed tables are serialized. A reset registers the
+  // whole schema as a single version.
+  int64_t syncSchema(JNIEnv* env, bool force_reset) {
+    // read before listing the tables: a change in between bumps the version
+    // again, so it is picked up by the next call
+    auto provider_version = schema_provider_->getSchemaVersion();
+    // must be called with schema_mutex_ held; a listing older than the synced
+    // one must not replace it either
+    auto up_to_date = [&]() {
+      return provider_version >= 0 && !force_reset && !need_schema_reset_ &&
+             provider_version <= synced_provider_version_;
+    };
+    {
+      std::lock_guard<std::mutex> lock(schema_mutex_);
+      if (up_to_date()) {
+        return pinSchemaVersion();
+      }
+    }
+
+    auto tables = list_schema_tables(schema_provider_);
+
+    std::lock_guard<std::mutex> lock(schema_mutex_);
+    if (up_to_date()) {
+      return pinSchemaVersion();
+    }
+    synced_provider_version_ = provider_version;
+    bool retain_sent = false;
+    auto retain_pinned_versions = [&]() {
+      if (retain_sent) {
+        return;
+      }
+      auto oldest = pinned_versions_.empty() ? std::numeric_limits<int64_t>::max()
+                                             : pinned_versions_.begin()->first;
+      env->CallVoidMethod(handler_obj_, handler_retain_schema_versions_, (jlong)oldest);
+      checkSchemaCall(env, "retainSchemaVersions");
+      retain_sent = true;
+    };
+
+    if (force_reset || need_schema_reset_) {
+      retain_pinned_versions();
+      auto schema_json = tables_to_json(tables);
+      jobject arg_schema = newDirectBuffer(env, schema_json);
+      env->CallVoidMethod(
+          handler_obj_, handler_reset_schema_, (jlong)++schema_version_, arg_schema);
+      env->DeleteLocalRef(arg_schema);
+      checkSchemaCall(env, "resetSchema");
+      sent_tables_.clear();
+      for (auto& table : tables) {
+        auto table_id = table.info->table_id;
+        sent_tables_.emplace(table_id, std::move(table));
+      }
+      need_schema_reset_ = false;
+      return pinSchemaVersion();
+    }
+
+    std::unordered_set<int> table_ids;
+    for (const auto& table : tables) {
+      table_ids.insert(table.info->table_id);
+    }
+    for (auto it = sent_tables_.begin(); it != sent_tables_.end();) {
+      if (table_ids.count(it->first)) {
+        ++it;
+        continue;
+      }
+      retain_pinned_versions();
+      env->CallVoidMethod(handler_obj_,
+                          handler_drop_schema_table_,
+                          (jlong)++schema_version_,
+                          (jint)it->first);
+      checkSchemaCall(env, "dropSchemaTable");
+      it = sent_tables_.erase(it);
+    }
+
+    for (auto& table : tables) {
+      auto table_id = table.info->table_id;
+      auto it = sent_tables_.find(table_id);
+      if (it != sent_tables_.end() && same_schema_table(it->second, table)) {
+        continue;
+      }
+      retain_pinned_versions();
+      auto table_json = table_to_json(table);
+      jobject arg_table = newDirectBuffer(env, table_json);
+      env->CallVoidMethod(handler_obj_,
+                          handler_update_schema_table_,
+                          (jlong)++schema_version_,
+                          arg_table);
+      env->DeleteLocalRef(arg_table);
+      checkSchemaCall(env, "updateSchemaTable");
+      sent_tables_[table_id] = std::move(table);
+    }
+
+    return pinSchemaVersion();
+  }
+
+  // Must be called with schema_mutex_ held.
+  int64_t pinSchemaVersion() {
+    ++pinned_versions_[schema_version_];
+    return schema_version_;
+  }
+
+  void unpinSchemaVersion(int64_t schema_version) {
+    std::lock_guard<std::mutex> lock(schema_mutex_);
+    auto it = pinned_versions_.find(schema_version);
+    CHECK(it != pinned_versions_.end());
+    if (!--it->second) {
+      pinned_versions_.erase(it);
+    }
+  }
+
+  // Calls the schema version based handler method and returns its result.
+  // Only schema changes are sent to Calcite, the query itself refers to the
+  // schema by its version. If Calcite doesn't know that version (e.g. it was
+  // evicted by concurrent updates), re-register the whole schema and retry
+  // once. Planning errors are thrown as std::invalid_argument, other Java
+  // exceptions as std::runtime_error; either way the exception is cleared.
+  template <typename Call>
+  auto callWithSchema(JNIEnv* env,
+                      const std::string& method,
+                      const std::string& request,
+                      Call call) -> decltype(call(int64_t{})) {
+    for (bool force_reset : {false, true}) {
+      auto schema_version = syncSchema(env, force_reset);
+      ScopeGuard unpin = [&]() { unpinSchemaVersion(schema_version); };
+      auto java_res = call(schema_version);
+      if (env->ExceptionCheck() == JNI_FALSE) {
+        if constexpr (std::is_pointer_v<decltype(java_res)>) {
+          if (!java_res) {
+            throw std::runtime_error("CalciteServerHandler::" + method +
+                                     " call failed for unknown reason\n  " + request +
+                                     "\n  Schema version: " +
+                                     std::to_string(schema_version));
+          }
+        }
+        return java_res;
+      }
+
+      jthrowable e = env->ExceptionOccurred();
+      CHECK(e);
+      env->ExceptionClear();
+      if (!env->IsInstanceOf(e, invalid_parse_req_cls_)) {
+        throw std::runtime_error("CalciteServerHandler::" + method +
+                                 " call failed\n  " + request +
+                                 "\n  Schema version: " + std::to_string(schema_version));
+      }
+      if (!force_reset &&
+          env->GetIntField(e, invalid_parse_req_code_) == kUnknownSchemaVersionCode) {
+        continue;
+      }
+      throw std::invalid_argument(readStringField(env, e, invalid_parse_req_msg_));
+    }
+    UNREACHABLE();
+    return {};
+  }
+
+  jobject newQueryParsingOption(JNIEnv* env, bool legacy_syntax, bool is_explain) {
+    jobject res = env->NewObject(parsing_opts_cls_,
+                                 parsing_opts_ctor_,
+                                 (jboolean)legacy_syntax,
+                                 (jboolean)is_explain,
+                                 /*check_privileges=*/(jboolean)(false));
+    if (!res) {
+      throw std::runtime_error("cannot create QueryParsingOption object");
+    }
+    return res;
+  }
+
+  jobject newOptimizationOption(
+      JNIEnv* env,
+      const std::vector<FilterPushDownInfo>& filter_push_down_info,
+      bool is_view_optimize) {
+    jobject arg_filter_push_down_info = env->NewObject(array_list_cls_, array_list_ctor_);
+    if (!filter_push_down_info.empty()) {
+      throw std::runtime_error(
+          "Filter pushdown info is not yet implemented in Calcite JNI client.");
+    }
+    jobject res = env->NewObject(optimization_opts_cls_,
+                                 optimization_opts_ctor_,
+                                 (jboolean)is_view_optimize,
+                                 (jboolean)config_->exec.watchdog.enable,
+                                 arg_filter_push_down_info);
+    if (!res) {
+      throw std::runtime_error("cannot create OptimizationOption object");
+    }
+    env->SetBooleanField(res,
+                         optimization_opts_join_reordering_,
+                         (jboolean)config_->opts.enable_calcite_join_reordering);
+    return res;
+  }
+
+  void checkSchemaCall(JNIEnv* env, const std::string& method) {
+    if (env->ExceptionCheck() != JNI_FALSE) {
+      env->ExceptionDescribe();
+      // Calcite state is unknown now, register the whole schema next time.
+      need_schema_reset_ = true;
+      throw std::runtime_error("Failed Java call to " + method);
+    }
+  }
+
   jobject addGlobalRef(JNIEnv* env, jobject obj) {
     auto res = env->NewGlobalRef(obj);
     global_refs_.push_back(res);
@@ -321,16 +671,86 @@ class CalciteJNI::Impl {
     }
     handler_obj_ = addGlobalRef(env, handler_obj_);
 
-    // Find 'CalciteServerHandler::process' method.
+    // Find 'CalciteServerHandler::processUtf8' method.
     handler_process_ = env->GetMethodID(
         handler_cls,
-        "process",
-        "(Ljava/lang/String;Ljava/lang/String;Lcom/"
+        "processUtf8",
+        "(Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;Lcom/"
         "mapd/parser/server/QueryParsingOption;Lcom/mapd/parser/server/"
-        "OptimizationOption;Lorg/apache/calcite/rel/rules/Restriction;Ljava/lang/"
-        "String;)Lcom/mapd/parser/server/PlanResult;");
+        "OptimizationOption;Lorg/apache/calcite/rel/rules/Restriction;J"
+        "Ljava/nio/ByteBuffer;)Lcom/mapd/parser/server/PlanResult;");
     if (!handler_process_) {
-      throw std::runtime_error("cannot find CalciteServerHandler::process method");
+      throw std::runtime_error("cannot find CalciteServerHandler::processUtf8 method");
+    }
+
+    // Find 'CalciteServerHandler::processBatchUtf8' method.
+    handler_process_batch_ = env->GetMethodID(
+        handler_cls,
+        "processBatchUtf8",
+        "(Ljava/nio/ByteBuffer;[Ljava/nio/ByteBuffer;Lcom/"
+        "mapd/parser/server/QueryParsingOption;Lcom/mapd/parser/server/"
+        "OptimizationOption;Lorg/apache/calcite/rel/rules/Restriction;J)Lcom/mapd/"
+        "parser/server/BatchPlanResult;");
+    if (!handler_process_batch_) {
+      throw std::runtime_error(
+          "cannot find CalciteServerHandler::processBatchUtf8 method");
+    }
+
+    // Find 'CalciteServerHandler::submitUtf8' method.
+    handler_submit_ = env->GetMethodID(
+        handler_cls,
+        "submitUtf8",
+        "(Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;Lcom/"
+        "mapd/parser/server/QueryParsingOption;Lcom/mapd/parser/server/"
+        "OptimizationOption;Lorg/apache/calcite/rel/rules/Restriction;J)J");
+    if (!handler_submit_) {
+      throw std::runtime_error("cannot find CalciteServerHandler::submitUtf8 method");
+    }
+
+    // Find 'CalciteServerHandler::pollUtf8' method.
+    handler_poll_ = env->GetMethodID(handler_cls,
+                                     "pollUtf8",
+                                     "(JJLjava/nio/ByteBuffer;)Lcom/mapd/parser/"
+                                     "server/PlanResult;");
+    if (!handler_poll_) {
+      throw std::runtime_error("cannot find CalciteServerHandler::pollUtf8 method");
+    }
+
+    // Find 'CalciteServerHandler::cancel' method.
+    handler_cancel_ = env->GetMethodID(handler_cls, "cancel", "(J)V");
+    if (!handler_cancel_) {
+      throw std::runtime_error("cannot find CalciteServerHandler::cancel method");
+    }
+
+    // Find 'CalciteServerHandler::resetSchemaUtf8' method.
+    handler_reset_schema_ = env->GetMethodID(
+        handler_cls, "resetSchemaUtf8", "(JLjava/nio/ByteBuffer;)V");
+    if (!handler_reset_schema_) {
+      throw std::runtime_error(
+          "cannot find CalciteServerHandler::resetSchemaUtf8 method");
+    }
+
+    // Find 'CalciteServerHandler::retainSchemaVersions' method.
+    handler_retain_schema_versions_ =
+        env->GetMethodID(handler_cls, "retainSchemaVersions", "(J)V");
+    if (!handler_retain_schema_versions_) {
+      throw std::runtime_error(
+          "cannot find CalciteServerHandler::retainSchemaVersions method");
+    }
+
+    // Find 'CalciteServerHandler::updateSchemaTableUtf8' method.
+    handler_update_schema_table_ = env->GetMethodID(
+        handler_cls, "updateSchemaTableUtf8", "(JLjava/nio/ByteBuffer;)V");
+    if (!handler_update_schema_table_) {
+      throw std::runtime_error(
+          "cannot find CalciteServerHandler::updateSchemaTableUtf8 method");
+    }
+
+    // Find 'CalciteServerHandler::dropSchemaTable' method.
+    handler_drop_schema_table_ =
+        env->GetMethodID(handler_cls, "dropSchemaTable", "(JI)V");
+    if (!handler_drop_schema_table_) {
+      throw std::runtime_error("cannot find CalciteServerHandler::dropSchemaTable method");
     }
 
     // Find 'CalciteServerHandler::getExtensionFunctionWhitelist' method.
@@ -358,6 +778,14 @@ class CalciteJNI::Impl {
           "method");
     }
 
+    // Find 'CalciteServerHandler::getPlanningMetrics' method.
+    handler_get_planning_metrics_ =
+        env->GetMethodID(handler_cls, "getPlanningMetrics", "()Ljava/lang/String;");
+    if (!handler_get_planning_metrics_) {
+      throw std::runtime_error(
+          "cannot find CalciteServerHandler::getPlanningMetrics method");
+    }
+
     // Find 'CalciteServerHandler::setRuntimeExtensionFunctions' method.
     handler_set_rt_fns_ = env->GetMethodID(handler_cls,
                                            "setRuntimeExtensionFunctions",
@@ -384,14 +812,39 @@ class CalciteJNI::Impl {
     if (!optimization_opts_ctor_) {
       throw std::runtime_error("cannot find OptimizationOption ctor");
     }
+    optimization_opts_join_reordering_ =
+        env->GetFieldID(optimization_opts_cls_, "joinReordering", "Z");
+    if (!optimization_opts_join_reordering_) {
+      throw std::runtime_error("cannot find OptimizationOption::joinReordering field");
+    }
   }
 
   void findPlanResult(JNIEnv* env) {
     plan_result_cls_ = findClass(env, "com/mapd/parser/server/PlanResult");
-    plan_result_plan_result_ =
-        env->GetFieldID(plan_result_cls_, "planResult", "Ljava/lang/String;");
-    if (!plan_result_plan_result_) {
-      throw std::runtime_error("cannot find PlanResult::planResult field");
+    plan_result_plan_size_ = env->GetFieldID(plan_result_cls_, "planSize", "I");
+    if (!plan_result_plan_size_) {
+      throw std::runtime_error("cannot find PlanResult::planSize field");
+    }
+    plan_result_plan_buffer_ =
+        env->GetFieldID(plan_result_cls_, "planBuffer", "Ljava/nio/ByteBuffer;");
+    if (!plan_result_plan_buffer_) {
+      throw std::runtime_error("cannot find PlanResult::planBuffer field");
+    }
+  }
+
+  void findBatchPlanResult(JNIEnv* env) {
+    batch_plan_result_cls_ = findClass(env, "com/mapd/parser/server/BatchPlanResult");
+    batch_plan_result_results_ = env->GetFieldID(
+        batch_plan_result_cls_, "results", "[Lcom/mapd/parser/server/PlanResult;");
+    if (!batch_plan_result_results_) {
+      throw std::runtime_error("cannot find BatchPlanResult::results field");
+    }
+    batch_plan_result_errors_ =
+        env->GetFieldID(batch_plan_result_cls_,
+                        "errors",
+                        "[Lcom/mapd/parser/server/InvalidParseRequest;");
+    if (!batch_plan_result_errors_) {
+      throw std::runtime_error("cannot find BatchPlanResult::errors field");
     }
   }
 
@@ -437,6 +890,10 @@ class CalciteJNI::Impl {
     if (!invalid_parse_req_msg_) {
       throw std::runtime_error("cannot find InvalidParseRequest::msg field");
     }
+    invalid_parse_req_code_ = env->GetFieldID(invalid_parse_req_cls_, "code", "I");
+    if (!invalid_parse_req_code_) {
+      throw std::runtime_error("cannot find InvalidParseRequest::code field");
+    }
   }
 
   void findArrayList(JNIEnv* env) {
@@ -471,6 +928,50 @@ class CalciteJNI::Impl {
     return res;
   }
 
+  // Wraps the string's memory, which must outlive the Java call using it.
+  jobject newDirectBuffer(JNIEnv* env, const std::string& str) {
+    jobject res = env->NewDirectByteBuffer(const_cast<char*>(str.data()),
+                                           static_cast<jlong>(str.size()));
+    if (!res) {
+      throw std::runtime_error("cannot create direct ByteBuffer");
+    }
+    return res;
+  }
+
+  // Per thread buffer the plans are written to, grown to the largest plan
+  // seen by the thread.
+  static std::vector<char>& planBuffer() {
+    thread_local std::vector<char> buffer(kInitialPlanBufferSize);
+    return buffer;
+  }
+
+  // Copy the plan written by processUtf8 or pollUtf8. A plan that didn't fit
+  // into plan_buffer was written into a new Java buffer instead, plan_buffer
+  // grows to its capacity so that the next plan of the same size fits. The
+  // plans of processBatchUtf8 all come in buffers of their own, plan_buffer is
+  // null for them.
+  std::string readPlan(JNIEnv* env, jobject plan_result, std::vector<char>* plan_buffer) {
+    auto size =
+        static_cast<size_t>(env->GetIntField(plan_result, plan_result_plan_size_));
+    jobject grown = env->GetObjectField(plan_result, plan_result_plan_buffer_);
+    if (!grown) {
+      if (!plan_buffer) {
+        CHECK_EQ(size, size_t(0));
+        return {};
+      }
+      CHECK_LE(size, plan_buffer->size());
+      return std::string(plan_buffer->data(), size);
+    }
+    auto data = static_cast<const char*>(env->GetDirectBufferAddress(grown));
+    CHECK(data);
+    std::string res(data, size);
+    if (plan_buffer) {
+      plan_buffer->resize(static_cast<size_t>(env->GetDirectBufferCapacity(grown)));
+    }
+    env->DeleteLocalRef(grown);
+    return res;
+  }
+
   std::string readStringField(JNIEnv* env, jobject obj, jfieldID field) {
     auto field_obj = (jstring)env->GetObjectField(obj, field);
     return convertJavaString(env, field_obj);
@@ -543,12 +1044,32 @@ class CalciteJNI::Impl {
   SchemaProviderPtr schema_provider_;
   ConfigPtr config_;
 
+  // Schema state registered in CalciteServerHandler: the last used schema
+  // version, every table sent so far and the number of in-flight calls per
+  // schema version.
+  std::mutex schema_mutex_;
+  int64_t schema_version_ = 0;
+  bool need_schema_reset_ = true;
+  // schema provider version of the sent tables, -1 if it's not tracked
+  int64_t synced_provider_version_ = -1;
+  std::unordered_map<int, SchemaTable> sent_tables_;
+  std::map<int64_t, int> pinned_versions_;
+
   // com.mapd.parser.server.CalciteServerHandler instance and methods.
   jobject handler_obj_;
   jmethodID handler_process_;
+  jmethodID handler_process_batch_;
+  jmethodID handler_submit_;
+  jmethodID handler_poll_;
+  jmethodID handler_cancel_;
+  jmethodID handler_reset_schema_;
+  jmethodID handler_retain_schema_versions_;
+  jmethodID handler_update_schema_table_;
+  jmethodID handler_drop_schema_table_;
   jmethodID handler_get_ext_fn_list_;
   jmethodID handler_get_udf_list_;
   jmethodID handlhandler_get_rt_fn_list_;
+  jmethodID handler_get_planning_metrics_;
   jmethodID handler_set_rt_fns_;
 
   // com.mapd.parser.server.QueryParsingOption class and methods
@@ -558,10 +1079,20 @@ class CalciteJNI::Impl {
   // com.mapd.parser.server.OptimizationOption class and methods
   jclass optimization_opts_cls_;
   jmethodID optimization_opts_ctor_;
+  jfieldID optimization_opts_join_reordering_;
 
   // com.mapd.parser.server.PlanResult class and fields
   jclass plan_result_cls_;
-  jfieldID plan_result_plan_result_;
+  jfieldID plan_result_plan_size_;
+  jfieldID plan_result_plan_buffer_;
+
+  // com.mapd.parser.server.BatchPlanResult class and fields
+  jclass batch_plan_result_cls_;
+  jfieldID batch_plan_result_results_;
+  jfieldID batch_plan_result_errors_;
+
+  // java.nio.ByteBuffer class
+  jclass byte_buffer_cls_;
 
   // com.mapd.parser.server.ExtensionFunction$ExtArgumentType enum values
   std::vector<jobject> ext_arg_type_vals_;
@@ -574,6 +1105,7 @@ class CalciteJNI::Impl {
   // com.mapd.parser.server.InvalidParseRequest class and fields
   jclass invalid_parse_req_cls_;
   jfieldID invalid_parse_req_msg_;
+  jfieldID invalid_parse_req_code_;
 
   // java.util.ArrayList class and methods
   jclass array_list_cls_;
@@ -614,6 +1146,35 @@ std::string CalciteJNI::process(
                         is_view_optimize);
 }
 
+std::vector<CalciteJNI::BatchResult> CalciteJNI::processBatch(
+    const std::string& db_name,
+    const std::vector<std::string>& sql_strings,
+    const bool legacy_syntax,
+    const bool is_view_optimize) {
+  return impl_->processBatch(db_name, sql_strings, legacy_syntax, is_view_optimize);
+}
+
+int64_t CalciteJNI::submit(const std::string& db_name,
+                           const std::string& sql_string,
+                           const bool legacy_syntax,
+                           const bool is_explain,
+                           const bool is_view_optimize) {
+  return impl_->submit(db_name, sql_string, legacy_syntax, is_explain, is_view_optimize);
+}
+
+std::optional<std::string> CalciteJNI::pollPlan(int64_t ticket,
+                                                std::chrono::milliseconds timeout) {
+  return impl_->pollPlan(ticket, timeout.count());
+}
+
+std::string CalciteJNI::waitPlan(int64_t ticket) {
+  return *impl_->pollPlan(ticket, /*timeout_ms=*/-1);
+}
+
+void CalciteJNI::cancel(int64_t ticket) {
+  impl_->cancel(ticket);
+}
+
 std::string CalciteJNI::getExtensionFunctionWhitelist() {
   return impl_->getExtensionFunctionWhitelist();
 }
@@ -623,6 +1184,9 @@ std::string CalciteJNI::getUserDefinedFunctionWhitelist() {
 std::string CalciteJNI::getRuntimeExtensionFunctionWhitelist() {
   return impl_->getRuntimeExtensionFunctionWhitelist();
 }
+std::string CalciteJNI::getPlanningMetrics() {
+  return impl_->getPlanningMetrics();
+}
 void CalciteJNI::setRuntimeExtensionFunctions(
     const std::vector<ExtensionFunction>& udfs,
     const std::vector<table_functions::TableFunction>& udtfs,
@@ -21,6 +21,9 @@
 #include "SchemaMgr/SchemaProvider.h"
 #include "Shared/Config.h"
 
+#include <chrono>
+#include <optional>
+
 struct FilterPushDownInfo {
   int input_prev;
   int input_start;
@@ -42,9 +45,42 @@ class CalciteJNI {
                       const bool is_explain = false,
                       const bool is_view_optimize = false);
 
+  // Plan of one query of processBatch(), or the error it failed with.
+  struct BatchResult {
+    std::string plan;
+    std::optional<std::string> error;
+  };
+
+  // Plans independent queries in one call; Calcite plans them concurrently.
+  // Results are in query order. Unlike process(), planning errors are
+  // reported per query rather than thrown.
+  std::vector<BatchResult> processBatch(const std::string& db_name,
+                                        const std::vector<std::string>& sql_strings,
+                                        const bool legacy_syntax = false,
+                                        const bool is_view_optimize = false);
+
+  // Asynchronous planning: submit() queues the query for Calcite's planning
+  // threads and returns a ticket right away. pollPlan() returns the plan if it
+  // is ready within the timeout, waitPlan() blocks until it is. Planning errors
+  // are thrown by pollPlan()/waitPlan() like by process(). A ticket is gone
+  // once its plan or error has been returned; after cancel(), that error is
+  // the cancellation.
+  int64_t submit(const std::string& db_name,
+                 const std::string& sql_string,
+                 const bool legacy_syntax = false,
+                 const bool is_explain = false,
+                 const bool is_view_optimize = false);
+  std::optional<std::string> pollPlan(
+      int64_t ticket,
+      std::chrono::milliseconds timeout = std::chrono::milliseconds::zero());
+  std::string waitPlan(int64_t ticket);
+  void cancel(int64_t ticket);
+
   std::string getExtensionFunctionWhitelist();
   std::string getUserDefinedFunctionWhitelist();
   std::string getRuntimeExtensionFunctionWhitelist();
+  // Planning counters and per-stage latency histograms as JSON.
+  std::string getPlanningMetrics();
   void setRuntimeExtensionFunctions(
       const std::vector<ExtensionFunction>& udfs,
       const std::vector<table_functions::TableFunction>& udtfs,
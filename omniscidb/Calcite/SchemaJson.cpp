@@ -179,65 +179,103 @@ int getCalciteScale(const hdk::ir::Type* type) {
   throw std::runtime_error("Cannot map to Calcite type system: " + type->toString());
 }
 
+rapidjson::Value table_to_json_value(const SchemaTable& schema_table,
+                                     rapidjson::Document::AllocatorType& allocator) {
+  const auto& tinfo = *schema_table.info;
+  rapidjson::Value table(rapidjson::kObjectType);
+  table.AddMember(
+      "name", rapidjson::Value().SetString(rapidjson::StringRef(tinfo.name)), allocator);
+  table.AddMember("id", rapidjson::Value().SetInt(tinfo.table_id), allocator);
+  table.AddMember("columns", rapidjson::Value(rapidjson::kArrayType), allocator);
+
+  for (const auto& col_info : schema_table.columns) {
+    rapidjson::Value column(rapidjson::kObjectType);
+    column.AddMember("name",
+                     rapidjson::Value().SetString(rapidjson::StringRef(col_info->name)),
+                     allocator);
+    column.AddMember(
+        "coltype", rapidjson::Value().SetInt(toCalciteTypeId(col_info->type)), allocator);
+    column.AddMember("colsubtype",
+                     rapidjson::Value().SetInt(toCalciteSubtypeId(col_info->type)),
+                     allocator);
+    column.AddMember("coldim",
+                     rapidjson::Value().SetInt(getCalciteDimension(col_info->type)),
+                     allocator);
+    column.AddMember("colscale",
+                     rapidjson::Value().SetInt(getCalciteScale(col_info->type)),
+                     allocator);
+    column.AddMember("is_notnull",
+                     rapidjson::Value().SetBool(!col_info->type->nullable()),
+                     allocator);
+    column.AddMember(
+        "is_systemcol", rapidjson::Value().SetBool(col_info->is_rowid), allocator);
+    column.AddMember(
+        "is_virtualcol", rapidjson::Value().SetBool(col_info->is_rowid), allocator);
+    column.AddMember("is_deletedcol", rapidjson::Value().SetBool(false), allocator);
+    table["columns"].PushBack(column, allocator);
+  }
+  return table;
+}
+
+std::string json_to_string(const rapidjson::Value& value) {
+  rapidjson::StringBuffer buffer;
+  rapidjson::Writer<rapidjson::StringBuffer> writer(buffer);
+  value.Accept(writer);
+  return std::string(buffer.GetString());
+}
+
 }  // namespace
 
-std::string schema_to_json(SchemaProviderPtr schema_provider) {
+std::vector<SchemaTable> list_schema_tables(SchemaProviderPtr schema_provider) {
+  std::vector<SchemaTable> res;
   auto dbs = schema_provider->listDatabases();
   if (dbs.empty()) {
-    return "{}";
+    return res;
   }
   // Current JSON format supports a single database only.
   CHECK_EQ(dbs.size(), (size_t)1);
-  auto tables = schema_provider->listTables(dbs.front());
+  for (auto& tinfo : schema_provider->listTables(dbs.front())) {
+    auto columns = schema_provider->listColumns(*tinfo);
+    res.push_back({std::move(tinfo), std::move(columns)});
+  }
+  return res;
+}
 
-  rapidjson::Document doc(rapidjson::kObjectType);
+bool same_schema_table(const SchemaTable& lhs, const SchemaTable& rhs) {
+  if (lhs.info->table_id != rhs.info->table_id || lhs.info->name != rhs.info->name ||
+      lhs.columns.size() != rhs.columns.size()) {
+    return false;
+  }
+  for (size_t i = 0; i < lhs.columns.size(); ++i) {
+    const auto& lhs_col = *lhs.columns[i];
+    const auto& rhs_col = *rhs.columns[i];
+    if (lhs_col.name != rhs_col.name || lhs_col.is_rowid != rhs_col.is_rowid ||
+        !lhs_col.type->equal(rhs_col.type)) {
+      return false;
+    }
+  }
+  return true;
+}
 
-  for (auto tinfo : tables) {
-    rapidjson::Value table(rapidjson::kObjectType);
-    table.AddMember("name",
-                    rapidjson::Value().SetString(rapidjson::StringRef(tinfo->name)),
-                    doc.GetAllocator());
-    table.AddMember("id", rapidjson::Value().SetInt(tinfo->table_id), doc.GetAllocator());
-    table.AddMember(
-        "columns", rapidjson::Value(rapidjson::kArrayType), doc.GetAllocator());
+std::string table_to_json(const SchemaTable& schema_table) {
+  rapidjson::Document doc;
+  return json_to_string(table_to_json_value(schema_table, doc.GetAllocator()));
+}
 
-    auto columns = schema_provider->listColumns(*tinfo);
-    for (const auto& col_info : columns) {
-      rapidjson::Value column(rapidjson::kObjectType);
-      column.AddMember("name",
-                       rapidjson::Value().SetString(rapidjson::StringRef(col_info->name)),
-                       doc.GetAllocator());
-      column.AddMember("coltype",
-                       rapidjson::Value().SetInt(toCalciteTypeId(col_info->type)),
-                       doc.GetAllocator());
-      column.AddMember("colsubtype",
-                       rapidjson::Value().SetInt(toCalciteSubtypeId(col_info->type)),
-                       doc.GetAllocator());
-      column.AddMember("coldim",
-                       rapidjson::Value().SetInt(getCalciteDimension(col_info->type)),
-                       doc.GetAllocator());
-      column.AddMember("colscale",
-                       rapidjson::Value().SetInt(getCalciteScale(col_info->type)),
-                       doc.GetAllocator());
-      column.AddMember("is_notnull",
-                       rapidjson::Value().SetBool(!col_info->type->nullable()),
-                       doc.GetAllocator());
-      column.AddMember("is_systemcol",
-                       rapidjson::Value().SetBool(col_info->is_rowid),
-                       doc.GetAllocator());
-      column.AddMember("is_virtualcol",
-                       rapidjson::Value().SetBool(col_info->is_rowid),
-                       doc.GetAllocator());
-      column.AddMember(
-          "is_deletedcol", rapidjson::Value().SetBool(false), doc.GetAllocator());
-      table["columns"].PushBack(column, doc.GetAllocator());
-    }
-    doc.AddMember(rapidjson::StringRef(tinfo->name), table, doc.GetAllocator());
+std::string tables_to_json(const std::vector<SchemaTable>& schema_tables) {
+  if (schema_tables.empty()) {
+    return "{}";
   }
 
-  rapidjson::StringBuffer buffer;
-  rapidjson::Writer<rapidjson::StringBuffer> writer(buffer);
-  doc.Accept(writer);
+  rapidjson::Document doc(rapidjson::kObjectType);
+  for (const auto& schema_table : schema_tables) {
+    doc.AddMember(rapidjson::StringRef(schema_table.info->name),
+                  table_to_json_value(schema_table, doc.GetAllocator()),
+                  doc.GetAllocator());
+  }
+  return json_to_string(doc);
+}
 
-  return std::string(buffer.GetString());
+std::string schema_to_json(SchemaProviderPtr schema_provider) {
+  return tables_to_json(list_schema_tables(schema_provider));
 }
@@ -12,6 +12,28 @@
  * limitations under the License.
  */
 
+#pragma once
+
 #include "SchemaMgr/SchemaProvider.h"
 
+#include <vector>
+
+// Table with its columns as listed by the schema provider.
+struct SchemaTable {
+  TableInfoPtr info;
+  ColumnInfoList columns;
+};
+
 std::string schema_to_json(SchemaProviderPtr schema_provider);
+
+std::vector<SchemaTable> list_schema_tables(SchemaProviderPtr schema_provider);
+
+// Check if both tables would be serialized to the same JSON, without
+// serializing them.
+bool same_schema_table(const SchemaTable& lhs, const SchemaTable& rhs);
+
+// Serialize a single table in the format of a schema_to_json entry.
+std::string table_to_json(const SchemaTable& schema_table);
+
+// Serialize tables in the schema_to_json format.
+std::string tables_to_json(const std::vector<SchemaTable>& schema_tables);
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.benchmark;
+
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.InvalidParseRequest;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the planning overhead of the join reordering phase on star and
+ * snowflake queries. The star query with seven dimensions joins eight tables,
+ * the snowflake one fifteen.
+ *
+ * The schema carries table statistics: the fact table f has 10^8 rows, the
+ * dimension tables d1 .. d(N) have 10^(N-i+2) rows each, so the written join
+ * order (largest dimension first) is the worst one. In the snowflake shape
+ * every dimension di is further joined with a sub-dimension si of 10 rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-DMAPD_LOG_DIR=.", "-Xms4g", "-Xmx4g"})
+public class JoinReorderingBenchmark {
+  public enum Shape { STAR, SNOWFLAKE }
+
+  // type ids as in SchemaJson.cpp
+  private static final int KINT = 6;
+  private static final int KDOUBLE = 9;
+  private static final int KBIGINT = 12;
+
+  @State(Scope.Benchmark)
+  public static class Planner {
+    @Param
+    public Shape shape;
+
+    // number of dimension tables, the snowflake shape joins twice as many
+    // tables
+    @Param({"3", "7"})
+    public int dimensionCount;
+
+    @Param({"false", "true"})
+    public boolean joinReordering;
+
+    CalciteServerHandler handler;
+    String schemaJson;
+    String sql;
+    QueryParsingOption queryParsingOption;
+    OptimizationOption optimizationOption;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      String extensionFunctions =
+              System.getProperty(PlannerBenchmark.EXTENSION_FUNCTIONS_PROPERTY,
+                      PlannerBenchmark.DEFAULT_EXTENSION_FUNCTIONS);
+      handler = new CalciteServerHandler(extensionFunctions, "");
+      handler.setPlanTemplatesEnabled(false);
+      schemaJson = schemaJson(dimensionCount);
+      sql = sql(shape, dimensionCount);
+      queryParsingOption = new QueryParsingOption(false, false, false);
+      optimizationOption = new OptimizationOption(false, false, new ArrayList<>());
+      optimizationOption.joinReordering = joinReordering;
+    }
+
+    @Setup(Level.Invocation)
+    public void clearPlanCache() {
+      handler.invalidatePlanCache();
+    }
+  }
+
+  static String schemaJson(int dimensionCount) {
+    StringBuilder sb = new StringBuilder("{");
+    StringBuilder factColumns = new StringBuilder();
+    for (int i = 1; i <= dimensionCount; ++i) {
+      factColumns.append(column("d" + i, KBIGINT)).append(',');
+    }
+    factColumns.append(column("v", KDOUBLE));
+    appendTable(sb, "f", 1, 100000000L, factColumns.toString());
+    long rowCount = 1;
+    for (int i = dimensionCount; i >= 1; --i) {
+      rowCount *= 10;
+      sb.append(',');
+      appendTable(sb,
+              "d" + i,
+              1 + i,
+              rowCount * 10,
+              column("id", KBIGINT) + "," + column("s", KBIGINT) + ","
+                      + column("x", KINT));
+      sb.append(',');
+      appendTable(sb,
+              "s" + i,
+              1 + dimensionCount + i,
+              10,
+              column("id", KBIGINT) + "," + column("x", KINT));
+    }
+    return sb.append('}').toString();
+  }
+
+  static String sql(Shape shape, int dimensionCount) {
+    StringBuilder sb = new StringBuilder("SELECT SUM(f.v) FROM d1");
+    sb.append(" JOIN f ON f.d1 = d1.id");
+    for (int i = 2; i <= dimensionCount; ++i) {
+      sb.append(" JOIN d").append(i).append(" ON f.d").append(i);
+      sb.append(" = d").append(i).append(".id");
+    }
+    if (shape == Shape.SNOWFLAKE) {
+      for (int i = 1; i <= dimensionCount; ++i) {
+        sb.append(" JOIN s").append(i).append(" ON d").append(i);
+        sb.append(".s = s").append(i).append(".id");
+      }
+    }
+    sb.append(" WHERE d").append(dimensionCount).append(".x = 1");
+    return sb.toString();
+  }
+
+  private static void appendTable(
+          StringBuilder sb, String name, int id, long rowCount, String columns) {
+    sb.append('"').append(name).append("\":{\"name\":\"").append(name);
+    sb.append("\",\"id\":").append(id);
+    sb.append(",\"stats\":{\"row_count\":").append(rowCount);
+    sb.append(",\"unique_keys\":[[\"id\"]]}");
+    sb.append(",\"columns\":[").append(columns).append("]}");
+  }
+
+  private static String column(String name, int type) {
+    return "{\"name\":\"" + name + "\",\"coltype\":" + type
+            + ",\"colsubtype\":0,\"coldim\":0,\"colscale\":0,\"is_notnull\":false"
+            + ",\"is_systemcol\":false,\"is_virtualcol\":false"
+            + ",\"is_deletedcol\":false}";
+  }
+
+  @Benchmark
+  public String process(Planner planner) throws InvalidParseRequest {
+    return planner.handler
+            .process("benchmark",
+                    planner.sql,
+                    planner.queryParsingOption,
+                    planner.optimizationOption,
+                    null,
+                    planner.schemaJson)
+            .planResult;
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.benchmark;
+
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.InvalidParseRequest;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.PlanResult;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans the {@link QueryCorpus} queries through
+ * {@link CalciteServerHandler#process} against a {@link SyntheticSchema}.
+ *
+ * The plan cache is cleared before every invocation, so each invocation
+ * plans the query from scratch. Besides the total time per plan, the
+ * {@link StageTimes} auxiliary counters report the nanoseconds spent in every
+ * planning stage, summed over the iteration; divide them by the "plans"
+ * counter to get the time per plan. Run with "-prof gc" to get the
+ * allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-DMAPD_LOG_DIR=.", "-Xms4g", "-Xmx4g"})
+public class PlannerBenchmark {
+  // path of the extension functions AST used to build the operator table
+  static final String EXTENSION_FUNCTIONS_PROPERTY = "benchmark.extensionFunctions";
+  static final String DEFAULT_EXTENSION_FUNCTIONS =
+          "calcite/src/test/resources/ast/test_extension_functions.ast";
+
+  @State(Scope.Benchmark)
+  public static class Planner {
+    @Param({"10", "500", "5000"})
+    public int tableCount;
+
+    @Param({"16", "400"})
+    public int columnCount;
+
+    @Param
+    public QueryCorpus query;
+
+    // send the schema JSON with every query, or register it once and plan
+    // against the schema version
+    @Param({"false", "true"})
+    public boolean schemaVersion;
+
+    CalciteServerHandler handler;
+    String schemaJson;
+    String sql;
+    QueryParsingOption queryParsingOption;
+    OptimizationOption optimizationOption;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      String extensionFunctions = System.getProperty(
+              EXTENSION_FUNCTIONS_PROPERTY, DEFAULT_EXTENSION_FUNCTIONS);
+      handler = new CalciteServerHandler(extensionFunctions, "");
+      handler.setPlanTemplatesEnabled(false);
+      schemaJson = SyntheticSchema.toJson(tableCount, columnCount);
+      if (schemaVersion) {
+        handler.resetSchema(1, schemaJson);
+      }
+      sql = query.sql(columnCount);
+      queryParsingOption = new QueryParsingOption(query.isLegacySyntax(), false, false);
+      optimizationOption = new OptimizationOption(false, false, new ArrayList<>());
+    }
+
+    @Setup(Level.Invocation)
+    public void clearPlanCache() {
+      handler.invalidatePlanCache();
+    }
+
+    PlanResult process() throws InvalidParseRequest {
+      if (schemaVersion) {
+        return handler.process("benchmark",
+                sql,
+                queryParsingOption,
+                optimizationOption,
+                null,
+                handler.getSchemaVersion());
+      }
+      return handler.process(
+              "benchmark", sql, queryParsingOption, optimizationOption, null, schemaJson);
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class StageTimes {
+    public long plans;
+    public long poolWaitNs;
+    public long parseNs;
+    public long validateNs;
+    public long sqlToRelNs;
+    public long optimizeNs;
+    public long serializeNs;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+      plans = 0;
+      poolWaitNs = 0;
+      parseNs = 0;
+      validateNs = 0;
+      sqlToRelNs = 0;
+      optimizeNs = 0;
+      serializeNs = 0;
+    }
+
+    void add(PlanResult result) {
+      plans++;
+      poolWaitNs += result.poolWaitTimeNs;
+      parseNs += result.parseTimeNs;
+      validateNs += result.validateTimeNs;
+      sqlToRelNs += result.sqlToRelTimeNs;
+      optimizeNs += result.optimizeTimeNs;
+      serializeNs += result.serializeTimeNs;
+    }
+  }
+
+  @Benchmark
+  public String process(Planner planner, StageTimes stageTimes)
+          throws InvalidParseRequest {
+    PlanResult result = planner.process();
+    stageTimes.add(result);
+    return result.planResult;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.benchmark;
+
+/**
+ * Queries planned by {@link PlannerBenchmark}, written against the tables
+ * and columns of {@link SyntheticSchema}.
+ */
+public enum QueryCorpus {
+  SIMPLE_SCAN(false) {
+    @Override
+    String sql(int columnCount) {
+      return "SELECT c0, c1, c3 FROM t0 WHERE c1 > 10 AND c3 < 0.5"
+              + " ORDER BY c0 LIMIT 100";
+    }
+  },
+  // projects every column of a (possibly wide) table
+  WIDE_SCAN(false) {
+    @Override
+    String sql(int columnCount) {
+      StringBuilder sb = new StringBuilder("SELECT ");
+      for (int col = 0; col < columnCount; ++col) {
+        if (col > 0) {
+          sb.append(", ");
+        }
+        sb.append('c').append(col);
+      }
+      return sb.append(" FROM t0 WHERE c1 IS NOT NULL").toString();
+    }
+  },
+  // fact table t0 joined with four dimension tables
+  STAR_JOIN(false) {
+    @Override
+    String sql(int columnCount) {
+      return "SELECT d1.c2, d2.c2, SUM(f.c3), COUNT(*) FROM t0 f"
+              + " JOIN t1 d1 ON f.c1 = d1.c0"
+              + " JOIN t2 d2 ON f.c0 = d2.c0"
+              + " JOIN t3 d3 ON f.c0 = d3.c0"
+              + " LEFT JOIN t4 d4 ON f.c1 = d4.c0"
+              + " WHERE d3.c1 < 100 AND d4.c3 IS NULL"
+              + " GROUP BY d1.c2, d2.c2 ORDER BY 3 DESC LIMIT 10";
+    }
+  },
+  CORRELATED_SUBQUERY(false) {
+    @Override
+    String sql(int columnCount) {
+      return "SELECT a.c0, a.c2 FROM t0 a"
+              + " WHERE a.c3 > (SELECT AVG(b.c3) FROM t1 b WHERE b.c1 = a.c1)"
+              + " AND EXISTS (SELECT 1 FROM t2 c WHERE c.c0 = a.c0 AND c.c2 = 'x')";
+    }
+  },
+  WINDOW_FUNCTIONS(false) {
+    @Override
+    String sql(int columnCount) {
+      return "SELECT c0, ROW_NUMBER() OVER (PARTITION BY c2 ORDER BY c4),"
+              + " SUM(c3) OVER (PARTITION BY c2 ORDER BY c4),"
+              + " LAG(c1, 1) OVER (PARTITION BY c2 ORDER BY c0),"
+              + " AVG(c3) OVER (PARTITION BY c1) FROM t0";
+    }
+  },
+  HUGE_IN_LIST(false) {
+    @Override
+    String sql(int columnCount) {
+      StringBuilder sb = new StringBuilder("SELECT COUNT(*) FROM t0 WHERE c1 IN (");
+      for (int i = 0; i < IN_LIST_SIZE; ++i) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(i * 7);
+      }
+      return sb.append(") OR c2 IN ('a', 'b', 'c')").toString();
+    }
+  },
+  // statistical aggregates expanded by the legacy syntax desugaring
+  LEGACY_VARIANCE(true) {
+    @Override
+    String sql(int columnCount) {
+      return "SELECT c2, STDDEV(c3), VAR_POP(c1), VARIANCE(c3), COVAR_SAMP(c1, c3),"
+              + " CORR(c1, c3) FROM t0 GROUP BY c2";
+    }
+  };
+
+  static final int IN_LIST_SIZE = 10000;
+
+  private final boolean legacySyntax;
+
+  QueryCorpus(boolean legacySyntax) {
+    this.legacySyntax = legacySyntax;
+  }
+
+  abstract String sql(int columnCount);
+
+  boolean isLegacySyntax() {
+    return legacySyntax;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.benchmark;
+
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.InvalidParseRequest;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.PlanResult;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the plans of the {@link RaQueryCorpus} dataframe operations as RA
+ * input ("execute calcite" queries) through
+ * {@link CalciteServerHandler#process}, the path of dataframe frontends
+ * which build the RA themselves.
+ *
+ * The plans are built once per trial by planning the corpus SQL. The plan
+ * cache is cleared before every invocation, so each invocation reads and
+ * optimizes the plan from scratch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-DMAPD_LOG_DIR=.", "-Xms4g", "-Xmx4g"})
+public class RaQueryBenchmark {
+  @State(Scope.Benchmark)
+  public static class Planner {
+    @Param({"10", "500"})
+    public int tableCount;
+
+    @Param({"16", "400"})
+    public int columnCount;
+
+    @Param
+    public RaQueryCorpus query;
+
+    CalciteServerHandler handler;
+    String schemaJson;
+    String raQuery;
+    QueryParsingOption queryParsingOption;
+    OptimizationOption optimizationOption;
+
+    @Setup(Level.Trial)
+    public void setup() throws InvalidParseRequest {
+      String extensionFunctions =
+              System.getProperty(PlannerBenchmark.EXTENSION_FUNCTIONS_PROPERTY,
+                      PlannerBenchmark.DEFAULT_EXTENSION_FUNCTIONS);
+      handler = new CalciteServerHandler(extensionFunctions, "");
+      handler.setPlanTemplatesEnabled(false);
+      schemaJson = SyntheticSchema.toJson(tableCount, columnCount);
+      queryParsingOption = new QueryParsingOption(false, false, false);
+      optimizationOption = new OptimizationOption(false, false, new ArrayList<>());
+      raQuery = "execute calcite " + process(query.sql()).planResult;
+    }
+
+    @Setup(Level.Invocation)
+    public void clearPlanCache() {
+      handler.invalidatePlanCache();
+    }
+
+    PlanResult process(String queryText) throws InvalidParseRequest {
+      return handler.process("benchmark",
+              queryText,
+              queryParsingOption,
+              optimizationOption,
+              null,
+              schemaJson);
+    }
+  }
+
+  @Benchmark
+  public String process(Planner planner) throws InvalidParseRequest {
+    return planner.process(planner.raQuery).planResult;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.benchmark;
+
+/**
+ * Dataframe operations whose plans {@link RaQueryBenchmark} reads as RA
+ * input, written as the SQL that plans to the same RA shapes against the
+ * tables and columns of {@link SyntheticSchema}.
+ */
+public enum RaQueryCorpus {
+  // df[["c0", "c1"]].assign(c5=df.c1 + 1, c6=df.c3 * 2)
+  ASSIGN {
+    @Override
+    String sql() {
+      return "SELECT c0, c1, c1 + 1 AS c5, c3 * 2 AS c6 FROM t0";
+    }
+  },
+  // df[(df.c1 > 10) & df.c3.notna()]
+  FILTER {
+    @Override
+    String sql() {
+      return "SELECT c0, c1, c2, c3 FROM t0 WHERE c1 > 10 AND c3 IS NOT NULL";
+    }
+  },
+  // df.groupby("c2").agg({"c1": "sum", "c3": ["mean", "max"], "c0": "count"})
+  GROUPBY {
+    @Override
+    String sql() {
+      return "SELECT c2, SUM(c1), AVG(c3), MAX(c3), COUNT(c0) FROM t0 GROUP BY c2"
+              + " ORDER BY c2";
+    }
+  },
+  // df.merge(other, on="c0", how="left")
+  MERGE {
+    @Override
+    String sql() {
+      return "SELECT a.c0, a.c1, a.c3, b.c2, b.c4 FROM t0 a"
+              + " LEFT JOIN t1 b ON a.c0 = b.c0";
+    }
+  },
+  // df.sort_values(["c3", "c0"], ascending=[False, True]).head(100)
+  SORT_VALUES {
+    @Override
+    String sql() {
+      return "SELECT c0, c1, c3 FROM t0 ORDER BY c3 DESC, c0 LIMIT 100";
+    }
+  },
+  // pd.concat([df, other])
+  CONCAT {
+    @Override
+    String sql() {
+      return "SELECT c0, c1, c2 FROM t0 UNION ALL SELECT c0, c1, c2 FROM t1";
+    }
+  },
+  // a chain of projections, filters, a merge and a groupby over their result
+  PIPELINE {
+    @Override
+    String sql() {
+      return "SELECT k, SUM(v), COUNT(*) FROM"
+              + " (SELECT a.c2 AS k, a.c3 * b.c3 + 1 AS v FROM"
+              + " (SELECT c0, c2, c3 FROM t0 WHERE c1 > 0) a"
+              + " JOIN (SELECT c0, c3 FROM t1 WHERE c3 IS NOT NULL) b"
+              + " ON a.c0 = b.c0)"
+              + " GROUP BY k ORDER BY k";
+    }
+  };
+
+  abstract String sql();
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.benchmark;
+
+/**
+ * Builds schema JSON in the format produced by SchemaJson.cpp.
+ *
+ * Tables are named t0 .. t(N-1). Every table has the same columns c0 ..
+ * c(M-1), where the first columns have fixed types so that the query corpus
+ * can rely on them:
+ *
+ * c0 BIGINT (key), c1 INTEGER, c2 TEXT, c3 DOUBLE, c4 TIMESTAMP
+ *
+ * and the remaining columns cycle through the same types.
+ */
+public final class SyntheticSchema {
+  // type ids as in SchemaJson.cpp
+  private static final int KINT = 6;
+  private static final int KDOUBLE = 9;
+  private static final int KTIMESTAMP = 11;
+  private static final int KBIGINT = 12;
+  private static final int KTEXT = 13;
+
+  private static final int[] COLUMN_TYPES = {KBIGINT, KINT, KTEXT, KDOUBLE, KTIMESTAMP};
+
+  // the query corpus uses c0 .. c4 and t0 .. t4
+  public static final int MIN_COLUMNS = COLUMN_TYPES.length;
+  public static final int MIN_TABLES = 5;
+
+  private SyntheticSchema() {}
+
+  public static String tableName(int table) {
+    return "t" + table;
+  }
+
+  public static String toJson(int tableCount, int columnCount) {
+    if (tableCount < MIN_TABLES || columnCount < MIN_COLUMNS) {
+      throw new IllegalArgumentException("need at least " + MIN_TABLES + " tables and "
+              + MIN_COLUMNS + " columns");
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append('{');
+    for (int table = 0; table < tableCount; ++table) {
+      if (table > 0) {
+        sb.append(',');
+      }
+      sb.append('"').append(tableName(table)).append("\":");
+      appendTable(sb, table, columnCount);
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+
+  private static void appendTable(StringBuilder sb, int table, int columnCount) {
+    sb.append("{\"name\":\"").append(tableName(table)).append('"');
+    sb.append(",\"id\":").append(table + 1);
+    sb.append(",\"columns\":[");
+    for (int col = 0; col < columnCount; ++col) {
+      if (col > 0) {
+        sb.append(',');
+      }
+      int type = COLUMN_TYPES[col % COLUMN_TYPES.length];
+      sb.append("{\"name\":\"c").append(col).append('"');
+      sb.append(",\"coltype\":").append(type);
+      sb.append(",\"colsubtype\":0");
+      sb.append(",\"coldim\":0");
+      sb.append(",\"colscale\":0");
+      sb.append(",\"is_notnull\":").append(col == 0);
+      sb.append(",\"is_systemcol\":false");
+      sb.append(",\"is_virtualcol\":false");
+      sb.append(",\"is_deletedcol\":false}");
+    }
+    sb.append("]}");
+  }
+}
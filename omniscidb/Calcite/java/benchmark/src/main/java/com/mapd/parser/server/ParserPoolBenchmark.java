@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.parser.server;
+
+import com.mapd.calcite.parser.MapDParser;
+
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrows and returns parsers from many threads at once, comparing
+ * {@link ParserPool} with the commons-pool GenericObjectPool it replaced.
+ *
+ * The parser is held for "work" Blackhole tokens to mimic planning. Lives
+ * in the package of ParserPool to reach the package-private pool classes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DMAPD_LOG_DIR=."})
+@Threads(64)
+public class ParserPoolBenchmark {
+  @State(Scope.Benchmark)
+  public static class Pools {
+    @Param({"0", "1000"})
+    public int work;
+
+    ParserPool parserPool;
+    GenericObjectPool genericPool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      final CalciteParserFactory factory =
+              new CalciteParserFactory(new HashMap<String, ExtensionFunction>());
+      parserPool = new ParserPool(factory);
+      // the configuration CalciteServerHandler used to have
+      genericPool = new GenericObjectPool(new BasePoolableObjectFactory() {
+        @Override
+        public Object makeObject() {
+          return factory.create();
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public void parserPool(Pools pools, Blackhole bh) {
+    MapDParser parser = pools.parserPool.borrow();
+    Blackhole.consumeCPU(pools.work);
+    bh.consume(parser);
+    pools.parserPool.release(parser);
+  }
+
+  @Benchmark
+  public void genericObjectPool(Pools pools, Blackhole bh) throws Exception {
+    MapDParser parser = (MapDParser) pools.genericPool.borrowObject();
+    Blackhole.consumeCPU(pools.work);
+    bh.consume(parser);
+    pools.genericPool.returnObject(parser);
+  }
+}
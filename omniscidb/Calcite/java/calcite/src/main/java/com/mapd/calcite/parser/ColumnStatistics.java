@@ -0,0 +1,20 @@
+package com.mapd.calcite.parser;
+
+/**
+ * Optional statistics of a column. Unknown values are null. min and max are
+ * only kept for numeric columns.
+ */
+public final class ColumnStatistics {
+  public final Double ndv;
+  public final Double min;
+  public final Double max;
+  // fraction of rows with a NULL value, in [0, 1]
+  public final Double nullFraction;
+
+  public ColumnStatistics(Double ndv, Double min, Double max, Double nullFraction) {
+    this.ndv = ndv;
+    this.min = min;
+    this.max = max;
+    this.nullFraction = nullFraction;
+  }
+}
@@ -1,7 +1,18 @@
 package com.mapd.calcite.parser;
 
-public class ColumnType {
-  public String colName;
-  public TypeInfo colType;
-  public boolean isSystem;
+// immutable: schema catalogs and their tables are shared by concurrent planners
+public final class ColumnType {
+  public final String colName;
+  public final TypeInfo colType;
+  public final boolean isSystem;
+  // null if the schema carries no statistics for the column
+  public final ColumnStatistics stats;
+
+  public ColumnType(
+          String colName, TypeInfo colType, boolean isSystem, ColumnStatistics stats) {
+    this.colName = colName;
+    this.colType = colType;
+    this.isSystem = isSystem;
+    this.stats = stats;
+  }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mapd.calcite.parser;
+
+import org.apache.calcite.plan.RelOptPredicateList;
+import org.apache.calcite.rel.RelHomogeneousShuttle;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexExecutor;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexOver;
+import org.apache.calcite.rex.RexSimplify;
+import org.apache.calcite.rex.RexSubQuery;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.rex.RexVisitorImpl;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Simplifies the filter, join and project expressions of a plan with
+ * RexSimplify: always true conjuncts (1 = 1), duplicated conjuncts, CASE
+ * branches with constant conditions, double negations and the like are
+ * removed before the plan reaches the engine. A filter whose condition
+ * becomes TRUE is dropped.
+ *
+ * Conditions are simplified treating UNKNOWN as FALSE, the way filters and
+ * join conditions use them; projected expressions keep their type and their
+ * NULL results. Constant folding is limited to widening casts of integer
+ * constants (see SAFE_EXECUTOR), and expressions with casts from or to
+ * DECIMAL are left alone: the engine's decimal scaling, rounding and string
+ * to date parsing differ from Calcite's. Expressions with subqueries or
+ * window functions are not touched either.
+ *
+ * RexSimplify merges comparisons of one operand into SEARCH calls, e.g.
+ * x > 1 AND x < 5 into SEARCH(x, Sarg[(1..5)]); they are expanded back into
+ * comparisons, the form the engine reads (InListCompactor later writes
+ * disjunctions of equalities as SEARCH calls on its own terms).
+ */
+public final class ExpressionSimplifier extends RelHomogeneousShuttle {
+  private static final RexExecutor SAFE_EXECUTOR = (rexBuilder, constExps, reduced) -> {
+    for (RexNode exp : constExps) {
+      if (isWideningIntegerCast(exp)) {
+        RexUtil.EXECUTOR.reduce(rexBuilder, Collections.singletonList(exp), reduced);
+      } else {
+        reduced.add(exp);
+      }
+    }
+  };
+
+  private final RexBuilder rexBuilder;
+  private final RexSimplify simplify;
+
+  private ExpressionSimplifier(RexBuilder rexBuilder) {
+    this.rexBuilder = rexBuilder;
+    simplify = new RexSimplify(rexBuilder, RelOptPredicateList.EMPTY, SAFE_EXECUTOR);
+  }
+
+  public static RelNode simplify(RelNode rel) {
+    return rel.accept(new ExpressionSimplifier(rel.getCluster().getRexBuilder()));
+  }
+
+  @Override
+  public RelNode visit(RelNode other) {
+    final RelNode rel = super.visit(other);
+    if (rel instanceof LogicalFilter) {
+      return simplifyFilter((LogicalFilter) rel);
+    }
+    if (rel instanceof LogicalJoin) {
+      return simplifyJoin((LogicalJoin) rel);
+    }
+    if (rel instanceof LogicalProject) {
+      return simplifyProject((LogicalProject) rel);
+    }
+    return rel;
+  }
+
+  private RelNode simplifyFilter(LogicalFilter filter) {
+    final RexNode condition = filter.getCondition();
+    if (!filter.getVariablesSet().isEmpty() || !canSimplify(condition)) {
+      return filter;
+    }
+    final RexNode simplified = RexUtil.expandSearch(
+            rexBuilder, null, simplify.simplifyUnknownAsFalse(condition));
+    if (simplified.isAlwaysTrue()) {
+      return filter.getInput();
+    }
+    if (simplified.equals(condition)) {
+      return filter;
+    }
+    return filter.copy(filter.getTraitSet(), filter.getInput(), simplified);
+  }
+
+  private RelNode simplifyJoin(LogicalJoin join) {
+    final RexNode condition = join.getCondition();
+    if (!canSimplify(condition)) {
+      return join;
+    }
+    final RexNode simplified = RexUtil.expandSearch(
+            rexBuilder, null, simplify.simplifyUnknownAsFalse(condition));
+    if (simplified.equals(condition)) {
+      return join;
+    }
+    return join.copy(join.getTraitSet(),
+            simplified,
+            join.getLeft(),
+            join.getRight(),
+            join.getJoinType(),
+            join.isSemiJoinDone());
+  }
+
+  private RelNode simplifyProject(LogicalProject project) {
+    final List<RexNode> projects = new ArrayList<>(project.getProjects().size());
+    boolean changed = false;
+    for (RexNode expr : project.getProjects()) {
+      final RexNode simplified = canSimplify(expr)
+              ? RexUtil.expandSearch(
+                      rexBuilder, null, simplify.simplifyPreservingType(expr))
+              : expr;
+      changed |= !simplified.equals(expr);
+      projects.add(simplified);
+    }
+    if (!changed) {
+      return project;
+    }
+    return project.copy(
+            project.getTraitSet(), project.getInput(), projects, project.getRowType());
+  }
+
+  private static boolean canSimplify(RexNode expr) {
+    try {
+      expr.accept(new RexVisitorImpl<Void>(true) {
+        @Override
+        public Void visitCall(RexCall call) {
+          if (call.getKind() == SqlKind.CAST
+                  && (isDecimal(call.getType())
+                          || isDecimal(call.getOperands().get(0).getType()))) {
+            throw Util.FoundOne.NULL;
+          }
+          return super.visitCall(call);
+        }
+
+        @Override
+        public Void visitOver(RexOver over) {
+          throw Util.FoundOne.NULL;
+        }
+
+        @Override
+        public Void visitSubQuery(RexSubQuery subQuery) {
+          throw Util.FoundOne.NULL;
+        }
+      });
+      return true;
+    } catch (Util.FoundOne e) {
+      return false;
+    }
+  }
+
+  private static boolean isDecimal(RelDataType type) {
+    return type.getSqlTypeName() == SqlTypeName.DECIMAL;
+  }
+
+  // casts of integer constants to a wider integer or to a floating point
+  // type give the same value in Calcite and in the engine
+  private static boolean isWideningIntegerCast(RexNode exp) {
+    if (exp.getKind() != SqlKind.CAST) {
+      return false;
+    }
+    final SqlTypeName from =
+            ((RexCall) exp).getOperands().get(0).getType().getSqlTypeName();
+    final SqlTypeName to = exp.getType().getSqlTypeName();
+    final int fromRank = SqlTypeName.INT_TYPES.indexOf(from);
+    if (fromRank < 0) {
+      return false;
+    }
+    return SqlTypeName.INT_TYPES.indexOf(to) >= fromRank
+            || SqlTypeName.APPROX_TYPES.contains(to);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mapd.calcite.parser;
+
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelHomogeneousShuttle;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.externalize.MapDRelJson;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites disjunctions of equalities between an expression and literals,
+ * x = 1 OR x = 2 OR ..., into SEARCH(x, Sarg[1, 2, ...]): the plan JSON
+ * writes a SEARCH call as one typed array of values (see MapDRelJson), where
+ * it would otherwise write an OR tree with a full literal object per value.
+ * Other disjuncts of the OR are kept next to the SEARCH call.
+ *
+ * SEARCH calls whose values have no compact form in the plan JSON, e.g.
+ * timestamps finer than milliseconds, are expanded back into comparisons.
+ */
+public final class InListCompactor extends RelHomogeneousShuttle {
+  private final RexShuttle rexShuttle;
+
+  private InListCompactor(RexBuilder rexBuilder) {
+    rexShuttle = new RexShuttle() {
+      @Override
+      public RexNode visitCall(RexCall call) {
+        final RexNode visited = super.visitCall(call);
+        switch (visited.getKind()) {
+          case OR:
+            return compact(rexBuilder, visited);
+          case SEARCH:
+            return MapDRelJson.canWriteSearch((RexCall) visited)
+                    ? visited
+                    : RexUtil.expandSearch(rexBuilder, null, visited);
+          default:
+            return visited;
+        }
+      }
+    };
+  }
+
+  public static RelNode compact(RelNode rel) {
+    return rel.accept(new InListCompactor(rel.getCluster().getRexBuilder()));
+  }
+
+  @Override
+  public RelNode visit(RelNode other) {
+    return super.visit(other).accept(rexShuttle);
+  }
+
+  private static RexNode compact(RexBuilder rexBuilder, RexNode or) {
+    // the equalities on each expression, grouped by the type of the literal
+    final Map<Pair<RexNode, RelDataType>, List<RexCall>> equalities =
+            new LinkedHashMap<>();
+    final List<RexNode> disjuncts = new ArrayList<>();
+    for (RexNode disjunct : RelOptUtil.disjunctions(or)) {
+      final RexCall equality = literalEquality(disjunct);
+      if (equality == null) {
+        disjuncts.add(disjunct);
+        continue;
+      }
+      final RexNode arg = equality.getOperands().get(0);
+      final RexNode value = equality.getOperands().get(1);
+      equalities.computeIfAbsent(Pair.of(arg, value.getType()), key -> new ArrayList<>())
+              .add(equality);
+    }
+    boolean changed = false;
+    for (Map.Entry<Pair<RexNode, RelDataType>, List<RexCall>> entry :
+            equalities.entrySet()) {
+      final List<RexCall> group = entry.getValue();
+      final RexNode search = group.size() > 1
+              ? rexBuilder.makeIn(entry.getKey().left, values(group))
+              : null;
+      if (search != null && search.getKind() == SqlKind.SEARCH
+              && MapDRelJson.canWriteSearch((RexCall) search)) {
+        disjuncts.add(search);
+        changed = true;
+      } else {
+        disjuncts.addAll(group);
+      }
+    }
+    if (!changed) {
+      return or;
+    }
+    return RexUtil.composeDisjunction(rexBuilder, disjuncts);
+  }
+
+  // the equality as =(expression, literal), null if the node is no equality
+  // between an expression and a non-NULL literal
+  private static RexCall literalEquality(RexNode node) {
+    if (node.getKind() != SqlKind.EQUALS) {
+      return null;
+    }
+    final RexCall call = (RexCall) node;
+    final RexNode left = call.getOperands().get(0);
+    final RexNode right = call.getOperands().get(1);
+    if (isValue(right) && !isValue(left)) {
+      return call;
+    }
+    if (isValue(left) && !isValue(right)) {
+      return call.clone(call.getType(), Arrays.asList(right, left));
+    }
+    return null;
+  }
+
+  private static boolean isValue(RexNode node) {
+    return node instanceof RexLiteral && !((RexLiteral) node).isNull();
+  }
+
+  private static List<RexNode> values(List<RexCall> equalities) {
+    final List<RexNode> values = new ArrayList<>(equalities.size());
+    for (RexCall equality : equalities) {
+      values.add(equality.getOperands().get(1));
+    }
+    return values;
+  }
+}
@@ -18,7 +18,7 @@ package com.mapd.calcite.parser;
 import static org.apache.calcite.sql.parser.SqlParserPos.ZERO;
 
 import com.google.common.collect.ImmutableList;
-import com.mapd.metadata.MetaConnect;
+import com.mapd.metadata.SchemaCatalog;
 import com.mapd.parser.extension.ddl.ExtendedSqlParser;
 import com.mapd.parser.extension.ddl.JsonSerializableDdl;
 import com.mapd.parser.hint.OmniSciHintStrategyTable;
@@ -38,12 +38,10 @@ import org.apache.calcite.rel.RelShuttleImpl;
 import org.apache.calcite.rel.RelVisitor;
 import org.apache.calcite.rel.core.Correlate;
 import org.apache.calcite.rel.core.CorrelationId;
-import org.apache.calcite.rel.logical.LogicalSort;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelDataTypeSystem;
 import org.apache.calcite.rex.*;
-import org.apache.calcite.runtime.CalciteException;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.sql.*;
 import org.apache.calcite.sql.dialect.CalciteSqlDialect;
@@ -54,7 +52,6 @@ import org.apache.calcite.sql.parser.SqlParser;
 import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.sql.type.SqlTypeUtil;
-import org.apache.calcite.sql.util.SqlBasicVisitor;
 import org.apache.calcite.sql.validate.SqlConformanceEnum;
 import org.apache.calcite.sql2rel.SqlToRelConverter;
 import org.apache.calcite.tools.*;
@@ -82,12 +79,14 @@ public final class MapDParser {
   private final Supplier<MapDSqlOperatorTable> mapDSqlOperatorTable;
 
   private int callCount = 0;
+  private final PlanningTimings timings = new PlanningTimings();
+  private final RuleStatistics ruleStatistics = new RuleStatistics();
   private MapDUser mapdUser;
-  private String schemaJson;
+  private SchemaCatalog schemaCatalog;
 
   public MapDParser(final Supplier<MapDSqlOperatorTable> mapDSqlOperatorTable) {
     this.mapDSqlOperatorTable = mapDSqlOperatorTable;
-    this.schemaJson = "{}";
+    this.schemaCatalog = SchemaCatalog.EMPTY;
   }
 
   private static final Context MAPD_CONNECTION_CONTEXT = new Context() {
@@ -124,60 +123,121 @@ public final class MapDParser {
     }
   };
 
-  private MapDPlanner getPlanner() {
-    return getPlanner(false, false);
+  private static final SqlParser.Config PARSER_CONFIG =
+          SqlParser.config()
+                  .withConformance(SqlConformanceEnum.LENIENT)
+                  .withUnquotedCasing(Casing.UNCHANGED)
+                  .withCaseSensitive(false)
+                  // allow identifiers of up to 512 chars
+                  .withIdentifierMaxLength(512)
+                  .withParserFactory(ExtendedSqlParser.FACTORY);
+
+  private static final RelDataTypeSystem TYPE_SYSTEM = new MapDTypeSystem();
+
+  private static FrameworkConfig createConfigTemplate(
+          final boolean allowSubQueryExpansion) {
+    return Frameworks.newConfigBuilder()
+            .parserConfig(PARSER_CONFIG)
+            .sqlToRelConverterConfig(
+                    SqlToRelConverter.config()
+                            .withExpand(allowSubQueryExpansion)
+                            .withDecorrelationEnabled(true) // this is default
+                            // allow as many as possible IN operator values
+                            .withInSubQueryThreshold(Integer.MAX_VALUE)
+                            .withHintStrategyTable(
+                                    OmniSciHintStrategyTable.HINT_STRATEGY_TABLE)
+                            .addRelBuilderConfigTransform(c
+                                    -> c.withPruneInputOfAggregate(false)
+                                               .withSimplify(false)))
+            .typeSystem(TYPE_SYSTEM)
+            .context(MAPD_CONNECTION_CONTEXT)
+            .build();
   }
 
-  private MapDPlanner getPlanner(
-          final boolean allowSubQueryExpansion, final boolean isWatchdogEnabled) {
-    // create the default schema
-    final SchemaPlus rootSchema = Frameworks.createRootSchema(true);
-    final MapDSchema defaultSchema = new MapDSchema(this, mapdUser, null, schemaJson);
-    final SchemaPlus defaultSchemaPlus = rootSchema.add(mapdUser.getDB(), defaultSchema);
-
-    // add the other potential schemas
-    // this is where the systyem schema would be added
-    final MetaConnect mc = new MetaConnect(mapdUser, this);
-
-    // TODO MAT for this checkin we are not going to actually allow any additional
-    // schemas
-    // Eveything should work and perform as it ever did
-    if (false) {
-      for (String db : mc.getDatabases()) {
-        if (!db.toUpperCase().equals(mapdUser.getDB().toUpperCase())) {
-          rootSchema.add(db, new MapDSchema(this, mapdUser, db));
+  // everything but the schema and the operator table is the same for every
+  // planner, so keep one immutable config per sub-query expansion mode
+  private static final FrameworkConfig CONFIG_TEMPLATE = createConfigTemplate(false);
+  private static final FrameworkConfig EXPAND_CONFIG_TEMPLATE =
+          createConfigTemplate(true);
+
+  /**
+   * State shared by all planners created while processing a single request:
+   * the root schema, the default MapDSchema over the current schema catalog
+   * and the operator table. Planners for the validation fallback and for
+   * correlated sub-query expansion are created from the same context, so they
+   * resolve tables through the same schema objects and share the watchdog of
+   * the statement, if it is enabled.
+   */
+  private final class PlanningContext {
+    private final MapDSchema schema;
+    private final SchemaPlus defaultSchema;
+    private final MapDSqlOperatorTable operatorTable;
+    private FrameworkConfig config;
+    private FrameworkConfig expandConfig;
+    private final PlanningWatchdog watchdog;
+    private SqlNode analyzedNode;
+    private SqlAnalysis analysis;
+
+    PlanningContext() {
+      this(null);
+    }
+
+    PlanningContext(final MapDParserOptions parserOptions) {
+      final SchemaPlus rootSchema = Frameworks.createRootSchema(true);
+      schema = new MapDSchema(MapDParser.this, mapdUser, null, schemaCatalog);
+      defaultSchema = rootSchema.add(mapdUser.getDB(), schema);
+      operatorTable = mapDSqlOperatorTable.get();
+      watchdog = parserOptions != null && parserOptions.isWatchdogEnabled()
+              ? new PlanningWatchdog(parserOptions.getPlanningBudget())
+              : null;
+    }
+
+    MapDPlanner getPlanner(final boolean allowSubQueryExpansion) {
+      final FrameworkConfig planConfig;
+      if (allowSubQueryExpansion) {
+        if (expandConfig == null) {
+          expandConfig = createConfig(EXPAND_CONFIG_TEMPLATE);
+        }
+        planConfig = expandConfig;
+      } else {
+        if (config == null) {
+          config = createConfig(CONFIG_TEMPLATE);
         }
+        planConfig = config;
       }
+      MapDPlanner planner = new MapDPlanner(planConfig);
+      planner.setRestriction(mapdUser.getRestriction());
+      planner.setRuleStatistics(ruleStatistics);
+      planner.setWatchdog(watchdog);
+      return planner;
     }
 
-    final FrameworkConfig config =
-            Frameworks.newConfigBuilder()
-                    .defaultSchema(defaultSchemaPlus)
-                    .operatorTable(mapDSqlOperatorTable.get())
-                    .parserConfig(SqlParser.config()
-                                          .withConformance(SqlConformanceEnum.LENIENT)
-                                          .withUnquotedCasing(Casing.UNCHANGED)
-                                          .withCaseSensitive(false)
-                                          // allow identifiers of up to 512 chars
-                                          .withIdentifierMaxLength(512)
-                                          .withParserFactory(ExtendedSqlParser.FACTORY))
-                    .sqlToRelConverterConfig(
-                            SqlToRelConverter.config()
-                                    .withExpand(allowSubQueryExpansion)
-                                    .withDecorrelationEnabled(true) // this is default
-                                    // allow as many as possible IN operator values
-                                    .withInSubQueryThreshold(Integer.MAX_VALUE)
-                                    .withHintStrategyTable(
-                                            OmniSciHintStrategyTable.HINT_STRATEGY_TABLE)
-                                    .addRelBuilderConfigTransform(c
-                                            -> c.withPruneInputOfAggregate(false)
-                                                       .withSimplify(false)))
-                    .typeSystem(createTypeSystem())
-                    .context(MAPD_CONNECTION_CONTEXT)
-                    .build();
-    MapDPlanner planner = new MapDPlanner(config);
-    planner.setRestriction(mapdUser.getRestriction());
-    return planner;
+    /**
+     * Returns the analysis of the statement. It is computed once per request
+     * and statement, usually while parsing, and shared by all later steps.
+     */
+    SqlAnalysis analysis(final SqlNode node) {
+      if (node != analyzedNode) {
+        setAnalysis(node, SqlAnalysis.of(node));
+      }
+      return analysis;
+    }
+
+    void setAnalysis(final SqlNode node, final SqlAnalysis analysis) {
+      this.analyzedNode = node;
+      this.analysis = analysis;
+    }
+
+    private FrameworkConfig createConfig(final FrameworkConfig template) {
+      return Frameworks.newConfigBuilder(template)
+              .defaultSchema(defaultSchema)
+              .operatorTable(operatorTable)
+              .build();
+    }
+  }
+
+  private MapDPlanner getPlanner() {
+    return new PlanningContext().getPlanner(false);
   }
 
   public void setUser(MapDUser mapdUser) {
@@ -185,63 +245,185 @@ public final class MapDParser {
   }
 
   public void setSchema(String schemaJson) {
-    this.schemaJson = schemaJson;
+    this.schemaCatalog = SchemaCatalog.forJson(schemaJson);
+  }
+
+  public void setSchema(SchemaCatalog schemaCatalog) {
+    this.schemaCatalog = schemaCatalog;
+  }
+
+  public SchemaCatalog getSchemaCatalog() {
+    return schemaCatalog;
+  }
+
+  /**
+   * Drops the user and schema of the finished request, so a pooled parser
+   * does not keep them alive and can serve any later request as is.
+   */
+  public void clearRequestState() {
+    mapdUser = null;
+    schemaCatalog = SchemaCatalog.EMPTY;
+    timings.reset();
+    ruleStatistics.reset();
   }
 
   public Pair<String, SqlIdentifierCapturer> process(
           String sql, final MapDParserOptions parserOptions)
           throws SqlParseException, ValidationException, RelConversionException {
-    final MapDPlanner planner = getPlanner(false, parserOptions.isWatchdogEnabled());
-    final SqlNode sqlNode = parseSql(sql, parserOptions.isLegacySyntax(), planner);
-    String res = processSql(sqlNode, parserOptions);
-    SqlIdentifierCapturer capture = captureIdentifiers(sqlNode);
+    final PlanningContext context = new PlanningContext(parserOptions);
+    final MapDPlanner planner = context.getPlanner(false);
+    final SqlNode sqlNode = parseSql(sql, desugars(parserOptions), planner, context);
+    String res = processSql(sqlNode, parserOptions, context, planner);
+    SqlIdentifierCapturer capture = context.analysis(sqlNode);
     return new Pair<String, SqlIdentifierCapturer>(res, capture);
   }
 
+  /**
+   * Parses the query and lifts its literals out into a template. Returns null
+   * if the query cannot be used as a template.
+   */
+  public QueryTemplate parseTemplate(String sql) throws SqlParseException {
+    final SqlNode sqlNode = SqlParser.create(sql, PARSER_CONFIG).parseStmt();
+    return QueryTemplate.create(sql, sqlNode);
+  }
+
   public String optimizeRAQuery(String query, final MapDParserOptions parserOptions)
           throws IOException {
-    MapDSchema schema = new MapDSchema(this, mapdUser, null, schemaJson);
-    MapDPlanner planner = getPlanner(false, parserOptions.isWatchdogEnabled());
+    RelNode project = optimizeRA(query, parserOptions);
+
+    final long start = System.nanoTime();
+    String res = MapDSerializer.toString(project);
+    timings.add(PlanningTimings.Stage.SERIALIZE, System.nanoTime() - start);
+    return res;
+  }
+
+  /**
+   * Same as optimizeRAQuery() with the plan in the binary encoding of
+   * MapDSerializer.toBinary().
+   */
+  public byte[] optimizeRAQueryToBinary(
+          String query, final MapDParserOptions parserOptions) throws IOException {
+    RelNode project = optimizeRA(query, parserOptions);
+
+    final long start = System.nanoTime();
+    byte[] res = MapDSerializer.toBinary(project);
+    timings.add(PlanningTimings.Stage.SERIALIZE, System.nanoTime() - start);
+    return res;
+  }
+
+  private RelNode optimizeRA(String query, final MapDParserOptions parserOptions)
+          throws IOException {
+    final PlanningContext context = new PlanningContext(parserOptions);
+    MapDPlanner planner = context.getPlanner(false);
 
     planner.setFilterPushDownInfo(parserOptions.getFilterPushDownInfo());
-    RelRoot optRel = planner.optimizeRaQuery(query, schema);
+    long start = System.nanoTime();
+    RelRoot optRel = planner.optimizeRaQuery(query, context.schema);
+    final long optimizeNanos = planner.getOptimizationNanos();
+    timings.add(PlanningTimings.Stage.PARSE, System.nanoTime() - start - optimizeNanos);
+    timings.add(PlanningTimings.Stage.OPTIMIZE, optimizeNanos);
     optRel = replaceIsTrue(planner.getTypeFactory(), optRel);
-    return MapDSerializer.toString(optRel.project());
+    return optRel.project();
   }
 
   public String processSql(String sql, final MapDParserOptions parserOptions)
           throws SqlParseException, ValidationException, RelConversionException {
     callCount++;
 
-    final MapDPlanner planner = getPlanner(false, parserOptions.isWatchdogEnabled());
-    final SqlNode sqlNode = parseSql(sql, parserOptions.isLegacySyntax(), planner);
+    final PlanningContext context = new PlanningContext(parserOptions);
+    final MapDPlanner planner = context.getPlanner(false);
+    final SqlNode sqlNode = parseSql(sql, desugars(parserOptions), planner, context);
 
-    return processSql(sqlNode, parserOptions);
+    return processSql(sqlNode, parserOptions, context, planner);
+  }
+
+  /**
+   * Plans the query like processSql() and returns the plan in the binary
+   * encoding of MapDSerializer.toBinary(). Returns null for statements that
+   * have no relational plan (DDL) and for explain requests; those are to be
+   * processed with processSql().
+   */
+  public byte[] processSqlToBinary(String sql, final MapDParserOptions parserOptions)
+          throws SqlParseException, ValidationException, RelConversionException {
+    if (parserOptions.isExplain()) {
+      return null;
+    }
+    final PlanningContext context = new PlanningContext(parserOptions);
+    final MapDPlanner planner = context.getPlanner(false);
+    final SqlNode sqlNode = parseSql(sql, desugars(parserOptions), planner, context);
+    if (sqlNode instanceof SqlDdl || sqlNode instanceof JsonSerializableDdl) {
+      planner.close();
+      return null;
+    }
+    callCount++;
+
+    final RelRoot sqlRel = convertSqlToRelNode(sqlNode, context, planner, parserOptions);
+
+    final long start = System.nanoTime();
+    byte[] res = MapDSerializer.toBinary(sqlRel.project());
+    timings.add(PlanningTimings.Stage.SERIALIZE, System.nanoTime() - start);
+    return res;
+  }
+
+  /**
+   * Plans the query like processSql() and returns the plan itself rather than
+   * its serialization, e.g. to write it with another RelWriter. The statement
+   * must be a query.
+   */
+  public RelNode processSqlToRel(String sql, final MapDParserOptions parserOptions)
+          throws SqlParseException, ValidationException, RelConversionException {
+    callCount++;
+
+    final PlanningContext context = new PlanningContext(parserOptions);
+    final MapDPlanner planner = context.getPlanner(false);
+    final SqlNode sqlNode = parseSql(sql, desugars(parserOptions), planner, context);
+    return convertSqlToRelNode(sqlNode, context, planner, parserOptions).project();
   }
 
   public String processSql(final SqlNode sqlNode, final MapDParserOptions parserOptions)
           throws SqlParseException, ValidationException, RelConversionException {
+    final PlanningContext context = new PlanningContext(parserOptions);
+    final MapDPlanner planner = context.getPlanner(false);
+    if (!(sqlNode instanceof SqlDdl)) {
+      planner.advanceToValidate();
+    }
+
+    return processSql(sqlNode, parserOptions, context, planner);
+  }
+
+  /**
+   * Converts and serializes an already parsed statement. The planner must be
+   * ready to validate, i.e. it has either parsed the statement itself or been
+   * advanced with {@link MapDPlanner#advanceToValidate()}.
+   */
+  private String processSql(final SqlNode sqlNode,
+          final MapDParserOptions parserOptions,
+          final PlanningContext context,
+          final MapDPlanner planner)
+          throws SqlParseException, ValidationException, RelConversionException {
     callCount++;
 
     if (sqlNode instanceof JsonSerializableDdl) {
+      planner.close();
       return ((JsonSerializableDdl) sqlNode).toJsonString();
     }
 
     if (sqlNode instanceof SqlDdl) {
+      planner.close();
       return sqlNode.toString();
     }
 
-    final MapDPlanner planner = getPlanner(false, parserOptions.isWatchdogEnabled());
-    planner.advanceToValidate();
-
-    final RelRoot sqlRel = convertSqlToRelNode(sqlNode, planner, parserOptions);
+    final RelRoot sqlRel = convertSqlToRelNode(sqlNode, context, planner, parserOptions);
     RelNode project = sqlRel.project();
 
+    final long start = System.nanoTime();
+    String res;
     if (parserOptions.isExplain()) {
-      return RelOptUtil.toString(sqlRel.project());
+      res = RelOptUtil.toString(sqlRel.project());
+    } else {
+      res = MapDSerializer.toString(project);
     }
-
-    String res = MapDSerializer.toString(project);
+    timings.add(PlanningTimings.Stage.SERIALIZE, System.nanoTime() - start);
 
     return res;
   }
@@ -253,7 +435,7 @@ public final class MapDParser {
 
   public HashSet<ImmutableList<String>> resolveSelectIdentifiers(
           SqlIdentifierCapturer capturer) {
-    MapDSchema schema = new MapDSchema(this, mapdUser, null, schemaJson);
+    MapDSchema schema = new MapDSchema(this, mapdUser, null, schemaCatalog);
     HashSet<ImmutableList<String>> resolved = new HashSet<ImmutableList<String>>();
 
     for (ImmutableList<String> names : capturer.selects) {
@@ -267,46 +449,14 @@ public final class MapDParser {
     return resolved;
   }
 
-  private static class SqlHavingVisitor extends SqlBasicVisitor<Void> {
-    boolean hasHaving = false;
-
-    @Override
-    public Void visit(SqlCall call) {
-      if (call instanceof SqlSelect) {
-        final SqlSelect select = (SqlSelect) call;
-        if (select.getHaving() != null) {
-          this.hasHaving = true;
-        }
-      }
-      return call.getOperator().acceptCall(this, call);
-    }
-  }
-
-  private static class SqlNotInVisitor extends SqlBasicVisitor<Void> {
-    boolean hasNotIn = false;
-
-    @Override
-    public Void visit(SqlCall call) {
-      if (call instanceof SqlSelect) {
-        final SqlSelect select = (SqlSelect) call;
-        final SqlNode whereNode = select.getWhere();
-        if (whereNode != null && whereNode instanceof SqlCall) {
-          final SqlCall whereCall = (SqlCall) whereNode;
-          assert (whereCall != null);
-          final SqlOperator op = whereCall.getOperator();
-          if (op.getKind() == SqlKind.NOT_IN) {
-            hasNotIn = true;
-          }
-        }
-      }
-
-      return call.getOperator().acceptCall(this, call);
-    }
+  private static boolean requiresSubqueryExpansion(RelNode rel) {
+    final SubqueryExpansionRelVisitor visitor = new SubqueryExpansionRelVisitor();
+    rel.accept(visitor);
+    return visitor.requiresSubqueryExpansion();
   }
 
   private static class SubqueryExpansionRelVisitor extends RelHomogeneousShuttle {
     private final SubqueryExpansionRexVisitor subqueryRexVisitor;
-    private boolean containsSort = false;
 
     public SubqueryExpansionRelVisitor() {
       subqueryRexVisitor = new SubqueryExpansionRexVisitor(this);
@@ -318,13 +468,6 @@ public final class MapDParser {
       return next.accept(subqueryRexVisitor);
     }
 
-    @Override
-    public RelNode visit(LogicalSort sort) {
-      containsSort = true;
-      RelNode next = super.visit(sort);
-      return next.accept(subqueryRexVisitor);
-    }
-
     public boolean requiresSubqueryExpansion() {
       if (subqueryRexVisitor != null) {
         return subqueryRexVisitor.requiresSubqueryExpansion;
@@ -366,25 +509,19 @@ public final class MapDParser {
   }
 
   RelRoot convertSqlToRelNode(final SqlNode sqlNode,
+          final PlanningContext context,
           final MapDPlanner mapDPlanner,
           final MapDParserOptions parserOptions)
           throws SqlParseException, ValidationException, RelConversionException {
     SqlNode node = sqlNode;
     MapDPlanner planner = mapDPlanner;
-    boolean allowCorrelatedSubQueryExpansion = false;
-    boolean expandOverride = true;
-
-    SqlHavingVisitor hasHavingVisitor = new SqlHavingVisitor();
-    node.accept(hasHavingVisitor);
-
-    if (hasHavingVisitor.hasHaving) {
-      allowCorrelatedSubQueryExpansion = true; // TODO: is this doing anything?
-    }
-
-    SqlNotInVisitor hasNotInVisitor = new SqlNotInVisitor();
-    node.accept(hasNotInVisitor);
-    if (hasNotInVisitor.hasNotIn) {
-      expandOverride = false;
+    final SqlAnalysis analysis = context.analysis(node);
+    // TODO: is this doing anything?
+    final boolean allowCorrelatedSubQueryExpansion = analysis.hasHaving();
+    final boolean expandOverride = !analysis.hasNotIn();
+    if (context.watchdog != null) {
+      // fail before validation and conversion, whose cost grows with the tree
+      context.watchdog.checkNodes("parsed statement", analysis.getCalls());
     }
 
     SqlNode validateR;
@@ -392,60 +529,30 @@ public final class MapDParser {
     // query. Run a cleanup pass here in case validate fails, disabling legacy syntax and
     // rebuilding the RA tree from the Sql.
     try {
-      validateR = planner.validate(node);
+      validateR = validate(planner, node);
     } catch (Exception e) {
       // close original planner
       planner.close();
       // create a new one
-      planner = getPlanner(
-              allowCorrelatedSubQueryExpansion, parserOptions.isWatchdogEnabled());
-      node = parseSql(
-              node.toSqlString(CalciteSqlDialect.DEFAULT).toString(), false, planner);
-      validateR = planner.validate(node);
+      planner = context.getPlanner(allowCorrelatedSubQueryExpansion);
+      node = parseSql(node.toSqlString(CalciteSqlDialect.DEFAULT).toString(),
+              false,
+              planner,
+              context);
+      validateR = validate(planner, node);
     }
-    planner.setFilterPushDownInfo(parserOptions.getFilterPushDownInfo());
-    RelRoot relR = planner.rel(validateR);
-
-    final SubqueryExpansionRelVisitor visitor = new SubqueryExpansionRelVisitor();
-    relR.project().accept(visitor);
-
-    final boolean requiresSubqueryExpansion = visitor.requiresSubqueryExpansion();
-    final boolean hasSort = visitor.containsSort;
-
-    if (expandOverride && requiresSubqueryExpansion) {
-      planner.close(); // replace planner
-      allowCorrelatedSubQueryExpansion = true;
-      planner = getPlanner(
-              allowCorrelatedSubQueryExpansion, parserOptions.isWatchdogEnabled());
-      if (hasSort) {
-        if (node instanceof SqlOrderBy) {
-          SqlOrderBy order_by_node = (SqlOrderBy) node;
-          if (order_by_node.query instanceof SqlSelect) {
-            SqlNodeList baseOrderList = order_by_node.orderList;
-            SqlNodeList orderList = ((SqlSelect) order_by_node.query).getOrderList();
-            if (baseOrderList.size() != orderList.size()) {
-              throw new CalciteException("Correlated sub-query with sort not supported. "
-                              + baseOrderList.size() + " vs " + orderList.size(),
-                      null);
-            }
-            for (int i = 0; i < baseOrderList.size(); i++) {
-              if (baseOrderList.get(i) != orderList.get(i)) {
-                throw new CalciteException(
-                        "Correlated sub-query with sort not supported.", null);
-              }
-            }
-            // drop duplicate order by
-            node = order_by_node.query;
-          }
-        }
-      }
-      node = parseSql(
-              node.toSqlString(CalciteSqlDialect.DEFAULT).toString(), false, planner);
-      validateR = planner.validate(node);
-
-      planner.setFilterPushDownInfo(parserOptions.getFilterPushDownInfo());
-      relR = planner.rel(validateR);
+    if (context.watchdog != null) {
+      context.watchdog.checkTime("validation");
     }
+    planner.setFilterPushDownInfo(parserOptions.getFilterPushDownInfo());
+    planner.setJoinReordering(parserOptions.isJoinReorderingEnabled());
+    planner.setExpressionSimplification(
+            parserOptions.isExpressionSimplificationEnabled());
+    // correlated, EXISTS and IN sub-queries are expanded and decorrelated on
+    // the converted plan rather than by converting the query again
+    planner.setSubQueryExpansion(
+            expandOverride ? MapDParser::requiresSubqueryExpansion : null);
+    RelRoot relR = rel(planner, validateR);
 
     relR = replaceIsTrue(planner.getTypeFactory(), relR);
     planner.close();
@@ -454,10 +561,9 @@ public final class MapDParser {
       return relR;
     } else {
       // check to see if a view is involved in the query
-      MapDSchema schema = new MapDSchema(this, mapdUser, null, schemaJson);
-      SqlIdentifierCapturer capturer = captureIdentifiers(sqlNode);
+      SqlIdentifierCapturer capturer = context.analysis(sqlNode);
       for (ImmutableList<String> names : capturer.selects) {
-        MapDTable table = (MapDTable) schema.getTable(names.get(0));
+        MapDTable table = (MapDTable) context.schema.getTable(names.get(0));
         if (null == table) {
           throw new RuntimeException("table/view not found: " + names.get(0));
         }
@@ -467,6 +573,30 @@ public final class MapDParser {
     }
   }
 
+  private SqlNode validate(final MapDPlanner planner, final SqlNode node)
+          throws ValidationException {
+    final long start = System.nanoTime();
+    try {
+      return planner.validate(node);
+    } finally {
+      timings.add(PlanningTimings.Stage.VALIDATE, System.nanoTime() - start);
+    }
+  }
+
+  private RelRoot rel(final MapDPlanner planner, final SqlNode validated)
+          throws RelConversionException {
+    final long start = System.nanoTime();
+    final long optimizeStart = planner.getOptimizationNanos();
+    try {
+      return planner.rel(validated);
+    } finally {
+      final long optimizeNanos = planner.getOptimizationNanos() - optimizeStart;
+      timings.add(PlanningTimings.Stage.SQL_TO_REL,
+              System.nanoTime() - start - optimizeNanos);
+      timings.add(PlanningTimings.Stage.OPTIMIZE, optimizeNanos);
+    }
+  }
+
   private RelRoot replaceIsTrue(final RelDataTypeFactory typeFactory, RelRoot root) {
     final RexShuttle callShuttle = new RexShuttle() {
       RexBuilder builder = new RexBuilder(typeFactory);
@@ -515,8 +645,29 @@ public final class MapDParser {
             Collections.emptyList());
   }
 
-  private SqlNode parseSql(String sql, final boolean legacy_syntax, Planner planner)
-          throws SqlParseException {
+  // the legacy syntax expands the statistical aggregates into SUM, COUNT and
+  // AVG, unless the engine computes them natively
+  private static boolean desugars(final MapDParserOptions parserOptions) {
+    return parserOptions.isLegacySyntax()
+            && !parserOptions.isNativeStatisticalAggregatesEnabled();
+  }
+
+  private SqlNode parseSql(String sql,
+          final boolean legacy_syntax,
+          Planner planner,
+          final PlanningContext context) throws SqlParseException {
+    final long start = System.nanoTime();
+    try {
+      return parseAndDesugar(sql, legacy_syntax, planner, context);
+    } finally {
+      timings.add(PlanningTimings.Stage.PARSE, System.nanoTime() - start);
+    }
+  }
+
+  private SqlNode parseAndDesugar(String sql,
+          final boolean legacy_syntax,
+          Planner planner,
+          final PlanningContext context) throws SqlParseException {
     SqlNode parseR = null;
     try {
       parseR = planner.parse(sql);
@@ -526,11 +677,18 @@ public final class MapDParser {
       throw ex;
     }
 
-    if (!legacy_syntax) {
+    final SqlAnalysis analysis = context.analysis(parseR);
+    if (!legacy_syntax || analysis.getLegacyRewrites() == 0) {
       return parseR;
     }
+    // the desugaring keeps the tables, HAVING clauses and NOT IN filters
+    // of the statement, so its analysis stays valid
+    final SqlNode desugared = desugar(parseR, planner.getTypeFactory());
+    context.setAnalysis(desugared, analysis);
+    return desugared;
+  }
 
-    RelDataTypeFactory typeFactory = planner.getTypeFactory();
+  private SqlNode desugar(final SqlNode parseR, RelDataTypeFactory typeFactory) {
     SqlSelect select_node = null;
     if (parseR instanceof SqlSelect) {
       select_node = (SqlSelect) parseR;
@@ -1013,9 +1171,10 @@ public final class MapDParser {
   public SqlIdentifierCapturer captureIdentifiers(String sql, boolean legacy_syntax)
           throws SqlParseException {
     try {
-      Planner planner = getPlanner();
-      SqlNode node = parseSql(sql, legacy_syntax, planner);
-      return captureIdentifiers(node);
+      final PlanningContext context = new PlanningContext();
+      Planner planner = context.getPlanner(false);
+      SqlNode node = parseSql(sql, legacy_syntax, planner, context);
+      return context.analysis(node);
     } catch (Exception | Error e) {
       MAPDLOGGER.error("Error parsing sql: " + sql, e);
       return new SqlIdentifierCapturer();
@@ -1024,9 +1183,7 @@ public final class MapDParser {
 
   public SqlIdentifierCapturer captureIdentifiers(SqlNode node) throws SqlParseException {
     try {
-      SqlIdentifierCapturer capturer = new SqlIdentifierCapturer();
-      capturer.scan(node);
-      return capturer;
+      return SqlAnalysis.of(node);
     } catch (Exception | Error e) {
       MAPDLOGGER.error("Error parsing sql: " + node, e);
       return new SqlIdentifierCapturer();
@@ -1037,8 +1194,28 @@ public final class MapDParser {
     return callCount;
   }
 
+  /**
+   * Returns the time spent per planning stage since the last
+   * resetPlanningTimings() call.
+   */
+  public PlanningTimings getPlanningTimings() {
+    return timings;
+  }
+
+  /**
+   * Returns the rule calls of the Hep passes since the last
+   * resetPlanningTimings() call.
+   */
+  public RuleStatistics getRuleStatistics() {
+    return ruleStatistics;
+  }
+
+  public void resetPlanningTimings() {
+    timings.reset();
+    ruleStatistics.reset();
+  }
+
   protected RelDataTypeSystem createTypeSystem() {
-    final MapDTypeSystem typeSystem = new MapDTypeSystem();
-    return typeSystem;
+    return TYPE_SYSTEM;
   }
 }
@@ -20,6 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  *
@@ -33,6 +34,10 @@ public final class MapDParserOptions {
   private boolean isExplain;
   private boolean isViewOptimizeEnabled;
   private boolean isWatchdogEnabled;
+  private boolean isJoinReorderingEnabled;
+  private boolean isExpressionSimplificationEnabled = true;
+  private boolean isNativeStatisticalAggregatesEnabled;
+  private PlanningWatchdog.Budget planningBudget = PlanningWatchdog.Budget.DEFAULT;
 
   public MapDParserOptions(List<FilterPushDownInfo> inFilterPushDownInfo,
           boolean inLegacySyntax,
@@ -52,6 +57,7 @@ public final class MapDParserOptions {
     isExplain = false;
     isViewOptimizeEnabled = false;
     isWatchdogEnabled = false;
+    isJoinReorderingEnabled = false;
   }
 
   /**
@@ -107,6 +113,24 @@ public final class MapDParserOptions {
     public int input_prev;
     public int input_start;
     public int input_next;
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof FilterPushDownInfo)) {
+        return false;
+      }
+      FilterPushDownInfo other = (FilterPushDownInfo) obj;
+      return input_prev == other.input_prev && input_start == other.input_start
+              && input_next == other.input_next;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(input_prev, input_start, input_next);
+    }
   }
 
   /**
@@ -130,4 +154,41 @@ public final class MapDParserOptions {
   public void setWatchdogEnabled(boolean isWatchdogEnabled) {
     this.isWatchdogEnabled = isWatchdogEnabled;
   }
+
+  /**
+   * @return the limits of planning a statement when the watchdog is enabled
+   */
+  public PlanningWatchdog.Budget getPlanningBudget() {
+    return planningBudget;
+  }
+
+  public void setPlanningBudget(PlanningWatchdog.Budget planningBudget) {
+    this.planningBudget = planningBudget;
+  }
+
+  public boolean isJoinReorderingEnabled() {
+    return isJoinReorderingEnabled;
+  }
+
+  public void setJoinReorderingEnabled(boolean isJoinReorderingEnabled) {
+    this.isJoinReorderingEnabled = isJoinReorderingEnabled;
+  }
+
+  public boolean isExpressionSimplificationEnabled() {
+    return isExpressionSimplificationEnabled;
+  }
+
+  public void setExpressionSimplificationEnabled(
+          boolean isExpressionSimplificationEnabled) {
+    this.isExpressionSimplificationEnabled = isExpressionSimplificationEnabled;
+  }
+
+  public boolean isNativeStatisticalAggregatesEnabled() {
+    return isNativeStatisticalAggregatesEnabled;
+  }
+
+  public void setNativeStatisticalAggregatesEnabled(
+          boolean isNativeStatisticalAggregatesEnabled) {
+    this.isNativeStatisticalAggregatesEnabled = isNativeStatisticalAggregatesEnabled;
+  }
 }
@@ -6,6 +6,7 @@
 package com.mapd.calcite.parser;
 
 import com.mapd.metadata.MetaConnect;
+import com.mapd.metadata.SchemaCatalog;
 
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.rel.type.RelProtoDataType;
@@ -31,22 +32,27 @@ public class MapDSchema implements Schema {
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(MapDSchema.class);
 
   final private MetaConnect metaConnect;
-  public MapDSchema(MapDParser mp, MapDUser mapdUser, String db, String schemaJson) {
+  public MapDSchema(
+          MapDParser mp, MapDUser mapdUser, String db, SchemaCatalog schemaCatalog) {
     System.setProperty(
             "saffron.default.charset", ConversionUtil.NATIVE_UTF16_CHARSET_NAME);
     System.setProperty(
             "saffron.default.nationalcharset", ConversionUtil.NATIVE_UTF16_CHARSET_NAME);
     System.setProperty("saffron.default.collation.name",
             ConversionUtil.NATIVE_UTF16_CHARSET_NAME + "$en_US");
-    metaConnect = new MetaConnect(mapdUser, mp, db, schemaJson);
+    metaConnect = new MetaConnect(mapdUser, mp, db, schemaCatalog);
+  }
+
+  public MapDSchema(MapDParser mp, MapDUser mapdUser, String db, String schemaJson) {
+    this(mp, mapdUser, db, SchemaCatalog.forJson(schemaJson));
   }
 
   public MapDSchema(MapDParser mp, MapDUser mapdUser, String db) {
-    this(mp, mapdUser, db, null);
+    this(mp, mapdUser, db, SchemaCatalog.EMPTY);
   }
 
   public MapDSchema(MapDParser mp, MapDUser mapdUser) {
-    this(mp, mapdUser, null, null);
+    this(mp, mapdUser, null, SchemaCatalog.EMPTY);
   }
 
   @Override
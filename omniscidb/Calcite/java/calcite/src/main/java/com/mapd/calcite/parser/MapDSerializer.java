@@ -23,6 +23,8 @@ import com.mapd.parser.extension.ddl.JsonSerializableDdl;
 
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.externalize.MapDRelJsonWriter;
+import org.apache.calcite.util.BinaryJsonWriter;
+import org.apache.calcite.util.JsonStreamWriter;
 
 /**
  *
@@ -30,6 +32,11 @@ import org.apache.calcite.rel.externalize.MapDRelJsonWriter;
  */
 public class MapDSerializer {
   private static final Gson gson;
+  // plan JSON is written into a per-thread buffer reused across plans
+  private static final ThreadLocal<JsonStreamWriter> planStream =
+          ThreadLocal.withInitial(JsonStreamWriter::new);
+  private static final ThreadLocal<BinaryJsonWriter> binaryPlanStream =
+          ThreadLocal.withInitial(BinaryJsonWriter::new);
 
   static {
     gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
@@ -39,9 +46,34 @@ public class MapDSerializer {
     if (rel == null) {
       return null;
     }
-    final MapDRelJsonWriter planWriter = new MapDRelJsonWriter();
-    rel.explain(planWriter);
-    return planWriter.asString();
+    final JsonStreamWriter out = planStream.get();
+    out.reset();
+    try {
+      final MapDRelJsonWriter planWriter = new MapDRelJsonWriter(out);
+      rel.explain(planWriter);
+      return planWriter.asString();
+    } finally {
+      out.reset();
+    }
+  }
+
+  /**
+   * Same plan as toString() in the binary encoding of BinaryJsonWriter.
+   */
+  public static byte[] toBinary(final RelNode rel) {
+    if (rel == null) {
+      return null;
+    }
+    final BinaryJsonWriter out = binaryPlanStream.get();
+    out.reset();
+    try {
+      final MapDRelJsonWriter planWriter = new MapDRelJsonWriter(out);
+      rel.explain(planWriter);
+      planWriter.finish();
+      return out.toByteArray();
+    } finally {
+      out.reset();
+    }
   }
 
   public static String toJsonString(final JsonSerializableDdl jsonSerializableDdl) {
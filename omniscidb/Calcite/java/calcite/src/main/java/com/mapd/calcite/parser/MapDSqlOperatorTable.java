@@ -51,9 +51,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 class CaseInsensitiveListSqlOperatorTable extends ListSqlOperatorTable {
@@ -96,7 +99,7 @@ public class MapDSqlOperatorTable extends ChainedSqlOperatorTable {
 
   static {
     try {
-      // some nasty bit to remove the std APPROX_COUNT_DISTINCT function definition
+      // some nasty bit to remove the std definitions of the operators we override
       {
         Field f = ReflectiveSqlOperatorTable.class.getDeclaredField(
                 "caseSensitiveOperators");
@@ -104,9 +107,7 @@ public class MapDSqlOperatorTable extends ChainedSqlOperatorTable {
         Multimap operators = (Multimap) f.get(SqlStdOperatorTable.instance());
         for (Iterator i = operators.entries().iterator(); i.hasNext();) {
           Map.Entry entry = (Map.Entry) i.next();
-          if (entry.getValue() == SqlStdOperatorTable.APPROX_COUNT_DISTINCT
-                  || entry.getValue() == SqlStdOperatorTable.AVG
-                  || entry.getValue() == SqlStdOperatorTable.ARRAY_VALUE_CONSTRUCTOR) {
+          if (isOverridden(entry.getValue())) {
             i.remove();
           }
         }
@@ -119,9 +120,7 @@ public class MapDSqlOperatorTable extends ChainedSqlOperatorTable {
         Multimap operators = (Multimap) f.get(SqlStdOperatorTable.instance());
         for (Iterator i = operators.entries().iterator(); i.hasNext();) {
           Map.Entry entry = (Map.Entry) i.next();
-          if (entry.getValue() == SqlStdOperatorTable.APPROX_COUNT_DISTINCT
-                  || entry.getValue() == SqlStdOperatorTable.AVG
-                  || entry.getValue() == SqlStdOperatorTable.ARRAY_VALUE_CONSTRUCTOR) {
+          if (isOverridden(entry.getValue())) {
             i.remove();
           }
         }
@@ -137,6 +136,21 @@ public class MapDSqlOperatorTable extends ChainedSqlOperatorTable {
     // SqlStdOperatorTable.instance().register(new ApproxCountDistinct());
   }
 
+  // std operators we replace with our own definitions
+  private static boolean isOverridden(Object op) {
+    return op == SqlStdOperatorTable.APPROX_COUNT_DISTINCT
+            || op == SqlStdOperatorTable.AVG
+            || op == SqlStdOperatorTable.ARRAY_VALUE_CONSTRUCTOR
+            || op == SqlStdOperatorTable.STDDEV_POP
+            || op == SqlStdOperatorTable.STDDEV_SAMP
+            || op == SqlStdOperatorTable.STDDEV
+            || op == SqlStdOperatorTable.VAR_POP
+            || op == SqlStdOperatorTable.VAR_SAMP
+            || op == SqlStdOperatorTable.VARIANCE
+            || op == SqlStdOperatorTable.COVAR_POP
+            || op == SqlStdOperatorTable.COVAR_SAMP;
+  }
+
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(MapDSqlOperatorTable.class);
 
   /**
@@ -236,6 +250,9 @@ public class MapDSqlOperatorTable extends ChainedSqlOperatorTable {
     opTab.addOperator(new ApproxPercentile());
     opTab.addOperator(new ApproxQuantile());
     opTab.addOperator(new MapDAvg());
+    for (SqlAggFunction aggregate : StatisticalAggregate.all()) {
+      opTab.addOperator(aggregate);
+    }
     opTab.addOperator(new Sample());
     opTab.addOperator(new LastSample());
     // MapD_Geo* are deprecated in place of the OmniSci_Geo_ varietals
@@ -1803,6 +1820,68 @@ public class MapDSqlOperatorTable extends ChainedSqlOperatorTable {
     }
   }
 
+  /**
+   * The STDDEV, VARIANCE, COVAR and CORR families. With native statistical
+   * aggregates the plan carries them as aggregates of their own, computed by
+   * the engine in a single pass; otherwise MapDParser expands them into SUM,
+   * COUNT and AVG before validation. The _FLOAT variants return FLOAT, the
+   * others DOUBLE. The result is NULL for an empty group, and for a single
+   * row in the sample variants.
+   */
+  static class StatisticalAggregate extends SqlAggFunction {
+    private static final String[] UNARY = {
+            "STDDEV_POP", "STDDEV_SAMP", "STDDEV", "VAR_POP", "VAR_SAMP", "VARIANCE"};
+    private static final String[] BINARY = {
+            "COVAR_POP", "COVAR_SAMP", "CORR", "CORRELATION"};
+
+    private final SqlTypeName returnType;
+
+    StatisticalAggregate(String name, SqlTypeFamily[] families, SqlTypeName returnType) {
+      super(name,
+              null,
+              SqlKind.OTHER_FUNCTION,
+              null,
+              null,
+              OperandTypes.family(families),
+              SqlFunctionCategory.SYSTEM,
+              false,
+              false,
+              Optionality.FORBIDDEN);
+      this.returnType = returnType;
+    }
+
+    static List<StatisticalAggregate> all() {
+      final List<StatisticalAggregate> res = new ArrayList<>();
+      final SqlTypeFamily[] unary = {SqlTypeFamily.NUMERIC};
+      for (String name : UNARY) {
+        res.add(new StatisticalAggregate(name, unary, SqlTypeName.DOUBLE));
+        res.add(new StatisticalAggregate(name + "_FLOAT", unary, SqlTypeName.FLOAT));
+      }
+      final SqlTypeFamily[] binary = {SqlTypeFamily.NUMERIC, SqlTypeFamily.NUMERIC};
+      for (String name : BINARY) {
+        res.add(new StatisticalAggregate(name, binary, SqlTypeName.DOUBLE));
+        res.add(new StatisticalAggregate(name + "_FLOAT", binary, SqlTypeName.FLOAT));
+      }
+      return res;
+    }
+
+    // whether the name, in any case, is the name of one of the aggregates
+    static boolean isName(String name) {
+      String base = name.toUpperCase(Locale.ROOT);
+      if (base.endsWith("_FLOAT")) {
+        base = base.substring(0, base.length() - "_FLOAT".length());
+      }
+      return Arrays.asList(UNARY).contains(base) || Arrays.asList(BINARY).contains(base);
+    }
+
+    @Override
+    public RelDataType inferReturnType(SqlOperatorBinding opBinding) {
+      final RelDataTypeFactory typeFactory = opBinding.getTypeFactory();
+      return typeFactory.createTypeWithNullability(
+              typeFactory.createSqlType(returnType), true);
+    }
+  }
+
   static class ApproxPercentile extends SqlAggFunction {
     ApproxPercentile() {
       super("APPROX_PERCENTILE",
@@ -5,6 +5,11 @@
  */
 package com.mapd.calcite.parser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
 import org.apache.calcite.config.CalciteConnectionConfig;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
@@ -15,12 +20,14 @@ import org.apache.calcite.schema.Table;
 import org.apache.calcite.sql.SqlCall;
 import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ImmutableBitSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
 
 /**
  *
@@ -31,23 +38,78 @@ public class MapDTable implements Table {
 
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(MapDTable.class);
   private final TableDetails rowInfo;
-  private final long version = VERSION_PROVIDER.incrementAndGet();
-  private final HashSet<String> systemColumnNames;
+  private final long version;
+  private final ImmutableSet<String> systemColumnNames;
+  private final Statistic statistic;
+  // Tables are shared between concurrently running planners, each with its
+  // own type factory, so row types are cached per factory.
+  private final Cache<RelDataTypeFactory, RelDataType> rowTypes =
+          CacheBuilder.newBuilder().weakKeys().build();
 
   public long getVersion() {
     return version;
   }
 
   public MapDTable(TableDetails ri) {
+    this(ri, VERSION_PROVIDER.incrementAndGet());
+  }
+
+  private MapDTable(TableDetails ri, long version) {
     rowInfo = ri;
+    this.version = version;
     systemColumnNames = rowInfo.rowDesc.stream()
                                 .filter(rowDesc -> rowDesc.isSystem)
                                 .map(rowDesc -> rowDesc.colName)
-                                .collect(Collectors.toCollection(HashSet::new));
+                                .collect(ImmutableSet.toImmutableSet());
+    if (rowInfo.rowCount == null && rowInfo.uniqueKeys.isEmpty()) {
+      statistic = Statistics.UNKNOWN;
+    } else {
+      statistic = Statistics.of(rowInfo.rowCount,
+              ImmutableList.copyOf(rowInfo.uniqueKeys),
+              ImmutableList.of(),
+              ImmutableList.of());
+    }
+  }
+
+  /**
+   * Returns a view of the table with only the given columns, as read by a
+   * narrowed table scan (see ProjectTableScanNarrowRule). Column ordinals of
+   * the view, including those of its unique keys, are positions in columns;
+   * keys with a column outside of columns are dropped.
+   */
+  public MapDTable narrow(ImmutableBitSet columns) {
+    final List<ColumnType> narrowRowDesc = new ArrayList<>();
+    for (int column : columns) {
+      narrowRowDesc.add(rowInfo.rowDesc.get(column));
+    }
+    final List<ImmutableBitSet> narrowKeys = new ArrayList<>();
+    for (ImmutableBitSet key : rowInfo.uniqueKeys) {
+      if (columns.contains(key)) {
+        final ImmutableBitSet.Builder narrowKey = ImmutableBitSet.builder();
+        for (int column : key) {
+          narrowKey.set(columns.get(0, column).cardinality());
+        }
+        narrowKeys.add(narrowKey.build());
+      }
+    }
+    return new MapDTable(
+            new TableDetails(narrowRowDesc, rowInfo.rowCount, narrowKeys), version);
+  }
+
+  public TableDetails getTableDetails() {
+    return rowInfo;
   }
 
   @Override
   public RelDataType getRowType(RelDataTypeFactory rdtf) {
+    try {
+      return rowTypes.get(rdtf, () -> createRowType(rdtf));
+    } catch (ExecutionException ex) {
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
+  private RelDataType createRowType(RelDataTypeFactory rdtf) {
     RelDataTypeFactory.Builder builder = rdtf.builder();
     for (ColumnType tct : rowInfo.rowDesc) {
       MAPDLOGGER.debug("'" + tct.colName + "'"
@@ -61,7 +123,18 @@ public class MapDTable implements Table {
 
   @Override
   public Statistic getStatistic() {
-    return Statistics.UNKNOWN;
+    return statistic;
+  }
+
+  /**
+   * Returns the statistics of the column with the given ordinal in the row
+   * type, or null if there are none (see MapDRelMetadataProvider).
+   */
+  public ColumnStatistics getColumnStatistics(int ordinal) {
+    if (ordinal < 0 || ordinal >= rowInfo.rowDesc.size()) {
+      return null;
+    }
+    return rowInfo.rowDesc.get(ordinal).stats;
   }
 
   @Override
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.parser;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RA JSON of a {@link QueryTemplate} with the literal values replaced by
+ * parameter references, so plans for queries differing only in literal values
+ * can be produced without planning them.
+ *
+ * The template is derived from two plans of the same query: one with the
+ * original literal values and one with the sentinel values. Both plans have to
+ * be identical except for JSON values which are renderings of the
+ * corresponding parameter values, and every literal of the query has to show
+ * up in the plan. Otherwise literal values affect the plan in some other way
+ * and no template is created.
+ */
+public final class PlanTemplate {
+  /**
+   * The ways a literal value is rendered in RA JSON.
+   */
+  private enum Rendering {
+    NUMBER {
+      @Override
+      String render(Object value) {
+        return value instanceof BigDecimal ? value.toString() : null;
+      }
+    },
+    NEGATED_NUMBER {
+      @Override
+      String render(Object value) {
+        return value instanceof BigDecimal ? ((BigDecimal) value).negate().toString()
+                                           : null;
+      }
+    },
+    UNSCALED_NUMBER {
+      @Override
+      String render(Object value) {
+        return value instanceof BigDecimal
+                ? ((BigDecimal) value).unscaledValue().toString()
+                : null;
+      }
+    },
+    NEGATED_UNSCALED_NUMBER {
+      @Override
+      String render(Object value) {
+        return value instanceof BigDecimal
+                ? ((BigDecimal) value).unscaledValue().negate().toString()
+                : null;
+      }
+    },
+    STRING {
+      @Override
+      String render(Object value) {
+        return value instanceof String
+                ? '"' + StringEscapeUtils.escapeJson((String) value) + '"'
+                : null;
+      }
+    };
+
+    abstract String render(Object value);
+  }
+
+  // Constant parts of the plan, one more than there are slots.
+  private final List<String> segments;
+  private final int[] slotParams;
+  private final Rendering[] slotRenderings;
+
+  private PlanTemplate(
+          List<String> segments, int[] slotParams, Rendering[] slotRenderings) {
+    this.segments = segments;
+    this.slotParams = slotParams;
+    this.slotRenderings = slotRenderings;
+  }
+
+  /**
+   * Derives a template from the plan of the query and the plan of its probe
+   * query. Returns null if the plans cannot be matched.
+   */
+  public static PlanTemplate create(QueryTemplate query, String plan, String probePlan) {
+    List<int[]> tokens = tokenize(plan);
+    List<int[]> probeTokens = tokenize(probePlan);
+    if (tokens == null || probeTokens == null || tokens.size() != probeTokens.size()) {
+      return null;
+    }
+
+    List<String> segments = new ArrayList<>();
+    List<Integer> slotParams = new ArrayList<>();
+    List<Rendering> slotRenderings = new ArrayList<>();
+    int[] found = new int[query.getParameterCount()];
+    int pos = 0;
+    for (int i = 0; i < tokens.size(); ++i) {
+      int[] token = tokens.get(i);
+      int[] probeToken = probeTokens.get(i);
+      String text = plan.substring(token[0], token[1]);
+      String probeText = probePlan.substring(probeToken[0], probeToken[1]);
+      if (text.equals(probeText)) {
+        continue;
+      }
+
+      int param = -1;
+      Rendering rendering = null;
+      for (int p = 0; p < query.getParameterCount(); ++p) {
+        for (Rendering r : Rendering.values()) {
+          if (text.equals(r.render(query.getValue(p)))
+                  && probeText.equals(r.render(query.getSentinel(p)))) {
+            if (param != -1 && param != p) {
+              // Ambiguous value.
+              return null;
+            }
+            param = p;
+            rendering = r;
+            break;
+          }
+        }
+      }
+      if (param == -1) {
+        return null;
+      }
+      ++found[param];
+      segments.add(plan.substring(pos, token[0]));
+      slotParams.add(param);
+      slotRenderings.add(rendering);
+      pos = token[1];
+    }
+    segments.add(plan.substring(pos));
+
+    for (int p = 0; p < found.length; ++p) {
+      if (found[p] < query.getOccurrences(p)) {
+        return null;
+      }
+    }
+
+    int[] params = new int[slotParams.size()];
+    for (int i = 0; i < params.length; ++i) {
+      params[i] = slotParams.get(i);
+    }
+    return new PlanTemplate(
+            segments, params, slotRenderings.toArray(new Rendering[0]));
+  }
+
+  /**
+   * Produces the plan for a query with the same template key as the one this
+   * template was created for.
+   */
+  public String bind(QueryTemplate query) {
+    StringBuilder res = new StringBuilder();
+    for (int i = 0; i < slotParams.length; ++i) {
+      res.append(segments.get(i));
+      res.append(slotRenderings[i].render(query.getValue(slotParams[i])));
+    }
+    res.append(segments.get(slotParams.length));
+    return res.toString();
+  }
+
+  /**
+   * Splits JSON text into tokens, returns start and end offsets of every
+   * token or null if the text is not well formed enough to be split.
+   */
+  private static List<int[]> tokenize(String json) {
+    List<int[]> res = new ArrayList<>();
+    int i = 0;
+    int len = json.length();
+    while (i < len) {
+      char c = json.charAt(i);
+      if (Character.isWhitespace(c)) {
+        ++i;
+        continue;
+      }
+      int start = i;
+      if (c == '"') {
+        ++i;
+        while (i < len && json.charAt(i) != '"') {
+          i += json.charAt(i) == '\\' ? 2 : 1;
+        }
+        if (i >= len) {
+          return null;
+        }
+        ++i;
+      } else if ("{}[]:,".indexOf(c) >= 0) {
+        ++i;
+      } else {
+        while (i < len && !Character.isWhitespace(json.charAt(i))
+                && "{}[]:,\"".indexOf(json.charAt(i)) < 0) {
+          ++i;
+        }
+      }
+      res.add(new int[] {start, i});
+    }
+    return res;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.parser;
+
+/**
+ * Nanoseconds a parser spent in each planning stage since the last reset.
+ *
+ * A parser is used by one request at a time, so the timings are not
+ * synchronized. Stages that run more than once for a request (e.g. the
+ * re-parse on validation fallback) accumulate.
+ */
+public final class PlanningTimings {
+  public enum Stage {
+    // SQL parsing and legacy syntax desugaring, or RA JSON reading
+    PARSE,
+    VALIDATE,
+    // SqlToRel conversion including decorrelation
+    SQL_TO_REL,
+    // Hep rule passes in MapDPlanner
+    OPTIMIZE,
+    SERIALIZE
+  }
+
+  private static final Stage[] STAGES = Stage.values();
+
+  private final long[] nanos = new long[STAGES.length];
+
+  public void add(Stage stage, long stageNanos) {
+    nanos[stage.ordinal()] += stageNanos;
+  }
+
+  public long get(Stage stage) {
+    return nanos[stage.ordinal()];
+  }
+
+  public void reset() {
+    for (int i = 0; i < nanos.length; ++i) {
+      nanos[i] = 0;
+    }
+  }
+}
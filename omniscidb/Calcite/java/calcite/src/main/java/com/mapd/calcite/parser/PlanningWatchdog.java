@@ -0,0 +1,179 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mapd.calcite.parser;
+
+import org.apache.calcite.plan.RelOptListener;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Stops the planning of a statement that exceeds its budget of wall time,
+ * Hep rule calls or plan nodes, so a pathological query (a deeply nested
+ * CASE, a giant OR chain, a join of dozens of tables) fails fast instead of
+ * occupying a planner thread and the memory of the JVM.
+ *
+ * Created for each planned statement when the watchdog is enabled (see
+ * MapDParserOptions.isWatchdogEnabled()). The parser checks the size of the
+ * parsed statement and the time after validation, MapDPlanner the size of
+ * the converted or read plan and the time after SqlToRel conversion, and
+ * every Hep planner reports its rule calls to the watchdog as a listener.
+ */
+public final class PlanningWatchdog implements RelOptListener {
+  /** The limits of planning one statement. */
+  public static final class Budget {
+    public static final Budget DEFAULT = new Budget(10_000, 1_000_000, 1_000_000);
+
+    private final long wallTimeMs;
+    private final long ruleCalls;
+    private final long nodes;
+
+    /**
+     * @param wallTimeMs the time from the start of planning
+     * @param ruleCalls the rule calls of all Hep passes together
+     * @param nodes the calls of the parsed statement, and the relational
+     * operators and expression calls of the converted plan
+     */
+    public Budget(long wallTimeMs, long ruleCalls, long nodes) {
+      this.wallTimeMs = wallTimeMs;
+      this.ruleCalls = ruleCalls;
+      this.nodes = nodes;
+    }
+
+    public long getWallTimeMs() {
+      return wallTimeMs;
+    }
+
+    public long getRuleCalls() {
+      return ruleCalls;
+    }
+
+    public long getNodes() {
+      return nodes;
+    }
+
+    @Override
+    public String toString() {
+      return "wallTimeMs=" + wallTimeMs + ", ruleCalls=" + ruleCalls
+              + ", nodes=" + nodes;
+    }
+  }
+
+  /** Thrown when planning a statement exceeds one of its budgets. */
+  public static final class BudgetExceededException extends RuntimeException {
+    BudgetExceededException(String message) {
+      super(message);
+    }
+  }
+
+  private final Budget budget;
+  private final long start = System.nanoTime();
+  private long ruleCalls = 0;
+
+  public PlanningWatchdog(Budget budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * Fails if planning has run out of time. The stage tells the diagnostic
+   * where planning was at that point.
+   */
+  public void checkTime(String stage) {
+    final long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+    if (elapsedMs > budget.getWallTimeMs()) {
+      throw exceeded(
+              "planning time budget of " + budget.getWallTimeMs() + " ms", stage);
+    }
+  }
+
+  /** Fails if the statement or plan described by what is too large. */
+  public void checkNodes(String what, long nodes) {
+    if (nodes > budget.getNodes()) {
+      throw exceeded(
+              "node budget of " + budget.getNodes() + " (" + nodes + " nodes)", what);
+    }
+  }
+
+  @Override
+  public void ruleAttempted(RuleAttemptedEvent event) {
+    if (!event.isBefore()) {
+      return;
+    }
+    final String rule = event.getRuleCall().getRule().toString();
+    if (++ruleCalls > budget.getRuleCalls()) {
+      throw exceeded("rule call budget of " + budget.getRuleCalls(), rule);
+    }
+    checkTime(rule);
+  }
+
+  @Override
+  public void ruleProductionSucceeded(RuleProductionEvent event) {}
+
+  @Override
+  public void relEquivalenceFound(RelEquivalenceEvent event) {}
+
+  @Override
+  public void relDiscarded(RelDiscardedEvent event) {}
+
+  @Override
+  public void relChosen(RelChosenEvent event) {}
+
+  private BudgetExceededException exceeded(String budgetDescription, String where) {
+    return new BudgetExceededException("Query exceeds the " + budgetDescription
+            + " at " + where + " after " + (System.nanoTime() - start) / 1_000_000
+            + " ms and " + ruleCalls + " rule calls");
+  }
+
+  /**
+   * Returns the number of relational operators of a plan plus the number of
+   * calls in their expressions. Operators shared by several parents count
+   * once.
+   */
+  public static long countNodes(RelNode rel) {
+    final NodeCounter counter = new NodeCounter();
+    counter.count(rel);
+    return counter.nodes;
+  }
+
+  private static final class NodeCounter extends RexShuttle {
+    private final Set<RelNode> visited =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+    private long nodes = 0;
+
+    void count(RelNode rel) {
+      if (!visited.add(rel)) {
+        return;
+      }
+      ++nodes;
+      rel.accept(this);
+      for (RelNode input : rel.getInputs()) {
+        count(input);
+      }
+    }
+
+    @Override
+    public RexNode visitCall(RexCall call) {
+      ++nodes;
+      return super.visitCall(call);
+    }
+  }
+}
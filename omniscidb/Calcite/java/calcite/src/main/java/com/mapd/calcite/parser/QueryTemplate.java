@@ -0,0 +1,436 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.calcite.parser;
+
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlCharStringLiteral;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlLiteral;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlNumericLiteral;
+import org.apache.calcite.sql.SqlOrderBy;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.apache.calcite.util.NlsString;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Query text with numeric and character string literals lifted out into
+ * parameter slots.
+ *
+ * Literals with equal values share a parameter. The template key keeps
+ * everything which may affect typing of a literal in the plan: precision and
+ * scale of numeric literals, INTEGER vs BIGINT range of integer literals and
+ * length of string literals. Typed literals (DATE, TIMESTAMP, INTERVAL etc.),
+ * literals with character set prefixes, ordinals in GROUP BY and ORDER BY
+ * lists and the values 0, 1 and '' are left in the template text.
+ *
+ * For every parameter a distinct sentinel value of the same shape is chosen,
+ * so the template can be planned a second time with different literal
+ * values to find out where the literals end up in the plan (see
+ * {@link PlanTemplate}).
+ */
+public final class QueryTemplate {
+  private static final BigDecimal MIN_INT = BigDecimal.valueOf(Integer.MIN_VALUE);
+  private static final BigDecimal MAX_INT = BigDecimal.valueOf(Integer.MAX_VALUE);
+
+  private final String key;
+  private final List<Object> values;
+  private final List<Object> sentinels;
+  private final int[] occurrences;
+  private final String probeSql;
+
+  private QueryTemplate(String key,
+          List<Object> values,
+          List<Object> sentinels,
+          int[] occurrences,
+          String probeSql) {
+    this.key = key;
+    this.values = values;
+    this.sentinels = sentinels;
+    this.occurrences = occurrences;
+    this.probeSql = probeSql;
+  }
+
+  /**
+   * Builds a template for the given query text and its parsed tree. Returns
+   * null if the query is not a plain query, has no literals to lift or the
+   * literal positions cannot be matched with the query text.
+   */
+  public static QueryTemplate create(String sql, SqlNode node) {
+    if (node == null || !node.isA(SqlKind.QUERY)) {
+      return null;
+    }
+    LiteralCollector collector = new LiteralCollector();
+    node.accept(collector);
+
+    int[] lineOffsets = lineOffsets(sql);
+    List<Slot> slots = new ArrayList<>();
+    for (SqlLiteral literal : collector.literals) {
+      Slot slot = toSlot(sql, lineOffsets, literal);
+      if (slot == Slot.INVALID) {
+        return null;
+      }
+      if (slot != null) {
+        slots.add(slot);
+      }
+    }
+    if (slots.isEmpty()) {
+      return null;
+    }
+    Collections.sort(slots, (a, b) -> Integer.compare(a.start, b.start));
+    for (int i = 1; i < slots.size(); ++i) {
+      if (slots.get(i).start < slots.get(i - 1).end) {
+        return null;
+      }
+    }
+
+    // Assign parameters, literals of the same shape and value share one.
+    Map<String, Integer> params = new HashMap<>();
+    List<Object> values = new ArrayList<>();
+    List<String> shapes = new ArrayList<>();
+    List<Integer> counts = new ArrayList<>();
+    int[] slotParams = new int[slots.size()];
+    for (int i = 0; i < slots.size(); ++i) {
+      Slot slot = slots.get(i);
+      String paramKey = slot.shape + '\u0000' + slot.value;
+      Integer param = params.get(paramKey);
+      if (param == null) {
+        param = values.size();
+        params.put(paramKey, param);
+        values.add(slot.value);
+        shapes.add(slot.shape);
+        counts.add(0);
+      }
+      counts.set(param, counts.get(param) + 1);
+      slotParams[i] = param;
+    }
+
+    List<Object> sentinels = new ArrayList<>();
+    Set<Object> usedSentinels = new HashSet<>();
+    for (int i = 0; i < values.size(); ++i) {
+      Object sentinel = sentinel(values.get(i), shapes.get(i), usedSentinels);
+      if (sentinel == null) {
+        return null;
+      }
+      usedSentinels.add(sentinel);
+      sentinels.add(sentinel);
+    }
+
+    StringBuilder key = new StringBuilder();
+    StringBuilder probe = new StringBuilder();
+    int pos = 0;
+    for (int i = 0; i < slots.size(); ++i) {
+      Slot slot = slots.get(i);
+      int param = slotParams[i];
+      key.append(sql, pos, slot.start)
+              .append('\u0000')
+              .append(param)
+              .append(':')
+              .append(shapes.get(param))
+              .append('\u0000');
+      probe.append(sql, pos, slot.start).append(toSql(sentinels.get(param)));
+      pos = slot.end;
+    }
+    key.append(sql, pos, sql.length());
+    probe.append(sql, pos, sql.length());
+
+    int[] occurrences = new int[counts.size()];
+    for (int i = 0; i < occurrences.length; ++i) {
+      occurrences[i] = counts.get(i);
+    }
+    return new QueryTemplate(
+            key.toString(), values, sentinels, occurrences, probe.toString());
+  }
+
+  /**
+   * Query text with literals replaced by parameter markers and their shapes.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * The query with every parameter replaced by its sentinel value.
+   */
+  public String getProbeSql() {
+    return probeSql;
+  }
+
+  public int getParameterCount() {
+    return values.size();
+  }
+
+  /**
+   * Parameter value, either a BigDecimal or a String.
+   */
+  public Object getValue(int param) {
+    return values.get(param);
+  }
+
+  Object getSentinel(int param) {
+    return sentinels.get(param);
+  }
+
+  /**
+   * Number of literals in the query text using the parameter.
+   */
+  int getOccurrences(int param) {
+    return occurrences[param];
+  }
+
+  private static class Slot {
+    static final Slot INVALID = new Slot(0, 0, null, null);
+
+    final int start;
+    final int end;
+    final String shape;
+    final Object value;
+
+    Slot(int start, int end, String shape, Object value) {
+      this.start = start;
+      this.end = end;
+      this.shape = shape;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Returns the slot for the literal, null if the literal should stay in the
+   * template text and INVALID if its position doesn't match the query text.
+   */
+  private static Slot toSlot(String sql, int[] lineOffsets, SqlLiteral literal) {
+    SqlParserPos pos = literal.getParserPosition();
+    if (pos.getLineNum() < 1 || pos.getEndLineNum() > lineOffsets.length) {
+      return Slot.INVALID;
+    }
+    int start = lineOffsets[pos.getLineNum() - 1] + pos.getColumnNum() - 1;
+    int end = lineOffsets[pos.getEndLineNum() - 1] + pos.getEndColumnNum();
+    if (start < 0 || end > sql.length() || start >= end) {
+      return Slot.INVALID;
+    }
+    String text = sql.substring(start, end);
+
+    if (literal instanceof SqlNumericLiteral) {
+      BigDecimal value = (BigDecimal) literal.getValue();
+      try {
+        if (new BigDecimal(text).compareTo(value) != 0) {
+          return Slot.INVALID;
+        }
+      } catch (NumberFormatException ex) {
+        return Slot.INVALID;
+      }
+      if (value.signum() == 0 || value.compareTo(BigDecimal.ONE) == 0) {
+        return null;
+      }
+      boolean exact = ((SqlNumericLiteral) literal).isExact();
+      return new Slot(start, end, numericShape(value, exact), value);
+    }
+
+    String value = ((NlsString) literal.getValue()).getValue();
+    if (!text.startsWith("'")) {
+      // Literals with character set prefixes and the like.
+      return null;
+    }
+    if (text.length() < 2 || !text.endsWith("'")
+            || !text.substring(1, text.length() - 1).replace("''", "'").equals(value)) {
+      return Slot.INVALID;
+    }
+    if (value.isEmpty()) {
+      return null;
+    }
+    return new Slot(start, end, stringShape(value), value);
+  }
+
+  private static String numericShape(BigDecimal value, boolean exact) {
+    StringBuilder shape = new StringBuilder();
+    shape.append(exact ? 'E' : 'A').append(value.precision()).append(',').append(
+            value.scale());
+    if (exact && value.scale() <= 0) {
+      boolean fitsInt = value.compareTo(MIN_INT) >= 0 && value.compareTo(MAX_INT) <= 0;
+      shape.append(fitsInt ? 'i' : 'l');
+    }
+    return shape.toString();
+  }
+
+  private static String stringShape(String value) {
+    boolean ascii = value.chars().allMatch(c -> c < 128);
+    return "S" + value.length() + (ascii ? "a" : "u");
+  }
+
+  /**
+   * Picks a sentinel of the same shape for the value by changing its last
+   * digit (or letter). Sentinels of different parameters are kept distinct,
+   * so the probe query has the same equality pattern as the original one.
+   */
+  private static Object sentinel(Object value, String shape, Set<Object> used) {
+    if (value instanceof BigDecimal) {
+      BigDecimal decimal = (BigDecimal) value;
+      BigInteger unscaled = decimal.unscaledValue().abs();
+      int digit = unscaled.mod(BigInteger.TEN).intValue();
+      for (int candidate : digitCandidates(digit)) {
+        BigDecimal sentinel = new BigDecimal(
+                unscaled.add(BigInteger.valueOf(candidate - digit)), decimal.scale());
+        if (decimal.signum() < 0) {
+          sentinel = sentinel.negate();
+        }
+        if (sentinel.signum() == decimal.signum() && sentinel.compareTo(BigDecimal.ONE) != 0
+                && numericShape(sentinel, shape.charAt(0) == 'E').equals(shape)
+                && !used.contains(sentinel)) {
+          return sentinel;
+        }
+      }
+      return null;
+    }
+
+    String str = (String) value;
+    int idx = str.length() - 1;
+    while (idx >= 0 && !isAsciiLetterOrDigit(str.charAt(idx))) {
+      --idx;
+    }
+    if (idx < 0) {
+      return null;
+    }
+    char c = str.charAt(idx);
+    List<Character> candidates = new ArrayList<>();
+    if (Character.isDigit(c)) {
+      for (int d : digitCandidates(c - '0')) {
+        candidates.add((char) ('0' + d));
+      }
+    } else {
+      char base = Character.isUpperCase(c) ? 'A' : 'a';
+      for (int d : letterCandidates(c - base)) {
+        candidates.add((char) (base + d));
+      }
+    }
+    for (char candidate : candidates) {
+      String sentinel = str.substring(0, idx) + candidate + str.substring(idx + 1);
+      if (!used.contains(sentinel)) {
+        return sentinel;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAsciiLetterOrDigit(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  // Other digits ordered by their distance to the given one, preferring
+  // bigger values. Close values keep dates and times in the text valid.
+  private static List<Integer> digitCandidates(int digit) {
+    return closest(digit, 10);
+  }
+
+  private static List<Integer> letterCandidates(int letter) {
+    return closest(letter, 26);
+  }
+
+  private static List<Integer> closest(int val, int range) {
+    List<Integer> res = new ArrayList<>();
+    for (int delta = 1; delta < range; ++delta) {
+      if (val + delta < range) {
+        res.add(val + delta);
+      }
+      if (val - delta >= 0) {
+        res.add(val - delta);
+      }
+    }
+    return res;
+  }
+
+  private static String toSql(Object value) {
+    if (value instanceof BigDecimal) {
+      BigDecimal decimal = (BigDecimal) value;
+      if (decimal.scale() < 0) {
+        return decimal.unscaledValue() + "E" + (-decimal.scale());
+      }
+      return decimal.toPlainString();
+    }
+    return "'" + ((String) value).replace("'", "''") + "'";
+  }
+
+  private static int[] lineOffsets(String sql) {
+    List<Integer> offsets = new ArrayList<>();
+    offsets.add(0);
+    for (int i = 0; i < sql.length(); ++i) {
+      char c = sql.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == sql.length() || sql.charAt(i + 1) != '\n'))) {
+        offsets.add(i + 1);
+      }
+    }
+    int[] res = new int[offsets.size()];
+    for (int i = 0; i < res.length; ++i) {
+      res[i] = offsets.get(i);
+    }
+    return res;
+  }
+
+  private static class LiteralCollector extends SqlBasicVisitor<Void> {
+    final List<SqlLiteral> literals = new ArrayList<>();
+    final Set<SqlNode> ordinals = Collections.newSetFromMap(new IdentityHashMap<>());
+    final Set<SqlNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public Void visit(SqlLiteral literal) {
+      if ((literal instanceof SqlNumericLiteral || literal instanceof SqlCharStringLiteral)
+              && !ordinals.contains(literal) && visited.add(literal)) {
+        literals.add(literal);
+      }
+      return null;
+    }
+
+    @Override
+    public Void visit(SqlCall call) {
+      if (call instanceof SqlSelect) {
+        addOrdinals(((SqlSelect) call).getGroup());
+        addOrdinals(((SqlSelect) call).getOrderList());
+      } else if (call instanceof SqlOrderBy) {
+        addOrdinals(((SqlOrderBy) call).orderList);
+      }
+      return super.visit(call);
+    }
+
+    private void addOrdinals(SqlNodeList list) {
+      if (list == null) {
+        return;
+      }
+      for (SqlNode item : list) {
+        while (item instanceof SqlCall
+                && (item.getKind() == SqlKind.DESCENDING
+                        || item.getKind() == SqlKind.NULLS_FIRST
+                        || item.getKind() == SqlKind.NULLS_LAST)) {
+          item = ((SqlCall) item).operand(0);
+        }
+        if (item instanceof SqlLiteral) {
+          ordinals.add(item);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mapd.calcite.parser;
+
+import org.apache.calcite.plan.RelOptListener;
+import org.apache.calcite.plan.RelOptRule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the calls of each rule in the Hep passes of a parser since the last
+ * reset, the calls that produced a new expression, and the time spent in
+ * the rules' onMatch(). Shows which rule dominates planning of a query.
+ *
+ * Like PlanningTimings, it is used by one request at a time and not
+ * synchronized.
+ */
+public final class RuleStatistics implements RelOptListener {
+  /** Calls, productions and time of one rule. */
+  public static final class RuleCounts {
+    private long calls;
+    private long productions;
+    private long nanos;
+
+    RuleCounts() {}
+
+    RuleCounts(RuleCounts other) {
+      calls = other.calls;
+      productions = other.productions;
+      nanos = other.nanos;
+    }
+
+    public long getCalls() {
+      return calls;
+    }
+
+    public long getProductions() {
+      return productions;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    @Override
+    public String toString() {
+      return "calls=" + calls + ", productions=" + productions + ", time="
+              + nanos / 1000 + "us";
+    }
+  }
+
+  private final Map<String, RuleCounts> rules = new HashMap<>();
+  // Hep fires one rule at a time, so one start time is enough
+  private long callStart;
+
+  private RuleCounts counts(RelOptRule rule) {
+    return rules.computeIfAbsent(rule.toString(), key -> new RuleCounts());
+  }
+
+  @Override
+  public void ruleAttempted(RuleAttemptedEvent event) {
+    if (event.isBefore()) {
+      callStart = System.nanoTime();
+      return;
+    }
+    final RuleCounts counts = counts(event.getRuleCall().getRule());
+    ++counts.calls;
+    counts.nanos += System.nanoTime() - callStart;
+  }
+
+  @Override
+  public void ruleProductionSucceeded(RuleProductionEvent event) {
+    if (event.isBefore()) {
+      ++counts(event.getRuleCall().getRule()).productions;
+    }
+  }
+
+  @Override
+  public void relEquivalenceFound(RelEquivalenceEvent event) {}
+
+  @Override
+  public void relDiscarded(RelDiscardedEvent event) {}
+
+  @Override
+  public void relChosen(RelChosenEvent event) {}
+
+  /**
+   * Returns a copy of the counts by rule description, the rule that took
+   * the most time first.
+   */
+  public Map<String, RuleCounts> snapshot() {
+    final List<Map.Entry<String, RuleCounts>> entries = new ArrayList<>(rules.entrySet());
+    entries.sort((a, b) -> Long.compare(b.getValue().nanos, a.getValue().nanos));
+    final Map<String, RuleCounts> res = new LinkedHashMap<>();
+    for (Map.Entry<String, RuleCounts> entry : entries) {
+      res.put(entry.getKey(), new RuleCounts(entry.getValue()));
+    }
+    return res;
+  }
+
+  public void reset() {
+    rules.clear();
+  }
+
+  @Override
+  public String toString() {
+    return snapshot().toString();
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mapd.calcite.parser;
+
+import org.apache.calcite.prepare.SqlIdentifierCapturer;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlSelect;
+
+/**
+ * What planning needs to know about a parsed statement, collected in a
+ * single walk of its tree: the tables it reads and writes (see
+ * {@link SqlIdentifierCapturer}), whether it has a HAVING clause or a
+ * NOT IN filter, the number of statistical aggregate calls the legacy
+ * syntax rewrites into SUM, COUNT and AVG, and the size of the statement.
+ */
+public class SqlAnalysis extends SqlIdentifierCapturer {
+  private boolean hasHaving = false;
+  private boolean hasNotIn = false;
+  private int legacyRewrites = 0;
+  private int calls = 0;
+
+  private SqlAnalysis() {}
+
+  public static SqlAnalysis of(SqlNode node) {
+    final SqlAnalysis analysis = new SqlAnalysis();
+    analysis.scan(node);
+    return analysis;
+  }
+
+  @Override
+  protected void visitCall(SqlCall call) {
+    ++calls;
+    if (call instanceof SqlSelect) {
+      final SqlSelect select = (SqlSelect) call;
+      hasHaving |= select.getHaving() != null;
+      final SqlNode where = select.getWhere();
+      hasNotIn |= where != null && where.getKind() == SqlKind.NOT_IN;
+    } else if (MapDSqlOperatorTable.StatisticalAggregate.isName(
+                       call.getOperator().getName())) {
+      ++legacyRewrites;
+    }
+  }
+
+  public boolean hasHaving() {
+    return hasHaving;
+  }
+
+  public boolean hasNotIn() {
+    return hasNotIn;
+  }
+
+  /**
+   * Returns the number of calls the legacy syntax desugaring rewrites. The
+   * desugaring can be skipped for statements without any.
+   */
+  public int getLegacyRewrites() {
+    return legacyRewrites;
+  }
+
+  /**
+   * Returns the number of calls in the statement: clauses, operators and
+   * functions. Validation and SqlToRel conversion take time growing with it.
+   */
+  public int getCalls() {
+    return calls;
+  }
+}
@@ -1,3 +1,23 @@
 package com.mapd.calcite.parser;
 
-public class TableDetails { public java.util.List<ColumnType> rowDesc; }
+import com.google.common.collect.ImmutableList;
+
+import org.apache.calcite.util.ImmutableBitSet;
+
+import java.util.List;
+
+public final class TableDetails {
+  public final List<ColumnType> rowDesc;
+  // optional table statistics: null if the row count is unknown, empty if no
+  // unique keys are known (keys are ordinals into rowDesc)
+  public final Double rowCount;
+  public final List<ImmutableBitSet> uniqueKeys;
+
+  public TableDetails(List<ColumnType> rowDesc,
+          Double rowCount,
+          List<ImmutableBitSet> uniqueKeys) {
+    this.rowDesc = ImmutableList.copyOf(rowDesc);
+    this.rowCount = rowCount;
+    this.uniqueKeys = ImmutableList.copyOf(uniqueKeys);
+  }
+}
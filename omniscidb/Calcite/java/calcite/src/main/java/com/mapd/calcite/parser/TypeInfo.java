@@ -1,6 +1,6 @@
 package com.mapd.calcite.parser;
 
-public class TypeInfo {
+public final class TypeInfo {
   public enum DeviceType { CPU, GPU }
 
   public enum DatumType {
@@ -28,10 +28,24 @@ public class TypeInfo {
 
   public enum EncodingType { NONE, FIXED, RL, DIFF, DICT, SPARSE, GEOINT, DATE_IN_DAYS }
 
-  public DatumType type;
-  public EncodingType encoding;
-  public boolean nullable;
-  public boolean isArray;
-  public int precision;
-  public int scale;
+  public final DatumType type;
+  public final EncodingType encoding;
+  public final boolean nullable;
+  public final boolean isArray;
+  public final int precision;
+  public final int scale;
+
+  public TypeInfo(DatumType type,
+          EncodingType encoding,
+          boolean nullable,
+          boolean isArray,
+          int precision,
+          int scale) {
+    this.type = type;
+    this.encoding = encoding;
+    this.nullable = nullable;
+    this.isArray = isArray;
+    this.precision = precision;
+    this.scale = scale;
+  }
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.metadata;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapd.calcite.parser.ColumnStatistics;
+import com.mapd.calcite.parser.ColumnType;
+import com.mapd.calcite.parser.MapDTable;
+import com.mapd.calcite.parser.TableDetails;
+import com.mapd.calcite.parser.TypeInfo;
+
+import org.apache.calcite.util.ImmutableBitSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, parsed view of the schema JSON sent by the engine.
+ *
+ * The schema JSON is parsed once per distinct content and the resulting
+ * catalog, together with its {@link MapDTable} objects, is shared by all
+ * parsers. Every catalog gets its own version number which can be used as a
+ * cheap identity of the schema it was built from.
+ *
+ * Tables and columns may carry optional statistics used for cost estimates:
+ * <pre>
+ * "stats": {"row_count": 1000, "unique_keys": [["id"], ["a", "b"]]}
+ * </pre>
+ * in a table object and
+ * <pre>
+ * "stats": {"ndv": 10, "min": 0, "max": 99, "null_fraction": 0.01}
+ * </pre>
+ * in a column object. Every member of "stats" is optional.
+ */
+public final class SchemaCatalog {
+  final static Logger MAPDLOGGER = LoggerFactory.getLogger(SchemaCatalog.class);
+
+  private static final int KBOOLEAN = 1;
+  private static final int KCHAR = 2;
+  private static final int KVARCHAR = 3;
+  private static final int KNUMERIC = 4;
+  private static final int KDECIMAL = 5;
+  private static final int KINT = 6;
+  private static final int KSMALLINT = 7;
+  private static final int KFLOAT = 8;
+  private static final int KDOUBLE = 9;
+  private static final int KTIME = 10;
+  private static final int KTIMESTAMP = 11;
+  private static final int KBIGINT = 12;
+  private static final int KTEXT = 13;
+  private static final int KDATE = 14;
+  private static final int KARRAY = 15;
+  private static final int KINTERVAL_DAY_TIME = 16;
+  private static final int KINTERVAL_YEAR_MONTH = 17;
+  private static final int KTINYINT = 18;
+
+  // Number of distinct schema JSON strings to keep parsed catalogs for.
+  private static final int MAX_CACHED_SCHEMAS = 16;
+
+  private static final AtomicLong VERSION_PROVIDER = new AtomicLong();
+
+  // keyed by the SHA-256 digest of the schema JSON, which can be megabytes
+  // long, so the cache neither retains nor compares whole schema strings
+  private static final Cache<HashCode, SchemaCatalog> PARSED_SCHEMAS =
+          CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCHEMAS).build();
+
+  public static final SchemaCatalog EMPTY =
+          new SchemaCatalog(ImmutableMap.of(), ImmutableMap.of());
+
+  private final long version = VERSION_PROVIDER.incrementAndGet();
+  private final ImmutableMap<String, MapDTable> tables;
+  private final ImmutableMap<Integer, String> tableNamesById;
+
+  private SchemaCatalog(ImmutableMap<String, MapDTable> tables,
+          ImmutableMap<Integer, String> tableNamesById) {
+    this.tables = tables;
+    this.tableNamesById = tableNamesById;
+  }
+
+  /**
+   * Returns the catalog for the given schema JSON, parsing it only if the same
+   * content has not been seen recently.
+   */
+  public static SchemaCatalog forJson(final String schemaJson) {
+    if (schemaJson == null) {
+      return EMPTY;
+    }
+    try {
+      final HashCode digest = Hashing.sha256().hashString(schemaJson, UTF_8);
+      return PARSED_SCHEMAS.get(digest, () -> fromJson(schemaJson));
+    } catch (ExecutionException ex) {
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
+  /**
+   * Parses the schema JSON into a new catalog, bypassing the cache.
+   */
+  public static SchemaCatalog fromJson(String schemaJson) {
+    JsonElement parsed = JsonParser.parseString(schemaJson);
+    if (parsed == null || !parsed.isJsonObject()) {
+      throw new RuntimeException("Malformed temporary tables file.");
+    }
+    ImmutableMap.Builder<String, MapDTable> builder = ImmutableMap.builder();
+    ImmutableMap.Builder<Integer, String> idsBuilder = ImmutableMap.builder();
+    for (Map.Entry<String, JsonElement> member : parsed.getAsJsonObject().entrySet()) {
+      String tableName = member.getKey();
+      MAPDLOGGER.debug("Temp table object name = " + tableName);
+      JsonObject tableObject = member.getValue().getAsJsonObject();
+      builder.put(tableName, new MapDTable(parseTableDetails(tableObject)));
+      idsBuilder.put(tableObject.get("id").getAsInt(), tableName);
+    }
+    return new SchemaCatalog(builder.build(), idsBuilder.build());
+  }
+
+  /**
+   * Returns a new catalog with the table described by the given JSON object
+   * (same format as a single entry of the schema JSON) added. A table with
+   * the same id or the same name is replaced.
+   */
+  public SchemaCatalog withTable(String tableJson) {
+    JsonElement parsed = JsonParser.parseString(tableJson);
+    if (parsed == null || !parsed.isJsonObject()) {
+      throw new RuntimeException("Malformed table description: " + tableJson);
+    }
+    JsonObject tableObject = parsed.getAsJsonObject();
+    String tableName = tableObject.get("name").getAsString();
+    int tableId = tableObject.get("id").getAsInt();
+    String oldName = tableNamesById.get(tableId);
+
+    ImmutableMap.Builder<String, MapDTable> builder = ImmutableMap.builder();
+    for (Map.Entry<String, MapDTable> entry : tables.entrySet()) {
+      if (!entry.getKey().equals(tableName) && !entry.getKey().equals(oldName)) {
+        builder.put(entry);
+      }
+    }
+    builder.put(tableName, new MapDTable(parseTableDetails(tableObject)));
+
+    ImmutableMap.Builder<Integer, String> idsBuilder = ImmutableMap.builder();
+    for (Map.Entry<Integer, String> entry : tableNamesById.entrySet()) {
+      if (entry.getKey() != tableId && !entry.getValue().equals(tableName)) {
+        idsBuilder.put(entry);
+      }
+    }
+    idsBuilder.put(tableId, tableName);
+    return new SchemaCatalog(builder.build(), idsBuilder.build());
+  }
+
+  /**
+   * Returns a new catalog without the table with the given id, or this
+   * catalog if there is no such table.
+   */
+  public SchemaCatalog withoutTable(int tableId) {
+    String tableName = tableNamesById.get(tableId);
+    if (tableName == null) {
+      return this;
+    }
+    ImmutableMap.Builder<String, MapDTable> builder = ImmutableMap.builder();
+    for (Map.Entry<String, MapDTable> entry : tables.entrySet()) {
+      if (!entry.getKey().equals(tableName)) {
+        builder.put(entry);
+      }
+    }
+    ImmutableMap.Builder<Integer, String> idsBuilder = ImmutableMap.builder();
+    for (Map.Entry<Integer, String> entry : tableNamesById.entrySet()) {
+      if (entry.getKey() != tableId) {
+        idsBuilder.put(entry);
+      }
+    }
+    return new SchemaCatalog(builder.build(), idsBuilder.build());
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Set<String> getTableNames() {
+    return tables.keySet();
+  }
+
+  public MapDTable getTable(String tableName) {
+    return tables.get(tableName);
+  }
+
+  private static TableDetails parseTableDetails(JsonObject tableObject) {
+    String tableName = tableObject.get("name").getAsString();
+    int id = tableObject.get("id").getAsInt();
+    MAPDLOGGER.debug("table id is " + id);
+    MAPDLOGGER.debug("table name is " + tableName);
+
+    JsonArray jsonColumns = tableObject.getAsJsonArray("columns");
+    assert (jsonColumns != null);
+
+    ImmutableList.Builder<ColumnType> rowDesc = ImmutableList.builder();
+    for (JsonElement columnElement : jsonColumns) {
+      JsonObject columnObject = columnElement.getAsJsonObject();
+
+      String colName = columnObject.get("name").getAsString();
+      int colType = columnObject.get("coltype").getAsInt();
+      int colSubType = columnObject.get("colsubtype").getAsInt();
+      int colDim = columnObject.get("coldim").getAsInt();
+      int colScale = columnObject.get("colscale").getAsInt();
+      boolean isNotNull = columnObject.get("is_notnull").getAsBoolean();
+      boolean isSystemCol = columnObject.get("is_systemcol").getAsBoolean();
+      boolean isDeletedCol = columnObject.get("is_deletedcol").getAsBoolean();
+
+      if (isDeletedCol) {
+        MAPDLOGGER.debug("Skipping delete column " + colName);
+        continue;
+      }
+
+      TypeInfo.DatumType tdt = colType == KARRAY ? typeToDatumType(colSubType)
+                                                 : typeToDatumType(colType);
+      TypeInfo tti = new TypeInfo(tdt,
+              TypeInfo.EncodingType.NONE,
+              !isNotNull,
+              colType == KARRAY,
+              colDim,
+              colScale);
+      ColumnType tct = new ColumnType(colName,
+              tti,
+              isSystemCol,
+              parseColumnStatistics(columnObject.get("stats"), tti));
+      rowDesc.add(tct);
+    }
+
+    final List<ColumnType> columns = rowDesc.build();
+    Double rowCount = null;
+    List<ImmutableBitSet> uniqueKeys = ImmutableList.of();
+    JsonElement tableStats = tableObject.get("stats");
+    if (tableStats != null && tableStats.isJsonObject()) {
+      JsonObject statsObject = tableStats.getAsJsonObject();
+      rowCount = getDouble(statsObject, "row_count");
+      uniqueKeys = parseUniqueKeys(statsObject, columns);
+    }
+    return new TableDetails(columns, rowCount, uniqueKeys);
+  }
+
+  private static List<ImmutableBitSet> parseUniqueKeys(
+          JsonObject statsObject, List<ColumnType> columns) {
+    JsonElement keysElement = statsObject.get("unique_keys");
+    if (keysElement == null || !keysElement.isJsonArray()) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<ImmutableBitSet> keys = ImmutableList.builder();
+    for (JsonElement keyElement : keysElement.getAsJsonArray()) {
+      ImmutableBitSet.Builder key = ImmutableBitSet.builder();
+      boolean known = true;
+      for (JsonElement columnName : keyElement.getAsJsonArray()) {
+        int ordinal = columnOrdinal(columns, columnName.getAsString());
+        if (ordinal < 0) {
+          MAPDLOGGER.debug("Skipping unique key with unknown column " + columnName);
+          known = false;
+          break;
+        }
+        key.set(ordinal);
+      }
+      if (known) {
+        keys.add(key.build());
+      }
+    }
+    return keys.build();
+  }
+
+  private static int columnOrdinal(List<ColumnType> columns, String columnName) {
+    for (int i = 0; i < columns.size(); ++i) {
+      if (columns.get(i).colName.equals(columnName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static ColumnStatistics parseColumnStatistics(
+          JsonElement statsElement, TypeInfo typeInfo) {
+    if (statsElement == null || !statsElement.isJsonObject()) {
+      return null;
+    }
+    JsonObject statsObject = statsElement.getAsJsonObject();
+    boolean hasRange = !typeInfo.isArray && isNumeric(typeInfo.type);
+    return new ColumnStatistics(getDouble(statsObject, "ndv"),
+            hasRange ? getDouble(statsObject, "min") : null,
+            hasRange ? getDouble(statsObject, "max") : null,
+            getDouble(statsObject, "null_fraction"));
+  }
+
+  private static Double getDouble(JsonObject object, String name) {
+    JsonElement element = object.get(name);
+    if (element == null || element.isJsonNull()) {
+      return null;
+    }
+    return element.getAsDouble();
+  }
+
+  private static boolean isNumeric(TypeInfo.DatumType type) {
+    if (type == null) {
+      return false;
+    }
+    switch (type) {
+      case TINYINT:
+      case SMALLINT:
+      case INT:
+      case BIGINT:
+      case FLOAT:
+      case DOUBLE:
+      case DECIMAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static TypeInfo.DatumType typeToDatumType(int type) {
+    switch (type) {
+      case KBOOLEAN:
+        return TypeInfo.DatumType.BOOL;
+      case KTINYINT:
+        return TypeInfo.DatumType.TINYINT;
+      case KSMALLINT:
+        return TypeInfo.DatumType.SMALLINT;
+      case KINT:
+        return TypeInfo.DatumType.INT;
+      case KBIGINT:
+        return TypeInfo.DatumType.BIGINT;
+      case KFLOAT:
+        return TypeInfo.DatumType.FLOAT;
+      case KNUMERIC:
+      case KDECIMAL:
+        return TypeInfo.DatumType.DECIMAL;
+      case KDOUBLE:
+        return TypeInfo.DatumType.DOUBLE;
+      case KTEXT:
+      case KVARCHAR:
+      case KCHAR:
+        return TypeInfo.DatumType.STR;
+      case KTIME:
+        return TypeInfo.DatumType.TIME;
+      case KTIMESTAMP:
+        return TypeInfo.DatumType.TIMESTAMP;
+      case KDATE:
+        return TypeInfo.DatumType.DATE;
+      case KINTERVAL_DAY_TIME:
+        return TypeInfo.DatumType.INTERVAL_DAY_TIME;
+      case KINTERVAL_YEAR_MONTH:
+        return TypeInfo.DatumType.INTERVAL_YEAR_MONTH;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.metadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Schema state registered by the engine through incremental updates.
+ *
+ * Every update moves the registry to a new, strictly increasing schema version
+ * chosen by the caller. Queries name the version they were planned against,
+ * so a few recent versions are kept around for queries which are still in
+ * flight while the schema is being updated. Versions the engine reports as
+ * still in use through retainVersionsFrom() are never evicted.
+ */
+public class SchemaRegistry {
+  final static Logger MAPDLOGGER = LoggerFactory.getLogger(SchemaRegistry.class);
+
+  // Number of schema versions which can still be resolved after newer
+  // versions were registered.
+  private static final int MAX_RETAINED_VERSIONS = 8;
+
+  private final Map<Long, SchemaCatalog> catalogs = new ConcurrentHashMap<>();
+  private final ArrayDeque<Long> retainedVersions = new ArrayDeque<>();
+  private volatile long currentVersion = -1;
+  private long oldestVersionInUse = Long.MAX_VALUE;
+  private SchemaCatalog current = SchemaCatalog.EMPTY;
+
+  public long getCurrentVersion() {
+    return currentVersion;
+  }
+
+  /**
+   * Returns the catalog registered for the given version or null if that
+   * version is unknown or was already evicted.
+   */
+  public SchemaCatalog getCatalog(long version) {
+    return catalogs.get(version);
+  }
+
+  /**
+   * Sets the oldest version still used by queries. It and all newer versions
+   * stay registered until a later call moves the bound past them.
+   */
+  public synchronized void retainVersionsFrom(long version) {
+    oldestVersionInUse = version;
+  }
+
+  public synchronized void reset(long version, String schemaJson) {
+    checkVersion(version);
+    publish(version, SchemaCatalog.fromJson(schemaJson));
+  }
+
+  public synchronized void updateTable(long version, String tableJson) {
+    checkVersion(version);
+    publish(version, current.withTable(tableJson));
+  }
+
+  public synchronized void dropTable(long version, int tableId) {
+    checkVersion(version);
+    publish(version, current.withoutTable(tableId));
+  }
+
+  private void checkVersion(long version) {
+    if (version <= currentVersion) {
+      throw new IllegalArgumentException("Schema version " + version
+              + " is not newer than the registered version " + currentVersion);
+    }
+  }
+
+  private void publish(long version, SchemaCatalog catalog) {
+    MAPDLOGGER.debug("Registering schema version " + version);
+    current = catalog;
+    catalogs.put(version, catalog);
+    retainedVersions.addLast(version);
+    while (retainedVersions.size() > MAX_RETAINED_VERSIONS
+            && retainedVersions.peekFirst() < oldestVersionInUse) {
+      catalogs.remove(retainedVersions.removeFirst());
+    }
+    currentVersion = version;
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.parser.server;
+
+/**
+ * Results of CalciteServerHandler.processBatch() in query order. For every
+ * query either its result or the error it failed with is set.
+ */
+public class BatchPlanResult {
+  public final PlanResult[] results;
+  public final InvalidParseRequest[] errors;
+
+  public BatchPlanResult(int size) {
+    results = new PlanResult[size];
+    errors = new InvalidParseRequest[size];
+  }
+}
@@ -20,7 +20,6 @@ import com.mapd.calcite.parser.MapDSqlOperatorTable;
 
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.util.ConversionUtil;
-import org.apache.commons.pool.PoolableObjectFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,7 +30,7 @@ import java.util.function.Supplier;
  *
  * @author michael
  */
-class CalciteParserFactory implements PoolableObjectFactory {
+class CalciteParserFactory {
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(CalciteParserFactory.class);
 
   private final Map<String, ExtensionFunction> extSigs;
@@ -66,35 +65,7 @@ class CalciteParserFactory implements PoolableObjectFactory {
     this.tableOperator = tableOperator;
   }
 
-  @Override
-  public Object makeObject() throws Exception {
-    MapDParser obj = new MapDParser(tableOperatorSupplier);
-    return obj;
-  }
-
-  @Override
-  public void destroyObject(Object obj) throws Exception {
-    // no need to do anything
-  }
-
-  @Override
-  public boolean validateObject(Object obj) {
-    MapDParser mdp = (MapDParser) obj;
-    if (mdp.getCallCount() < 1000) {
-      return true;
-    } else {
-      MAPDLOGGER.debug(" invalidating object due to max use count");
-      return false;
-    }
-  }
-
-  @Override
-  public void activateObject(Object obj) throws Exception {
-    // don't need to do anything
-  }
-
-  @Override
-  public void passivateObject(Object obj) throws Exception {
-    // nothing to currently do here
+  public MapDParser create() {
+    return new MapDParser(tableOperatorSupplier);
   }
 }
@@ -17,9 +17,16 @@ package com.mapd.parser.server;
 
 import static com.mapd.calcite.parser.MapDParser.CURRENT_PARSER;
 
+import com.google.common.cache.CacheStats;
 import com.mapd.calcite.parser.MapDParser;
 import com.mapd.calcite.parser.MapDParserOptions;
 import com.mapd.calcite.parser.MapDUser;
+import com.mapd.calcite.parser.PlanTemplate;
+import com.mapd.calcite.parser.PlanningTimings;
+import com.mapd.calcite.parser.PlanningWatchdog;
+import com.mapd.calcite.parser.QueryTemplate;
+import com.mapd.metadata.SchemaCatalog;
+import com.mapd.metadata.SchemaRegistry;
 
 import org.apache.calcite.prepare.MapDPlanner;
 import org.apache.calcite.prepare.SqlIdentifierCapturer;
@@ -32,16 +39,18 @@ import org.apache.calcite.sql.validate.SqlMonikerType;
 import org.apache.calcite.tools.RelConversionException;
 import org.apache.calcite.tools.ValidationException;
 import org.apache.calcite.util.Pair;
-import org.apache.commons.pool.PoolableObjectFactory;
-import org.apache.commons.pool.impl.GenericObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  *
@@ -50,9 +59,10 @@ import java.util.Map;
 public class CalciteServerHandler {
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(CalciteServerHandler.class);
 
-  private volatile long callCount;
+  // InvalidParseRequest code of queries the planning watchdog stopped
+  public static final int PLANNING_BUDGET_EXCEEDED_CODE = -11;
 
-  private final GenericObjectPool parserPool;
+  private final ParserPool parserPool;
 
   private final CalciteParserFactory calciteParserFactory;
 
@@ -67,6 +77,33 @@ public class CalciteServerHandler {
 
   private Map<String, ExtensionFunction> extSigs = null;
 
+  private final SchemaRegistry schemaRegistry = new SchemaRegistry();
+
+  private final PlanCache planCache = new PlanCache();
+
+  private final PlanningMetrics metrics = new PlanningMetrics();
+
+  // Incremented on every operator table change to keep plans produced with
+  // an outdated operator table out of the plan cache.
+  private volatile long operatorTableGeneration;
+
+  // Plan queries differing only in literal values once (see QueryTemplate).
+  // Off by default: deriving a template plans a query twice on a miss.
+  private volatile boolean planTemplatesEnabled;
+
+  // Limits of planning a query with OptimizationOption.enableWatchdog set.
+  private volatile PlanningWatchdog.Budget planningBudget =
+          PlanningWatchdog.Budget.DEFAULT;
+
+  // Plans the queries of processBatch() calls. Its threads are started on
+  // demand, so the pool costs nothing until the first batch.
+  private final ForkJoinPool batchPool =
+          new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  // Plans the queries of submit() calls.
+  private final PlanningService planningService =
+          new PlanningService(Runtime.getRuntime().availableProcessors());
+
   // TODO MAT we need to merge this into common code base for these functions with
   // CalciteDirect since we are not deprecating this stuff yet
   public CalciteServerHandler(String extensionFunctionsAstFile, String udfAstFile) {
@@ -97,8 +134,7 @@ public class CalciteServerHandler {
 
     calciteParserFactory = new CalciteParserFactory(extSigs);
 
-    // GenericObjectPool::setFactory is deprecated
-    this.parserPool = new GenericObjectPool(calciteParserFactory);
+    this.parserPool = new ParserPool(calciteParserFactory);
   }
 
   public PlanResult process(String catalog,
@@ -107,22 +143,255 @@ public class CalciteServerHandler {
           OptimizationOption optimizationOption,
           Restriction restriction,
           String schemaJson) throws InvalidParseRequest {
-    long timer = System.currentTimeMillis();
-    callCount++;
-
-    MapDParser parser;
+    SchemaCatalog schemaCatalog;
     try {
-      parser = (MapDParser) parserPool.borrowObject();
-    } catch (Exception ex) {
-      String msg = "Could not get Parse Item from pool: " + ex.getMessage();
+      schemaCatalog = SchemaCatalog.forJson(schemaJson);
+    } catch (Throwable ex) {
+      String msg = "Could not parse schema: " + ex.getMessage();
       MAPDLOGGER.error(msg, ex);
-      throw new InvalidParseRequest(-1, msg);
+      throw new InvalidParseRequest(-4, msg);
     }
-    MapDUser mapDUser = new MapDUser(catalog, restriction);
-    MAPDLOGGER.debug("process was called Catalog: " + catalog + " sql: " + queryText);
-    parser.setUser(mapDUser);
-    parser.setSchema(schemaJson);
-    CURRENT_PARSER.set(parser);
+    return process(catalog,
+            queryText,
+            queryParsingOption,
+            optimizationOption,
+            restriction,
+            schemaCatalog);
+  }
+
+  /**
+   * Same as the schema JSON based process() but plans against a schema
+   * previously registered through resetSchema()/updateSchemaTable()/
+   * dropSchemaTable(), so only the SQL text has to cross JNI.
+   */
+  public PlanResult process(String catalog,
+          String queryText,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          long schemaVersion) throws InvalidParseRequest {
+    return process(catalog,
+            queryText,
+            queryParsingOption,
+            optimizationOption,
+            restriction,
+            getRegisteredCatalog(schemaVersion));
+  }
+
+  /**
+   * Schema version based process() for native callers. The catalog and the
+   * query are read as UTF-8 from direct buffers and the plan (UTF-8 JSON, or
+   * the binary plan for QueryParsingOption.binaryPlan) is written into the
+   * caller's direct planBuffer, see PlanResult.planSize and planBuffer. This
+   * avoids the jstring conversions on both sides of JNI.
+   */
+  public PlanResult processUtf8(ByteBuffer catalog,
+          ByteBuffer queryText,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          long schemaVersion,
+          ByteBuffer planBuffer) throws InvalidParseRequest {
+    PlanResult result = process(Utf8Buffers.decode(catalog),
+            Utf8Buffers.decode(queryText),
+            queryParsingOption,
+            optimizationOption,
+            restriction,
+            schemaVersion);
+    Utf8Buffers.writePlan(result, planBuffer);
+    return result;
+  }
+
+  /**
+   * Plans independent queries sharing the catalog, options and schema version
+   * concurrently on an internal fork-join pool. Errors are reported per query
+   * in the result; the call itself only fails if the schema version is not
+   * registered, like the schema version based process().
+   */
+  public BatchPlanResult processBatch(String catalog,
+          String[] queries,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          long schemaVersion) throws InvalidParseRequest {
+    final SchemaCatalog schemaCatalog = getRegisteredCatalog(schemaVersion);
+    final BatchPlanResult batch = new BatchPlanResult(queries.length);
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(queries.length);
+    for (int i = 1; i < queries.length; ++i) {
+      final int query = i;
+      tasks.add(batchPool.submit(() -> {
+        processBatchQuery(batch,
+                query,
+                catalog,
+                queries[query],
+                queryParsingOption,
+                optimizationOption,
+                restriction,
+                schemaCatalog);
+      }));
+    }
+    // the calling thread takes the first query instead of just waiting
+    if (queries.length > 0) {
+      processBatchQuery(batch,
+              0,
+              catalog,
+              queries[0],
+              queryParsingOption,
+              optimizationOption,
+              restriction,
+              schemaCatalog);
+    }
+    for (ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+    return batch;
+  }
+
+  /**
+   * processBatch() taking the catalog and the queries as UTF-8 buffers. The
+   * plan of each query is written to a direct buffer of its own, see
+   * PlanResult.planSize and planBuffer.
+   */
+  public BatchPlanResult processBatchUtf8(ByteBuffer catalog,
+          ByteBuffer[] queries,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          long schemaVersion) throws InvalidParseRequest {
+    String[] queryTexts = new String[queries.length];
+    for (int i = 0; i < queries.length; ++i) {
+      queryTexts[i] = Utf8Buffers.decode(queries[i]);
+    }
+    BatchPlanResult batch = processBatch(Utf8Buffers.decode(catalog),
+            queryTexts,
+            queryParsingOption,
+            optimizationOption,
+            restriction,
+            schemaVersion);
+    for (PlanResult result : batch.results) {
+      if (result != null) {
+        Utf8Buffers.writePlan(result);
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Queues the query for planning on the planning threads against the given
+   * schema version and returns a ticket for poll(). Fails right away only if
+   * the schema version is not registered; planning errors come from poll().
+   */
+  public long submit(String catalog,
+          String queryText,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          long schemaVersion) throws InvalidParseRequest {
+    final SchemaCatalog schemaCatalog = getRegisteredCatalog(schemaVersion);
+    return planningService.submit(() -> process(catalog,
+            queryText,
+            queryParsingOption,
+            optimizationOption,
+            restriction,
+            schemaCatalog));
+  }
+
+  /** submit() taking the catalog and the query as UTF-8 buffers. */
+  public long submitUtf8(ByteBuffer catalog,
+          ByteBuffer queryText,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          long schemaVersion) throws InvalidParseRequest {
+    return submit(Utf8Buffers.decode(catalog),
+            Utf8Buffers.decode(queryText),
+            queryParsingOption,
+            optimizationOption,
+            restriction,
+            schemaVersion);
+  }
+
+  /**
+   * Returns the result of a submitted query, waiting up to timeoutMs for it
+   * (forever if negative), or null if it is not planned yet. Throws the
+   * planning error of a failed query. The ticket is gone once the result or
+   * the error has been returned.
+   */
+  public PlanResult poll(long ticket, long timeoutMs) throws InvalidParseRequest {
+    return planningService.poll(ticket, timeoutMs);
+  }
+
+  /**
+   * poll() for native callers: a returned plan is written into the caller's
+   * direct planBuffer like the plan of processUtf8().
+   */
+  public PlanResult pollUtf8(long ticket, long timeoutMs, ByteBuffer planBuffer)
+          throws InvalidParseRequest {
+    PlanResult result = poll(ticket, timeoutMs);
+    if (result != null) {
+      Utf8Buffers.writePlan(result, planBuffer);
+    }
+    return result;
+  }
+
+  /**
+   * Stops planning the submitted query. The next poll of its ticket fails
+   * with a cancellation error.
+   */
+  public void cancel(long ticket) {
+    planningService.cancel(ticket);
+  }
+
+  /**
+   * Sets how long the result of a submitted query waits to be polled before
+   * its ticket is dropped, ten minutes by default.
+   */
+  public void setPlanTicketExpiry(long expiryMs) {
+    planningService.setExpiry(expiryMs);
+  }
+
+  private void processBatchQuery(BatchPlanResult batch,
+          int query,
+          String catalog,
+          String queryText,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          SchemaCatalog schemaCatalog) {
+    try {
+      batch.results[query] = process(catalog,
+              queryText,
+              queryParsingOption,
+              optimizationOption,
+              restriction,
+              schemaCatalog);
+    } catch (InvalidParseRequest ex) {
+      batch.errors[query] = ex;
+    } catch (RuntimeException ex) {
+      MAPDLOGGER.error(ex.getMessage(), ex);
+      batch.errors[query] = new InvalidParseRequest(-4, ex.getMessage());
+    }
+  }
+
+  private SchemaCatalog getRegisteredCatalog(long schemaVersion)
+          throws InvalidParseRequest {
+    SchemaCatalog schemaCatalog = schemaRegistry.getCatalog(schemaVersion);
+    if (schemaCatalog == null) {
+      String msg = "Schema version " + schemaVersion + " is not registered (current is "
+              + schemaRegistry.getCurrentVersion() + ")";
+      MAPDLOGGER.error(msg);
+      throw new InvalidParseRequest(-8, msg);
+    }
+    return schemaCatalog;
+  }
+
+  private PlanResult process(String catalog,
+          String queryText,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          SchemaCatalog schemaCatalog) throws InvalidParseRequest {
+    final long startTime = System.nanoTime();
 
     // need to trim the sql string as it seems it is not trimed prior to here
     boolean isRAQuery = false;
@@ -137,24 +406,85 @@ public class CalciteServerHandler {
     if (queryText.length() > 0 && queryText.charAt(queryText.length() - 1) == ';') {
       queryText = queryText.substring(0, queryText.length() - 1);
     }
-    String jsonResult;
+    metrics.recordRequest(isRAQuery);
+
+    PlanCache.Key cacheKey = new PlanCache.Key(catalog,
+            queryText,
+            isRAQuery,
+            queryParsingOption,
+            optimizationOption,
+            restriction,
+            schemaCatalog.getVersion(),
+            operatorTableGeneration);
+    final boolean binaryPlan =
+            queryParsingOption.binaryPlan && !queryParsingOption.isExplain;
+    if (binaryPlan) {
+      byte[] cachedBinaryPlan = planCache.getBinary(cacheKey);
+      if (cachedBinaryPlan != null) {
+        MAPDLOGGER.debug("plan cache hit Catalog: " + catalog + " sql: " + queryText);
+        metrics.recordCacheHit();
+        PlanResult result = new PlanResult();
+        result.binaryPlan = cachedBinaryPlan;
+        setExecutionTime(result, startTime);
+        return result;
+      }
+    }
+    // binary requests only take binary plans from the cache, so they get a
+    // JSON plan only for statements without a relational plan
+    String cachedPlan = binaryPlan ? null : planCache.get(cacheKey);
+    if (cachedPlan != null) {
+      MAPDLOGGER.debug("plan cache hit Catalog: " + catalog + " sql: " + queryText);
+      metrics.recordCacheHit();
+      PlanResult result = new PlanResult();
+      result.planResult = cachedPlan;
+      setExecutionTime(result, startTime);
+      return result;
+    }
+
+    PlanResult result = new PlanResult();
+    final long borrowTime = System.nanoTime();
+    MapDParser parser = parserPool.borrow();
+    result.poolWaitTimeNs = System.nanoTime() - borrowTime;
+    metrics.record(PlanningMetrics.Stage.POOL_WAIT, result.poolWaitTimeNs);
+    MapDUser mapDUser = new MapDUser(catalog, restriction);
+    MAPDLOGGER.debug("process was called Catalog: " + catalog + " sql: " + queryText);
+    parser.setUser(mapDUser);
+    parser.setSchema(schemaCatalog);
+    CURRENT_PARSER.set(parser);
+
+    String jsonResult = null;
+    byte[] binaryResult = null;
+    boolean planned = false;
     try {
-      MapDParserOptions parserOptions =
-              new MapDParserOptions(optimizationOption.filterPushDownInfo,
-                      queryParsingOption.legacySyntax,
-                      queryParsingOption.isExplain,
-                      optimizationOption.isViewOptimize,
-                      optimizationOption.enableWatchdog);
-
-      if (!isRAQuery) {
-        Pair<String, SqlIdentifierCapturer> res;
-        SqlNode node;
-
-        res = parser.process(queryText, parserOptions);
-        jsonResult = res.left;
+      parser.resetPlanningTimings();
+      MapDParserOptions parserOptions = newParserOptions(queryParsingOption,
+              optimizationOption,
+              optimizationOption.filterPushDownInfo);
+
+      if (binaryPlan) {
+        // plan templates work on the JSON text, so binary plans bypass them
+        binaryResult = isRAQuery
+                ? parser.optimizeRAQueryToBinary(queryText, parserOptions)
+                : parser.processSqlToBinary(queryText, parserOptions);
+      }
+      if (binaryResult == null && !isRAQuery) {
+        // records the planning statistics before planning the template probe
+        jsonResult = processWithTemplate(parser,
+                catalog,
+                queryText,
+                queryParsingOption,
+                optimizationOption,
+                restriction,
+                schemaCatalog,
+                parserOptions,
+                result);
       } else {
-        jsonResult = parser.optimizeRAQuery(queryText, parserOptions);
+        if (binaryResult == null) {
+          jsonResult = parser.optimizeRAQuery(queryText, parserOptions);
+        }
+        recordPlanningStatistics(result, parser);
       }
+      planned = true;
     } catch (SqlParseException ex) {
       String msg = "SQL Error: " + ex.getMessage();
       MAPDLOGGER.error(msg);
@@ -175,28 +505,218 @@ public class CalciteServerHandler {
       String msg = "Failed to generate relational algebra for query " + ex.getMessage();
       MAPDLOGGER.error(msg, ex);
       throw new InvalidParseRequest(-5, msg);
+    } catch (PlanningWatchdog.BudgetExceededException ex) {
+      String msg = ex.getMessage();
+      MAPDLOGGER.error(msg + ", sql: " + queryText);
+      throw new InvalidParseRequest(PLANNING_BUDGET_EXCEEDED_CODE, msg);
     } catch (Throwable ex) {
       MAPDLOGGER.error(ex.getClass().toString());
       String msg = ex.getMessage();
       MAPDLOGGER.error(msg, ex);
       throw new InvalidParseRequest(-4, msg);
     } finally {
+      if (!planned) {
+        metrics.recordError();
+      }
       CURRENT_PARSER.set(null);
+      // put parser object back in pool for others to use
+      parserPool.release(parser);
+    }
+
+    if (binaryResult != null) {
+      planCache.putBinary(cacheKey, binaryResult);
+      result.binaryPlan = binaryResult;
+    } else {
+      planCache.put(cacheKey, jsonResult);
+      result.planResult = jsonResult;
+    }
+    setExecutionTime(result, startTime);
+
+    return result;
+  }
+
+  private MapDParserOptions newParserOptions(QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          List<MapDParserOptions.FilterPushDownInfo> filterPushDownInfo) {
+    MapDParserOptions parserOptions = new MapDParserOptions(filterPushDownInfo,
+            queryParsingOption.legacySyntax,
+            queryParsingOption.isExplain,
+            optimizationOption.isViewOptimize,
+            optimizationOption.enableWatchdog);
+    parserOptions.setJoinReorderingEnabled(optimizationOption.joinReordering);
+    parserOptions.setExpressionSimplificationEnabled(
+            optimizationOption.simplifyExpressions);
+    parserOptions.setNativeStatisticalAggregatesEnabled(
+            optimizationOption.nativeStatisticalAggregates);
+    parserOptions.setPlanningBudget(planningBudget);
+    return parserOptions;
+  }
+
+  private void recordPlanningStatistics(PlanResult result, MapDParser parser) {
+    setStageTimings(result, parser.getPlanningTimings());
+    result.ruleStatistics = parser.getRuleStatistics().snapshot();
+    MAPDLOGGER.debug("rule statistics: " + result.ruleStatistics);
+  }
+
+  private void setStageTimings(PlanResult result, PlanningTimings timings) {
+    result.parseTimeNs = timings.get(PlanningTimings.Stage.PARSE);
+    result.validateTimeNs = timings.get(PlanningTimings.Stage.VALIDATE);
+    result.sqlToRelTimeNs = timings.get(PlanningTimings.Stage.SQL_TO_REL);
+    result.optimizeTimeNs = timings.get(PlanningTimings.Stage.OPTIMIZE);
+    result.serializeTimeNs = timings.get(PlanningTimings.Stage.SERIALIZE);
+    metrics.record(PlanningMetrics.Stage.PARSE, result.parseTimeNs);
+    metrics.record(PlanningMetrics.Stage.VALIDATE, result.validateTimeNs);
+    metrics.record(PlanningMetrics.Stage.SQL_TO_REL, result.sqlToRelTimeNs);
+    metrics.record(PlanningMetrics.Stage.OPTIMIZE, result.optimizeTimeNs);
+    metrics.record(PlanningMetrics.Stage.SERIALIZE, result.serializeTimeNs);
+  }
+
+  private void setExecutionTime(PlanResult result, long startTime) {
+    result.executionTimeNs = System.nanoTime() - startTime;
+    result.executionTimeMs = result.executionTimeNs / 1000000;
+    metrics.record(PlanningMetrics.Stage.TOTAL, result.executionTimeNs);
+  }
+
+  /**
+   * Plans the query through a cached plan template if there is one for it.
+   * Otherwise plans the query and, for templatable queries seen for the first
+   * time, plans it once more with sentinel literal values to derive a
+   * template.
+   *
+   * The planning statistics of the query are recorded in result before the
+   * probe query is planned, so they don't include the probe. The probe gets
+   * its own copy of the filter push-down info.
+   */
+  private String processWithTemplate(MapDParser parser,
+          String catalog,
+          String queryText,
+          QueryParsingOption queryParsingOption,
+          OptimizationOption optimizationOption,
+          Restriction restriction,
+          SchemaCatalog schemaCatalog,
+          MapDParserOptions parserOptions,
+          PlanResult result) throws Exception {
+    QueryTemplate template = null;
+    PlanCache.Key templateKey = null;
+    if (planTemplatesEnabled && !queryParsingOption.isExplain) {
       try {
-        // put parser object back in pool for others to use
-        parserPool.returnObject(parser);
-      } catch (Exception ex) {
-        String msg = "Could not return parse object: " + ex.getMessage();
-        MAPDLOGGER.error(msg, ex);
-        throw new InvalidParseRequest(-7, msg);
+        template = parser.parseTemplate(queryText);
+      } catch (SqlParseException ex) {
+        // Let the regular planning report the error.
+      }
+    }
+    if (template != null) {
+      templateKey = new PlanCache.Key(catalog,
+              template.getKey(),
+              false,
+              queryParsingOption,
+              optimizationOption,
+              restriction,
+              schemaCatalog.getVersion(),
+              operatorTableGeneration);
+      Optional<PlanTemplate> planTemplate = planCache.getTemplate(templateKey);
+      if (planTemplate != null) {
+        if (planTemplate.isPresent()) {
+          MAPDLOGGER.debug("plan template hit sql: " + queryText);
+          metrics.recordTemplateHit();
+          recordPlanningStatistics(result, parser);
+          return planTemplate.get().bind(template);
+        }
+        template = null;
       }
     }
 
-    PlanResult result = new PlanResult();
-    result.planResult = jsonResult;
-    result.executionTimeMs = System.currentTimeMillis() - timer;
+    // planning the query may consume its push-down info, the probe gets a copy
+    MapDParserOptions probeOptions = null;
+    if (template != null) {
+      probeOptions = newParserOptions(queryParsingOption,
+              optimizationOption,
+              new ArrayList<>(parserOptions.getFilterPushDownInfo()));
+    }
+    String plan = parser.process(queryText, parserOptions).left;
+    recordPlanningStatistics(result, parser);
 
-    return result;
+    if (template != null) {
+      PlanTemplate planTemplate = null;
+      try {
+        String probePlan = parser.process(template.getProbeSql(), probeOptions).left;
+        planTemplate = PlanTemplate.create(template, plan, probePlan);
+      } catch (Throwable ex) {
+        MAPDLOGGER.debug("failed to plan template probe query: " + ex.getMessage());
+      }
+      planCache.putTemplate(templateKey, planTemplate);
+    }
+    return plan;
+  }
+
+  public void setPlanTemplatesEnabled(boolean enabled) {
+    planTemplatesEnabled = enabled;
+    planCache.invalidateAll();
+  }
+
+  /**
+   * Sets the limits of planning a query with the watchdog enabled. Plans
+   * already cached stay valid: a budget decides whether a query is planned,
+   * not its plan.
+   */
+  public void setPlanningBudget(PlanningWatchdog.Budget budget) {
+    planningBudget = budget;
+  }
+
+  public CacheStats getPlanTemplateCacheStats() {
+    return planCache.templateStats();
+  }
+
+  /**
+   * Returns process-wide planning counters, plan cache statistics and
+   * per-stage latency histograms as a JSON object.
+   */
+  public String getPlanningMetrics() {
+    return metrics.toJson(planCache.stats(), planCache.templateStats());
+  }
+
+  public CacheStats getPlanCacheStats() {
+    return planCache.stats();
+  }
+
+  public long getPlanCacheSize() {
+    return planCache.size();
+  }
+
+  public void invalidatePlanCache() {
+    planCache.invalidateAll();
+  }
+
+  public long getSchemaVersion() {
+    return schemaRegistry.getCurrentVersion();
+  }
+
+  public void resetSchema(long schemaVersion, String schemaJson) {
+    schemaRegistry.reset(schemaVersion, schemaJson);
+  }
+
+  public void updateSchemaTable(long schemaVersion, String tableJson) {
+    schemaRegistry.updateTable(schemaVersion, tableJson);
+  }
+
+  public void resetSchemaUtf8(long schemaVersion, ByteBuffer schemaJson) {
+    resetSchema(schemaVersion, Utf8Buffers.decode(schemaJson));
+  }
+
+  public void updateSchemaTableUtf8(long schemaVersion, ByteBuffer tableJson) {
+    updateSchemaTable(schemaVersion, Utf8Buffers.decode(tableJson));
+  }
+
+  public void dropSchemaTable(long schemaVersion, int tableId) {
+    schemaRegistry.dropTable(schemaVersion, tableId);
+  }
+
+  /**
+   * Keeps schema versions starting from oldestVersionInUse registered, even
+   * past the registry's retention limit, because queries are still using them.
+   */
+  public void retainSchemaVersions(long oldestVersionInUse) {
+    schemaRegistry.retainVersionsFrom(oldestVersionInUse);
   }
 
   public String getExtensionFunctionWhitelist() {
@@ -258,5 +778,7 @@ public class CalciteServerHandler {
     }
 
     calciteParserFactory.updateOperatorTable();
+    operatorTableGeneration++;
+    planCache.invalidateAll();
   }
 }
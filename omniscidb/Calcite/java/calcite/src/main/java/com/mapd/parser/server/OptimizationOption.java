@@ -6,11 +6,21 @@ public class OptimizationOption {
   public boolean isViewOptimize;
   public boolean enableWatchdog;
   public java.util.List<MapDParserOptions.FilterPushDownInfo> filterPushDownInfo;
+  // reorder inner joins by their estimated cost
+  public boolean joinReordering;
+  // simplify filter, join and project expressions, on unless turned off
+  public boolean simplifyExpressions;
+  // keep STDDEV, VARIANCE, COVAR and CORR as aggregates of their own instead
+  // of expanding them into SUM, COUNT and AVG
+  public boolean nativeStatisticalAggregates;
 
   public OptimizationOption() {
     this.isViewOptimize = false;
     this.enableWatchdog = false;
     this.filterPushDownInfo = null;
+    this.joinReordering = false;
+    this.simplifyExpressions = true;
+    this.nativeStatisticalAggregates = false;
   }
   
   public OptimizationOption(boolean isViewOptimize,
@@ -19,5 +29,8 @@ public class OptimizationOption {
     this.isViewOptimize = isViewOptimize;
     this.enableWatchdog = enableWatchdog;
     this.filterPushDownInfo = filterPushDownInfo;
+    this.joinReordering = false;
+    this.simplifyExpressions = true;
+    this.nativeStatisticalAggregates = false;
   }
 }
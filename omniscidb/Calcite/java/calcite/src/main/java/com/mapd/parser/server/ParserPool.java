@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.parser.server;
+
+import com.mapd.calcite.parser.MapDParser;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of parsers built for many concurrently planning threads.
+ *
+ * Every thread keeps the parser it returned last and gets it back on the
+ * next borrow without touching any shared state. A thread that already holds
+ * a parser (e.g. a nested borrow) or has none yet falls back to a shared
+ * lock-free stack, and a new parser is created if the stack is empty, so
+ * borrowing never blocks. The shared stack keeps at most MAX_IDLE_PARSERS
+ * parsers; extra returned parsers are dropped.
+ *
+ * Parsers carry no state from one request to the next (see
+ * MapDParser.clearRequestState()), so they are never recycled.
+ */
+class ParserPool {
+  private static final int MAX_IDLE_PARSERS = 256;
+
+  private final CalciteParserFactory factory;
+  private final ThreadLocal<MapDParser> threadParser = new ThreadLocal<>();
+  private final ConcurrentLinkedDeque<MapDParser> idleParsers =
+          new ConcurrentLinkedDeque<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final LongAdder createdCount = new LongAdder();
+
+  ParserPool(CalciteParserFactory factory) {
+    this.factory = factory;
+  }
+
+  MapDParser borrow() {
+    MapDParser parser = threadParser.get();
+    if (parser != null) {
+      threadParser.set(null);
+      return parser;
+    }
+    parser = idleParsers.pollFirst();
+    if (parser != null) {
+      idleCount.decrementAndGet();
+      return parser;
+    }
+    createdCount.increment();
+    return factory.create();
+  }
+
+  void release(MapDParser parser) {
+    parser.clearRequestState();
+    if (threadParser.get() == null) {
+      threadParser.set(parser);
+      return;
+    }
+    if (idleCount.incrementAndGet() <= MAX_IDLE_PARSERS) {
+      idleParsers.offerFirst(parser);
+    } else {
+      idleCount.decrementAndGet();
+    }
+  }
+
+  long getCreatedCount() {
+    return createdCount.sum();
+  }
+}
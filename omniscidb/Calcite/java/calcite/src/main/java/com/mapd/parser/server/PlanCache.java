@@ -0,0 +1,242 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.parser.server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.mapd.calcite.parser.MapDParserOptions;
+import com.mapd.calcite.parser.PlanTemplate;
+
+import org.apache.calcite.rel.rules.Restriction;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Bounded cache of relational algebra JSON produced for previously planned
+ * queries.
+ *
+ * Entries are keyed by everything the produced plan depends on: normalized
+ * query text, parsing and optimization options, restriction, the schema
+ * catalog version and the operator table generation. Entries are evicted in
+ * approximate LRU order once the total size of cached strings exceeds the
+ * limit. Plans requested in the binary encoding are cached separately.
+ *
+ * Plan templates for queries differing only in literal values are cached
+ * separately under the same kind of key built from the template key of the
+ * query. Queries found not to be templatable are cached as empty templates.
+ */
+class PlanCache {
+  // Limit for the total number of characters of cached query texts and plans.
+  private static final long MAX_CACHED_CHARS = 64L * 1024 * 1024;
+
+  // Limit for the number of cached plan templates.
+  private static final long MAX_CACHED_TEMPLATES = 4096;
+
+  private final Cache<Key, String> plans =
+          CacheBuilder.newBuilder()
+                  .maximumWeight(MAX_CACHED_CHARS)
+                  .weigher((Key key, String plan) -> key.queryText.length() + plan.length())
+                  .recordStats()
+                  .build();
+
+  // plans of QueryParsingOption.binaryPlan requests, limited like plans
+  private final Cache<Key, byte[]> binaryPlans =
+          CacheBuilder.newBuilder()
+                  .maximumWeight(MAX_CACHED_CHARS)
+                  .weigher((Key key, byte[] plan) -> key.queryText.length() + plan.length)
+                  .build();
+
+  private final Cache<Key, Optional<PlanTemplate>> templates =
+          CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TEMPLATES).recordStats().build();
+
+  String get(Key key) {
+    return plans.getIfPresent(key);
+  }
+
+  void put(Key key, String plan) {
+    plans.put(key, plan);
+  }
+
+  byte[] getBinary(Key key) {
+    return binaryPlans.getIfPresent(key);
+  }
+
+  void putBinary(Key key, byte[] plan) {
+    binaryPlans.put(key, plan);
+  }
+
+  /**
+   * Returns the cached template, an empty template if the query is known not
+   * to be templatable, or null if the query wasn't seen before.
+   */
+  Optional<PlanTemplate> getTemplate(Key key) {
+    return templates.getIfPresent(key);
+  }
+
+  void putTemplate(Key key, PlanTemplate template) {
+    templates.put(key, Optional.ofNullable(template));
+  }
+
+  void invalidateAll() {
+    plans.invalidateAll();
+    binaryPlans.invalidateAll();
+    templates.invalidateAll();
+  }
+
+  long size() {
+    return plans.size() + binaryPlans.size();
+  }
+
+  CacheStats stats() {
+    return plans.stats();
+  }
+
+  CacheStats templateStats() {
+    return templates.stats();
+  }
+
+  /**
+   * Collapses whitespace runs outside of quoted literals and identifiers to a
+   * single space, so queries differing only in formatting share an entry.
+   * Text with line comments is returned as is because line breaks are
+   * significant there.
+   */
+  static String normalize(String queryText) {
+    StringBuilder res = new StringBuilder(queryText.length());
+    char quote = 0;
+    boolean pendingSpace = false;
+    for (int i = 0; i < queryText.length(); ++i) {
+      char c = queryText.charAt(i);
+      if (quote != 0) {
+        res.append(c);
+        if (c == quote) {
+          quote = 0;
+        }
+        continue;
+      }
+      if (Character.isWhitespace(c)) {
+        pendingSpace = res.length() > 0;
+        continue;
+      }
+      if (c == '-' && i + 1 < queryText.length() && queryText.charAt(i + 1) == '-') {
+        return queryText;
+      }
+      if (pendingSpace) {
+        res.append(' ');
+        pendingSpace = false;
+      }
+      if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      }
+      res.append(c);
+    }
+    return res.toString();
+  }
+
+  static class Key {
+    private final String catalog;
+    private final String queryText;
+    private final boolean isRAQuery;
+    private final boolean legacySyntax;
+    private final boolean isExplain;
+    private final boolean checkPrivileges;
+    private final boolean isViewOptimize;
+    private final boolean enableWatchdog;
+    private final boolean joinReordering;
+    private final boolean simplifyExpressions;
+    private final boolean nativeStatisticalAggregates;
+    private final List<MapDParserOptions.FilterPushDownInfo> filterPushDownInfo;
+    private final Restriction restriction;
+    private final long schemaVersion;
+    private final long operatorTableGeneration;
+    private final int hash;
+
+    Key(String catalog,
+            String queryText,
+            boolean isRAQuery,
+            QueryParsingOption queryParsingOption,
+            OptimizationOption optimizationOption,
+            Restriction restriction,
+            long schemaVersion,
+            long operatorTableGeneration) {
+      this.catalog = catalog;
+      this.queryText = normalize(queryText);
+      this.isRAQuery = isRAQuery;
+      this.legacySyntax = queryParsingOption.legacySyntax;
+      this.isExplain = queryParsingOption.isExplain;
+      this.checkPrivileges = queryParsingOption.checkPrivileges;
+      this.isViewOptimize = optimizationOption.isViewOptimize;
+      this.enableWatchdog = optimizationOption.enableWatchdog;
+      this.joinReordering = optimizationOption.joinReordering;
+      this.simplifyExpressions = optimizationOption.simplifyExpressions;
+      this.nativeStatisticalAggregates = optimizationOption.nativeStatisticalAggregates;
+      this.filterPushDownInfo = optimizationOption.filterPushDownInfo == null
+              ? null
+              : ImmutableList.copyOf(optimizationOption.filterPushDownInfo);
+      this.restriction = restriction;
+      this.schemaVersion = schemaVersion;
+      this.operatorTableGeneration = operatorTableGeneration;
+      this.hash = Objects.hash(catalog,
+              this.queryText,
+              isRAQuery,
+              legacySyntax,
+              isExplain,
+              checkPrivileges,
+              isViewOptimize,
+              enableWatchdog,
+              joinReordering,
+              simplifyExpressions,
+              nativeStatisticalAggregates,
+              filterPushDownInfo,
+              restriction,
+              schemaVersion,
+              operatorTableGeneration);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash && schemaVersion == other.schemaVersion
+              && operatorTableGeneration == other.operatorTableGeneration
+              && isRAQuery == other.isRAQuery && legacySyntax == other.legacySyntax
+              && isExplain == other.isExplain && checkPrivileges == other.checkPrivileges
+              && isViewOptimize == other.isViewOptimize
+              && enableWatchdog == other.enableWatchdog
+              && joinReordering == other.joinReordering
+              && simplifyExpressions == other.simplifyExpressions
+              && nativeStatisticalAggregates == other.nativeStatisticalAggregates
+              && queryText.equals(other.queryText)
+              && Objects.equals(catalog, other.catalog)
+              && Objects.equals(filterPushDownInfo, other.filterPushDownInfo)
+              && Objects.equals(restriction, other.restriction);
+    }
+  }
+}
@@ -1,6 +1,32 @@
 package com.mapd.parser.server;
 
+import com.mapd.calcite.parser.RuleStatistics;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+
 public class PlanResult {
   public String planResult;
+  // set instead of planResult for QueryParsingOption.binaryPlan requests that
+  // produced a relational plan
+  public byte[] binaryPlan;
+  // for CalciteServerHandler.processUtf8(): the number of plan bytes written
+  // into the plan buffer and, if the plan didn't fit, the larger direct
+  // buffer it was written to instead
+  public int planSize;
+  public ByteBuffer planBuffer;
   public long executionTimeMs;
+  public long executionTimeNs;
+  // time spent waiting for a parser in the parser pool
+  public long poolWaitTimeNs;
+  // per-stage planning time, zero for plans served from the plan cache
+  public long parseTimeNs;
+  public long validateTimeNs;
+  public long sqlToRelTimeNs;
+  public long optimizeTimeNs;
+  public long serializeTimeNs;
+  // calls and time of each rule in the Hep passes, the most expensive rule
+  // first; empty for plans served from the plan cache
+  public Map<String, RuleStatistics.RuleCounts> ruleStatistics = Collections.emptyMap();
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.parser.server;
+
+import com.google.common.cache.CacheStats;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide planning counters and per-stage latency histograms.
+ *
+ * Everything is updated without locks, so concurrent requests do not
+ * contend on the metrics. A snapshot taken while requests are running is
+ * not necessarily consistent across counters.
+ */
+class PlanningMetrics {
+  enum Stage {
+    // waiting for a parser in the parser pool
+    POOL_WAIT,
+    PARSE,
+    VALIDATE,
+    SQL_TO_REL,
+    OPTIMIZE,
+    SERIALIZE,
+    // whole process() call, including plan cache hits
+    TOTAL
+  }
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder raRequests = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+  private final LongAdder templateHits = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LatencyHistogram[] histograms =
+          new LatencyHistogram[Stage.values().length];
+
+  PlanningMetrics() {
+    for (int i = 0; i < histograms.length; ++i) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  void recordRequest(boolean isRAQuery) {
+    requests.increment();
+    if (isRAQuery) {
+      raRequests.increment();
+    }
+  }
+
+  void recordCacheHit() {
+    cacheHits.increment();
+  }
+
+  void recordTemplateHit() {
+    templateHits.increment();
+  }
+
+  void recordError() {
+    errors.increment();
+  }
+
+  void record(Stage stage, long nanos) {
+    histograms[stage.ordinal()].record(nanos);
+  }
+
+  long getRequestCount() {
+    return requests.sum();
+  }
+
+  String toJson(CacheStats planCacheStats, CacheStats templateCacheStats) {
+    JsonObject res = new JsonObject();
+    res.addProperty("requests", requests.sum());
+    res.addProperty("ra_requests", raRequests.sum());
+    res.addProperty("cache_hits", cacheHits.sum());
+    res.addProperty("template_hits", templateHits.sum());
+    res.addProperty("errors", errors.sum());
+    res.add("plan_cache", cacheStatsToJson(planCacheStats));
+    res.add("template_cache", cacheStatsToJson(templateCacheStats));
+    JsonObject stages = new JsonObject();
+    for (Stage stage : Stage.values()) {
+      stages.add(stage.name().toLowerCase(Locale.ROOT),
+              histograms[stage.ordinal()].toJson());
+    }
+    res.add("stages", stages);
+    return res.toString();
+  }
+
+  private static JsonObject cacheStatsToJson(CacheStats stats) {
+    JsonObject res = new JsonObject();
+    res.addProperty("hits", stats.hitCount());
+    res.addProperty("misses", stats.missCount());
+    res.addProperty("evictions", stats.evictionCount());
+    return res;
+  }
+
+  /**
+   * Histogram with power of two buckets: bucket i counts values in
+   * [2^i, 2^(i+1)) nanoseconds, bucket 0 also counts zero. Percentiles are
+   * reported as the upper bound of the bucket they fall into.
+   */
+  static class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    LatencyHistogram() {
+      for (int i = 0; i < BUCKETS; ++i) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    void record(long nanos) {
+      if (nanos < 0) {
+        nanos = 0;
+      }
+      buckets[bucket(nanos)].increment();
+      count.increment();
+      sum.add(nanos);
+      max.accumulate(nanos);
+    }
+
+    static int bucket(long nanos) {
+      return nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    JsonObject toJson() {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      int last = -1;
+      for (int i = 0; i < BUCKETS; ++i) {
+        counts[i] = buckets[i].sum();
+        total += counts[i];
+        if (counts[i] != 0) {
+          last = i;
+        }
+      }
+      JsonObject res = new JsonObject();
+      res.addProperty("count", count.sum());
+      res.addProperty("total_ns", sum.sum());
+      res.addProperty("max_ns", max.get());
+      res.addProperty("p50_ns", percentile(counts, total, 0.50));
+      res.addProperty("p90_ns", percentile(counts, total, 0.90));
+      res.addProperty("p99_ns", percentile(counts, total, 0.99));
+      JsonArray bucketCounts = new JsonArray();
+      for (int i = 0; i <= last; ++i) {
+        bucketCounts.add(counts[i]);
+      }
+      res.add("buckets", bucketCounts);
+      return res;
+    }
+
+    private static long percentile(long[] counts, long total, double fraction) {
+      if (total == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for (int i = 0; i < counts.length; ++i) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+        }
+      }
+      return Long.MAX_VALUE;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.parser.server;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plans submitted requests on a fixed number of daemon threads.
+ *
+ * Submitting returns a ticket right away; the result is picked up later
+ * with poll(), which removes the ticket once the request has completed.
+ * Tickets of completed or cancelled requests that are not polled within the
+ * expiry time are dropped, so callers that give up on a request don't keep
+ * its plan forever. The thread count bounds how many requests are planned,
+ * and hence how much planner memory is used, at the same time. Further
+ * requests queue.
+ */
+class PlanningService {
+  interface Request {
+    PlanResult plan() throws InvalidParseRequest;
+  }
+
+  static final int UNKNOWN_TICKET_CODE = -9;
+  static final int CANCELLED_TICKET_CODE = -10;
+
+  static final long DEFAULT_EXPIRY_MS = TimeUnit.MINUTES.toMillis(10);
+
+  // a submitted request and when it completed, for the expiry of its ticket
+  private static class Ticket extends FutureTask<PlanResult> {
+    private volatile boolean cancelled = false;
+    // System.nanoTime() at completion, 0 until then
+    private volatile long doneNanos = 0;
+
+    Ticket(Request request) {
+      super(request::plan);
+    }
+
+    @Override
+    protected void done() {
+      doneNanos = System.nanoTime();
+    }
+
+    boolean expired(long nowNanos, long expiryNanos) {
+      final long done = doneNanos;
+      return done != 0 && nowNanos - done >= expiryNanos;
+    }
+  }
+
+  private final ExecutorService executor;
+  private final Map<Long, Ticket> pending = new ConcurrentHashMap<>();
+  private final AtomicLong nextTicket = new AtomicLong();
+  private volatile long expiryNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_EXPIRY_MS);
+  private final AtomicLong lastExpiryNanos = new AtomicLong(System.nanoTime());
+
+  PlanningService(int threads) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread =
+              new Thread(runnable, "calcite-planner-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    executor = Executors.newFixedThreadPool(threads, threadFactory);
+  }
+
+  long submit(Request request) {
+    expireTickets();
+    final long ticket = nextTicket.incrementAndGet();
+    final Ticket task = new Ticket(request);
+    pending.put(ticket, task);
+    executor.execute(task);
+    return ticket;
+  }
+
+  /**
+   * Returns the result of the request, waiting up to timeoutMs for it (a
+   * negative timeout waits as long as it takes), or null if it is not ready
+   * yet. Throws the planning error of a failed request.
+   */
+  PlanResult poll(long ticket, long timeoutMs) throws InvalidParseRequest {
+    Ticket task = pending.get(ticket);
+    if (task == null) {
+      throw new InvalidParseRequest(
+              UNKNOWN_TICKET_CODE, "Unknown planning ticket " + ticket);
+    }
+    if (task.cancelled) {
+      pending.remove(ticket);
+      throw new InvalidParseRequest(
+              CANCELLED_TICKET_CODE, "Planning ticket " + ticket + " was cancelled");
+    }
+    try {
+      PlanResult result = timeoutMs < 0
+              ? task.get()
+              : task.get(timeoutMs, TimeUnit.MILLISECONDS);
+      pending.remove(ticket);
+      return result;
+    } catch (TimeoutException ex) {
+      return null;
+    } catch (ExecutionException ex) {
+      pending.remove(ticket);
+      if (ex.getCause() instanceof InvalidParseRequest) {
+        throw (InvalidParseRequest) ex.getCause();
+      }
+      throw new InvalidParseRequest(-4, String.valueOf(ex.getCause().getMessage()));
+    } catch (CancellationException ex) {
+      pending.remove(ticket);
+      throw new InvalidParseRequest(
+              CANCELLED_TICKET_CODE, "Planning ticket " + ticket + " was cancelled");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InvalidParseRequest(-4, "Interrupted while waiting for a plan");
+    }
+  }
+
+  /**
+   * Interrupts the planning of the request if started and drops its result.
+   * The cancellation is reported once, like a result: the next poll of the
+   * ticket fails with CANCELLED_TICKET_CODE and removes it, later polls fail
+   * with UNKNOWN_TICKET_CODE. A ticket that is not polled expires.
+   */
+  void cancel(long ticket) {
+    Ticket task = pending.get(ticket);
+    if (task != null) {
+      task.cancelled = true;
+      task.cancel(true);
+    }
+  }
+
+  /** Sets how long the tickets of completed requests wait for poll(). */
+  void setExpiry(long expiryMs) {
+    expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMs);
+  }
+
+  // drops the expired tickets, at most every quarter of the expiry time
+  private void expireTickets() {
+    final long now = System.nanoTime();
+    final long expiry = expiryNanos;
+    final long last = lastExpiryNanos.get();
+    if (now - last < expiry / 4 || !lastExpiryNanos.compareAndSet(last, now)) {
+      return;
+    }
+    pending.values().removeIf(task -> task.expired(now, expiry));
+  }
+
+  int pendingCount() {
+    return pending.size();
+  }
+}
@@ -4,6 +4,9 @@ public class QueryParsingOption {
   public boolean legacySyntax;
   public boolean isExplain;
   public boolean checkPrivileges;
+  // return query plans in PlanResult.binaryPlan (see BinaryJsonWriter)
+  // instead of RA JSON
+  public boolean binaryPlan;
 
   
   public QueryParsingOption() {
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mapd.parser.server;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 conversions between strings and the direct buffers native callers
+ * pass instead of Java strings, which would go through modified UTF-8 and
+ * UTF-16 copies on both sides of JNI.
+ */
+class Utf8Buffers {
+  private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocateDirect(0);
+  private static final ThreadLocal<CharsetEncoder> ENCODER =
+          ThreadLocal.withInitial(Utf8Buffers::newEncoder);
+
+  private static CharsetEncoder newEncoder() {
+    return StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * Decodes the bytes between position and limit of the buffer; the buffer
+   * itself is not modified. Returns null for a null buffer.
+   */
+  static String decode(ByteBuffer buffer) {
+    if (buffer == null) {
+      return null;
+    }
+    return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+  }
+
+  /**
+   * Writes the plan of the result, the JSON text as UTF-8 or the binary plan,
+   * to planBuffer from offset 0 and sets PlanResult.planSize. If the plan does
+   * not fit, it goes to a new direct buffer returned in PlanResult.planBuffer.
+   */
+  static void writePlan(PlanResult result, ByteBuffer planBuffer) {
+    ByteBuffer out = planBuffer.duplicate();
+    out.clear();
+    if (result.binaryPlan != null) {
+      final byte[] plan = result.binaryPlan;
+      if (plan.length > out.capacity()) {
+        out = ByteBuffer.allocateDirect(grownCapacity(out.capacity(), plan.length));
+      }
+      out.put(plan);
+    } else if (result.planResult != null) {
+      final CharsetEncoder encoder = ENCODER.get();
+      encoder.reset();
+      final CharBuffer chars = CharBuffer.wrap(result.planResult);
+      for (;;) {
+        CoderResult coderResult = encoder.encode(chars, out, true);
+        if (!coderResult.isOverflow()) {
+          coderResult = encoder.flush(out);
+        }
+        if (!coderResult.isOverflow()) {
+          break;
+        }
+        // JSON plans are ASCII, so the remaining chars are a close estimate
+        ByteBuffer grown = ByteBuffer.allocateDirect(grownCapacity(
+                out.capacity(), out.position() + chars.remaining() + 16));
+        out.flip();
+        grown.put(out);
+        out = grown;
+      }
+    }
+    result.planSize = out.position();
+    if (out.capacity() > planBuffer.capacity()) {
+      result.planBuffer = out;
+    }
+  }
+
+  /**
+   * writePlan() to a new direct buffer sized for the plan, for plans
+   * returned in bulk rather than through the caller's buffer.
+   */
+  static void writePlan(PlanResult result) {
+    writePlan(result, EMPTY_BUFFER);
+  }
+
+  private static int grownCapacity(int capacity, int required) {
+    return Math.max(required, (int) Math.min(Integer.MAX_VALUE, 2L * capacity));
+  }
+}
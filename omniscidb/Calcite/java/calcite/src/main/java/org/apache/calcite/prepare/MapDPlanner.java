@@ -16,10 +16,14 @@
  */
 package org.apache.calcite.prepare;
 
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableList;
+import com.mapd.calcite.parser.ExpressionSimplifier;
+import com.mapd.calcite.parser.InListCompactor;
 import com.mapd.calcite.parser.MapDParserOptions;
 import com.mapd.calcite.parser.MapDSchema;
+import com.mapd.calcite.parser.PlanningWatchdog;
 import com.mapd.calcite.parser.ProjectProjectRemoveRule;
+import com.mapd.calcite.parser.RuleStatistics;
 
 import org.apache.calcite.config.CalciteConnectionConfig;
 import org.apache.calcite.config.CalciteConnectionConfigImpl;
@@ -30,16 +34,25 @@ import org.apache.calcite.plan.Context;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptCostImpl;
 import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.hep.HepMatchOrder;
 import org.apache.calcite.plan.hep.HepPlanner;
 import org.apache.calcite.plan.hep.HepProgram;
 import org.apache.calcite.plan.hep.HepProgramBuilder;
 import org.apache.calcite.plan.volcano.VolcanoPlanner;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelRoot;
+import org.apache.calcite.rel.core.Correlate;
+import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.rel.core.RelFactories;
 import org.apache.calcite.rel.externalize.MapDRelJsonReader;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.metadata.MapDRelMetadataProvider;
 import org.apache.calcite.rel.rules.*;
 import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCorrelVariable;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexSubQuery;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.SqlNode;
@@ -48,7 +61,10 @@ import org.apache.calcite.sql.parser.SqlParseException;
 import org.apache.calcite.sql.validate.SqlConformanceEnum;
 import org.apache.calcite.sql.validate.SqlMoniker;
 import org.apache.calcite.sql.validate.SqlValidator;
+import org.apache.calcite.sql2rel.RelDecorrelator;
+import org.apache.calcite.sql2rel.RelFieldTrimmer;
 import org.apache.calcite.tools.FrameworkConfig;
+import org.apache.calcite.tools.RelBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,7 +73,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Customised version of the PlannerImpl for MapD. Used to be a copy of
@@ -69,6 +89,16 @@ public class MapDPlanner extends PlannerImpl {
   private List<MapDParserOptions.FilterPushDownInfo> filterPushDownInfo =
           new ArrayList<>();
   private Restriction restriction = null;
+  private boolean joinReordering = false;
+  private boolean expressionSimplification = true;
+  // tells which plans get their sub-queries expanded, see setSubQueryExpansion()
+  private Predicate<RelNode> subQueryExpansion = null;
+  // time spent in Hep passes, see getOptimizationNanos()
+  private long optimizationNanos = 0;
+  // records the rule calls of all Hep passes, see setRuleStatistics()
+  private RuleStatistics ruleStatistics = null;
+  // limits the planning work, see setWatchdog()
+  private PlanningWatchdog watchdog = null;
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(MapDPlanner.class);
 
   public MapDPlanner(FrameworkConfig config) {
@@ -178,104 +208,420 @@ public class MapDPlanner extends PlannerImpl {
   @Override
   public RelRoot rel(SqlNode sql) {
     RelRoot root = super.rel(sql);
-    if (restriction != null) {
-      root = applyInjectFilterRule(root, restriction);
+    if (watchdog != null) {
+      watchdog.checkTime("SqlToRel conversion");
+      watchdog.checkNodes("converted plan", PlanningWatchdog.countNodes(root.rel));
     }
-    root = applyQueryOptimizationRules(root);
-    root = applyFilterPushdown(root);
+    useTableStatistics(root.rel.getCluster());
+    if (subQueryExpansion != null && subQueryExpansion.test(root.rel)) {
+      root = applySubQueryExpansion(root);
+    }
+    if (expressionSimplification) {
+      root = applyExpressionSimplification(root);
+    }
+    root = applyHepPipeline(root, SQL_PIPELINE);
+    root = applyFieldTrimming(root);
+    root = applyInListCompaction(root);
     return root;
   }
 
-  private RelRoot applyInjectFilterRule(RelRoot root, Restriction restriction) {
-    // TODO consider doing these rules in one preplan pass
+  // Makes metadata queries on the cluster's nodes use the table and column
+  // statistics of the schema.
+  private static void useTableStatistics(RelOptCluster cluster) {
+    cluster.setMetadataProvider(MapDRelMetadataProvider.INSTANCE);
+    cluster.invalidateMetadataQuery();
+  }
 
-    final InjectFilterRule injectFilterRule =
-            InjectFilterRule.Config.DEFAULT.toRule(restriction);
+  private RelNode findBestExp(HepPlanner hepPlanner) {
+    if (ruleStatistics != null) {
+      hepPlanner.addListener(ruleStatistics);
+    }
+    if (watchdog != null) {
+      hepPlanner.addListener(watchdog);
+    }
+    final long start = System.nanoTime();
+    try {
+      return hepPlanner.findBestExp();
+    } finally {
+      optimizationNanos += System.nanoTime() - start;
+    }
+  }
 
-    final HepProgram program =
-            HepProgram.builder().addRuleInstance(injectFilterRule).build();
-    HepPlanner prePlanner = MapDPlanner.getHepPlanner(program, false);
-    prePlanner.setRoot(root.rel);
-    final RelNode rootRelNode = prePlanner.findBestExp();
-    return root.withRel(rootRelNode);
+  /**
+   * Returns the total time in nanoseconds this planner spent running Hep rule
+   * passes, both in rel() and in optimizeRaQuery().
+   */
+  public long getOptimizationNanos() {
+    return optimizationNanos;
   }
 
-  private RelRoot applyFilterPushdown(RelRoot root) {
-    if (filterPushDownInfo.isEmpty()) {
-      return root;
+  // the most rule applications a single step of the Hep pipeline makes: a
+  // step whose rules keep rewriting each other's output stops there
+  private static final int MATCH_LIMIT = 100_000;
+
+  /**
+   * One stage of the Hep pipeline: the steps it adds to the program, each a
+   * collection of rules applied to a fixpoint before the next step starts,
+   * whether it runs on a DAG and the requests it runs for. A rule that takes
+   * request state, or keeps some while it runs, is created for each run as
+   * the run rule of the stage; the program refers to it by its class in a
+   * last step, so that the program itself can be reused.
+   */
+  private static final class HepStage {
+    final HepMatchOrder matchOrder;
+    final boolean noDag;
+    final Predicate<MapDPlanner> enabled;
+    final List<List<RelOptRule>> steps;
+    final Class<? extends RelOptRule> runRuleClass;
+    final Function<MapDPlanner, ? extends RelOptRule> runRule;
+
+    HepStage(HepMatchOrder matchOrder,
+            boolean noDag,
+            Predicate<MapDPlanner> enabled,
+            List<List<RelOptRule>> steps) {
+      this(matchOrder, noDag, enabled, steps, null, null);
     }
-    final DynamicFilterJoinRule dynamicFilterJoinRule = new DynamicFilterJoinRule(true,
-            RelFactories.LOGICAL_BUILDER,
-            FilterJoinRule.TRUE_PREDICATE,
-            filterPushDownInfo);
-    final HepProgram program =
-            HepProgram.builder().addRuleInstance(dynamicFilterJoinRule).build();
-    HepPlanner prePlanner = MapDPlanner.getHepPlanner(program, false);
-    prePlanner.setRoot(root.rel);
-    final RelNode rootRelNode = prePlanner.findBestExp();
-    filterPushDownInfo.clear();
-    return root.withRel(rootRelNode);
+
+    <R extends RelOptRule> HepStage(HepMatchOrder matchOrder,
+            boolean noDag,
+            Predicate<MapDPlanner> enabled,
+            List<List<RelOptRule>> steps,
+            Class<R> runRuleClass,
+            Function<MapDPlanner, R> runRule) {
+      this.matchOrder = matchOrder;
+      this.noDag = noDag;
+      this.enabled = enabled;
+      this.steps = steps;
+      this.runRuleClass = runRuleClass;
+      this.runRule = runRule;
+    }
+  }
+
+  // steps of a single rule each
+  private static List<List<RelOptRule>> steps(RelOptRule... rules) {
+    final List<List<RelOptRule>> steps = new ArrayList<>(rules.length);
+    for (RelOptRule rule : rules) {
+      steps.add(ImmutableList.of(rule));
+    }
+    return steps;
   }
 
-  private RelRoot applyQueryOptimizationRules(RelRoot root) {
-    QueryOptimizationRules outerJoinOptRule =
-            new OuterJoinOptViaNullRejectionRule(RelFactories.LOGICAL_BUILDER);
+  // collapses only inner joins, outer joins stay in place as a single input
+  private static final RelOptRule INNER_JOIN_TO_MULTI_JOIN =
+          JoinToMultiJoinRule.Config.DEFAULT
+                  .withOperandSupplier(b0
+                          -> b0.operand(LogicalJoin.class)
+                                     .predicate(join
+                                             -> join.getJoinType() == JoinRelType.INNER)
+                                     .inputs(b1 -> b1.operand(RelNode.class).anyInputs(),
+                                             b2 -> b2.operand(RelNode.class).anyInputs()))
+                  .as(JoinToMultiJoinRule.Config.class)
+                  .toRule();
+
+  private static final List<List<RelOptRule>> JOIN_REORDERING_STEPS =
+          ImmutableList.of(ImmutableList.of(CoreRules.FILTER_INTO_JOIN),
+                  ImmutableList.of(INNER_JOIN_TO_MULTI_JOIN,
+                          CoreRules.PROJECT_MULTI_JOIN_MERGE,
+                          CoreRules.FILTER_MULTI_JOIN_MERGE),
+                  ImmutableList.of(CoreRules.MULTI_JOIN_OPTIMIZE));
+
+  private static final List<List<RelOptRule>> RA_TRANSPOSE_STEPS =
+          ImmutableList.copyOf(steps(CoreRules.JOIN_PROJECT_BOTH_TRANSPOSE_INCLUDE_OUTER,
+                  CoreRules.FILTER_REDUCE_EXPRESSIONS,
+                  ProjectProjectRemoveRule.INSTANCE,
+                  CoreRules.PROJECT_FILTER_TRANSPOSE,
+                  CoreRules.PROJECT_MERGE,
+                  CoreRules.FILTER_PROJECT_TRANSPOSE,
+                  CoreRules.PROJECT_REMOVE));
+
+  // adds the filters of the user's restriction above the table scans; on a
+  // DAG, scans of the same table share one filter
+  private static final HepStage INJECT_FILTER = new HepStage(HepMatchOrder.ARBITRARY,
+          false,
+          planner -> planner.restriction != null,
+          ImmutableList.of(),
+          InjectFilterRule.class,
+          planner -> InjectFilterRule.Config.DEFAULT.toRule(planner.restriction));
+
+  private static final HepStage QUERY_OPTIMIZATION = new HepStage(HepMatchOrder.ARBITRARY,
+          true,
+          planner -> true,
+          steps(CoreRules.AGGREGATE_MERGE),
+          OuterJoinOptViaNullRejectionRule.class,
+          planner -> new OuterJoinOptViaNullRejectionRule(RelFactories.LOGICAL_BUILDER));
+
+  /**
+   * Collapses trees of inner joins into MultiJoin nodes and rebuilds each of
+   * them in the order LoptOptimizeJoinRule picks from the row count and
+   * selectivity estimates of MapDRelMetadataProvider. Filters are moved into
+   * the join conditions first, so that comma joins are reordered as well.
+   */
+  private static final HepStage JOIN_REORDERING = new HepStage(HepMatchOrder.BOTTOM_UP,
+          true,
+          planner -> planner.joinReordering,
+          JOIN_REORDERING_STEPS);
+
+  // pushes the filters of the request into the joins; the input indices of
+  // the push-downs refer to the joins as converted, so this runs before the
+  // join reordering
+  private static final HepStage FILTER_PUSH_DOWN = new HepStage(HepMatchOrder.ARBITRARY,
+          false,
+          planner -> !planner.filterPushDownInfo.isEmpty(),
+          ImmutableList.of(),
+          DynamicFilterJoinRule.class,
+          planner
+          -> new DynamicFilterJoinRule(true,
+                  RelFactories.LOGICAL_BUILDER,
+                  FilterJoinRule.TRUE_PREDICATE,
+                  planner.filterPushDownInfo));
+
+  // merges and transposes the projects and filters of RA input
+  private static final HepStage RA_TRANSPOSES = new HepStage(HepMatchOrder.ARBITRARY,
+          true,
+          planner -> true,
+          RA_TRANSPOSE_STEPS);
+
+  // the Hep stages of rel() and of optimizeRaQuery(), in order
+  private static final List<HepStage> SQL_PIPELINE = ImmutableList.of(
+          INJECT_FILTER, QUERY_OPTIMIZATION, FILTER_PUSH_DOWN, JOIN_REORDERING);
+  private static final List<HepStage> RA_PIPELINE = ImmutableList.of(
+          INJECT_FILTER, QUERY_OPTIMIZATION, FILTER_PUSH_DOWN, RA_TRANSPOSES);
+
+  // the Hep programs of runs of consecutive stages. A HepProgram of Calcite
+  // 1.32 is immutable, a run keeps its match order and limit in a HepState of
+  // its own, and the rules of a run are added to its planner, so all planners
+  // share the programs.
+  private static final Map<List<HepStage>, HepProgram> HEP_PROGRAMS =
+          new ConcurrentHashMap<>();
+
+  /**
+   * Runs the enabled stages of a pipeline, consecutive stages with the same
+   * DAG mode as one Hep program over one planner graph. Each stage sets its
+   * own match order and match limit for its steps. Stages are sections of
+   * the program rather than subprograms: Hep repeats a subprogram until it
+   * no longer changes the plan, which would run the join reordering again on
+   * its own output.
+   */
+  private RelRoot applyHepPipeline(RelRoot root, List<HepStage> pipeline) {
+    RelNode rel = root.rel;
+    final List<HepStage> run = new ArrayList<>();
+    for (HepStage stage : pipeline) {
+      if (!stage.enabled.test(this)) {
+        continue;
+      }
+      if (!run.isEmpty() && run.get(0).noDag != stage.noDag) {
+        rel = applyHepStages(rel, run);
+        run.clear();
+      }
+      run.add(stage);
+    }
+    if (!run.isEmpty()) {
+      rel = applyHepStages(rel, run);
+    }
+    // the push-downs apply to this plan only
+    filterPushDownInfo = new ArrayList<>();
+    return root.withRel(rel);
+  }
 
-    HepProgram program = HepProgram.builder()
-                                 .addRuleInstance(CoreRules.AGGREGATE_MERGE)
-                                 .addRuleInstance(outerJoinOptRule)
-                                 .build();
+  private RelNode applyHepStages(RelNode rel, List<HepStage> stages) {
+    final HepProgram program = HEP_PROGRAMS.computeIfAbsent(
+            ImmutableList.copyOf(stages), MapDPlanner::buildHepProgram);
+    HepPlanner hepPlanner = MapDPlanner.getHepPlanner(program, stages.get(0).noDag);
+    for (HepStage stage : stages) {
+      if (stage.runRule != null) {
+        hepPlanner.addRule(stage.runRule.apply(this));
+      }
+    }
+    hepPlanner.setRoot(rel);
+    return findBestExp(hepPlanner);
+  }
+
+  private static HepProgram buildHepProgram(List<HepStage> stages) {
+    final HepProgramBuilder programBuilder = HepProgram.builder();
+    for (HepStage stage : stages) {
+      programBuilder.addMatchOrder(stage.matchOrder).addMatchLimit(MATCH_LIMIT);
+      for (List<RelOptRule> step : stage.steps) {
+        programBuilder.addRuleCollection(step);
+      }
+      if (stage.runRuleClass != null) {
+        programBuilder.addRuleClass(stage.runRuleClass);
+      }
+    }
+    return programBuilder.build();
+  }
+
+  /**
+   * Expands the sub-queries of a plan converted without sub-query expansion
+   * into joins and correlates, and decorrelates the result: the plan the
+   * SqlToRelConverter builds with expansion enabled, without converting the
+   * query a second time.
+   */
+  private RelRoot applySubQueryExpansion(RelRoot root) {
+    final HepProgram program =
+            HepProgram.builder()
+                    .addRuleCollection(
+                            ImmutableList.of(CoreRules.FILTER_SUB_QUERY_TO_CORRELATE,
+                                    CoreRules.PROJECT_SUB_QUERY_TO_CORRELATE,
+                                    CoreRules.JOIN_SUB_QUERY_TO_CORRELATE))
+                    .build();
     HepPlanner prePlanner = MapDPlanner.getHepPlanner(program, true);
     prePlanner.setRoot(root.rel);
-    final RelNode rootRelNode = prePlanner.findBestExp();
-    return root.withRel(rootRelNode);
+    final RelNode expanded = findBestExp(prePlanner);
+    final long start = System.nanoTime();
+    try {
+      final RelBuilder relBuilder =
+              RelFactories.LOGICAL_BUILDER.create(expanded.getCluster(), null);
+      return root.withRel(RelDecorrelator.decorrelateQuery(expanded, relBuilder));
+    } finally {
+      optimizationNanos += System.nanoTime() - start;
+    }
   }
 
-  private RelRoot applyOptimizationsRules(RelRoot root, ImmutableSet<RelOptRule> rules) {
-    HepProgramBuilder programBuilder = new HepProgramBuilder();
-    for (RelOptRule rule : rules) {
-      programBuilder.addRuleInstance(rule);
+  private RelRoot applyExpressionSimplification(RelRoot root) {
+    final long start = System.nanoTime();
+    try {
+      return root.withRel(ExpressionSimplifier.simplify(root.rel));
+    } finally {
+      optimizationNanos += System.nanoTime() - start;
+    }
+  }
+
+  private RelRoot applyInListCompaction(RelRoot root) {
+    final long start = System.nanoTime();
+    try {
+      return root.withRel(InListCompactor.compact(root.rel));
+    } finally {
+      optimizationNanos += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * Drops the columns no operator consumes and narrows every table scan to
+   * the columns read above it. Plans with subqueries or correlation
+   * variables are left alone: the trimmer can't see the columns they
+   * reference through correlation variables.
+   */
+  private RelRoot applyFieldTrimming(RelRoot root) {
+    if (hasCorrelation(root.rel)) {
+      return root;
+    }
+    final long start = System.nanoTime();
+    final RelNode trimmed;
+    try {
+      final RelBuilder relBuilder =
+              RelFactories.LOGICAL_BUILDER.create(root.rel.getCluster(), null);
+      trimmed = new RelFieldTrimmer(null, relBuilder).trim(root.rel);
+    } finally {
+      optimizationNanos += System.nanoTime() - start;
+    }
+    HepPlanner prePlanner = MapDPlanner.getHepPlanner(SCAN_NARROWING, true);
+    prePlanner.setRoot(trimmed);
+    return root.withRel(findBestExp(prePlanner));
+  }
+
+  // shared by all planners, the rules are stateless
+  private static final HepProgram SCAN_NARROWING =
+          HepProgram.builder()
+                  .addRuleCollection(ImmutableList.of(
+                          ProjectTableScanNarrowRule.Config.DEFAULT.toRule(),
+                          ProjectTableScanNarrowRule.Config.AGGREGATE.toRule()))
+                  .build();
+
+  private static boolean hasCorrelation(RelNode rel) {
+    if (rel instanceof Correlate || !rel.getVariablesSet().isEmpty()) {
+      return true;
     }
-    HepPlanner hepPlanner = MapDPlanner.getHepPlanner(programBuilder.build(), true);
-    hepPlanner.setRoot(root.rel);
-    return root.withRel(hepPlanner.findBestExp());
+    final boolean[] found = {false};
+    rel.accept(new RexShuttle() {
+      @Override
+      public RexNode visitSubQuery(RexSubQuery subQuery) {
+        found[0] = true;
+        return subQuery;
+      }
+
+      @Override
+      public RexNode visitCorrelVariable(RexCorrelVariable variable) {
+        found[0] = true;
+        return variable;
+      }
+    });
+    if (found[0]) {
+      return true;
+    }
+    for (RelNode input : rel.getInputs()) {
+      if (hasCorrelation(input)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   public RelRoot optimizeRaQuery(String query, MapDSchema schema) throws IOException {
     ready();
     RexBuilder builder = new RexBuilder(getTypeFactory());
     RelOptCluster cluster = RelOptCluster.create(new VolcanoPlanner(), builder);
+    useTableStatistics(cluster);
     CalciteCatalogReader catalogReader = createCatalogReader();
     MapDRelJsonReader reader = new MapDRelJsonReader(cluster, catalogReader, schema);
 
     RelRoot relR = RelRoot.of(reader.read(query), SqlKind.SELECT);
-
-    if (restriction != null) {
-      relR = applyInjectFilterRule(relR, restriction);
+    if (watchdog != null) {
+      watchdog.checkNodes("RA input", PlanningWatchdog.countNodes(relR.rel));
     }
 
-    relR = applyQueryOptimizationRules(relR);
-    relR = applyFilterPushdown(relR);
-    relR = applyOptimizationsRules(relR,
-            ImmutableSet.of(CoreRules.JOIN_PROJECT_BOTH_TRANSPOSE_INCLUDE_OUTER,
-                    CoreRules.FILTER_REDUCE_EXPRESSIONS,
-                    ProjectProjectRemoveRule.INSTANCE,
-                    CoreRules.PROJECT_FILTER_TRANSPOSE));
-    relR = applyOptimizationsRules(relR, ImmutableSet.of(CoreRules.PROJECT_MERGE));
-    relR = applyOptimizationsRules(relR,
-            ImmutableSet.of(
-                    CoreRules.FILTER_PROJECT_TRANSPOSE, CoreRules.PROJECT_REMOVE));
+    relR = applyHepPipeline(relR, RA_PIPELINE);
+    relR = applyFieldTrimming(relR);
+    relR = applyInListCompaction(relR);
     return RelRoot.of(relR.project(), relR.kind);
   }
 
+  /**
+   * Sets the filters to push into the joins of the next plan. The planner
+   * keeps a copy: the list of the request may be shared, e.g. by the queries
+   * of a batch planned in parallel.
+   */
   public void setFilterPushDownInfo(
           final List<MapDParserOptions.FilterPushDownInfo> filterPushDownInfo) {
-    this.filterPushDownInfo = filterPushDownInfo;
+    this.filterPushDownInfo = filterPushDownInfo == null
+            ? new ArrayList<>()
+            : new ArrayList<>(filterPushDownInfo);
   }
 
   public void setRestriction(Restriction restriction) {
     this.restriction = restriction;
   }
+
+  public void setJoinReordering(boolean joinReordering) {
+    this.joinReordering = joinReordering;
+  }
+
+  public void setExpressionSimplification(boolean expressionSimplification) {
+    this.expressionSimplification = expressionSimplification;
+  }
+
+  /**
+   * Sets the statistics that record the rule calls of every Hep pass this
+   * planner runs, or null to record none.
+   */
+  public void setRuleStatistics(RuleStatistics ruleStatistics) {
+    this.ruleStatistics = ruleStatistics;
+  }
+
+  /**
+   * Sets the watchdog that limits the time, the Hep rule calls and the plan
+   * size of this planner's work, or null for no limits.
+   */
+  public void setWatchdog(PlanningWatchdog watchdog) {
+    this.watchdog = watchdog;
+  }
+
+  /**
+   * Sets the test for plans whose sub-queries rel() expands and decorrelates
+   * before any other pass, or null to keep all sub-queries.
+   */
+  public void setSubQueryExpansion(Predicate<RelNode> subQueryExpansion) {
+    this.subQueryExpansion = subQueryExpansion;
+  }
 }
 
 // End MapDPlanner.java
@@ -18,6 +18,7 @@ package org.apache.calcite.prepare;
 import com.google.common.collect.ImmutableList;
 
 import org.apache.calcite.sql.SqlBasicCall;
+import org.apache.calcite.sql.SqlCall;
 import org.apache.calcite.sql.SqlDataTypeSpec;
 import org.apache.calcite.sql.SqlDelete;
 import org.apache.calcite.sql.SqlIdentifier;
@@ -36,26 +37,24 @@ import org.apache.calcite.sql.parser.SqlParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 import java.util.Stack;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * scans from a root {@link SqlNode} and retrieves all {@link SqlIdentifier}s
  * used in a query.
+ *
+ * Calls are walked through their operand lists. Subclasses see every call
+ * of the tree once through {@link #visitCall}, so they can collect more
+ * facts about the query in the same walk.
  */
 public class SqlIdentifierCapturer {
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(SqlIdentifierCapturer.class);
 
-  private static final Map<Class<?>, Set<Method>> GETTERS_CACHE =
-          new ConcurrentHashMap<>();
-
   private IdentityHashMap<SqlNode, SqlNode> visitedNodes = new IdentityHashMap<>();
 
   private Stack<Set<ImmutableList<String>>> currentList = new Stack<>();
@@ -82,6 +81,10 @@ public class SqlIdentifierCapturer {
       return;
     }
 
+    if (root instanceof SqlCall) {
+      visitCall((SqlCall) root);
+    }
+
     if (root instanceof SqlNodeList) {
       SqlNodeList snl = (SqlNodeList) root;
       for (SqlNode node : snl) {
@@ -109,6 +112,9 @@ public class SqlIdentifierCapturer {
       scan(((SqlOrderBy) root).fetch);
       scan(((SqlOrderBy) root).offset);
       scan(((SqlOrderBy) root).query);
+      currentList.push(ignore);
+      scan(((SqlOrderBy) root).orderList);
+      currentList.pop();
       return;
     }
 
@@ -143,27 +149,9 @@ public class SqlIdentifierCapturer {
       currentList.pop();
     }
 
-    Set<Method> methods = getRelevantGetters(root);
-    for (Method m : methods) {
-      Object value = null;
-      try {
-        value = m.invoke(root);
-      } catch (Exception e) {
-      }
-
-      if (value instanceof SqlNode[]) {
-        SqlNode[] nodes = (SqlNode[]) value;
-        for (SqlNode node : nodes) {
-          scan(node);
-        }
-      } else if (value instanceof SqlNode) {
-        scan((SqlNode) value);
-      } else if (value instanceof Collection) {
-        for (Object vobj : ((Collection<?>) value)) {
-          if (vobj instanceof SqlNode) {
-            scan((SqlNode) vobj);
-          }
-        }
+    if (root instanceof SqlCall) {
+      for (SqlNode operand : operands((SqlCall) root)) {
+        scan(operand);
       }
     }
 
@@ -181,39 +169,22 @@ public class SqlIdentifierCapturer {
     }
   }
 
-  Set<Method> getRelevantGetters(Object obj) {
-    Class<?> root = obj.getClass();
-
-    Set<Method> methods = GETTERS_CACHE.get(root);
-    if (null != methods) {
-      return methods;
-    } else {
-      methods = new HashSet<>();
+  /**
+   * Called once for every call of the scanned tree, before its operands are
+   * scanned.
+   */
+  protected void visitCall(SqlCall call) {}
+
+  // DDL statements need not list their operands: some throw, others return
+  // null
+  private static List<SqlNode> operands(SqlCall call) {
+    final List<SqlNode> operands;
+    try {
+      operands = call.getOperandList();
+    } catch (UnsupportedOperationException e) {
+      return Collections.emptyList();
     }
-
-    while (root != null) {
-      if (root == SqlNode.class) break;
-
-      for (Method m : root.getDeclaredMethods()) {
-        if (m.getParameterTypes().length > 0) continue;
-
-        if (!Modifier.isPublic(m.getModifiers())) continue;
-
-        Class<?> returnType = m.getReturnType();
-        if (!SqlNode.class.isAssignableFrom(returnType) && SqlNode[].class != returnType
-                && !Collection.class.isAssignableFrom(returnType)) {
-          continue;
-        }
-
-        methods.add(m);
-      }
-
-      root = root.getSuperclass();
-    }
-
-    GETTERS_CACHE.put(obj.getClass(), methods);
-
-    return methods;
+    return operands != null ? operands : Collections.emptyList();
   }
 
   public String toString() {
@@ -17,12 +17,19 @@
 package org.apache.calcite.rel.externalize;
 
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
 import com.mapd.calcite.parser.MapDSqlOperatorTable;
 
+import org.apache.calcite.adapter.enumerable.EnumerableTableScan;
 import org.apache.calcite.avatica.AvaticaUtils;
 import org.apache.calcite.avatica.util.TimeUnitRange;
 import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelCollationImpl;
@@ -35,6 +42,17 @@ import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.CorrelationId;
 import org.apache.calcite.rel.core.TableModify.Operation;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalCorrelate;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalIntersect;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.logical.LogicalMinus;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.logical.LogicalSort;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rel.logical.LogicalUnion;
+import org.apache.calcite.rel.logical.LogicalValues;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelDataTypeField;
@@ -48,29 +66,36 @@ import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexOver;
 import org.apache.calcite.rex.RexSubQuery;
+import org.apache.calcite.rex.RexUnknownAs;
 import org.apache.calcite.rex.RexWindow;
 import org.apache.calcite.rex.RexWindowBound;
 import org.apache.calcite.sql.JoinType;
 import org.apache.calcite.sql.SqlAggFunction;
 import org.apache.calcite.sql.SqlFunction;
 import org.apache.calcite.sql.SqlIdentifier;
-import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.SqlOperator;
 import org.apache.calcite.sql.SqlOperatorTable;
-import org.apache.calcite.sql.SqlSyntax;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.ImmutableBitSet;
-import org.apache.calcite.util.JsonBuilder;
+import org.apache.calcite.util.JsonTokenWriter;
+import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Sarg;
+import org.apache.calcite.util.TimeString;
+import org.apache.calcite.util.TimestampString;
 import org.apache.calcite.util.Util;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import com.google.common.collect.ImmutableSet;
 
@@ -81,7 +106,24 @@ import com.google.common.collect.ImmutableSet;
 public class MapDRelJson {
   private final Map<String, Constructor> constructorMap =
           new HashMap<String, Constructor>();
-  private final JsonBuilder jsonBuilder;
+
+  // factories of the relational expressions found in RA input, by the type
+  // name classToTypeName() writes
+  private static final Map<String, Function<RelInput, RelNode>> FACTORIES =
+          ImmutableMap.<String, Function<RelInput, RelNode>>builder()
+                  .put("LogicalAggregate", LogicalAggregate::new)
+                  .put("LogicalCorrelate", LogicalCorrelate::new)
+                  .put("LogicalFilter", LogicalFilter::new)
+                  .put("LogicalIntersect", LogicalIntersect::new)
+                  .put("LogicalJoin", LogicalJoin::new)
+                  .put("LogicalMinus", LogicalMinus::new)
+                  .put("LogicalProject", LogicalProject::new)
+                  .put("LogicalSort", LogicalSort::new)
+                  .put("LogicalTableScan", LogicalTableScan::new)
+                  .put("LogicalUnion", LogicalUnion::new)
+                  .put("LogicalValues", LogicalValues::new)
+                  .put("EnumerableTableScan", MapDRelJson::createEnumerableTableScan)
+                  .build();
 
   public static final List<String> PACKAGES = ImmutableList.of("org.apache.calcite.rel.",
           "org.apache.calcite.rel.core.",
@@ -90,10 +132,6 @@ public class MapDRelJson {
           "org.apache.calcite.adapter.enumerable.",
           "org.apache.calcite.adapter.jdbc.JdbcRules$");
 
-  public MapDRelJson(JsonBuilder jsonBuilder) {
-    this.jsonBuilder = jsonBuilder;
-  }
-
   public RelNode create(Map<String, Object> map) {
     String type = (String) map.get("type");
     Constructor constructor = getConstructor(type);
@@ -110,6 +148,30 @@ public class MapDRelJson {
     }
   }
 
+  /**
+   * Creates the relational expression of the given type from its JSON.
+   * Types written by the engine and the dataframe frontends are created
+   * through {@link #FACTORIES}, other types through their reflective
+   * (RelInput) constructor.
+   */
+  public RelNode create(String type, RelInput input) {
+    final Function<RelInput, RelNode> factory = FACTORIES.get(type);
+    if (factory != null) {
+      return factory.apply(input);
+    }
+    try {
+      return (RelNode) getConstructor(type).newInstance(input);
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new RuntimeException(e);
+    } catch (InvocationTargetException e) {
+      final Throwable e2 = e.getCause();
+      if (e2 instanceof RuntimeException) {
+        throw(RuntimeException) e2;
+      }
+      throw new RuntimeException(e2);
+    }
+  }
+
   public Constructor getConstructor(String type) {
     Constructor constructor = constructorMap.get(type);
     if (constructor == null) {
@@ -147,6 +209,14 @@ public class MapDRelJson {
     }
   }
 
+  private static RelNode createEnumerableTableScan(RelInput input) {
+    final RelOptTable table = input.getTable("table");
+    if (table == null) {
+      throw new RuntimeException("unknown table " + input.get("table"));
+    }
+    return EnumerableTableScan.create(input.getCluster(), table);
+  }
+
   /**
    * Inverse of {@link #typeNameToClass}.
    */
@@ -163,26 +233,6 @@ public class MapDRelJson {
     return canonicalName;
   }
 
-  public Object toJson(RelCollationImpl node) {
-    final List<Object> list = new ArrayList<Object>();
-    for (RelFieldCollation fieldCollation : node.getFieldCollations()) {
-      final Map<String, Object> map = jsonBuilder.map();
-      map.put("field", fieldCollation.getFieldIndex());
-      map.put("direction", fieldCollation.getDirection().name());
-      map.put("nulls", fieldCollation.nullDirection.name());
-      list.add(map);
-    }
-    return list;
-  }
-
-  public Object toJson(RexFieldCollation node) {
-    final Map<String, Object> map = jsonBuilder.map();
-    map.put("field", toJson(node.left));
-    map.put("direction", node.getDirection().name());
-    map.put("nulls", node.getNullDirection().name());
-    return map;
-  }
-
   public RelCollation toCollation(List<Map<String, Object>> jsonFieldCollations) {
     final List<RelFieldCollation> fieldCollations = new ArrayList<RelFieldCollation>();
     for (Map<String, Object> map : jsonFieldCollations) {
@@ -232,177 +282,245 @@ public class MapDRelJson {
     }
   }
 
-  public Object toJson(AggregateCall node) {
-    final Map<String, Object> map = jsonBuilder.map();
-    map.put("agg", toJson(node.getAggregation()));
-    map.put("type", toJson(node.getType()));
-    map.put("distinct", node.isDistinct());
-    map.put("operands", node.getArgList());
-    return map;
+  public void write(JsonTokenWriter out, RelCollationImpl node) {
+    out.beginArray();
+    for (RelFieldCollation fieldCollation : node.getFieldCollations()) {
+      out.beginObject();
+      out.name("field").value(fieldCollation.getFieldIndex());
+      out.name("direction").value(fieldCollation.getDirection().name());
+      out.name("nulls").value(fieldCollation.nullDirection.name());
+      out.endObject();
+    }
+    out.endArray();
+  }
+
+  public void write(JsonTokenWriter out, RexFieldCollation node) {
+    out.beginObject();
+    out.name("field");
+    write(out, node.left);
+    out.name("direction").value(node.getDirection().name());
+    out.name("nulls").value(node.getNullDirection().name());
+    out.endObject();
   }
 
-  Object toJson(Object value) {
+  public void write(JsonTokenWriter out, AggregateCall node) {
+    out.beginObject();
+    out.name("agg").value(toJson(node.getAggregation()));
+    out.name("type");
+    write(out, node.getType());
+    out.name("distinct").value(node.isDistinct());
+    out.name("operands");
+    writeRaw(out, node.getArgList());
+    out.endObject();
+  }
+
+  /**
+   * Writes a rel attribute, as reported by RelNode.explainTerms(), in the
+   * plan JSON format.
+   */
+  void write(JsonTokenWriter out, Object value) {
     if (value == null || value instanceof Number || value instanceof String
             || value instanceof Boolean) {
-      return value;
+      out.value(value);
     } else if (value instanceof RexNode) {
-      return toJson((RexNode) value);
+      write(out, (RexNode) value);
     } else if (value instanceof CorrelationId) {
-      return toJson((CorrelationId) value);
+      out.value(((CorrelationId) value).getId());
     } else if (value instanceof List) {
-      final List<Object> list = jsonBuilder.list();
+      out.beginArray();
       for (Object o : (List) value) {
-        list.add(toJson(o));
+        write(out, o);
       }
-      return list;
+      out.endArray();
     } else if (value instanceof ImmutableBitSet) {
-      final List<Object> list = jsonBuilder.list();
+      out.beginArray();
       for (Integer integer : (ImmutableBitSet) value) {
-        list.add(toJson(integer));
+        out.value(integer.intValue());
       }
-      return list;
+      out.endArray();
     } else if (value instanceof ImmutableSet) {
-      final List<Object> list = jsonBuilder.list();
+      out.beginArray();
       for (Object element : (ImmutableSet) value) {
-        list.add(toJson(element));
+        write(out, element);
       }
-      return list;
+      out.endArray();
     } else if (value instanceof AggregateCall) {
-      return toJson((AggregateCall) value);
+      write(out, (AggregateCall) value);
     } else if (value instanceof RelCollationImpl) {
-      return toJson((RelCollationImpl) value);
+      write(out, (RelCollationImpl) value);
     } else if (value instanceof RexFieldCollation) {
-      return toJson((RexFieldCollation) value);
+      write(out, (RexFieldCollation) value);
     } else if (value instanceof RelDataType) {
-      return toJson((RelDataType) value);
+      write(out, (RelDataType) value);
     } else if (value instanceof RelDataTypeField) {
-      return toJson((RelDataTypeField) value);
+      write(out, (RelDataTypeField) value);
     } else if (value instanceof JoinType) {
-      return value.toString();
+      out.value(value.toString());
     } else if (value instanceof Operation) {
-      return value.toString();
+      out.value(value.toString());
     } else {
       throw new UnsupportedOperationException("type not serializable: " + value
               + " (type " + value.getClass().getCanonicalName() + ")");
     }
   }
 
-  private Object toJson(RelDataType node) {
+  /** Writes maps and lists as such and everything else as a scalar. */
+  private void writeRaw(JsonTokenWriter out, Object value) {
+    if (value instanceof Map) {
+      out.beginObject();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        out.name((String) entry.getKey());
+        writeRaw(out, entry.getValue());
+      }
+      out.endObject();
+    } else if (value instanceof List) {
+      out.beginArray();
+      for (Object o : (List) value) {
+        writeRaw(out, o);
+      }
+      out.endArray();
+    } else {
+      out.value(value);
+    }
+  }
+
+  private void write(JsonTokenWriter out, RelDataType node) {
     if (node.isStruct()) {
-      final List<Object> list = jsonBuilder.list();
+      out.beginArray();
       for (RelDataTypeField field : node.getFieldList()) {
-        list.add(toJson(field));
+        write(out, field);
       }
-      return list;
+      out.endArray();
     } else {
-      final Map<String, Object> map = jsonBuilder.map();
-      map.put("type", node.getSqlTypeName().name());
-      map.put("nullable", node.isNullable());
-      if (node.getSqlTypeName().allowsPrec()) {
-        map.put("precision", node.getPrecision());
-      }
-      if (node.getSqlTypeName().allowsScale()) {
-        map.put("scale", node.getScale());
-      }
-      return map;
+      out.beginObject();
+      writeTypeMembers(out, node);
+      out.endObject();
     }
   }
 
-  private Object toJson(RelDataTypeField node) {
-    final Map<String, Object> map = (Map<String, Object>) toJson(node.getType());
-    map.put("name", node.getName());
-    return map;
+  private void writeTypeMembers(JsonTokenWriter out, RelDataType node) {
+    out.name("type").value(node.getSqlTypeName().name());
+    out.name("nullable").value(node.isNullable());
+    if (node.getSqlTypeName().allowsPrec()) {
+      out.name("precision").value(node.getPrecision());
+    }
+    if (node.getSqlTypeName().allowsScale()) {
+      out.name("scale").value(node.getScale());
+    }
   }
 
-  private Object toJson(CorrelationId node) {
-    return node.getId();
+  private void write(JsonTokenWriter out, RelDataTypeField node) {
+    if (node.getType().isStruct()) {
+      throw new UnsupportedOperationException(
+              "nested struct field not serializable: " + node);
+    }
+    out.beginObject();
+    writeTypeMembers(out, node.getType());
+    out.name("name").value(node.getName());
+    out.endObject();
   }
 
-  private Object toJson(final RexWindowBound window_bound) {
-    final Map<String, Object> map = jsonBuilder.map();
-    map.put("unbounded", toJson(window_bound.isUnbounded()));
-    map.put("preceding", toJson(window_bound.isPreceding()));
-    map.put("following", toJson(window_bound.isFollowing()));
-    map.put("is_current_row", toJson(window_bound.isCurrentRow()));
-    map.put("offset",
-            window_bound.getOffset() != null ? toJson(window_bound.getOffset()) : null);
-    map.put("order_key", toJson(window_bound.getOrderKey()));
-    return map;
+  private void write(JsonTokenWriter out, final RexWindowBound window_bound) {
+    out.beginObject();
+    out.name("unbounded").value(window_bound.isUnbounded());
+    out.name("preceding").value(window_bound.isPreceding());
+    out.name("following").value(window_bound.isFollowing());
+    out.name("is_current_row").value(window_bound.isCurrentRow());
+    out.name("offset");
+    if (window_bound.getOffset() != null) {
+      write(out, window_bound.getOffset());
+    } else {
+      out.nullValue();
+    }
+    out.name("order_key").value(window_bound.getOrderKey());
+    out.endObject();
   }
 
-  private Object toJson(RexNode node) {
-    final Map<String, Object> map;
+  private void write(JsonTokenWriter out, RexNode node) {
     switch (node.getKind()) {
       case FIELD_ACCESS:
-        map = jsonBuilder.map();
         final RexFieldAccess fieldAccess = (RexFieldAccess) node;
-        map.put("field", fieldAccess.getField().getName());
-        map.put("expr", toJson(fieldAccess.getReferenceExpr()));
-        return map;
+        out.beginObject();
+        out.name("field").value(fieldAccess.getField().getName());
+        out.name("expr");
+        write(out, fieldAccess.getReferenceExpr());
+        out.endObject();
+        return;
       case LITERAL:
         final RexLiteral literal = (RexLiteral) node;
         final Object value2 = literal.getValue2();
-        map = jsonBuilder.map();
+        out.beginObject();
+        out.name("literal");
         if (value2 instanceof TimeUnitRange) {
-          map.put("literal", value2.toString());
+          out.value(value2.toString());
         } else {
-          map.put("literal", value2);
+          writeRaw(out, value2);
         }
-        map.put("type", literal.getTypeName().name());
-        map.put("target_type", literal.getType().getSqlTypeName().toString());
+        out.name("type").value(literal.getTypeName().name());
+        out.name("target_type").value(literal.getType().getSqlTypeName().toString());
         final Object value = literal.getValue();
         if (value instanceof BigDecimal) {
-          map.put("scale", ((BigDecimal) value).scale());
-          map.put("precision", ((BigDecimal) value).precision());
+          out.name("scale").value(((BigDecimal) value).scale());
+          out.name("precision").value(((BigDecimal) value).precision());
         } else {
-          map.put("scale", literal.getType().getScale());
-          map.put("precision", literal.getType().getPrecision());
+          out.name("scale").value(literal.getType().getScale());
+          out.name("precision").value(literal.getType().getPrecision());
         }
-        map.put("type_scale", literal.getType().getScale());
-        map.put("type_precision", literal.getType().getPrecision());
-        return map;
+        out.name("type_scale").value(literal.getType().getScale());
+        out.name("type_precision").value(literal.getType().getPrecision());
+        out.endObject();
+        return;
       case INPUT_REF:
-        map = jsonBuilder.map();
-        map.put("input", ((RexInputRef) node).getIndex());
-        return map;
+        out.beginObject();
+        out.name("input").value(((RexInputRef) node).getIndex());
+        out.endObject();
+        return;
       case CORREL_VARIABLE:
-        map = jsonBuilder.map();
-        map.put("correl", ((RexCorrelVariable) node).getName());
-        map.put("type", toJson(node.getType()));
-        return map;
+        out.beginObject();
+        out.name("correl").value(((RexCorrelVariable) node).getName());
+        out.name("type");
+        write(out, node.getType());
+        out.endObject();
+        return;
+      case SEARCH:
+        writeSearch(out, (RexCall) node);
+        return;
       default:
         if (node instanceof RexCall) {
           final RexCall call = (RexCall) node;
-          map = jsonBuilder.map();
-          map.put("op", toJson(call.getOperator()));
-          final List<Object> list = jsonBuilder.list();
+          out.beginObject();
+          out.name("op").value(toJson(call.getOperator()));
+          out.name("operands").beginArray();
           for (RexNode operand : call.getOperands()) {
-            list.add(toJson(operand));
+            write(out, operand);
           }
-          map.put("operands", list);
-          map.put("type", toJson(node.getType()));
+          out.endArray();
+          out.name("type");
+          write(out, node.getType());
           if (node instanceof RexSubQuery) {
-            final MapDRelJsonWriter subqueryWriter = new MapDRelJsonWriter();
+            // the subquery plan is a complete plan document of its own
+            out.name("subquery");
+            final MapDRelJsonWriter subqueryWriter = new MapDRelJsonWriter(out);
             ((RexSubQuery) node).rel.explain(subqueryWriter);
-            map.put("subquery", subqueryWriter.asJsonMap());
+            subqueryWriter.finish();
           }
           if (node instanceof RexOver) {
             final RexWindow window = ((RexOver) node).getWindow();
-            final List<Object> partitionKeyList = jsonBuilder.list();
+            out.name("partition_keys").beginArray();
             for (final RexNode partitionKey : window.partitionKeys) {
-              partitionKeyList.add(toJson(partitionKey));
+              write(out, partitionKey);
             }
-            map.put("partition_keys", partitionKeyList);
-            final List<Object> orderKeyList = jsonBuilder.list();
+            out.endArray();
+            out.name("order_keys").beginArray();
             for (final RexFieldCollation orderKey : window.orderKeys) {
-              orderKeyList.add(toJson(orderKey));
+              write(out, orderKey);
             }
-            map.put("order_keys", orderKeyList);
-            RexWindowBound lower_bound = window.getLowerBound();
-            RexWindowBound upper_bound = window.getUpperBound();
-            map.put("lower_bound", toJson(lower_bound));
-            map.put("upper_bound", toJson(upper_bound));
-            map.put("is_rows", toJson(window.isRows()));
+            out.endArray();
+            out.name("lower_bound");
+            write(out, window.getLowerBound());
+            out.name("upper_bound");
+            write(out, window.getUpperBound());
+            out.name("is_rows").value(window.isRows());
           }
           if (call.getOperator() instanceof SqlFunction) {
             switch (((SqlFunction) call.getOperator()).getFunctionType()) {
@@ -410,15 +528,269 @@ public class MapDRelJson {
               case USER_DEFINED_FUNCTION:
               case USER_DEFINED_PROCEDURE:
               case USER_DEFINED_SPECIFIC_FUNCTION:
-                map.put("class", call.getOperator().getClass().getName());
+                out.name("class").value(call.getOperator().getClass().getName());
             }
           }
-          return map;
+          out.endObject();
+          return;
         }
         throw new UnsupportedOperationException("unknown rex " + node);
     }
   }
 
+  /**
+   * Writes SEARCH(arg, sarg) in a compact form: the points and the ranges of
+   * the sarg are arrays of bare values that share the literal type members
+   * of the "sarg" object, so an IN list of any length is one array rather
+   * than an OR tree of comparisons; the points are written on one line.
+   * Complemented points (NOT IN) are written
+   * as the points with "negated" set. "null_as" is the result for a NULL
+   * argument.
+   */
+  private void writeSearch(JsonTokenWriter out, RexCall call) {
+    final RexLiteral literal = (RexLiteral) call.getOperands().get(1);
+    out.beginObject();
+    out.name("op").value(toJson(call.getOperator()));
+    out.name("operands").beginArray();
+    write(out, call.getOperands().get(0));
+    out.endArray();
+    out.name("type");
+    write(out, call.getType());
+    out.name("sarg");
+    writeSarg(out, literal.getValueAs(Sarg.class), literal.getType());
+    out.endObject();
+  }
+
+  private <C extends Comparable<C>> void writeSarg(
+          JsonTokenWriter out, Sarg<C> sarg, RelDataType type) {
+    final boolean negated =
+            !isPoints(sarg.rangeSet) && isPoints(sarg.rangeSet.complement());
+    final RangeSet<C> rangeSet = negated ? sarg.rangeSet.complement() : sarg.rangeSet;
+    out.beginObject();
+    out.name("type").value(sargLiteralTypeName(type).name());
+    out.name("target_type").value(type.getSqlTypeName().name());
+    out.name("scale").value(sargScale(type));
+    out.name("precision").value(type.getPrecision());
+    out.name("type_scale").value(type.getScale());
+    out.name("type_precision").value(type.getPrecision());
+    out.name("points").beginCompactArray();
+    for (Range<C> range : rangeSet.asRanges()) {
+      if (isPoint(range)) {
+        writeRaw(out, sargValue(type, range.lowerEndpoint()));
+      }
+    }
+    out.endArray();
+    out.name("ranges").beginArray();
+    for (Range<C> range : rangeSet.asRanges()) {
+      if (isPoint(range)) {
+        continue;
+      }
+      out.beginObject();
+      if (range.hasLowerBound()) {
+        out.name("lower");
+        writeRaw(out, sargValue(type, range.lowerEndpoint()));
+        out.name("lower_inclusive").value(range.lowerBoundType() == BoundType.CLOSED);
+      }
+      if (range.hasUpperBound()) {
+        out.name("upper");
+        writeRaw(out, sargValue(type, range.upperEndpoint()));
+        out.name("upper_inclusive").value(range.upperBoundType() == BoundType.CLOSED);
+      }
+      out.endObject();
+    }
+    out.endArray();
+    out.name("negated").value(negated);
+    out.name("null_as").value(sarg.nullAs.name());
+    out.endObject();
+  }
+
+  /**
+   * Returns whether the values of a SEARCH call have a representation in the
+   * compact form writeSearch() emits. Calls that don't have one must be
+   * expanded into comparisons before they are written.
+   */
+  public static boolean canWriteSearch(RexCall call) {
+    final RexLiteral literal = (RexLiteral) call.getOperands().get(1);
+    final Sarg<?> sarg = literal.getValueAs(Sarg.class);
+    for (Range<?> range : sarg.rangeSet.asRanges()) {
+      if ((range.hasLowerBound()
+                  && sargValue(literal.getType(), range.lowerEndpoint()) == null)
+              || (range.hasUpperBound()
+                      && sargValue(literal.getType(), range.upperEndpoint()) == null)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPoint(Range<?> range) {
+    return range.hasLowerBound() && range.hasUpperBound()
+            && range.lowerBoundType() == BoundType.CLOSED
+            && range.upperBoundType() == BoundType.CLOSED
+            && range.lowerEndpoint().equals(range.upperEndpoint());
+  }
+
+  private static boolean isPoints(RangeSet<?> rangeSet) {
+    for (Range<?> range : rangeSet.asRanges()) {
+      if (!isPoint(range)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // the type name RexLiteral.getTypeName() reports for a literal of the type
+  private static SqlTypeName sargLiteralTypeName(RelDataType type) {
+    final SqlTypeName typeName = type.getSqlTypeName();
+    if (SqlTypeName.EXACT_TYPES.contains(typeName)) {
+      return SqlTypeName.DECIMAL;
+    }
+    if (SqlTypeName.APPROX_TYPES.contains(typeName)) {
+      return SqlTypeName.DOUBLE;
+    }
+    if (SqlTypeName.CHAR_TYPES.contains(typeName)) {
+      return SqlTypeName.CHAR;
+    }
+    return typeName;
+  }
+
+  private static int sargScale(RelDataType type) {
+    return SqlTypeName.EXACT_TYPES.contains(type.getSqlTypeName())
+            ? Math.max(type.getScale(), 0)
+            : type.getScale();
+  }
+
+  /**
+   * Returns a sarg value the way RexLiteral.getValue2() returns the value of
+   * a literal of the given type: exact numbers unscaled at the scale of the
+   * type, dates in days and times in milliseconds. Returns null if there is
+   * no such representation, e.g. for a value with more fractional digits
+   * than the type or a timestamp finer than milliseconds.
+   */
+  private static Object sargValue(RelDataType type, Comparable<?> value) {
+    final SqlTypeName typeName = type.getSqlTypeName();
+    if (SqlTypeName.EXACT_TYPES.contains(typeName) && value instanceof BigDecimal) {
+      try {
+        return ((BigDecimal) value)
+                .setScale(sargScale(type))
+                .unscaledValue()
+                .longValueExact();
+      } catch (ArithmeticException e) {
+        return null;
+      }
+    }
+    if (SqlTypeName.APPROX_TYPES.contains(typeName) && value instanceof BigDecimal) {
+      return ((BigDecimal) value).doubleValue();
+    }
+    if (SqlTypeName.CHAR_TYPES.contains(typeName) && value instanceof NlsString) {
+      return ((NlsString) value).getValue();
+    }
+    if (typeName == SqlTypeName.BOOLEAN && value instanceof Boolean) {
+      return value;
+    }
+    if (typeName == SqlTypeName.DATE && value instanceof DateString) {
+      return ((DateString) value).getDaysSinceEpoch();
+    }
+    if (typeName == SqlTypeName.TIME && type.getPrecision() == 0
+            && value instanceof TimeString) {
+      return ((TimeString) value).getMillisOfDay();
+    }
+    if (typeName == SqlTypeName.TIMESTAMP && type.getPrecision() <= 3
+            && value instanceof TimestampString) {
+      return ((TimestampString) value).getMillisSinceEpoch();
+    }
+    return null;
+  }
+
+  // reads a sarg value back, the inverse of sargValue()
+  private static Comparable<?> toSargValue(RelDataType type, int scale, Object value) {
+    final SqlTypeName typeName = type.getSqlTypeName();
+    if (SqlTypeName.EXACT_TYPES.contains(typeName)) {
+      return BigDecimal.valueOf(((Number) value).longValue(), scale);
+    }
+    if (SqlTypeName.APPROX_TYPES.contains(typeName)) {
+      return BigDecimal.valueOf(((Number) value).doubleValue());
+    }
+    if (SqlTypeName.CHAR_TYPES.contains(typeName)) {
+      return new NlsString((String) value,
+              type.getCharset() == null ? null : type.getCharset().name(),
+              type.getCollation());
+    }
+    switch (typeName) {
+      case BOOLEAN:
+        return (Boolean) value;
+      case DATE:
+        return DateString.fromDaysSinceEpoch(((Number) value).intValue());
+      case TIME:
+        return TimeString.fromMillisOfDay(((Number) value).intValue());
+      case TIMESTAMP:
+        return TimestampString.fromMillisSinceEpoch(((Number) value).longValue());
+      default:
+        throw new UnsupportedOperationException("cannot convert to sarg value " + value);
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private RexNode toSearch(RelInput relInput, Map map) {
+    final RexBuilder rexBuilder = relInput.getCluster().getRexBuilder();
+    final RexNode arg = toRex(relInput, ((List) map.get("operands")).get(0));
+    final Map sarg = (Map) map.get("sarg");
+    final RelDataType type =
+            toSargType(relInput.getCluster().getTypeFactory(), sarg, arg.getType());
+    final int scale = ((Number) sarg.get("scale")).intValue();
+    final ImmutableRangeSet.Builder builder = ImmutableRangeSet.builder();
+    for (Object point : (List) sarg.get("points")) {
+      builder.add(Range.singleton((Comparable) toSargValue(type, scale, point)));
+    }
+    for (Object o : (List) sarg.get("ranges")) {
+      final Map range = (Map) o;
+      final Range lower = range.containsKey("lower")
+              ? Range.downTo((Comparable) toSargValue(type, scale, range.get("lower")),
+                      boundType((Boolean) range.get("lower_inclusive")))
+              : Range.all();
+      final Range upper = range.containsKey("upper")
+              ? Range.upTo((Comparable) toSargValue(type, scale, range.get("upper")),
+                      boundType((Boolean) range.get("upper_inclusive")))
+              : Range.all();
+      builder.add(lower.intersection(upper));
+    }
+    ImmutableRangeSet rangeSet = builder.build();
+    if ((Boolean) sarg.get("negated")) {
+      rangeSet = rangeSet.complement();
+    }
+    final RexUnknownAs nullAs = RexUnknownAs.valueOf((String) sarg.get("null_as"));
+    return rexBuilder.makeCall(SqlStdOperatorTable.SEARCH,
+            arg,
+            rexBuilder.makeSearchArgumentLiteral(Sarg.of(nullAs, rangeSet), type));
+  }
+
+  // the type of the sarg literal as written by writeSarg(), which may differ
+  // from the type of the argument, e.g. CHAR(1) values of a VARCHAR column
+  private static RelDataType toSargType(
+          RelDataTypeFactory typeFactory, Map sarg, RelDataType argType) {
+    final SqlTypeName typeName =
+            Util.enumVal(SqlTypeName.class, (String) sarg.get("target_type"));
+    final int precision = ((Number) sarg.get("type_precision")).intValue();
+    final int scale = ((Number) sarg.get("type_scale")).intValue();
+    RelDataType type;
+    if (typeName.allowsScale()) {
+      type = typeFactory.createSqlType(typeName, precision, scale);
+    } else if (typeName.allowsPrec()) {
+      type = typeFactory.createSqlType(typeName, precision);
+    } else {
+      type = typeFactory.createSqlType(typeName);
+    }
+    if (SqlTypeName.CHAR_TYPES.contains(typeName) && argType.getCharset() != null) {
+      type = typeFactory.createTypeWithCharsetAndCollation(
+              type, argType.getCharset(), argType.getCollation());
+    }
+    return type;
+  }
+
+  private static BoundType boundType(boolean inclusive) {
+    return inclusive ? BoundType.CLOSED : BoundType.OPEN;
+  }
+
   RexNode toRex(RelInput relInput, Object o) {
     final RelOptCluster cluster = relInput.getCluster();
     final RexBuilder rexBuilder = cluster.getRexBuilder();
@@ -427,6 +799,9 @@ public class MapDRelJson {
     } else if (o instanceof Map) {
       Map map = (Map) o;
       final String op = (String) map.get("op");
+      if (op != null && map.containsKey("sarg")) {
+        return toSearch(relInput, map);
+      }
       if (op != null) {
         final List operands = (List) map.get("operands");
         final Object jsonType = map.get("type");
@@ -532,16 +907,9 @@ public class MapDRelJson {
   }
 
   private SqlOperator toOp(String op, Map<String, Object> map) {
-    // TODO: build a map, for more efficient lookup
-    // TODO: look up based on SqlKind
-    MapDSqlOperatorTable operatorTable =
-            new MapDSqlOperatorTable(SqlStdOperatorTable.instance());
-    MapDSqlOperatorTable.addUDF(operatorTable, null);
-    final List<SqlOperator> operatorList = operatorTable.getOperatorList();
-    for (SqlOperator operator : operatorList) {
-      if (operator.getName().equals(op)) {
-        return operator;
-      }
+    final SqlOperator operator = Operators.BY_NAME.get(op);
+    if (operator != null) {
+      return operator;
     }
     String class_ = (String) map.get("class");
     if (class_ != null) {
@@ -559,24 +927,12 @@ public class MapDRelJson {
   }
 
   SqlOperator toOp(RelInput relInput, String name) {
-    // in case different operator has the same kind, check with both name and kind.
-    String kind = name;
-    String syntax = "FUNCTION";
-    SqlKind sqlKind = SqlKind.valueOf(kind);
-    SqlSyntax sqlSyntax = SqlSyntax.valueOf(syntax);
-    MapDSqlOperatorTable operatorTable =
-            new MapDSqlOperatorTable(SqlStdOperatorTable.instance());
-    MapDSqlOperatorTable.addUDF(operatorTable, null);
-    final List<SqlOperator> operators = operatorTable.getOperatorList();
-    List<String> names = new ArrayList<>();
-    for (SqlOperator operator : operators) {
-      names.add(operator.toString());
-      if (operator.getName().equals(name)) {
-        return operator;
-      }
+    final SqlOperator operator = Operators.BY_NAME.get(name);
+    if (operator == null) {
+      throw new RuntimeException("Aggregation function with name " + name
+              + " not found, search in " + Operators.BY_NAME.keySet());
     }
-    throw new RuntimeException("Aggregation function with name " + name
-            + " not found, search in " + names.toString());
+    return operator;
   }
 
   SqlAggFunction toAggregation(String agg) {
@@ -587,6 +943,26 @@ public class MapDRelJson {
     return (SqlAggFunction) toOp(relInput, agg);
   }
 
+  /**
+   * The operators of the standard and the MapD operator tables by name,
+   * built on first use. Where several operators share a name, the first one
+   * of the operator list wins, as in a scan of the list.
+   */
+  private static final class Operators {
+    static final Map<String, SqlOperator> BY_NAME = build();
+
+    private static Map<String, SqlOperator> build() {
+      MapDSqlOperatorTable operatorTable =
+              new MapDSqlOperatorTable(SqlStdOperatorTable.instance());
+      MapDSqlOperatorTable.addUDF(operatorTable, null);
+      final Map<String, SqlOperator> byName = new LinkedHashMap<>();
+      for (SqlOperator operator : operatorTable.getOperatorList()) {
+        byName.putIfAbsent(operator.getName(), operator);
+      }
+      return Collections.unmodifiableMap(byName);
+    }
+  }
+
   private String toJson(SqlOperator operator) {
     // User-defined operators are not yet handled.
     return operator.getName();
@@ -19,13 +19,14 @@ package org.apache.calcite.rel.externalize;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.collect.ImmutableList;
 
-import org.apache.calcite.adapter.enumerable.EnumerableTableScan;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptSchema;
 import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelCollations;
@@ -33,7 +34,9 @@ import org.apache.calcite.rel.RelDistribution;
 import org.apache.calcite.rel.RelInput;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.schema.Schema;
@@ -43,15 +46,12 @@ import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * Reads a JSON plan and converts it back to a tree of relational expressions.
@@ -62,9 +62,15 @@ public class MapDRelJsonReader {
   private static final TypeReference<LinkedHashMap<String, Object>> TYPE_REF =
           new TypeReference<LinkedHashMap<String, Object>>() {};
 
+  // ObjectReader is immutable and thread-safe: one reader, configured once,
+  // serves every plan instead of a new ObjectMapper per plan
+  private static final ObjectReader READER =
+          new ObjectMapper().readerFor(TYPE_REF).with(
+                  DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
   private final RelOptCluster cluster;
   private final RelOptSchema relOptSchema;
-  private final MapDRelJson relJson = new MapDRelJson(null);
+  private final MapDRelJson relJson = new MapDRelJson();
   private final Map<String, RelNode> relMap = new LinkedHashMap<>();
   private RelNode lastRel;
 
@@ -77,10 +83,7 @@ public class MapDRelJsonReader {
 
   public RelNode read(String s) throws IOException {
     lastRel = null;
-    final ObjectMapper mapper = new ObjectMapper();
-    Map<String, Object> o =
-            mapper.configure(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, true)
-                    .readValue(s, TYPE_REF);
+    final Map<String, Object> o = READER.readValue(s);
     @SuppressWarnings("unchecked")
     final List<Map<String, Object>> rels = (List) o.get("rels");
     readRels(rels);
@@ -96,10 +99,6 @@ public class MapDRelJsonReader {
   private void readRel(final Map<String, Object> jsonRel) {
     String id = (String) jsonRel.get("id");
     String type = (String) jsonRel.get("relOp");
-    Constructor constructor = null;
-    if (!type.equalsIgnoreCase("EnumerableTableScan")) {
-      constructor = relJson.getConstructor(type);
-    }
     RelInput input = new RelInput() {
       public RelOptCluster getCluster() {
         return cluster;
@@ -259,32 +258,32 @@ public class MapDRelJsonReader {
         return builder.build();
       }
     };
-    try {
-      RelNode rel;
-
-      if (!type.equalsIgnoreCase("EnumerableTableScan")) {
-        rel = (RelNode) constructor.newInstance(input);
-      } else {
-        Objects.requireNonNull(cluster);
-        Objects.requireNonNull(relOptSchema);
-        Objects.requireNonNull(jsonRel);
-        Objects.requireNonNull(jsonRel.get("table"));
-        Objects.requireNonNull(
-                relOptSchema.getTableForMember((List<String>) jsonRel.get("table")));
-        rel = EnumerableTableScan.create(cluster,
-                relOptSchema.getTableForMember((List<String>) jsonRel.get("table")));
-      }
-      relMap.put(id, rel);
-      lastRel = rel;
-    } catch (InstantiationException | IllegalAccessException e) {
-      throw new RuntimeException(e);
-    } catch (InvocationTargetException e) {
-      final Throwable e2 = e.getCause();
-      if (e2 instanceof RuntimeException) {
-        throw(RuntimeException) e2;
+    RelNode rel = relJson.create(type, input);
+    if (rel instanceof TableScan) {
+      rel = projectFieldNames(rel, (List<String>) jsonRel.get("fieldNames"));
+    }
+    relMap.put(id, rel);
+    lastRel = rel;
+  }
+
+  // A scan may list only some of the table's columns (see
+  // ProjectTableScanNarrowRule). It is read back as a project of those
+  // columns over the scan of the whole table, so that the table statistics
+  // keep matching the scan's columns.
+  private static RelNode projectFieldNames(RelNode scan, List<String> fieldNames) {
+    if (fieldNames == null || fieldNames.equals(scan.getRowType().getFieldNames())) {
+      return scan;
+    }
+    final List<Integer> fields = new ArrayList<>(fieldNames.size());
+    for (String fieldName : fieldNames) {
+      final RelDataTypeField field = scan.getRowType().getField(fieldName, true, false);
+      if (field == null) {
+        throw new IllegalArgumentException("unknown field " + fieldName + " in scan of "
+                + scan.getTable().getQualifiedName());
       }
-      throw new RuntimeException(e2);
+      fields.add(field.getIndex());
     }
+    return RelOptUtil.createProject(scan, fields);
   }
 
   private AggregateCall toAggCall(RelInput relInput, Map<String, Object> jsonAggCall) {
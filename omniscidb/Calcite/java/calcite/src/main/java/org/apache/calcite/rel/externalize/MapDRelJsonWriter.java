@@ -25,7 +25,8 @@ import org.apache.calcite.rel.hint.RelHint;
 import org.apache.calcite.rel.logical.*;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.sql.SqlExplainLevel;
-import org.apache.calcite.util.EscapedStringJsonBuilder;
+import org.apache.calcite.util.JsonStreamWriter;
+import org.apache.calcite.util.JsonTokenWriter;
 import org.apache.calcite.util.Pair;
 
 import java.util.*;
@@ -39,27 +40,45 @@ import java.util.stream.Collectors;
 public class MapDRelJsonWriter implements RelWriter {
   // ~ Instance fields ----------------------------------------------------------
 
-  private final EscapedStringJsonBuilder jsonBuilder;
-  private final MapDRelJson relJson;
+  private final JsonTokenWriter out;
+  private final MapDRelJson relJson = new MapDRelJson();
   private final Map<RelNode, String> relIdMap = new IdentityHashMap<RelNode, String>();
-  private final List<Object> relList;
   private final List<Pair<String, Object>> values = new ArrayList<Pair<String, Object>>();
+  // attributes of the rel being written, reused for every rel
+  private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
   private String previousId;
+  private boolean finished;
 
   // ~ Constructors -------------------------------------------------------------
 
   public MapDRelJsonWriter() {
-    jsonBuilder = new EscapedStringJsonBuilder();
-    relList = jsonBuilder.list();
-    relJson = new MapDRelJson(jsonBuilder);
+    this(new JsonStreamWriter());
+  }
+
+  /**
+   * Creates a writer that appends the plan to the given stream, e.g. to reuse
+   * its buffer, to nest a subquery plan into the plan being written or to
+   * write the plan in the binary encoding of BinaryJsonWriter.
+   */
+  public MapDRelJsonWriter(JsonTokenWriter out) {
+    this.out = out;
+    out.beginObject();
+    out.name("rels").beginArray();
   }
 
   // ~ Methods ------------------------------------------------------------------
 
   protected void explain_(RelNode rel, List<Pair<String, Object>> values) {
-    final Map<String, Object> map = jsonBuilder.map();
+    // inputs are written to the rel list before the rel itself
+    final List<String> inputs = explainInputs(rel.getInputs());
+    final String id = Integer.toString(relIdMap.size());
+    relIdMap.put(rel, id);
 
-    map.put("id", null); // ensure that id is the first attribute
+    // collected into a map first to keep the attribute order and overriding
+    // of the original map based writer; the values are written as they are
+    final Map<String, Object> map = attributes;
+    map.clear();
+    map.put("id", id);
     map.put("relOp", relJson.classToTypeName(rel.getClass()));
     if (rel instanceof TableScan) {
       RelDataType row_type = ((TableScan) rel).getTable().getRowType();
@@ -82,28 +101,25 @@ public class MapDRelJsonWriter implements RelWriter {
       if (value.right instanceof RelNode) {
         continue;
       }
-      put(map, value.left, value.right);
+      map.put(value.left, value.right);
     }
     // omit 'inputs: ["3"]' if "3" is the preceding rel
-    final List<Object> list = explainInputs(rel.getInputs());
-    if (list.size() != 1 || !list.get(0).equals(previousId)) {
-      map.put("inputs", list);
+    if (inputs.size() != 1 || !inputs.get(0).equals(previousId)) {
+      map.put("inputs", inputs);
     }
 
-    final String id = Integer.toString(relIdMap.size());
-    relIdMap.put(rel, id);
-    map.put("id", id);
-
-    relList.add(map);
+    out.beginObject();
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      out.name(entry.getKey());
+      relJson.write(out, entry.getValue());
+    }
+    out.endObject();
+    map.clear();
     previousId = id;
   }
 
-  private void put(Map<String, Object> map, String name, Object value) {
-    map.put(name, relJson.toJson(value));
-  }
-
-  private List<Object> explainInputs(List<RelNode> inputs) {
-    final List<Object> list = jsonBuilder.list();
+  private List<String> explainInputs(List<RelNode> inputs) {
+    final List<String> list = new ArrayList<String>(inputs.size());
     for (RelNode input : inputs) {
       String id = relIdMap.get(input);
       if (id == null) {
@@ -224,17 +240,23 @@ public class MapDRelJsonWriter implements RelWriter {
   }
 
   /**
-   * Returns a JSON string describing the relational expressions that were just
-   * explained.
+   * Completes the plan document. Nothing can be explained afterwards.
    */
-  public String asString() {
-    return jsonBuilder.toJsonString(asJsonMap());
+  public void finish() {
+    if (!finished) {
+      out.endArray();
+      out.endObject();
+      finished = true;
+    }
   }
 
-  public Map<String, Object> asJsonMap() {
-    final Map<String, Object> map = jsonBuilder.map();
-    map.put("rels", relList);
-    return map;
+  /**
+   * Returns a JSON string describing the relational expressions that were just
+   * explained. Only meaningful if the plan is written as text.
+   */
+  public String asString() {
+    finish();
+    return out.toString();
   }
 }
 
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.rel.metadata;
+
+import com.mapd.calcite.parser.ColumnStatistics;
+import com.mapd.calcite.parser.MapDTable;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.ImmutableBitSet;
+
+/**
+ * Estimates the number of distinct values of table scan columns from the
+ * NDVs in the schema (see SchemaCatalog), falling back to the default
+ * estimate if any of the columns has none.
+ */
+public class MapDRelMdDistinctRowCount extends RelMdDistinctRowCount {
+  public Double getDistinctRowCount(TableScan rel,
+          RelMetadataQuery mq,
+          ImmutableBitSet groupKey,
+          RexNode predicate) {
+    MapDTable table = rel.getTable().unwrap(MapDTable.class);
+    if (table == null) {
+      return super.getDistinctRowCount((RelNode) rel, mq, groupKey, predicate);
+    }
+    double distinct = 1.0;
+    for (int column : groupKey) {
+      ColumnStatistics stats = table.getColumnStatistics(column);
+      if (stats == null || stats.ndv == null) {
+        return super.getDistinctRowCount((RelNode) rel, mq, groupKey, predicate);
+      }
+      distinct *= stats.ndv;
+    }
+    final double rowCount = mq.getRowCount(rel);
+    distinct = Math.min(distinct, rowCount);
+    if (predicate != null && !predicate.isAlwaysTrue()) {
+      final double selectivity = MapDRelMdSelectivity.selectivity(table, predicate);
+      distinct = RelMdUtil.numDistinctVals(distinct, rowCount * selectivity);
+    }
+    return distinct;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.rel.metadata;
+
+import com.mapd.calcite.parser.ColumnStatistics;
+import com.mapd.calcite.parser.MapDTable;
+
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.util.Sarg;
+
+import java.math.BigDecimal;
+
+/**
+ * Estimates the selectivity of predicates on table scans from the column
+ * statistics in the schema (see SchemaCatalog). Conjuncts the statistics
+ * don't cover fall back to the default guesses.
+ */
+public class MapDRelMdSelectivity extends RelMdSelectivity {
+  public Double getSelectivity(TableScan rel, RelMetadataQuery mq, RexNode predicate) {
+    MapDTable table = rel.getTable().unwrap(MapDTable.class);
+    if (table == null || predicate == null) {
+      return super.getSelectivity((RelNode) rel, mq, predicate);
+    }
+    double selectivity = 1.0;
+    for (RexNode conjunct : RelOptUtil.conjunctions(predicate)) {
+      selectivity *= selectivity(table, conjunct);
+    }
+    return selectivity;
+  }
+
+  static double selectivity(MapDTable table, RexNode predicate) {
+    Double estimate = estimate(table, predicate);
+    return estimate != null ? estimate : RelMdUtil.guessSelectivity(predicate);
+  }
+
+  private static Double estimate(MapDTable table, RexNode predicate) {
+    if (!(predicate instanceof RexCall)) {
+      return null;
+    }
+    RexCall call = (RexCall) predicate;
+    switch (call.getKind()) {
+      case AND: {
+        double selectivity = 1.0;
+        for (RexNode operand : call.getOperands()) {
+          selectivity *= selectivity(table, operand);
+        }
+        return selectivity;
+      }
+      case OR: {
+        double none = 1.0;
+        for (RexNode operand : call.getOperands()) {
+          none *= 1.0 - selectivity(table, operand);
+        }
+        return 1.0 - none;
+      }
+      case NOT:
+        return 1.0 - selectivity(table, call.getOperands().get(0));
+      case IS_NULL:
+      case IS_NOT_NULL: {
+        ColumnStatistics stats = columnStatistics(table, call.getOperands().get(0));
+        if (stats == null || stats.nullFraction == null) {
+          return null;
+        }
+        return call.getKind() == SqlKind.IS_NULL ? stats.nullFraction
+                                                 : 1.0 - stats.nullFraction;
+      }
+      case EQUALS:
+      case NOT_EQUALS:
+      case LESS_THAN:
+      case LESS_THAN_OR_EQUAL:
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+        return comparison(table, call);
+      case SEARCH:
+        return search(table, call);
+      default:
+        return null;
+    }
+  }
+
+  private static Double comparison(MapDTable table, RexCall call) {
+    SqlKind kind = call.getKind();
+    RexNode column = call.getOperands().get(0);
+    RexNode value = call.getOperands().get(1);
+    if (!(stripCasts(value) instanceof RexLiteral)) {
+      column = call.getOperands().get(1);
+      value = call.getOperands().get(0);
+      kind = kind.reverse();
+    }
+    ColumnStatistics stats = columnStatistics(table, column);
+    if (stats == null || !(stripCasts(value) instanceof RexLiteral)) {
+      return null;
+    }
+    final double nonNull = stats.nullFraction != null ? 1.0 - stats.nullFraction : 1.0;
+    switch (kind) {
+      case EQUALS:
+        return stats.ndv != null && stats.ndv >= 1 ? nonNull / stats.ndv : null;
+      case NOT_EQUALS:
+        return stats.ndv != null && stats.ndv >= 1 ? nonNull * (1.0 - 1.0 / stats.ndv)
+                                                   : null;
+      default:
+        break;
+    }
+    Double below = fractionBelow(stats, (RexLiteral) stripCasts(value));
+    if (below == null) {
+      return null;
+    }
+    boolean less = kind == SqlKind.LESS_THAN || kind == SqlKind.LESS_THAN_OR_EQUAL;
+    return nonNull * (less ? below : 1.0 - below);
+  }
+
+  private static Double search(MapDTable table, RexCall call) {
+    ColumnStatistics stats = columnStatistics(table, call.getOperands().get(0));
+    if (stats == null || stats.ndv == null || stats.ndv < 1
+            || !(call.getOperands().get(1) instanceof RexLiteral)) {
+      return null;
+    }
+    Sarg<?> sarg = ((RexLiteral) call.getOperands().get(1)).getValueAs(Sarg.class);
+    if (sarg == null || !sarg.isPoints()) {
+      return null;
+    }
+    final double nonNull = stats.nullFraction != null ? 1.0 - stats.nullFraction : 1.0;
+    return nonNull * Math.min(1.0, sarg.pointCount / stats.ndv);
+  }
+
+  // fraction of non-null values below the literal, assuming a uniform
+  // distribution between min and max
+  private static Double fractionBelow(ColumnStatistics stats, RexLiteral literal) {
+    if (stats.min == null || stats.max == null || stats.max <= stats.min) {
+      return null;
+    }
+    if (!(literal.getValue() instanceof BigDecimal)) {
+      return null;
+    }
+    double value = ((BigDecimal) literal.getValue()).doubleValue();
+    double fraction = (value - stats.min) / (stats.max - stats.min);
+    return Math.max(0.0, Math.min(1.0, fraction));
+  }
+
+  static ColumnStatistics columnStatistics(MapDTable table, RexNode node) {
+    node = stripCasts(node);
+    if (!(node instanceof RexInputRef)) {
+      return null;
+    }
+    return table.getColumnStatistics(((RexInputRef) node).getIndex());
+  }
+
+  private static RexNode stripCasts(RexNode node) {
+    while (node.getKind() == SqlKind.CAST) {
+      node = ((RexCall) node).getOperands().get(0);
+    }
+    return node;
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.rel.metadata;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Default metadata plus the estimates based on the table and column
+ * statistics in the schema. Row counts and unique keys come in through
+ * MapDTable.getStatistic() and need no handler of their own.
+ */
+public class MapDRelMetadataProvider {
+  public static final RelMetadataProvider INSTANCE =
+          ChainedRelMetadataProvider.of(ImmutableList.of(
+                  ReflectiveRelMetadataProvider.reflectiveSource(
+                          new MapDRelMdSelectivity(),
+                          BuiltInMetadata.Selectivity.Handler.class),
+                  ReflectiveRelMetadataProvider.reflectiveSource(
+                          new MapDRelMdDistinctRowCount(),
+                          BuiltInMetadata.DistinctRowCount.Handler.class),
+                  DefaultRelMetadataProvider.INSTANCE));
+
+  private MapDRelMetadataProvider() {}
+}
@@ -41,27 +41,22 @@ import org.immutables.value.Value;
 public class InjectFilterRule extends RelRule<InjectFilterRule.Config> {
   // goal: customer entitlements first swipe
 
-  public static Set<String> visitedMemo = new HashSet<>();
   final static Logger MAPDLOGGER = LoggerFactory.getLogger(InjectFilterRule.class);
   final Restriction restriction;
+  // ids of the scans already filtered. A rule instance is created for a
+  // single planning run, so the memo is never shared between requests.
+  private final Set<Integer> visitedScans = new HashSet<>();
 
   public InjectFilterRule(Config config, Restriction restriction) {
     super(config);
     this.restriction = restriction;
-    clearMemo();
-  }
-
-  void clearMemo() {
-    visitedMemo.clear();
   }
 
   @Override
   public void onMatch(RelOptRuleCall call) {
     LogicalTableScan parentNode = call.rel(0);
-    if (visitedMemo.contains(parentNode.toString())) {
+    if (!visitedScans.add(parentNode.getId())) {
       return;
-    } else {
-      visitedMemo.add(parentNode.toString());
     }
     RelOptTable table = parentNode.getTable();
 
@@ -92,7 +87,8 @@ public class InjectFilterRule extends RelRule<InjectFilterRule.Config> {
         orList.add(rn);
       }
 
-      RexNode relOr = builder.call(SqlStdOperatorTable.OR, orList);
+      // a single value makes no OR call
+      RexNode relOr = builder.or(orList);
 
       final RelNode newNode = builder.filter(relOr).build();
       call.transformTo(newNode);
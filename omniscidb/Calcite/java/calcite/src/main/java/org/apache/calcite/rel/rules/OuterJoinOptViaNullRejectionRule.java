@@ -70,30 +70,24 @@ public class OuterJoinOptViaNullRejectionRule extends QueryOptimizationRules {
   //  because such filter conditions could affect join tables and
   //  they can make join cols to be null rejected
 
-  public static Set<String> visitedJoinMemo = new HashSet<>();
   final static Logger MAPDLOGGER =
           LoggerFactory.getLogger(OuterJoinOptViaNullRejectionRule.class);
+  // ids of the joins already analyzed. A rule instance is created for a
+  // single planning run, so the memo is never shared between requests.
+  private final Set<Integer> visitedJoins = new HashSet<>();
 
   public OuterJoinOptViaNullRejectionRule(RelBuilderFactory relBuilderFactory) {
     super(operand(RelNode.class, operand(Join.class, null, any())),
             relBuilderFactory,
             "OuterJoinOptViaNullRejectionRule");
-    clearMemo();
-  }
-
-  void clearMemo() {
-    visitedJoinMemo.clear();
   }
 
   @Override
   public void onMatch(RelOptRuleCall call) {
     RelNode parentNode = call.rel(0);
     LogicalJoin join = (LogicalJoin) call.rel(1);
-    String condString = join.getCondition().toString();
-    if (visitedJoinMemo.contains(condString)) {
+    if (!visitedJoins.add(join.getId())) {
       return;
-    } else {
-      visitedJoinMemo.add(condString);
     }
     if (!(join.getCondition() instanceof RexCall)) {
       return; // an inner join
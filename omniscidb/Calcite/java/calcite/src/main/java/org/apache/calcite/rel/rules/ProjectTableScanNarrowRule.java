@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.rel.rules;
+
+import com.google.common.collect.ImmutableList;
+import com.mapd.calcite.parser.MapDTable;
+
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.plan.RelRule;
+import org.apache.calcite.prepare.RelOptTableImpl;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexPermuteInputsShuttle;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.mapping.Mapping;
+import org.apache.calcite.util.mapping.MappingType;
+import org.apache.calcite.util.mapping.Mappings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.immutables.value.Value;
+
+/**
+ * Replaces the table scan below a project with a scan of only the columns
+ * the project uses, so that the plan JSON lists just those in the scan's
+ * "fieldNames". The input references of the project are remapped to the
+ * narrow scan. Config.AGGREGATE does the same for an aggregate read directly
+ * from a scan, e.g. by COUNT(*), remapping its group keys and arguments.
+ *
+ * The narrow scan reads a RelOptTable whose row type is the used columns.
+ * A MapDTable is replaced by its narrowed view, so that the column statistics
+ * and unique keys of the scan follow the new ordinals.
+ */
+@Value.Enclosing
+public class ProjectTableScanNarrowRule
+        extends RelRule<ProjectTableScanNarrowRule.Config> {
+  public ProjectTableScanNarrowRule(Config config) {
+    super(config);
+  }
+
+  @Override
+  public void onMatch(RelOptRuleCall call) {
+    final LogicalTableScan scan = call.rel(1);
+    final int fieldCount = scan.getRowType().getFieldCount();
+    ImmutableBitSet used = call.rel(0) instanceof LogicalProject
+            ? RelOptUtil.InputFinder.bits(
+                    ((LogicalProject) call.rel(0)).getProjects(), null)
+            : ImmutableBitSet.of(RelOptUtil.getAllFields(call.rel(0)));
+    if (used.isEmpty()) {
+      // e.g. COUNT(*), the scan still needs a column to count the rows of
+      used = ImmutableBitSet.of(0);
+    }
+    if (used.cardinality() == fieldCount) {
+      return;
+    }
+
+    final Mapping mapping = Mappings.create(
+            MappingType.INVERSE_SURJECTION, fieldCount, used.cardinality());
+    int target = 0;
+    for (int source : used) {
+      mapping.set(source, target++);
+    }
+    final LogicalTableScan narrowScan = LogicalTableScan.create(
+            scan.getCluster(), narrow(scan, used), scan.getHints());
+    if (call.rel(0) instanceof LogicalProject) {
+      final LogicalProject project = call.rel(0);
+      final List<RexNode> projects =
+              new RexPermuteInputsShuttle(mapping, narrowScan).visitList(
+                      project.getProjects());
+      call.transformTo(project.copy(
+              project.getTraitSet(), narrowScan, projects, project.getRowType()));
+    } else {
+      final LogicalAggregate aggregate = call.rel(0);
+      final List<ImmutableBitSet> groupSets = new ArrayList<>();
+      for (ImmutableBitSet groupSet : aggregate.getGroupSets()) {
+        groupSets.add(Mappings.apply(mapping, groupSet));
+      }
+      final List<AggregateCall> aggCalls = new ArrayList<>();
+      for (AggregateCall aggCall : aggregate.getAggCallList()) {
+        aggCalls.add(aggCall.transform(mapping));
+      }
+      call.transformTo(aggregate.copy(aggregate.getTraitSet(),
+              narrowScan,
+              Mappings.apply(mapping, aggregate.getGroupSet()),
+              groupSets,
+              aggCalls));
+    }
+  }
+
+  private static RelOptTable narrow(LogicalTableScan scan, ImmutableBitSet used) {
+    final RelOptTable table = scan.getTable();
+    final RelDataTypeFactory.Builder builder =
+            scan.getCluster().getTypeFactory().builder();
+    for (int column : used) {
+      builder.add(table.getRowType().getFieldList().get(column));
+    }
+    final RelDataType rowType = builder.build();
+    final MapDTable mapDTable = table.unwrap(MapDTable.class);
+    return RelOptTableImpl.create(table.getRelOptSchema(),
+            rowType,
+            ImmutableList.copyOf(table.getQualifiedName()),
+            mapDTable != null ? mapDTable.narrow(used) : table.unwrap(Table.class),
+            (Expression) null);
+  }
+
+  /** Rule configuration. */
+  @Value.Immutable
+  @SuppressWarnings("immutables")
+  public interface Config extends RelRule.Config {
+    Config DEFAULT = ImmutableProjectTableScanNarrowRule.Config.of()
+            .withOperandSupplier(b0
+                    -> b0.operand(LogicalProject.class)
+                               .oneInput(b1
+                                       -> b1.operand(LogicalTableScan.class)
+                                                  .noInputs()))
+            .as(Config.class);
+
+    Config AGGREGATE = DEFAULT.withDescription("ProjectTableScanNarrowRule:Aggregate")
+            .withOperandSupplier(b0
+                    -> b0.operand(LogicalAggregate.class)
+                               .oneInput(b1
+                                       -> b1.operand(LogicalTableScan.class)
+                                                  .noInputs()))
+            .as(Config.class);
+
+    @Override
+    default ProjectTableScanNarrowRule toRule() {
+      return new ProjectTableScanNarrowRule(this);
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package org.apache.calcite.rel.rules;
 
 import java.util.List;
+import java.util.Objects;
 
 public class Restriction {
   public Restriction(String rColumn, List<String> rValues) {
@@ -31,4 +32,21 @@ public class Restriction {
   };
   private String rColumn;
   private List<String> rValues;
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Restriction)) {
+      return false;
+    }
+    Restriction other = (Restriction) obj;
+    return Objects.equals(rColumn, other.rColumn) && Objects.equals(rValues, other.rValues);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(rColumn, rValues);
+  }
 }
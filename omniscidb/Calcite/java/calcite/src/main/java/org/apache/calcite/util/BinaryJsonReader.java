@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a document written by {@link BinaryJsonWriter}.
+ */
+public class BinaryJsonReader {
+  private final byte[] buf;
+  private final List<String> keys = new ArrayList<>();
+  private int pos;
+
+  private BinaryJsonReader(byte[] buf) {
+    this.buf = buf;
+  }
+
+  public static JsonElement read(byte[] bytes) {
+    BinaryJsonReader reader = new BinaryJsonReader(bytes);
+    for (byte b : BinaryJsonWriter.MAGIC) {
+      if (reader.readByte() != b) {
+        throw new IllegalArgumentException("not a binary plan");
+      }
+    }
+    JsonElement res = reader.readValue();
+    if (reader.pos != bytes.length) {
+      throw new IllegalArgumentException(
+              "trailing bytes after binary plan at offset " + reader.pos);
+    }
+    return res;
+  }
+
+  private JsonElement readValue() {
+    final byte tag = readByte();
+    switch (tag) {
+      case BinaryJsonWriter.NULL:
+        return JsonNull.INSTANCE;
+      case BinaryJsonWriter.FALSE:
+        return new JsonPrimitive(false);
+      case BinaryJsonWriter.TRUE:
+        return new JsonPrimitive(true);
+      case BinaryJsonWriter.INT: {
+        long zigzag = readVarint();
+        return new JsonPrimitive((zigzag >>> 1) ^ -(zigzag & 1));
+      }
+      case BinaryJsonWriter.DOUBLE: {
+        long bits = 0;
+        for (int i = 0; i < 8; ++i) {
+          bits |= (readByte() & 0xFFL) << (8 * i);
+        }
+        return new JsonPrimitive(Double.longBitsToDouble(bits));
+      }
+      case BinaryJsonWriter.STRING:
+        return new JsonPrimitive(readUtf8());
+      case BinaryJsonWriter.TOKEN:
+        return JsonParser.parseString(readUtf8());
+      case BinaryJsonWriter.OBJECT: {
+        JsonObject res = new JsonObject();
+        for (int i = readCount(); i > 0; --i) {
+          int key = (int) readVarint();
+          String name;
+          if (key == 0) {
+            name = readUtf8();
+            keys.add(name);
+          } else {
+            name = keys.get(key - 1);
+          }
+          res.add(name, readValue());
+        }
+        return res;
+      }
+      case BinaryJsonWriter.ARRAY: {
+        JsonArray res = new JsonArray();
+        for (int i = readCount(); i > 0; --i) {
+          res.add(readValue());
+        }
+        return res;
+      }
+      default:
+        throw new IllegalArgumentException(
+                "unknown tag " + tag + " at offset " + (pos - 1));
+    }
+  }
+
+  private byte readByte() {
+    if (pos >= buf.length) {
+      throw new IllegalArgumentException("truncated binary plan");
+    }
+    return buf[pos++];
+  }
+
+  private int readCount() {
+    int res = 0;
+    for (int i = 0; i < 4; ++i) {
+      res |= (readByte() & 0xFF) << (8 * i);
+    }
+    return res;
+  }
+
+  private long readVarint() {
+    long res = 0;
+    for (int shift = 0;; shift += 7) {
+      byte b = readByte();
+      res |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return res;
+      }
+    }
+  }
+
+  private String readUtf8() {
+    final int end = (int) readVarint() + pos;
+    if (end > buf.length) {
+      throw new IllegalArgumentException("truncated binary plan");
+    }
+    StringBuilder res = new StringBuilder(end - pos);
+    while (pos < end) {
+      int b = buf[pos++] & 0xFF;
+      if (b < 0x80) {
+        res.append((char) b);
+      } else if (b < 0xE0) {
+        res.append((char) (((b & 0x1F) << 6) | (buf[pos++] & 0x3F)));
+      } else if (b < 0xF0) {
+        res.append((char) (((b & 0x0F) << 12) | ((buf[pos++] & 0x3F) << 6)
+                | (buf[pos++] & 0x3F)));
+      } else {
+        int cp = ((b & 0x07) << 18) | ((buf[pos++] & 0x3F) << 12)
+                | ((buf[pos++] & 0x3F) << 6) | (buf[pos++] & 0x3F);
+        res.appendCodePoint(cp);
+      }
+    }
+    return res.toString();
+  }
+}
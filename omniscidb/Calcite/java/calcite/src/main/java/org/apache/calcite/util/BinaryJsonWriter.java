@@ -0,0 +1,293 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a JSON document in a compact tagged binary form.
+ *
+ * The document starts with the 4 byte header "RAB" 1 followed by one value.
+ * Every value starts with a one byte tag:
+ * <ul>
+ * <li>NULL, FALSE, TRUE: no payload.
+ * <li>INT: zigzag encoded LEB128 varint.
+ * <li>DOUBLE: IEEE 754 bits, 8 bytes little endian.
+ * <li>STRING: varint byte length and the string in UTF-8 (an unpaired
+ * surrogate is kept as its 3 byte sequence).
+ * <li>TOKEN: a scalar that is neither an integer nor a double (e.g. a
+ * BigDecimal) as its JSON text, encoded like STRING.
+ * <li>OBJECT: member count (4 bytes little endian), then per member a key and
+ * a value. A key is a varint: 0 introduces a new key, encoded like STRING,
+ * which gets the next key number; k &gt; 0 refers to the key numbered k - 1.
+ * <li>ARRAY: element count (4 bytes little endian), then the elements.
+ * </ul>
+ * Container counts are patched in when the container is closed, so the
+ * document is written in one pass like the text form. {@link BinaryJsonReader}
+ * decodes it.
+ */
+public class BinaryJsonWriter implements JsonTokenWriter {
+  static final byte[] MAGIC = {'R', 'A', 'B', 1};
+
+  static final byte NULL = 0;
+  static final byte FALSE = 1;
+  static final byte TRUE = 2;
+  static final byte INT = 3;
+  static final byte DOUBLE = 4;
+  static final byte STRING = 5;
+  static final byte TOKEN = 6;
+  static final byte OBJECT = 7;
+  static final byte ARRAY = 8;
+
+  // a buffer grown beyond this is dropped on reset() rather than retained
+  private static final int MAX_RETAINED_CAPACITY = 1 << 22;
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  private byte[] buf = new byte[INITIAL_CAPACITY];
+  private int size;
+  // per open container: position of its count and the count so far
+  private int[] countPositions = new int[16];
+  private int[] counts = new int[16];
+  private int depth;
+  private boolean afterName;
+  private final Map<String, Integer> keys = new HashMap<>();
+
+  public BinaryJsonWriter() {
+    writeBytes(MAGIC, 0, MAGIC.length);
+  }
+
+  /** Clears the written document, keeping the buffer for the next one. */
+  public void reset() {
+    if (buf.length > MAX_RETAINED_CAPACITY) {
+      buf = new byte[INITIAL_CAPACITY];
+    }
+    size = 0;
+    depth = 0;
+    afterName = false;
+    keys.clear();
+    writeBytes(MAGIC, 0, MAGIC.length);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buf, size);
+  }
+
+  @Override
+  public BinaryJsonWriter beginObject() {
+    beforeValue();
+    writeByte(OBJECT);
+    push();
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter endObject() {
+    pop();
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter beginArray() {
+    beforeValue();
+    writeByte(ARRAY);
+    push();
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter endArray() {
+    pop();
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter name(String name) {
+    counts[depth - 1]++;
+    Integer key = keys.get(name);
+    if (key != null) {
+      writeVarint(key + 1);
+    } else {
+      keys.put(name, keys.size());
+      writeVarint(0);
+      writeUtf8(name);
+    }
+    afterName = true;
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter nullValue() {
+    beforeValue();
+    writeByte(NULL);
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter value(String value) {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    writeByte(STRING);
+    writeUtf8(value);
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter value(long value) {
+    beforeValue();
+    writeByte(INT);
+    writeVarint((value << 1) ^ (value >> 63));
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter value(boolean value) {
+    beforeValue();
+    writeByte(value ? TRUE : FALSE);
+    return this;
+  }
+
+  @Override
+  public BinaryJsonWriter value(Object value) {
+    if (value == null) {
+      return nullValue();
+    } else if (value instanceof String) {
+      return value((String) value);
+    } else if (value instanceof Boolean) {
+      return value(((Boolean) value).booleanValue());
+    } else if (value instanceof Long || value instanceof Integer
+            || value instanceof Short || value instanceof Byte) {
+      return value(((Number) value).longValue());
+    } else if (value instanceof Double) {
+      beforeValue();
+      writeByte(DOUBLE);
+      long bits = Double.doubleToRawLongBits((Double) value);
+      for (int i = 0; i < 8; ++i) {
+        writeByte((byte) (bits >>> (8 * i)));
+      }
+      return this;
+    }
+    // e.g. BigDecimal; the text keeps exactly what the JSON form carries
+    beforeValue();
+    writeByte(TOKEN);
+    writeUtf8(value.toString());
+    return this;
+  }
+
+  private void beforeValue() {
+    if (afterName) {
+      afterName = false;
+    } else if (depth > 0) {
+      counts[depth - 1]++;
+    }
+  }
+
+  private void push() {
+    if (depth == counts.length) {
+      counts = Arrays.copyOf(counts, depth * 2);
+      countPositions = Arrays.copyOf(countPositions, depth * 2);
+    }
+    countPositions[depth] = size;
+    counts[depth++] = 0;
+    ensureCapacity(4);
+    size += 4;
+  }
+
+  private void pop() {
+    --depth;
+    int pos = countPositions[depth];
+    int count = counts[depth];
+    buf[pos] = (byte) count;
+    buf[pos + 1] = (byte) (count >>> 8);
+    buf[pos + 2] = (byte) (count >>> 16);
+    buf[pos + 3] = (byte) (count >>> 24);
+  }
+
+  private void ensureCapacity(int extra) {
+    if (size + extra > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+    }
+  }
+
+  private void writeByte(byte b) {
+    ensureCapacity(1);
+    buf[size++] = b;
+  }
+
+  private void writeBytes(byte[] bytes, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, buf, size, length);
+    size += length;
+  }
+
+  private void writeVarint(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buf[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buf[size++] = (byte) value;
+  }
+
+  private void writeUtf8(String s) {
+    final int length = s.length();
+    int byteLength = 0;
+    for (int i = 0; i < length; ++i) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        byteLength += 1;
+      } else if (c < 0x800) {
+        byteLength += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+              && Character.isLowSurrogate(s.charAt(i + 1))) {
+        byteLength += 4;
+        ++i;
+      } else {
+        byteLength += 3;
+      }
+    }
+    writeVarint(byteLength);
+    ensureCapacity(byteLength);
+    for (int i = 0; i < length; ++i) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        buf[size++] = (byte) c;
+      } else if (c < 0x800) {
+        buf[size++] = (byte) (0xC0 | (c >> 6));
+        buf[size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+              && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, s.charAt(++i));
+        buf[size++] = (byte) (0xF0 | (cp >> 18));
+        buf[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        buf[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        buf[size++] = (byte) (0x80 | (cp & 0x3F));
+      } else {
+        buf[size++] = (byte) (0xE0 | (c >> 12));
+        buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buf[size++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.util;
+
+import java.util.Arrays;
+
+/**
+ * Writes JSON tokens straight into a growable character buffer.
+ *
+ * The output is exactly what {@link EscapedStringJsonBuilder#toJsonString}
+ * renders for the equivalent tree of maps and lists (same indentation, same
+ * string escaping as StringEscapeUtils.escapeJson()), but no tree is built.
+ * The one exception are arrays started with {@link #beginCompactArray()},
+ * whose elements are written on one line.
+ * The buffer is kept across {@link #reset()} calls, so one writer can be
+ * reused for many documents.
+ */
+public class JsonStreamWriter implements JsonTokenWriter {
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+  // a buffer grown beyond this is dropped on reset() rather than retained
+  private static final int MAX_RETAINED_CAPACITY = 1 << 22;
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  private StringBuilder buf = new StringBuilder(INITIAL_CAPACITY);
+  // per open container: whether anything has been written into it yet
+  private boolean[] nonEmpty = new boolean[16];
+  // per open container: whether its elements go on one line
+  private boolean[] compact = new boolean[16];
+  private int depth;
+  private boolean afterName;
+
+  /** Clears the written document, keeping the buffer for the next one. */
+  public void reset() {
+    if (buf.capacity() > MAX_RETAINED_CAPACITY) {
+      buf = new StringBuilder(INITIAL_CAPACITY);
+    } else {
+      buf.setLength(0);
+    }
+    depth = 0;
+    afterName = false;
+  }
+
+  public int length() {
+    return buf.length();
+  }
+
+  @Override
+  public String toString() {
+    return buf.toString();
+  }
+
+  @Override
+  public JsonStreamWriter beginObject() {
+    beforeValue();
+    buf.append('{');
+    push(false);
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter endObject() {
+    pop('}');
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter beginArray() {
+    beforeValue();
+    buf.append('[');
+    push(false);
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter beginCompactArray() {
+    beforeValue();
+    buf.append('[');
+    push(true);
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter endArray() {
+    pop(']');
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter name(String name) {
+    beforeElement();
+    appendString(name);
+    buf.append(": ");
+    afterName = true;
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter nullValue() {
+    beforeValue();
+    buf.append("null");
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter value(String value) {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    appendString(value);
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter value(long value) {
+    beforeValue();
+    buf.append(value);
+    return this;
+  }
+
+  @Override
+  public JsonStreamWriter value(boolean value) {
+    beforeValue();
+    buf.append(value);
+    return this;
+  }
+
+  /** Writes anything but strings in its toString() form, like JsonBuilder. */
+  @Override
+  public JsonStreamWriter value(Object value) {
+    if (value == null) {
+      return nullValue();
+    }
+    if (value instanceof String) {
+      return value((String) value);
+    }
+    beforeValue();
+    buf.append(value);
+    return this;
+  }
+
+  private void beforeValue() {
+    if (afterName) {
+      afterName = false;
+    } else if (depth > 0) {
+      beforeElement();
+    }
+  }
+
+  private void beforeElement() {
+    if (compact[depth - 1]) {
+      if (nonEmpty[depth - 1]) {
+        buf.append(", ");
+      } else {
+        nonEmpty[depth - 1] = true;
+      }
+      return;
+    }
+    if (nonEmpty[depth - 1]) {
+      buf.append(',');
+    } else {
+      nonEmpty[depth - 1] = true;
+    }
+    newline(depth);
+  }
+
+  private void push(boolean compactContainer) {
+    if (depth == nonEmpty.length) {
+      nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+      compact = Arrays.copyOf(compact, depth * 2);
+    }
+    compact[depth] = compactContainer;
+    nonEmpty[depth++] = false;
+  }
+
+  private void pop(char close) {
+    if (nonEmpty[--depth] && !compact[depth]) {
+      newline(depth);
+    }
+    buf.append(close);
+  }
+
+  private void newline(int indent) {
+    buf.append('\n');
+    for (int i = 0; i < indent; ++i) {
+      buf.append("  ");
+    }
+  }
+
+  private void appendString(String s) {
+    buf.append('"');
+    final int length = s.length();
+    for (int i = 0; i < length; ++i) {
+      final char c = s.charAt(i);
+      switch (c) {
+        case '"':
+          buf.append("\\\"");
+          break;
+        case '\\':
+          buf.append("\\\\");
+          break;
+        case '/':
+          buf.append("\\/");
+          break;
+        case '\b':
+          buf.append("\\b");
+          break;
+        case '\n':
+          buf.append("\\n");
+          break;
+        case '\t':
+          buf.append("\\t");
+          break;
+        case '\f':
+          buf.append("\\f");
+          break;
+        case '\r':
+          buf.append("\\r");
+          break;
+        default:
+          if (c < 32 || c >= 0x7f) {
+            // surrogate pairs come out as two escapes, like escapeJson()
+            buf.append("\\u")
+                    .append(HEX_DIGITS[(c >> 12) & 15])
+                    .append(HEX_DIGITS[(c >> 8) & 15])
+                    .append(HEX_DIGITS[(c >> 4) & 15])
+                    .append(HEX_DIGITS[c & 15]);
+          } else {
+            buf.append(c);
+          }
+      }
+    }
+    buf.append('"');
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Intel Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.calcite.util;
+
+/**
+ * Receives a JSON document as a sequence of tokens. Implemented by the text
+ * ({@link JsonStreamWriter}) and binary ({@link BinaryJsonWriter}) plan
+ * encodings.
+ */
+public interface JsonTokenWriter {
+  JsonTokenWriter beginObject();
+
+  JsonTokenWriter endObject();
+
+  JsonTokenWriter beginArray();
+
+  JsonTokenWriter endArray();
+
+  /**
+   * Starts an array of scalars that the text encoding writes on one line,
+   * e.g. the values of an IN list. Other encodings write it like any array.
+   */
+  default JsonTokenWriter beginCompactArray() {
+    return beginArray();
+  }
+
+  /** Starts an object member; must be followed by exactly one value. */
+  JsonTokenWriter name(String name);
+
+  JsonTokenWriter nullValue();
+
+  JsonTokenWriter value(String value);
+
+  JsonTokenWriter value(long value);
+
+  JsonTokenWriter value(boolean value);
+
+  /**
+   * Writes a scalar: null, a string, a number, a boolean or any other object
+   * in its toString() form.
+   */
+  JsonTokenWriter value(Object value);
+}
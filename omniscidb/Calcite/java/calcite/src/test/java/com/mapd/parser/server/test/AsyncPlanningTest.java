@@ -0,0 +1,142 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.InvalidParseRequest;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.Test;
+
+/**
+ * Checks CalciteServerHandler.submit()/poll(): plans match process(), errors
+ * surface in poll(), tickets are gone once their result was returned and
+ * tickets nobody polls expire.
+ */
+public class AsyncPlanningTest {
+  private static final String SCHEMA_JSON =
+          schema(table("t", 1, column("id", BIGINT), column("x", INT)));
+
+  private static CalciteServerHandler createHandler() {
+    CalciteServerHandler handler = newHandler();
+    handler.resetSchema(1, SCHEMA_JSON);
+    return handler;
+  }
+
+  private static long submit(CalciteServerHandler handler, String sql)
+          throws InvalidParseRequest {
+    return handler.submit("omnisci",
+            sql,
+            new QueryParsingOption(),
+            optimizationOption(),
+            null,
+            1);
+  }
+
+  @Test
+  public void submittedPlansMatchProcess() throws Exception {
+    CalciteServerHandler handler = createHandler();
+    long[] tickets = new long[32];
+    for (int i = 0; i < tickets.length; ++i) {
+      tickets[i] = submit(handler, "SELECT id FROM t WHERE x > " + i);
+    }
+    CalciteServerHandler serialHandler = createHandler();
+    for (int i = tickets.length - 1; i >= 0; --i) {
+      String sql = "SELECT id FROM t WHERE x > " + i;
+      String expected = serialHandler
+                                .process("omnisci",
+                                        sql,
+                                        new QueryParsingOption(),
+                                        optimizationOption(),
+                                        null,
+                                        1L)
+                                .planResult;
+      assertEquals(sql, expected, handler.poll(tickets[i], -1).planResult);
+      try {
+        handler.poll(tickets[i], 0);
+        fail("ticket of a returned plan is still known");
+      } catch (InvalidParseRequest ex) {
+        assertEquals(-9, ex.code);
+      }
+    }
+  }
+
+  @Test
+  public void planningErrorsComeFromPoll() throws Exception {
+    final String sql = "SELECT missing_column FROM t";
+    InvalidParseRequest expected = null;
+    try {
+      createHandler().process("omnisci",
+              sql,
+              new QueryParsingOption(),
+              optimizationOption(),
+              null,
+              1L);
+    } catch (InvalidParseRequest ex) {
+      expected = ex;
+    }
+    assertNotNull(expected);
+
+    CalciteServerHandler handler = createHandler();
+    long ticket = submit(handler, sql);
+    try {
+      handler.poll(ticket, -1);
+      fail("planning error expected");
+    } catch (InvalidParseRequest ex) {
+      assertEquals(expected.code, ex.code);
+      assertEquals(expected.msg, ex.msg);
+    }
+  }
+
+  @Test
+  public void cancelledTicketsReportCancellation() throws Exception {
+    CalciteServerHandler handler = createHandler();
+    long ticket = submit(handler, "SELECT id FROM t");
+    handler.cancel(ticket);
+    assertPollFails(handler, ticket, -10);
+    // reported once, like a result
+    assertPollFails(handler, ticket, -9);
+  }
+
+  @Test
+  public void unpolledTicketsExpire() throws Exception {
+    CalciteServerHandler handler = createHandler();
+    handler.setPlanTicketExpiry(0);
+    long cancelled = submit(handler, "SELECT id FROM t");
+    handler.cancel(cancelled);
+    // submitting drops the expired tickets
+    long ticket = submit(handler, "SELECT x FROM t");
+    assertPollFails(handler, cancelled, -9);
+    assertNotNull(handler.poll(ticket, -1));
+  }
+
+  @Test(expected = InvalidParseRequest.class)
+  public void unknownSchemaVersionFailsSubmit() throws Exception {
+    CalciteServerHandler handler = createHandler();
+    handler.submit("omnisci",
+            "SELECT id FROM t",
+            new QueryParsingOption(),
+            optimizationOption(),
+            null,
+            2);
+  }
+
+  private static void assertPollFails(
+          CalciteServerHandler handler, long ticket, int code) {
+    try {
+      handler.poll(ticket, 0);
+      fail("ticket " + ticket + " is still pending");
+    } catch (InvalidParseRequest ex) {
+      assertEquals(code, ex.code);
+    }
+  }
+}
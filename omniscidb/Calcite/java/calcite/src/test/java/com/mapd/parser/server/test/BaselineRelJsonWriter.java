@@ -0,0 +1,416 @@
+package com.mapd.parser.server.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.calcite.avatica.util.TimeUnitRange;
+import org.apache.calcite.rel.RelCollationImpl;
+import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.CorrelationId;
+import org.apache.calcite.rel.core.TableModify.Operation;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.externalize.MapDRelJson;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalCalc;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexCorrelVariable;
+import org.apache.calcite.rex.RexFieldAccess;
+import org.apache.calcite.rex.RexFieldCollation;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexOver;
+import org.apache.calcite.rex.RexSubQuery;
+import org.apache.calcite.rex.RexWindow;
+import org.apache.calcite.rex.RexWindowBound;
+import org.apache.calcite.sql.JoinType;
+import org.apache.calcite.sql.SqlExplainLevel;
+import org.apache.calcite.sql.SqlFunction;
+import org.apache.calcite.sql.SqlOperator;
+import org.apache.calcite.util.EscapedStringJsonBuilder;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Pair;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The map/list tree based plan writer the streamed MapDRelJsonWriter replaced:
+ * MapDRelJsonWriter and the toJson() methods of MapDRelJson as they were
+ * before plans were streamed, kept unchanged as the reference for the plan
+ * JSON. Do not change it to follow the streamed writer; a plan format change
+ * has to show up as a difference in PlanJsonTest.
+ */
+final class BaselineRelJsonWriter implements RelWriter {
+  private final EscapedStringJsonBuilder jsonBuilder;
+  private final MapDRelJson relJson;
+  private final Map<RelNode, String> relIdMap = new IdentityHashMap<RelNode, String>();
+  private final List<Object> relList;
+  private final List<Pair<String, Object>> values = new ArrayList<Pair<String, Object>>();
+  private String previousId;
+
+  BaselineRelJsonWriter() {
+    jsonBuilder = new EscapedStringJsonBuilder();
+    relList = jsonBuilder.list();
+    relJson = new MapDRelJson();
+  }
+
+  private void explain_(RelNode rel, List<Pair<String, Object>> values) {
+    final Map<String, Object> map = jsonBuilder.map();
+
+    map.put("id", null); // ensure that id is the first attribute
+    map.put("relOp", relJson.classToTypeName(rel.getClass()));
+    if (rel instanceof TableScan) {
+      RelDataType row_type = ((TableScan) rel).getTable().getRowType();
+      List<String> field_names = row_type.getFieldNames();
+      map.put("fieldNames", field_names);
+    }
+    if (rel instanceof LogicalAggregate) {
+      map.put("fields", rel.getRowType().getFieldNames());
+    }
+
+    // handle hints
+    if (deliverHints(rel)) {
+      map.put("hints", explainHints(rel));
+    }
+
+    for (Pair<String, Object> value : values) {
+      if (value.right instanceof RelNode) {
+        continue;
+      }
+      map.put(value.left, toJson(value.right));
+    }
+    // omit 'inputs: ["3"]' if "3" is the preceding rel
+    final List<Object> list = explainInputs(rel.getInputs());
+    if (list.size() != 1 || !list.get(0).equals(previousId)) {
+      map.put("inputs", list);
+    }
+
+    final String id = Integer.toString(relIdMap.size());
+    relIdMap.put(rel, id);
+    map.put("id", id);
+
+    relList.add(map);
+    previousId = id;
+  }
+
+  private List<Object> explainInputs(List<RelNode> inputs) {
+    final List<Object> list = jsonBuilder.list();
+    for (RelNode input : inputs) {
+      String id = relIdMap.get(input);
+      if (id == null) {
+        input.explain(this);
+        id = previousId;
+      }
+      list.add(id);
+    }
+    return list;
+  }
+
+  private boolean deliverHints(RelNode rel) {
+    if (rel instanceof LogicalTableScan) {
+      return !((LogicalTableScan) rel).getHints().isEmpty();
+    } else if (rel instanceof LogicalAggregate) {
+      return !((LogicalAggregate) rel).getHints().isEmpty();
+    } else if (rel instanceof LogicalJoin) {
+      return !((LogicalJoin) rel).getHints().isEmpty();
+    } else if (rel instanceof LogicalProject) {
+      return !((LogicalProject) rel).getHints().isEmpty();
+    } else if (rel instanceof LogicalCalc) {
+      return !((LogicalCalc) rel).getHints().isEmpty();
+    }
+    return false;
+  }
+
+  private String explainHints(RelNode rel) {
+    List<String> explained = new ArrayList<>();
+    if (rel instanceof LogicalTableScan) {
+      LogicalTableScan node = (LogicalTableScan) rel;
+      node.getHints().stream().forEach(s -> explained.add(s.toString().toLowerCase()));
+    } else if (rel instanceof LogicalAggregate) {
+      LogicalAggregate node = (LogicalAggregate) rel;
+      node.getHints().stream().forEach(s -> explained.add(s.toString().toLowerCase()));
+    } else if (rel instanceof LogicalJoin) {
+      LogicalJoin node = (LogicalJoin) rel;
+      node.getHints().stream().forEach(s -> explained.add(s.toString().toLowerCase()));
+    } else if (rel instanceof LogicalProject) {
+      LogicalProject node = (LogicalProject) rel;
+      node.getHints().stream().forEach(s -> explained.add(s.toString().toLowerCase()));
+    } else if (rel instanceof LogicalCalc) {
+      LogicalCalc node = (LogicalCalc) rel;
+      node.getHints().stream().forEach(s -> explained.add(s.toString().toLowerCase()));
+    }
+    return explained.stream().collect(Collectors.joining("|"));
+  }
+
+  @Override
+  public void explain(RelNode rel, List<Pair<String, Object>> valueList) {
+    explain_(rel, valueList);
+  }
+
+  @Override
+  public SqlExplainLevel getDetailLevel() {
+    return SqlExplainLevel.ALL_ATTRIBUTES;
+  }
+
+  @Override
+  public RelWriter input(String term, RelNode input) {
+    return this;
+  }
+
+  @Override
+  public RelWriter item(String term, Object value) {
+    values.add(Pair.of(term, value));
+    return this;
+  }
+
+  @Override
+  public RelWriter done(RelNode node) {
+    final List<Pair<String, Object>> valuesCopy = ImmutableList.copyOf(values);
+    values.clear();
+    explain_(node, valuesCopy);
+    return this;
+  }
+
+  @Override
+  public boolean nest() {
+    return true;
+  }
+
+  String asString() {
+    return jsonBuilder.toJsonString(asJsonMap());
+  }
+
+  private Map<String, Object> asJsonMap() {
+    final Map<String, Object> map = jsonBuilder.map();
+    map.put("rels", relList);
+    return map;
+  }
+
+  // the toJson() methods of MapDRelJson
+
+  private Object toJson(RelCollationImpl node) {
+    final List<Object> list = new ArrayList<Object>();
+    for (RelFieldCollation fieldCollation : node.getFieldCollations()) {
+      final Map<String, Object> map = jsonBuilder.map();
+      map.put("field", fieldCollation.getFieldIndex());
+      map.put("direction", fieldCollation.getDirection().name());
+      map.put("nulls", fieldCollation.nullDirection.name());
+      list.add(map);
+    }
+    return list;
+  }
+
+  private Object toJson(RexFieldCollation node) {
+    final Map<String, Object> map = jsonBuilder.map();
+    map.put("field", toJson(node.left));
+    map.put("direction", node.getDirection().name());
+    map.put("nulls", node.getNullDirection().name());
+    return map;
+  }
+
+  private Object toJson(AggregateCall node) {
+    final Map<String, Object> map = jsonBuilder.map();
+    map.put("agg", toJson(node.getAggregation()));
+    map.put("type", toJson(node.getType()));
+    map.put("distinct", node.isDistinct());
+    map.put("operands", node.getArgList());
+    return map;
+  }
+
+  private Object toJson(Object value) {
+    if (value == null || value instanceof Number || value instanceof String
+            || value instanceof Boolean) {
+      return value;
+    } else if (value instanceof RexNode) {
+      return toJson((RexNode) value);
+    } else if (value instanceof CorrelationId) {
+      return toJson((CorrelationId) value);
+    } else if (value instanceof List) {
+      final List<Object> list = jsonBuilder.list();
+      for (Object o : (List) value) {
+        list.add(toJson(o));
+      }
+      return list;
+    } else if (value instanceof ImmutableBitSet) {
+      final List<Object> list = jsonBuilder.list();
+      for (Integer integer : (ImmutableBitSet) value) {
+        list.add(toJson(integer));
+      }
+      return list;
+    } else if (value instanceof ImmutableSet) {
+      final List<Object> list = jsonBuilder.list();
+      for (Object element : (ImmutableSet) value) {
+        list.add(toJson(element));
+      }
+      return list;
+    } else if (value instanceof AggregateCall) {
+      return toJson((AggregateCall) value);
+    } else if (value instanceof RelCollationImpl) {
+      return toJson((RelCollationImpl) value);
+    } else if (value instanceof RexFieldCollation) {
+      return toJson((RexFieldCollation) value);
+    } else if (value instanceof RelDataType) {
+      return toJson((RelDataType) value);
+    } else if (value instanceof RelDataTypeField) {
+      return toJson((RelDataTypeField) value);
+    } else if (value instanceof JoinType) {
+      return value.toString();
+    } else if (value instanceof Operation) {
+      return value.toString();
+    } else {
+      throw new UnsupportedOperationException("type not serializable: " + value
+              + " (type " + value.getClass().getCanonicalName() + ")");
+    }
+  }
+
+  private Object toJson(RelDataType node) {
+    if (node.isStruct()) {
+      final List<Object> list = jsonBuilder.list();
+      for (RelDataTypeField field : node.getFieldList()) {
+        list.add(toJson(field));
+      }
+      return list;
+    } else {
+      final Map<String, Object> map = jsonBuilder.map();
+      map.put("type", node.getSqlTypeName().name());
+      map.put("nullable", node.isNullable());
+      if (node.getSqlTypeName().allowsPrec()) {
+        map.put("precision", node.getPrecision());
+      }
+      if (node.getSqlTypeName().allowsScale()) {
+        map.put("scale", node.getScale());
+      }
+      return map;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object toJson(RelDataTypeField node) {
+    final Map<String, Object> map = (Map<String, Object>) toJson(node.getType());
+    map.put("name", node.getName());
+    return map;
+  }
+
+  private Object toJson(CorrelationId node) {
+    return node.getId();
+  }
+
+  private Object toJson(final RexWindowBound window_bound) {
+    final Map<String, Object> map = jsonBuilder.map();
+    map.put("unbounded", toJson(window_bound.isUnbounded()));
+    map.put("preceding", toJson(window_bound.isPreceding()));
+    map.put("following", toJson(window_bound.isFollowing()));
+    map.put("is_current_row", toJson(window_bound.isCurrentRow()));
+    map.put("offset",
+            window_bound.getOffset() != null ? toJson(window_bound.getOffset()) : null);
+    map.put("order_key", toJson(window_bound.getOrderKey()));
+    return map;
+  }
+
+  private Object toJson(RexNode node) {
+    final Map<String, Object> map;
+    switch (node.getKind()) {
+      case FIELD_ACCESS:
+        map = jsonBuilder.map();
+        final RexFieldAccess fieldAccess = (RexFieldAccess) node;
+        map.put("field", fieldAccess.getField().getName());
+        map.put("expr", toJson(fieldAccess.getReferenceExpr()));
+        return map;
+      case LITERAL:
+        final RexLiteral literal = (RexLiteral) node;
+        final Object value2 = literal.getValue2();
+        map = jsonBuilder.map();
+        if (value2 instanceof TimeUnitRange) {
+          map.put("literal", value2.toString());
+        } else {
+          map.put("literal", value2);
+        }
+        map.put("type", literal.getTypeName().name());
+        map.put("target_type", literal.getType().getSqlTypeName().toString());
+        final Object value = literal.getValue();
+        if (value instanceof BigDecimal) {
+          map.put("scale", ((BigDecimal) value).scale());
+          map.put("precision", ((BigDecimal) value).precision());
+        } else {
+          map.put("scale", literal.getType().getScale());
+          map.put("precision", literal.getType().getPrecision());
+        }
+        map.put("type_scale", literal.getType().getScale());
+        map.put("type_precision", literal.getType().getPrecision());
+        return map;
+      case INPUT_REF:
+        map = jsonBuilder.map();
+        map.put("input", ((RexInputRef) node).getIndex());
+        return map;
+      case CORREL_VARIABLE:
+        map = jsonBuilder.map();
+        map.put("correl", ((RexCorrelVariable) node).getName());
+        map.put("type", toJson(node.getType()));
+        return map;
+      default:
+        if (node instanceof RexCall) {
+          final RexCall call = (RexCall) node;
+          map = jsonBuilder.map();
+          map.put("op", toJson(call.getOperator()));
+          final List<Object> list = jsonBuilder.list();
+          for (RexNode operand : call.getOperands()) {
+            list.add(toJson(operand));
+          }
+          map.put("operands", list);
+          map.put("type", toJson(node.getType()));
+          if (node instanceof RexSubQuery) {
+            final BaselineRelJsonWriter subqueryWriter = new BaselineRelJsonWriter();
+            ((RexSubQuery) node).rel.explain(subqueryWriter);
+            map.put("subquery", subqueryWriter.asJsonMap());
+          }
+          if (node instanceof RexOver) {
+            final RexWindow window = ((RexOver) node).getWindow();
+            final List<Object> partitionKeyList = jsonBuilder.list();
+            for (final RexNode partitionKey : window.partitionKeys) {
+              partitionKeyList.add(toJson(partitionKey));
+            }
+            map.put("partition_keys", partitionKeyList);
+            final List<Object> orderKeyList = jsonBuilder.list();
+            for (final RexFieldCollation orderKey : window.orderKeys) {
+              orderKeyList.add(toJson(orderKey));
+            }
+            map.put("order_keys", orderKeyList);
+            RexWindowBound lower_bound = window.getLowerBound();
+            RexWindowBound upper_bound = window.getUpperBound();
+            map.put("lower_bound", toJson(lower_bound));
+            map.put("upper_bound", toJson(upper_bound));
+            map.put("is_rows", toJson(window.isRows()));
+          }
+          if (call.getOperator() instanceof SqlFunction) {
+            switch (((SqlFunction) call.getOperator()).getFunctionType()) {
+              case USER_DEFINED_CONSTRUCTOR:
+              case USER_DEFINED_FUNCTION:
+              case USER_DEFINED_PROCEDURE:
+              case USER_DEFINED_SPECIFIC_FUNCTION:
+                map.put("class", call.getOperator().getClass().getName());
+            }
+          }
+          return map;
+        }
+        throw new UnsupportedOperationException("unknown rex " + node);
+    }
+  }
+
+  private String toJson(SqlOperator operator) {
+    // User-defined operators are not yet handled.
+    return operator.getName();
+  }
+}
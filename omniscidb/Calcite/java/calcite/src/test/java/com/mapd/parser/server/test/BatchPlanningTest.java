@@ -0,0 +1,140 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.mapd.calcite.parser.MapDParserOptions.FilterPushDownInfo;
+import com.mapd.parser.server.BatchPlanResult;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.InvalidParseRequest;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that CalciteServerHandler.processBatch() returns the plans of
+ * process() in query order and reports errors per query.
+ */
+public class BatchPlanningTest {
+  private static final String SCHEMA_JSON = schema(table(
+          "t", 1, column("id", BIGINT), column("x", INT), column("name", TEXT)));
+
+  private static CalciteServerHandler createHandler() {
+    CalciteServerHandler handler = newHandler();
+    handler.resetSchema(1, SCHEMA_JSON);
+    return handler;
+  }
+
+  @Test
+  public void batchMatchesSingleQueries() throws Exception {
+    String[] queries = new String[40];
+    for (int i = 0; i < queries.length; ++i) {
+      switch (i % 4) {
+        case 0:
+          queries[i] = "SELECT id FROM t WHERE x > " + i;
+          break;
+        case 1:
+          queries[i] = "SELECT name, COUNT(*) FROM t WHERE id < " + i + " GROUP BY name";
+          break;
+        case 2:
+          queries[i] = "SELECT a.id FROM t a JOIN t b ON a.x = b.x WHERE b.id = " + i;
+          break;
+        default:
+          queries[i] = "SELECT missing_column FROM t WHERE id = " + i;
+      }
+    }
+
+    QueryParsingOption queryParsingOption = new QueryParsingOption();
+    OptimizationOption optimizationOption = optimizationOption();
+    BatchPlanResult batch = createHandler().processBatch(
+            "omnisci", queries, queryParsingOption, optimizationOption, null, 1);
+
+    CalciteServerHandler serialHandler = createHandler();
+    for (int i = 0; i < queries.length; ++i) {
+      String expectedPlan = null;
+      InvalidParseRequest expectedError = null;
+      try {
+        expectedPlan = serialHandler
+                               .process("omnisci",
+                                       queries[i],
+                                       queryParsingOption,
+                                       optimizationOption,
+                                       null,
+                                       1L)
+                               .planResult;
+      } catch (InvalidParseRequest ex) {
+        expectedError = ex;
+      }
+      if (expectedError == null) {
+        assertNull(queries[i], batch.errors[i]);
+        assertEquals(queries[i], expectedPlan, batch.results[i].planResult);
+      } else {
+        assertNull(queries[i], batch.results[i]);
+        assertNotNull(queries[i], batch.errors[i]);
+        assertEquals(queries[i], expectedError.code, batch.errors[i].code);
+        assertEquals(queries[i], expectedError.msg, batch.errors[i].msg);
+      }
+    }
+  }
+
+  @Test
+  public void batchKeepsTheFilterPushDowns() throws Exception {
+    String[] queries = new String[16];
+    for (int i = 0; i < queries.length; ++i) {
+      queries[i] = "SELECT a.id FROM t a JOIN t b ON a.x = b.x WHERE b.id = " + i;
+    }
+    // the filter on b.id, the columns 3 to 5 of the join
+    List<FilterPushDownInfo> filterPushDownInfo = new ArrayList<>();
+    filterPushDownInfo.add(new FilterPushDownInfo(0, 3, 6));
+    OptimizationOption optimizationOption =
+            new OptimizationOption(false, false, filterPushDownInfo);
+    BatchPlanResult batch = createHandler().processBatch("omnisci",
+            queries,
+            new QueryParsingOption(),
+            optimizationOption,
+            null,
+            1);
+    // every query is planned with the push-downs, which stay with the caller
+    assertEquals(Arrays.asList(new FilterPushDownInfo(0, 3, 6)), filterPushDownInfo);
+
+    CalciteServerHandler serialHandler = createHandler();
+    OptimizationOption serialOption = new OptimizationOption(
+            false, false, Arrays.asList(new FilterPushDownInfo(0, 3, 6)));
+    for (int i = 0; i < queries.length; ++i) {
+      String expectedPlan = serialHandler
+                                    .process("omnisci",
+                                            queries[i],
+                                            new QueryParsingOption(),
+                                            serialOption,
+                                            null,
+                                            1L)
+                                    .planResult;
+      assertNull(queries[i], batch.errors[i]);
+      assertEquals(queries[i], expectedPlan, batch.results[i].planResult);
+    }
+  }
+
+  @Test(expected = InvalidParseRequest.class)
+  public void unknownSchemaVersionFailsTheBatch() throws Exception {
+    createHandler().processBatch("omnisci",
+            new String[] {"SELECT id FROM t"},
+            new QueryParsingOption(),
+            optimizationOption(),
+            null,
+            2);
+  }
+}
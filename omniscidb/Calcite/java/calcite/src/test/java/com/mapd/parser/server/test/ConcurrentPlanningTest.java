@@ -0,0 +1,182 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.DOUBLE;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.apache.calcite.rel.rules.Restriction;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans restricted outer join queries from many threads at once and checks
+ * that every plan matches the plan produced for the same request without
+ * concurrency. Requests must not see the rule state (restriction filters,
+ * outer join relaxation) of each other.
+ */
+public class ConcurrentPlanningTest {
+  private static final int THREADS = 16;
+  private static final int ITERATIONS = 20;
+
+  private static final String SCHEMA_JSON = schema(
+          table("orders",
+                  1,
+                  column("id", BIGINT),
+                  column("cust", INT),
+                  column("region", TEXT),
+                  column("amount", DOUBLE)),
+          table("customers", 2, column("id", INT), column("name", TEXT)));
+
+  // outer joins the null rejection rule turns into inner joins. The rule
+  // skips joins whose right input is not a scan, so customers has no
+  // restriction column.
+  private static final String[] INNER_JOIN_QUERIES = {
+          "SELECT o.id, c.name FROM orders o LEFT JOIN customers c ON o.cust = c.id"
+                  + " WHERE c.id IS NOT NULL AND o.amount > %d",
+          "SELECT COUNT(*) FROM orders o LEFT JOIN customers c ON o.cust = c.id"
+                  + " WHERE c.id > %d"};
+
+  // outer joins that must stay outer joins
+  private static final String[] OUTER_JOIN_QUERIES = {
+          "SELECT o.id, c.name FROM orders o LEFT JOIN customers c ON o.cust = c.id"
+                  + " WHERE o.amount > %d",
+          "SELECT o.id FROM orders o LEFT JOIN customers c ON o.cust = c.id"
+                  + " WHERE o.id = %d OR c.id IS NOT NULL",
+          // the restriction filters the right input
+          "SELECT a.id FROM orders a LEFT JOIN orders b ON a.cust = b.cust"
+                  + " WHERE b.cust IS NOT NULL AND a.id <> %d"};
+
+  private static final String[] REGIONS = {"east", "west", "north", "south"};
+
+  private static class Request {
+    final String sql;
+    final String region;
+    final boolean expectInnerJoins;
+    String expectedPlan;
+
+    Request(String sql, String region, boolean expectInnerJoins) {
+      this.sql = sql;
+      this.region = region;
+      this.expectInnerJoins = expectInnerJoins;
+    }
+  }
+
+  private static CalciteServerHandler createHandler() {
+    CalciteServerHandler handler = newHandler();
+    handler.setPlanTemplatesEnabled(false);
+    return handler;
+  }
+
+  private static String plan(CalciteServerHandler handler, Request request)
+          throws Exception {
+    QueryParsingOption queryParsingOption = new QueryParsingOption();
+    OptimizationOption optimizationOption = optimizationOption();
+    Restriction restriction = new Restriction("region", Arrays.asList(request.region));
+    return handler
+            .process("omnisci",
+                    request.sql,
+                    queryParsingOption,
+                    optimizationOption,
+                    restriction,
+                    SCHEMA_JSON)
+            .planResult;
+  }
+
+  private static List<Request> createRequests() {
+    List<Request> requests = new ArrayList<>();
+    for (int i = 0; i < THREADS * ITERATIONS; ++i) {
+      String region = REGIONS[i % REGIONS.length];
+      if (i % 3 == 0) {
+        String query = OUTER_JOIN_QUERIES[i % OUTER_JOIN_QUERIES.length];
+        requests.add(new Request(String.format(query, i), region, false));
+      } else {
+        String query = INNER_JOIN_QUERIES[i % INNER_JOIN_QUERIES.length];
+        requests.add(new Request(String.format(query, i), region, true));
+      }
+    }
+    return requests;
+  }
+
+  private static void checkPlan(Request request, String plan) {
+    for (String region : REGIONS) {
+      assertEquals(request.sql + " restricted to " + request.region + " mentions "
+                      + region,
+              region.equals(request.region),
+              plan.contains("\"" + region + "\""));
+    }
+    boolean hasJoin = false;
+    for (JsonElement rel :
+            JsonParser.parseString(plan).getAsJsonObject().getAsJsonArray("rels")) {
+      JsonObject relObject = rel.getAsJsonObject();
+      if (relObject.get("relOp").getAsString().contains("Join")) {
+        hasJoin = true;
+        assertEquals(request.sql,
+                request.expectInnerJoins,
+                relObject.get("joinType").getAsString().equals("inner"));
+      }
+    }
+    assertTrue(request.sql, hasJoin);
+  }
+
+  @Test
+  public void planRestrictedOuterJoinsConcurrently() throws Exception {
+    final List<Request> requests = createRequests();
+
+    // expected plans, planned one at a time
+    CalciteServerHandler serialHandler = createHandler();
+    for (Request request : requests) {
+      request.expectedPlan = plan(serialHandler, request);
+      checkPlan(request, request.expectedPlan);
+    }
+
+    final CalciteServerHandler handler = createHandler();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Void>> results = new ArrayList<>();
+      for (int thread = 0; thread < THREADS; ++thread) {
+        final int firstRequest = thread;
+        results.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int i = firstRequest; i < requests.size(); i += THREADS) {
+              Request request = requests.get(i);
+              assertEquals(request.sql, request.expectedPlan, plan(handler, request));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+    assertFalse(handler.getPlanCacheStats().hitCount() > 0);
+  }
+}
@@ -0,0 +1,106 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.SCHEMA_JSON;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.Test;
+
+/**
+ * Plans a corpus of BI tool style queries with and without expression
+ * simplification and compares the explained RA: every entry names a
+ * fragment of the unsimplified plan that simplification removes or
+ * deduplicates. Constant conjuncts, double negations and constant CASE
+ * branches are already folded while the plan is built, so the corpus holds
+ * filters whose redundancy only shows next to another conjunct.
+ */
+public class ExpressionSimplificationTest {
+  // {query, fragment of the unsimplified RA, occurrences after simplification}
+  private static final Object[][] CORPUS = {
+          {"SELECT a FROM t WHERE b > 3 AND NOT (b > 3 AND s = 'x')", "<=($1, 3)", 0},
+          {"SELECT a FROM t WHERE b = 4 AND (b = 5 OR s = 'x')", "=($1, 5)", 0},
+          {"SELECT a FROM t WHERE b > 3 AND (b > 3 OR s = 'x')", ">($1, 3)", 1},
+          {"SELECT a FROM t WHERE s = 'x' AND (s = 'x' OR b > 3)", "=($2, 'x')", 1},
+  };
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private String explain(String sql, boolean simplify) throws Exception {
+    return plan(sql, simplify, new QueryParsingOption(false, true, false));
+  }
+
+  private String plan(String sql, boolean simplify, QueryParsingOption parsingOption)
+          throws Exception {
+    OptimizationOption optimizationOption = optimizationOption();
+    optimizationOption.simplifyExpressions = simplify;
+    return handler
+            .process("omnisci",
+                    sql,
+                    parsingOption,
+                    optimizationOption,
+                    null,
+                    SCHEMA_JSON)
+            .planResult;
+  }
+
+  private static int count(String plan, String fragment) {
+    int res = 0;
+    for (int i = plan.indexOf(fragment); i >= 0; i = plan.indexOf(fragment, i + 1)) {
+      ++res;
+    }
+    return res;
+  }
+
+  @Test
+  public void simplifiesCorpus() throws Exception {
+    for (Object[] entry : CORPUS) {
+      String sql = (String) entry[0];
+      String fragment = (String) entry[1];
+      String before = explain(sql, false);
+      String after = explain(sql, true);
+      String message = sql + "\nbefore:\n" + before + "after:\n" + after;
+      assertTrue(message, count(before, fragment) > (int) entry[2]);
+      assertEquals(message, (int) entry[2], count(after, fragment));
+    }
+  }
+
+  @Test
+  public void keepsNullSemantics() throws Exception {
+    // NULL = NULL is UNKNOWN, not TRUE: the filter must not be dropped
+    String after = explain("SELECT a FROM t WHERE CAST(NULL AS INTEGER) = b", true);
+    assertTrue(after, after.contains("LogicalFilter") || after.contains("LogicalValues"));
+    // the projected expression keeps its NULL result
+    after = explain("SELECT b + CAST(NULL AS INTEGER) FROM t", true);
+    assertTrue(after, after.contains("null"));
+  }
+
+  @Test
+  public void keepsDecimalCasts() throws Exception {
+    String sql = "SELECT a FROM t WHERE CAST(d AS DECIMAL(10, 2)) > 1.5 AND 1 = 1";
+    assertEquals(explain(sql, false), explain(sql, true));
+  }
+
+  @Test
+  public void keepsComparisonsInPlanJson() throws Exception {
+    // RexSimplify turns both conditions into SEARCH calls, the plan JSON
+    // must not change
+    String[] queries = {"SELECT a FROM t WHERE b IN (1, 2, 3)",
+            "SELECT a FROM t WHERE b > 1 AND b < 5"};
+    for (String sql : queries) {
+      String after = plan(sql, true, new QueryParsingOption());
+      assertEquals(sql, plan(sql, false, new QueryParsingOption()), after);
+    }
+    // ranges are written as SEARCH calls with or without simplification
+    String range = plan("SELECT a FROM t WHERE b > 1 AND b < 5 AND 1 = 1",
+            true,
+            new QueryParsingOption());
+    assertTrue(range, range.contains("\"op\": \"SEARCH\""));
+    assertTrue(range, range.contains("\"ranges\""));
+  }
+}
@@ -0,0 +1,99 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.DOUBLE;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapd.parser.server.CalciteServerHandler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that the plan JSON scans list only the columns the query reads,
+ * for SQL input as well as for RA input that already has narrow scans.
+ */
+public class FieldTrimmingTest {
+  private static final int WIDE_COLUMNS = 50;
+  private static final String SCHEMA_JSON = schema(table("t", 1, wideColumns()),
+          table("u", 2, column("a", BIGINT), column("s", TEXT), column("d", DOUBLE)));
+
+  private static String[] wideColumns() {
+    String[] res = new String[WIDE_COLUMNS];
+    for (int i = 0; i < WIDE_COLUMNS; ++i) {
+      res[i] = column("c" + i, i % 2 == 0 ? BIGINT : DOUBLE);
+    }
+    return res;
+  }
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private String plan(String query) throws Exception {
+    return PlanningTestUtils.plan(handler, query, SCHEMA_JSON);
+  }
+
+  // the fieldNames of every scan, in plan order
+  private static List<List<String>> scanFields(String plan) {
+    JsonArray rels =
+            JsonParser.parseString(plan).getAsJsonObject().getAsJsonArray("rels");
+    List<List<String>> res = new ArrayList<>();
+    for (int i = 0; i < rels.size(); ++i) {
+      JsonObject rel = rels.get(i).getAsJsonObject();
+      if (rel.get("relOp").getAsString().endsWith("TableScan")) {
+        List<String> fields = new ArrayList<>();
+        for (int j = 0; j < rel.getAsJsonArray("fieldNames").size(); ++j) {
+          fields.add(rel.getAsJsonArray("fieldNames").get(j).getAsString());
+        }
+        res.add(fields);
+      }
+    }
+    return res;
+  }
+
+  @Test
+  public void narrowsScans() throws Exception {
+    assertEquals(Arrays.asList(Arrays.asList("c1", "c7", "c40")),
+            scanFields(plan("SELECT c40, c1 + c7 FROM t")));
+    assertEquals(Arrays.asList(Arrays.asList("c0", "c3", "c9")),
+            scanFields(plan("SELECT c0, SUM(c3) FROM t WHERE c9 > 1 GROUP BY c0")));
+    assertEquals(Arrays.asList(Arrays.asList("c0", "c5"), Arrays.asList("a", "d")),
+            scanFields(plan(
+                    "SELECT t.c5, u.d FROM t JOIN u ON t.c0 = u.a ORDER BY u.d")));
+  }
+
+  @Test
+  public void countStarScansOneColumn() throws Exception {
+    List<List<String>> fields = scanFields(plan("SELECT COUNT(*) FROM t"));
+    assertEquals(1, fields.size());
+    assertEquals(1, fields.get(0).size());
+  }
+
+  @Test
+  public void readsNarrowScans() throws Exception {
+    String plan = plan("SELECT c40, c1 + c7 FROM t WHERE c2 < 10");
+    List<List<String>> fields = scanFields(plan);
+    assertEquals(Arrays.asList(Arrays.asList("c1", "c2", "c7", "c40")), fields);
+    // the RA input already has narrow scans
+    String raPlan = plan("execute calcite " + plan);
+    assertEquals(fields, scanFields(raPlan));
+  }
+
+  @Test
+  public void keepsCorrelatedQueries() throws Exception {
+    String plan = plan(
+            "SELECT c0 FROM t WHERE EXISTS (SELECT 1 FROM u WHERE u.a = t.c0)");
+    assertTrue(plan, scanFields(plan).size() >= 2);
+  }
+}
@@ -0,0 +1,121 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.SCHEMA_JSON;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapd.parser.server.CalciteServerHandler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that IN lists reach the plan JSON as a single SEARCH operator with
+ * one typed array of values, and that RA input reads them back.
+ */
+public class InListCompactionTest {
+  private final CalciteServerHandler handler = newHandler();
+
+  private String plan(String query) throws Exception {
+    return PlanningTestUtils.plan(handler, query, SCHEMA_JSON);
+  }
+
+  private static String inList(String column, int count) {
+    StringBuilder sb = new StringBuilder("SELECT a FROM t WHERE ").append(column);
+    sb.append(" IN (");
+    for (int i = 0; i < count; ++i) {
+      sb.append(i > 0 ? ", " : "").append(i * 3);
+    }
+    return sb.append(")").toString();
+  }
+
+  // every call with the given operator, in plan order
+  private static List<JsonObject> calls(String plan, String op) {
+    List<JsonObject> res = new ArrayList<>();
+    collect(JsonParser.parseString(plan), op, res);
+    return res;
+  }
+
+  private static void collect(JsonElement element, String op, List<JsonObject> res) {
+    if (element.isJsonArray()) {
+      for (JsonElement child : element.getAsJsonArray()) {
+        collect(child, op, res);
+      }
+    } else if (element.isJsonObject()) {
+      JsonObject object = element.getAsJsonObject();
+      if (object.has("op") && object.get("op").getAsString().equals(op)) {
+        res.add(object);
+      }
+      for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+        collect(entry.getValue(), op, res);
+      }
+    }
+  }
+
+  @Test
+  public void writesOneValueArray() throws Exception {
+    final int count = 5000;
+    String plan = plan(inList("b", count));
+    List<JsonObject> searches = calls(plan, "SEARCH");
+    assertEquals(plan.substring(0, Math.min(plan.length(), 2000)), 1, searches.size());
+    assertTrue(calls(plan, "OR").isEmpty());
+    JsonObject sarg = searches.get(0).getAsJsonObject("sarg");
+    JsonArray points = sarg.getAsJsonArray("points");
+    assertEquals(count, points.size());
+    assertEquals(3 * (count - 1), points.get(count - 1).getAsLong());
+    assertFalse(sarg.get("negated").getAsBoolean());
+    assertEquals("UNKNOWN", sarg.get("null_as").getAsString());
+    // the values go on one line, a few bytes per value
+    int begin = plan.indexOf("\"points\": [");
+    assertFalse(plan.substring(begin, plan.indexOf(']', begin)).contains("\n"));
+    assertTrue(plan.length() < count * 10);
+  }
+
+  @Test
+  public void writesNegatedPoints() throws Exception {
+    String plan = plan(inList("b", 100).replace(" IN (", " NOT IN ("));
+    List<JsonObject> searches = calls(plan, "SEARCH");
+    assertEquals(plan, 1, searches.size());
+    JsonObject sarg = searches.get(0).getAsJsonObject("sarg");
+    assertTrue(sarg.get("negated").getAsBoolean());
+    assertEquals(100, sarg.getAsJsonArray("points").size());
+    assertEquals(0, sarg.getAsJsonArray("ranges").size());
+  }
+
+  @Test
+  public void compactsDisjunctions() throws Exception {
+    String plan = plan(
+            "SELECT a FROM t WHERE b = 1 OR s = 'x' OR 2 = b OR b = 3 OR s = 'y'");
+    List<JsonObject> searches = calls(plan, "SEARCH");
+    assertEquals(plan, 2, searches.size());
+    assertTrue(plan, calls(plan, "=").isEmpty());
+    for (JsonObject search : searches) {
+      JsonObject sarg = search.getAsJsonObject("sarg");
+      assertEquals(sarg.get("type").getAsString().equals("CHAR") ? 2 : 3,
+              sarg.getAsJsonArray("points").size());
+    }
+  }
+
+  @Test
+  public void readsSearch() throws Exception {
+    String[] queries = {inList("b", 50),
+            inList("b", 50).replace(" IN (", " NOT IN ("),
+            "SELECT a FROM t WHERE s IN ('x', 'y', 'z')",
+            "SELECT a FROM t WHERE d IN (1.5, 2.25, 3)",
+            "SELECT a FROM t WHERE b BETWEEN 1 AND 5 OR b > 10 OR b IS NULL"};
+    for (String query : queries) {
+      String plan = plan(query);
+      List<JsonObject> searches = calls(plan, "SEARCH");
+      assertEquals(searches, calls(plan("execute calcite " + plan), "SEARCH"));
+    }
+  }
+}
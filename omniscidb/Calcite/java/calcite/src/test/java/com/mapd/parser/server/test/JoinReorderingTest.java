@@ -0,0 +1,168 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.DOUBLE;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.tableWithStats;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapd.calcite.parser.MapDParserOptions.FilterPushDownInfo;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Checks the optional join reordering phase of MapDPlanner on a star schema
+ * with table statistics: inner joins are reordered, outer joins are kept,
+ * filter push-downs refer to the joins as written, and plans with and without
+ * reordering are cached separately.
+ */
+public class JoinReorderingTest {
+  private static final String SCHEMA_JSON = schema(
+          table("f",
+                  1,
+                  1000000,
+                  column("id", BIGINT),
+                  column("d1", BIGINT),
+                  column("d2", BIGINT),
+                  column("d3", BIGINT),
+                  column("v", DOUBLE)),
+          table("d1", 2, 10, column("id", BIGINT), column("x", INT)),
+          table("d2", 3, 1000, column("id", BIGINT), column("x", INT)),
+          table("d3", 4, 100000, column("id", BIGINT), column("x", INT)));
+
+  // joins the largest dimension with the fact table first
+  private static final String STAR_QUERY = "SELECT SUM(f.v) FROM d3"
+          + " JOIN f ON d3.id = f.d3 JOIN d2 ON f.d2 = d2.id"
+          + " JOIN d1 ON f.d1 = d1.id WHERE d1.x = 1";
+
+  // a table with the given row count and a unique id column
+  private static String table(String name, int id, long rowCount, String... columns) {
+    return tableWithStats(name,
+            id,
+            "{\"row_count\":" + rowCount + ",\"unique_keys\":[[\"id\"]]}",
+            columns);
+  }
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private JsonArray plan(String sql, boolean joinReordering) throws Exception {
+    return plan(sql, joinReordering, new ArrayList<>());
+  }
+
+  private JsonArray plan(String sql,
+          boolean joinReordering,
+          List<FilterPushDownInfo> filterPushDownInfo) throws Exception {
+    OptimizationOption optimizationOption =
+            new OptimizationOption(false, false, filterPushDownInfo);
+    optimizationOption.joinReordering = joinReordering;
+    String plan = handler.process("omnisci",
+                                 sql,
+                                 new QueryParsingOption(),
+                                 optimizationOption,
+                                 null,
+                                 SCHEMA_JSON)
+                          .planResult;
+    return JsonParser.parseString(plan).getAsJsonObject().getAsJsonArray("rels");
+  }
+
+  // names of the scanned tables, in the order of the plan's inputs
+  private static List<String> scannedTables(JsonArray rels) {
+    List<String> res = new ArrayList<>();
+    for (int i = 0; i < rels.size(); ++i) {
+      JsonObject rel = rels.get(i).getAsJsonObject();
+      String relOp = rel.get("relOp").getAsString();
+      assertTrue(relOp, !relOp.contains("MultiJoin"));
+      if (relOp.equals("LogicalTableScan")) {
+        JsonArray table = rel.getAsJsonArray("table");
+        res.add(table.get(table.size() - 1).getAsString());
+      }
+    }
+    return res;
+  }
+
+  private static List<String> joinTypes(JsonArray rels) {
+    List<String> res = new ArrayList<>();
+    for (int i = 0; i < rels.size(); ++i) {
+      JsonObject rel = rels.get(i).getAsJsonObject();
+      if (rel.get("relOp").getAsString().equals("LogicalJoin")) {
+        res.add(rel.get("joinType").getAsString());
+      }
+    }
+    return res;
+  }
+
+  @Test
+  public void reordersInnerJoins() throws Exception {
+    List<String> writtenOrder = Arrays.asList("d3", "f", "d2", "d1");
+    // reordered plan first: a plan cache hit would return it for the second call
+    List<String> reordered = scannedTables(plan(STAR_QUERY, true));
+    assertEquals(new HashSet<>(writtenOrder), new HashSet<>(reordered));
+    assertEquals(writtenOrder.size(), reordered.size());
+    assertNotEquals(writtenOrder, reordered);
+    assertEquals(writtenOrder, scannedTables(plan(STAR_QUERY, false)));
+  }
+
+  @Test
+  public void reordersCommaJoins() throws Exception {
+    String sql = "SELECT SUM(f.v) FROM d3, f, d2, d1"
+            + " WHERE d3.id = f.d3 AND f.d2 = d2.id AND f.d1 = d1.id AND d1.x = 1";
+    JsonArray rels = plan(sql, true);
+    assertNotEquals(Arrays.asList("d3", "f", "d2", "d1"), scannedTables(rels));
+    // the WHERE conjuncts became join conditions, no cross join is left
+    for (int i = 0; i < rels.size(); ++i) {
+      JsonObject rel = rels.get(i).getAsJsonObject();
+      if (rel.get("relOp").getAsString().equals("LogicalJoin")) {
+        assertTrue(sql, !rel.getAsJsonObject("condition").has("literal"));
+      }
+    }
+  }
+
+  @Test
+  public void pushesDownFiltersOfTheWrittenJoins() throws Exception {
+    // d1.x = 1 refers to d1, the columns 9 and 10 of the joins as written:
+    // d3 (0, 1), f (2 to 6), d2 (7, 8), d1 (9, 10)
+    JsonArray rels = plan(STAR_QUERY,
+            true,
+            Arrays.asList(new FilterPushDownInfo(0, 9, 11)));
+    // the pushed down filter stays on the scan of d1 through the reordering
+    boolean filtersD1 = false;
+    for (int i = 1; i < rels.size(); ++i) {
+      JsonObject rel = rels.get(i).getAsJsonObject();
+      JsonObject input = rels.get(i - 1).getAsJsonObject();
+      if (rel.get("relOp").getAsString().equals("LogicalFilter") && !rel.has("inputs")
+              && input.get("relOp").getAsString().equals("LogicalTableScan")) {
+        JsonArray table = input.getAsJsonArray("table");
+        assertEquals("d1", table.get(table.size() - 1).getAsString());
+        filtersD1 = true;
+      }
+    }
+    assertTrue(filtersD1);
+  }
+
+  @Test
+  public void keepsOuterJoins() throws Exception {
+    String sql = "SELECT SUM(f.v) FROM d3 JOIN f ON d3.id = f.d3"
+            + " LEFT JOIN d1 ON f.d1 = d1.id";
+    JsonArray rels = plan(sql, true);
+    assertEquals(Arrays.asList("inner", "left"), joinTypes(rels));
+    List<String> tables = scannedTables(rels);
+    assertEquals("d1", tables.get(tables.size() - 1));
+  }
+}
@@ -0,0 +1,310 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.DOUBLE;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TIMESTAMP;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.plan;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapd.calcite.parser.MapDParser;
+import com.mapd.calcite.parser.MapDParserOptions;
+import com.mapd.calcite.parser.MapDSerializer;
+import com.mapd.calcite.parser.MapDSqlOperatorTable;
+import com.mapd.calcite.parser.MapDUser;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.PlanResult;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.apache.calcite.rel.RelHomogeneousShuttle;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.util.BinaryJsonReader;
+import org.apache.calcite.util.BinaryJsonWriter;
+import org.apache.calcite.util.EscapedStringJsonBuilder;
+import org.apache.calcite.util.JsonBuilder;
+import org.apache.calcite.util.JsonStreamWriter;
+import org.apache.calcite.util.JsonTokenWriter;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that the streamed plan JSON is byte for byte what the map/list tree
+ * based writer used to write. The reference ("golden") plans are written by
+ * BaselineRelJsonWriter, the tree based writer kept in the test sources, for
+ * the same rels. Also checks that binary plans decode to the same document as
+ * the JSON ones.
+ */
+public class PlanJsonTest {
+  private static final String SCHEMA_JSON = schema(
+          table("t",
+                  1,
+                  column("a", BIGINT),
+                  column("b", INT),
+                  column("s", TEXT),
+                  column("d", DOUBLE),
+                  column("ts", TIMESTAMP)),
+          table("u", 2, column("a", BIGINT), column("s", TEXT)));
+
+  private static final String[] QUERIES = {"SELECT a, b FROM t",
+          "SELECT a + b * 2, d / 3.5, CASE WHEN b > 10 THEN 'big' WHEN b > 5 THEN 'mid'"
+                  + " ELSE 'small' END FROM t WHERE s LIKE 'x%' ORDER BY a DESC",
+          "SELECT s, COUNT(*), SUM(d), AVG(b) FROM t GROUP BY s HAVING COUNT(*) > 1",
+          "SELECT t.a, u.s FROM t LEFT JOIN u ON t.a = u.a AND t.s = u.s",
+          "SELECT a FROM t WHERE b IN (1, 2, 3, 5, 8, 13, 21, 34, 55, 89)",
+          "SELECT a FROM t WHERE EXISTS (SELECT 1 FROM u WHERE u.a = t.a)",
+          "SELECT a, ROW_NUMBER() OVER (PARTITION BY s ORDER BY d) FROM t",
+          "SELECT 'quote \" slash / backslash \\ tab \t unicode \u00e9\u4e2d' FROM t",
+          "SELECT EXTRACT(YEAR FROM ts), ts + INTERVAL '1' DAY FROM t"};
+
+  @Test
+  public void plansMatchBaselineWriter() throws Exception {
+    for (String sql : QUERIES) {
+      RelNode rel = toRel(sql);
+      BaselineRelJsonWriter baselineWriter = new BaselineRelJsonWriter();
+      rel.explain(baselineWriter);
+      String baseline = baselineWriter.asString();
+      assertEquals(sql, baseline, MapDSerializer.toString(rel));
+      assertEquals(sql,
+              JsonParser.parseString(baseline),
+              BinaryJsonReader.read(MapDSerializer.toBinary(rel)));
+    }
+  }
+
+  @Test
+  public void streamedPlansMatchJsonBuilder() throws Exception {
+    CalciteServerHandler handler = newHandler();
+    for (String sql : QUERIES) {
+      String plan = plan(handler, sql, SCHEMA_JSON);
+      JsonElement parsed = JsonParser.parseString(plan);
+      assertEquals(sql, render(parsed), plan);
+      JsonArray rels = parsed.getAsJsonObject().getAsJsonArray("rels");
+      assertTrue(sql, rels.size() > 0);
+      for (int i = 0; i < rels.size(); ++i) {
+        JsonObject rel = rels.get(i).getAsJsonObject();
+        // id always comes first and matches the position in the list
+        assertEquals(sql, "id", rel.keySet().iterator().next());
+        assertEquals(sql, Integer.toString(i), rel.get("id").getAsString());
+      }
+    }
+  }
+
+  @Test
+  public void binaryPlansMatchJsonPlans() throws Exception {
+    CalciteServerHandler handler = newHandler();
+    OptimizationOption optimizationOption = optimizationOption();
+    QueryParsingOption binaryOption = new QueryParsingOption();
+    binaryOption.binaryPlan = true;
+    for (String sql : QUERIES) {
+      PlanResult json = handler.process("omnisci",
+              sql,
+              new QueryParsingOption(),
+              optimizationOption,
+              null,
+              SCHEMA_JSON);
+      // planned twice: once fresh, once from the plan cache
+      for (int i = 0; i < 2; ++i) {
+        PlanResult binary = handler.process(
+                "omnisci", sql, binaryOption, optimizationOption, null, SCHEMA_JSON);
+        assertNull(sql, binary.planResult);
+        assertEquals(sql,
+                JsonParser.parseString(json.planResult),
+                BinaryJsonReader.read(binary.binaryPlan));
+      }
+    }
+
+    // RA input
+    String raQuery = "execute calcite " + plan(handler, QUERIES[0], SCHEMA_JSON);
+    PlanResult jsonRa = handler.process("omnisci",
+            raQuery,
+            new QueryParsingOption(),
+            optimizationOption,
+            null,
+            SCHEMA_JSON);
+    PlanResult binaryRa = handler.process(
+            "omnisci", raQuery, binaryOption, optimizationOption, null, SCHEMA_JSON);
+    assertEquals(JsonParser.parseString(jsonRa.planResult),
+            BinaryJsonReader.read(binaryRa.binaryPlan));
+  }
+
+  @Test
+  public void binaryTreesMatchJson() {
+    Random random = new Random(7);
+    JsonStreamWriter text = new JsonStreamWriter();
+    BinaryJsonWriter binary = new BinaryJsonWriter();
+    for (int i = 0; i < 1000; ++i) {
+      Object tree = randomValue(random, 0);
+      text.reset();
+      binary.reset();
+      write(text, tree);
+      write(binary, tree);
+      assertEquals(JsonParser.parseString(text.toString()),
+              BinaryJsonReader.read(binary.toByteArray()));
+    }
+  }
+
+  @Test
+  public void streamedTreesMatchJsonBuilder() {
+    Random random = new Random(42);
+    JsonStreamWriter out = new JsonStreamWriter();
+    for (int i = 0; i < 1000; ++i) {
+      Object tree = randomValue(random, 0);
+      out.reset();
+      write(out, tree);
+      assertEquals(new EscapedStringJsonBuilder().toJsonString(tree), out.toString());
+    }
+  }
+
+  @Test
+  public void escapesLikeEscapeJson() {
+    JsonStreamWriter out = new JsonStreamWriter();
+    out.value("\"\\/\b\f\n\r\t\u0001\u001f\u007f\u0080\u00e9\u4e2d\ud83d\ude00 ok");
+    assertEquals(
+            "\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u0001\\u001F\\u007F\\u0080\\u00E9\\u4E2D"
+                    + "\\uD83D\\uDE00 ok\"",
+            out.toString());
+  }
+
+  // the rel of sql as planned by MapDParser for the engine, with SEARCH
+  // calls expanded into comparisons: the tree based writer predates their
+  // compact form (see InListCompactionTest)
+  private static RelNode toRel(String sql) throws Exception {
+    MapDSqlOperatorTable operatorTable =
+            new MapDSqlOperatorTable(SqlStdOperatorTable.instance());
+    // the MapD aggregates that replace the standard ones, e.g. AVG
+    MapDSqlOperatorTable.addUDF(operatorTable, Collections.emptyMap());
+    MapDParser parser = new MapDParser(() -> operatorTable);
+    parser.setUser(new MapDUser("omnisci", null));
+    parser.setSchema(SCHEMA_JSON);
+    RelNode rel = parser.processSqlToRel(sql, new MapDParserOptions());
+    RexShuttle expandSearch =
+            RexUtil.searchShuttle(rel.getCluster().getRexBuilder(), null, -1);
+    return rel.accept(new RelHomogeneousShuttle() {
+      @Override
+      public RelNode visit(RelNode other) {
+        return super.visit(other).accept(expandSearch);
+      }
+    });
+  }
+
+  // renders a parsed document through the tree based builder; numbers keep
+  // their original text since Gson parses them lazily. The points of SEARCH
+  // calls are put on one line, like the streaming writer does (the test
+  // plans only have numeric points)
+  private static String render(JsonElement element) {
+    Object tree = toTree(new JsonBuilder(), element);
+    String rendered = new EscapedStringJsonBuilder().toJsonString(tree);
+    Matcher points = Pattern.compile("\"points\": \\[[^\\]]*\\]").matcher(rendered);
+    StringBuffer sb = new StringBuffer();
+    while (points.find()) {
+      String compact = points.group().replaceAll("\\[\\s+", "[")
+                               .replaceAll(",\\s+", ", ")
+                               .replaceAll("\\s+\\]", "]");
+      points.appendReplacement(sb, Matcher.quoteReplacement(compact));
+    }
+    return points.appendTail(sb).toString();
+  }
+
+  private static Object toTree(JsonBuilder builder, JsonElement element) {
+    if (element.isJsonNull()) {
+      return null;
+    } else if (element.isJsonObject()) {
+      Map<String, Object> map = builder.map();
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        map.put(entry.getKey(), toTree(builder, entry.getValue()));
+      }
+      return map;
+    } else if (element.isJsonArray()) {
+      List<Object> list = builder.list();
+      for (JsonElement child : element.getAsJsonArray()) {
+        list.add(toTree(builder, child));
+      }
+      return list;
+    } else if (element.getAsJsonPrimitive().isString()) {
+      return element.getAsString();
+    } else if (element.getAsJsonPrimitive().isBoolean()) {
+      return element.getAsBoolean();
+    }
+    return element.getAsNumber();
+  }
+
+  private static Object randomValue(Random random, int depth) {
+    switch (random.nextInt(depth < 4 ? 7 : 4)) {
+      case 0:
+        return null;
+      case 1:
+        return random.nextBoolean();
+      case 2:
+        return random.nextInt(2) == 0 ? (Object) random.nextLong() : random.nextDouble();
+      case 3:
+        return randomString(random);
+      case 4:
+      case 5: {
+        Map<String, Object> map = new JsonBuilder().map();
+        for (int i = random.nextInt(4); i > 0; --i) {
+          map.put(randomString(random), randomValue(random, depth + 1));
+        }
+        return map;
+      }
+      default: {
+        List<Object> list = new JsonBuilder().list();
+        for (int i = random.nextInt(4); i > 0; --i) {
+          list.add(randomValue(random, depth + 1));
+        }
+        return list;
+      }
+    }
+  }
+
+  private static String randomString(Random random) {
+    List<Character> alphabet = Arrays.asList('a', 'Z', ' ', '"', '\\', '/', '\n', '\t',
+            '\u0000', '\u007f', '\u00e9', '\u4e2d', '\ud83d', '\ude00');
+    StringBuilder sb = new StringBuilder();
+    for (int i = random.nextInt(8); i > 0; --i) {
+      sb.append(alphabet.get(random.nextInt(alphabet.size())));
+    }
+    return sb.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void write(JsonTokenWriter out, Object value) {
+    if (value instanceof Map) {
+      out.beginObject();
+      for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+        out.name(entry.getKey());
+        write(out, entry.getValue());
+      }
+      out.endObject();
+    } else if (value instanceof List) {
+      out.beginArray();
+      for (Object o : (List<Object>) value) {
+        write(out, o);
+      }
+      out.endArray();
+    } else {
+      out.value(value);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.SCHEMA_JSON;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static org.junit.Assert.assertEquals;
+
+import com.mapd.calcite.parser.RuleStatistics;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.PlanResult;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that plan templates are opt-in, that a query planned through a
+ * template gets the same plan as without templates, and that planning the
+ * template probe query doesn't show up in the statistics of the request.
+ */
+public class PlanTemplateTest {
+  private static String query(int literal) {
+    return "SELECT t.a, u.s FROM t LEFT JOIN u ON t.a = u.a"
+            + " WHERE u.s IS NOT NULL AND t.b > " + literal;
+  }
+
+  private static CalciteServerHandler handler(boolean planTemplates) {
+    CalciteServerHandler handler = PlanningTestUtils.newHandler();
+    if (planTemplates) {
+      handler.setPlanTemplatesEnabled(true);
+    }
+    return handler;
+  }
+
+  private static PlanResult plan(CalciteServerHandler handler, String query)
+          throws Exception {
+    return handler.process("omnisci",
+            query,
+            new QueryParsingOption(),
+            optimizationOption(),
+            null,
+            SCHEMA_JSON);
+  }
+
+  private static Map<String, Long> ruleCalls(PlanResult result) {
+    Map<String, Long> calls = new HashMap<>();
+    for (Map.Entry<String, RuleStatistics.RuleCounts> entry :
+            result.ruleStatistics.entrySet()) {
+      calls.put(entry.getKey(), entry.getValue().getCalls());
+    }
+    return calls;
+  }
+
+  @Test
+  public void disabledByDefault() throws Exception {
+    CalciteServerHandler handler = handler(false);
+    plan(handler, query(5));
+    plan(handler, query(7));
+    assertEquals(0, handler.getPlanTemplateCacheStats().requestCount());
+  }
+
+  @Test
+  public void templatePlansMatchRegularPlans() throws Exception {
+    CalciteServerHandler regular = handler(false);
+    CalciteServerHandler templated = handler(true);
+    for (int i : new int[] {5, 7}) {
+      assertEquals(
+              plan(regular, query(i)).planResult, plan(templated, query(i)).planResult);
+    }
+  }
+
+  @Test
+  public void probeIsNotCounted() throws Exception {
+    PlanResult regular = plan(handler(false), query(5));
+    PlanResult templated = plan(handler(true), query(5));
+    assertEquals(ruleCalls(regular), ruleCalls(templated));
+  }
+}
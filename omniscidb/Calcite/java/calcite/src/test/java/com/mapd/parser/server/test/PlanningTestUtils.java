@@ -0,0 +1,89 @@
+package com.mapd.parser.server.test;
+
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.InvalidParseRequest;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import java.util.ArrayList;
+
+/**
+ * Schema JSON builders and handler setup shared by the planning tests.
+ */
+final class PlanningTestUtils {
+  // coltype ids of the schema JSON
+  static final int INT = 6;
+  static final int DOUBLE = 9;
+  static final int TIMESTAMP = 11;
+  static final int BIGINT = 12;
+  static final int TEXT = 13;
+
+  // t(a, b, s, d) and u(a, s), the schema most tests plan against
+  static final String SCHEMA_JSON = schema(
+          table("t",
+                  1,
+                  column("a", BIGINT),
+                  column("b", INT),
+                  column("s", TEXT),
+                  column("d", DOUBLE)),
+          table("u", 2, column("a", BIGINT), column("s", TEXT)));
+
+  private PlanningTestUtils() {}
+
+  static String column(String name, int type) {
+    return column(name, type, null);
+  }
+
+  // stats is the JSON object of the column statistics or null
+  static String column(String name, int type, String stats) {
+    return "{\"name\":\"" + name + "\",\"coltype\":" + type
+            + ",\"colsubtype\":0,\"coldim\":0,\"colscale\":0,\"is_notnull\":false"
+            + ",\"is_systemcol\":false,\"is_virtualcol\":false"
+            + ",\"is_deletedcol\":false" + (stats != null ? ",\"stats\":" + stats : "")
+            + "}";
+  }
+
+  // the JSON object of a table, stats is the table statistics or null
+  static String tableJson(String name, int id, String stats, String... columns) {
+    return "{\"name\":\"" + name + "\",\"id\":" + id
+            + (stats != null ? ",\"stats\":" + stats : "") + ",\"columns\":["
+            + String.join(",", columns) + "]}";
+  }
+
+  // a schema entry for schema()
+  static String table(String name, int id, String... columns) {
+    return tableWithStats(name, id, null, columns);
+  }
+
+  static String tableWithStats(String name, int id, String stats, String... columns) {
+    return "\"" + name + "\":" + tableJson(name, id, stats, columns);
+  }
+
+  static String schema(String... tables) {
+    return "{" + String.join(",", tables) + "}";
+  }
+
+  static CalciteServerHandler newHandler() {
+    String resourceDirPath =
+            PlanningTestUtils.class.getClassLoader().getResource("").getPath();
+    return new CalciteServerHandler(
+            resourceDirPath + "ast/test_extension_functions.ast", "");
+  }
+
+  static OptimizationOption optimizationOption() {
+    return new OptimizationOption(false, false, new ArrayList<>());
+  }
+
+  // the JSON plan of sql with default options
+  static String plan(CalciteServerHandler handler, String sql, String schemaJson)
+          throws InvalidParseRequest {
+    return handler
+            .process("omnisci",
+                    sql,
+                    new QueryParsingOption(),
+                    optimizationOption(),
+                    null,
+                    schemaJson)
+            .planResult;
+  }
+}
@@ -0,0 +1,94 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.SCHEMA_JSON;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.mapd.calcite.parser.PlanningWatchdog;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.InvalidParseRequest;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+/**
+ * Checks that the planning watchdog stops queries exceeding its time, rule
+ * call or node budget with a distinct error code, and that it only runs
+ * when enabled.
+ */
+public class PlanningWatchdogTest {
+  private static final String JOIN_QUERY =
+          "SELECT t.a, u.s FROM t LEFT JOIN u ON t.a = u.a WHERE u.s IS NOT NULL";
+
+  // a CASE nested depth times in its ELSE branch
+  private static String nestedCase(int depth) {
+    StringBuilder sb = new StringBuilder("SELECT ");
+    for (int i = 0; i < depth; ++i) {
+      sb.append("CASE WHEN b = ").append(i).append(" THEN ").append(i).append(" ELSE ");
+    }
+    sb.append("-1");
+    for (int i = 0; i < depth; ++i) {
+      sb.append(" END");
+    }
+    return sb.append(" FROM t").toString();
+  }
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private String plan(String query, boolean enableWatchdog) throws Exception {
+    return handler
+            .process("omnisci",
+                    query,
+                    new QueryParsingOption(),
+                    new OptimizationOption(false, enableWatchdog, new ArrayList<>()),
+                    null,
+                    SCHEMA_JSON)
+            .planResult;
+  }
+
+  private void assertExceeds(String query, String budget) throws Exception {
+    try {
+      plan(query, true);
+      fail("planned beyond its budget: " + query);
+    } catch (InvalidParseRequest ex) {
+      assertEquals(ex.msg, CalciteServerHandler.PLANNING_BUDGET_EXCEEDED_CODE, ex.code);
+      assertTrue(ex.msg, ex.msg.contains(budget));
+    }
+  }
+
+  @Test
+  public void plansWithinBudget() throws Exception {
+    assertNotNull(plan(nestedCase(20), true));
+    assertNotNull(plan(JOIN_QUERY, true));
+  }
+
+  @Test
+  public void stopsLargeStatements() throws Exception {
+    handler.setPlanningBudget(new PlanningWatchdog.Budget(10_000, 1_000_000, 100));
+    assertExceeds(nestedCase(60), "node budget of 100");
+  }
+
+  @Test
+  public void stopsRuleCalls() throws Exception {
+    handler.setPlanningBudget(new PlanningWatchdog.Budget(10_000, 0, 1_000_000));
+    assertExceeds(JOIN_QUERY, "rule call budget of 0");
+  }
+
+  @Test
+  public void stopsSlowPlanning() throws Exception {
+    handler.setPlanningBudget(new PlanningWatchdog.Budget(-1, 1_000_000, 1_000_000));
+    assertExceeds(JOIN_QUERY, "planning time budget");
+  }
+
+  @Test
+  public void runsOnlyWhenEnabled() throws Exception {
+    handler.setPlanningBudget(new PlanningWatchdog.Budget(-1, 0, 0));
+    assertNotNull(plan(nestedCase(60), false));
+  }
+}
@@ -0,0 +1,53 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.SCHEMA_JSON;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.mapd.parser.server.CalciteServerHandler;
+
+import org.junit.Test;
+
+/**
+ * Reads plans of the shapes dataframe frontends send as RA input (execute
+ * calcite) and checks that the RA path gives a stable plan: reading its own
+ * output again changes nothing.
+ */
+public class RaQueryTest {
+  // groupby, merge, sort_values, concat, filters and projections of a frame
+  private static final String[] QUERIES = {
+          "SELECT a, b + 1 AS b1, d * 2 AS d2 FROM t",
+          "SELECT a, s FROM t WHERE b > 3 AND d < 1.5",
+          "SELECT s, SUM(d), COUNT(*), MIN(b), MAX(a) FROM t GROUP BY s",
+          "SELECT s, APPROX_COUNT_DISTINCT(a), STDDEV(d) FROM t GROUP BY s",
+          "SELECT t.a, t.b, u.s FROM t JOIN u ON t.a = u.a",
+          "SELECT t.a, u.s FROM t LEFT JOIN u ON t.a = u.a WHERE t.b > 0",
+          "SELECT a, d FROM t ORDER BY d DESC, a LIMIT 10",
+          "SELECT a, s FROM t UNION ALL SELECT a, s FROM u",
+          "SELECT s, AVG(d) FROM (SELECT s, d + b AS d FROM t WHERE b IS NOT NULL)"
+                  + " GROUP BY s ORDER BY s",
+  };
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private String plan(String query) throws Exception {
+    return PlanningTestUtils.plan(handler, query, SCHEMA_JSON);
+  }
+
+  @Test
+  public void readsCorpus() throws Exception {
+    for (String query : QUERIES) {
+      String ra = plan("execute calcite " + plan(query));
+      assertEquals(query, ra, plan("execute calcite " + ra));
+    }
+  }
+
+  @Test
+  public void readsAggregatesWithoutSqlKind() throws Exception {
+    // aggregates are looked up by name, whether or not a SqlKind has it
+    String ra = plan("execute calcite "
+            + plan("SELECT s, APPROX_COUNT_DISTINCT(a), STDDEV(d) FROM t GROUP BY s"));
+    assertTrue(ra, ra.contains("APPROX_COUNT_DISTINCT"));
+  }
+}
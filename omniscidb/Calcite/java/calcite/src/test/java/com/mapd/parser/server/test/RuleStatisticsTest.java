@@ -0,0 +1,126 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.DOUBLE;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.mapd.calcite.parser.RuleStatistics;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.PlanResult;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.apache.calcite.rel.rules.Restriction;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Checks the per-rule calls and time the Hep pipeline of MapDPlanner
+ * reports with each plan: only the rules of the stages that ran appear,
+ * the most expensive rule first, and nothing leaks into the next request,
+ * also through the Hep programs the planners of a thread reuse.
+ */
+public class RuleStatisticsTest {
+  private static final String SCHEMA_JSON = schema(
+          table("t", 1, column("a", BIGINT), column("b", INT), column("d", DOUBLE)),
+          table("u", 2, column("a", BIGINT), column("s", TEXT)),
+          table("v", 3, column("a", BIGINT), column("s", TEXT)));
+
+  private static final String OUTER_JOIN_QUERY =
+          "SELECT t.a, u.s FROM t LEFT JOIN u ON t.a = u.a WHERE u.s IS NOT NULL";
+
+  private static final String JOIN_QUERY = "SELECT t.a, u.s, v.s FROM t"
+          + " JOIN u ON t.a = u.a JOIN v ON u.a = v.a WHERE t.b > 1";
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private Map<String, RuleStatistics.RuleCounts> ruleStatistics(
+          String query, boolean joinReordering) throws Exception {
+    return ruleStatistics(query, joinReordering, null);
+  }
+
+  private Map<String, RuleStatistics.RuleCounts> ruleStatistics(String query,
+          boolean joinReordering,
+          Restriction restriction) throws Exception {
+    OptimizationOption optimizationOption = optimizationOption();
+    optimizationOption.joinReordering = joinReordering;
+    PlanResult result = handler.process("omnisci",
+            query,
+            new QueryParsingOption(),
+            optimizationOption,
+            restriction,
+            SCHEMA_JSON);
+    return result.ruleStatistics;
+  }
+
+  private static RuleStatistics.RuleCounts counts(
+          Map<String, RuleStatistics.RuleCounts> stats, String rule) {
+    for (Map.Entry<String, RuleStatistics.RuleCounts> entry : stats.entrySet()) {
+      if (entry.getKey().startsWith(rule)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static boolean hasRule(Map<String, RuleStatistics.RuleCounts> stats,
+          String rule) {
+    return counts(stats, rule) != null;
+  }
+
+  @Test
+  public void recordsRuleCalls() throws Exception {
+    Map<String, RuleStatistics.RuleCounts> stats =
+            ruleStatistics(OUTER_JOIN_QUERY, false);
+    assertTrue(stats.toString(), hasRule(stats, "OuterJoinOptViaNullRejectionRule"));
+    long previousNanos = Long.MAX_VALUE;
+    for (RuleStatistics.RuleCounts counts : stats.values()) {
+      assertTrue(stats.toString(), counts.getCalls() > 0);
+      assertTrue(stats.toString(), counts.getProductions() <= counts.getCalls());
+      assertTrue(stats.toString(), counts.getNanos() <= previousNanos);
+      previousNanos = counts.getNanos();
+    }
+  }
+
+  @Test
+  public void recordsOnlyEnabledStages() throws Exception {
+    Map<String, RuleStatistics.RuleCounts> stats = ruleStatistics(JOIN_QUERY, false);
+    assertFalse(stats.toString(), hasRule(stats, "LoptOptimizeJoinRule"));
+    stats = ruleStatistics(JOIN_QUERY, true);
+    assertTrue(stats.toString(), hasRule(stats, "LoptOptimizeJoinRule"));
+  }
+
+  @Test
+  public void resetsBetweenRequests() throws Exception {
+    ruleStatistics(OUTER_JOIN_QUERY, false);
+    Map<String, RuleStatistics.RuleCounts> stats =
+            ruleStatistics("SELECT a, d FROM t WHERE b > 1", false);
+    assertFalse(stats.toString(), hasRule(stats, "OuterJoinOptViaNullRejectionRule"));
+  }
+
+  @Test
+  public void injectsRestrictionOnDag() throws Exception {
+    // the filter injection runs on a DAG, where both scans of t are one
+    // vertex, and each request gets its own restriction rule
+    String query = "SELECT x.a FROM t x JOIN t y ON x.a = y.a";
+    for (String value : Arrays.asList("1", "2")) {
+      Map<String, RuleStatistics.RuleCounts> stats = ruleStatistics(
+              query, true, new Restriction("b", Arrays.asList(value)));
+      assertTrue(stats.toString(), hasRule(stats, "InjectFilterRule"));
+      assertEquals(stats.toString(),
+              1,
+              counts(stats, "InjectFilterRule").getProductions());
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.tableJson;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.mapd.metadata.SchemaRegistry;
+
+import org.junit.Test;
+
+/**
+ * Checks that the schema registry evicts old versions unless the engine
+ * reports them as still in use.
+ */
+public class SchemaRegistryTest {
+  private static final String TABLE_JSON =
+          tableJson("t", 1, null, column("a", BIGINT));
+
+  private static void publishVersions(SchemaRegistry registry, long from, long to) {
+    for (long version = from; version <= to; ++version) {
+      registry.updateTable(version, TABLE_JSON);
+    }
+  }
+
+  @Test
+  public void evictsOldVersions() {
+    SchemaRegistry registry = new SchemaRegistry();
+    registry.reset(1, "{}");
+    publishVersions(registry, 2, 20);
+    assertNull(registry.getCatalog(1));
+    assertNull(registry.getCatalog(12));
+    assertNotNull(registry.getCatalog(13));
+    assertNotNull(registry.getCatalog(20));
+  }
+
+  @Test
+  public void retainsVersionsInUse() {
+    SchemaRegistry registry = new SchemaRegistry();
+    registry.reset(1, "{}");
+    publishVersions(registry, 2, 3);
+    registry.retainVersionsFrom(3);
+    publishVersions(registry, 4, 20);
+    assertNull(registry.getCatalog(2));
+    assertNotNull(registry.getCatalog(3));
+    assertNotNull(registry.getCatalog(4));
+
+    registry.retainVersionsFrom(Long.MAX_VALUE);
+    publishVersions(registry, 21, 21);
+    assertNull(registry.getCatalog(3));
+    assertNotNull(registry.getCatalog(14));
+  }
+}
@@ -0,0 +1,81 @@
+package com.mapd.parser.server.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.mapd.calcite.parser.SqlAnalysis;
+import com.mapd.parser.extension.ddl.ExtendedSqlParser;
+
+import org.apache.calcite.sql.parser.SqlParser;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks the facts SqlAnalysis collects about a statement in its single
+ * walk of the tree.
+ */
+public class SqlAnalysisTest {
+  private static SqlAnalysis analyze(String sql) throws Exception {
+    return SqlAnalysis.of(SqlParser.create(sql).parseQuery());
+  }
+
+  private static Set<ImmutableList<String>> tables(String... names) {
+    Set<ImmutableList<String>> res = new HashSet<>();
+    for (String name : names) {
+      res.add(ImmutableList.of(name));
+    }
+    return res;
+  }
+
+  @Test
+  public void collectsFacts() throws Exception {
+    SqlAnalysis analysis = analyze("SELECT s, STDDEV(d), corr_float(a, d) FROM t"
+            + " WHERE a NOT IN (SELECT a FROM u) GROUP BY s HAVING COUNT(*) > 1");
+    assertTrue(analysis.hasHaving());
+    assertTrue(analysis.hasNotIn());
+    assertEquals(2, analysis.getLegacyRewrites());
+    assertEquals(tables("T", "U"), analysis.selects);
+  }
+
+  @Test
+  public void findsNestedFacts() throws Exception {
+    SqlAnalysis analysis = analyze("SELECT a FROM (SELECT a, VARIANCE(d) AS v FROM t"
+            + " GROUP BY a HAVING MAX(d) > 0) WHERE v > 1");
+    assertTrue(analysis.hasHaving());
+    assertFalse(analysis.hasNotIn());
+    assertEquals(1, analysis.getLegacyRewrites());
+    assertEquals(tables("T"), analysis.selects);
+  }
+
+  @Test
+  public void findsNothingInPlainQueries() throws Exception {
+    SqlAnalysis analysis = analyze("SELECT a, SUM(d) FROM t JOIN u ON t.a = u.a"
+            + " WHERE a IN (1, 2) GROUP BY a ORDER BY a");
+    assertFalse(analysis.hasHaving());
+    assertFalse(analysis.hasNotIn());
+    assertEquals(0, analysis.getLegacyRewrites());
+    assertEquals(tables("T", "U"), analysis.selects);
+  }
+
+  @Test
+  public void readsTablesOfOrderBy() throws Exception {
+    SqlAnalysis analysis =
+            analyze("SELECT a FROM t ORDER BY (SELECT MAX(d) FROM u WHERE u.a = t.a)");
+    assertEquals(tables("T", "U"), analysis.selects);
+  }
+
+  @Test
+  public void acceptsDdl() throws Exception {
+    // DDL calls of the extended parser may have no operand list
+    SqlAnalysis analysis = SqlAnalysis.of(
+            SqlParser.create("SHOW USER SESSIONS",
+                             SqlParser.config().withParserFactory(ExtendedSqlParser.FACTORY))
+                    .parseStmt());
+    assertFalse(analysis.hasHaving());
+    assertTrue(analysis.selects.isEmpty());
+  }
+}
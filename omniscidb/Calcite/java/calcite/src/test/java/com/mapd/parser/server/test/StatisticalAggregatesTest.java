@@ -0,0 +1,117 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.DOUBLE;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the aggregates the plan JSON carries for STDDEV, VARIANCE, COVAR
+ * and CORRELATION in the legacy syntax: their own aggregate kinds with
+ * native statistical aggregates, SUM, COUNT and AVG trees otherwise. CORR is
+ * a reserved word of the parser, CORRELATION is its spelling here.
+ */
+public class StatisticalAggregatesTest {
+  private static final String SCHEMA_JSON = schema(
+          table("t", 1, column("a", BIGINT), column("b", INT), column("d", DOUBLE)));
+
+  private static final String QUERY = "SELECT b, STDDEV(a), VAR_POP_FLOAT(d), "
+          + "COVAR_SAMP(a, d), CORRELATION(a, d) FROM t GROUP BY b";
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private String plan(String query, boolean nativeAggregates) throws Exception {
+    OptimizationOption optimizationOption = optimizationOption();
+    optimizationOption.nativeStatisticalAggregates = nativeAggregates;
+    return handler
+            .process("omnisci",
+                    query,
+                    new QueryParsingOption(true, false, false),
+                    optimizationOption,
+                    null,
+                    SCHEMA_JSON)
+            .planResult;
+  }
+
+  // every aggregate call of the plan, in plan order
+  private static List<JsonObject> aggregates(String plan) {
+    List<JsonObject> res = new ArrayList<>();
+    collect(JsonParser.parseString(plan), res);
+    return res;
+  }
+
+  private static void collect(JsonElement element, List<JsonObject> res) {
+    if (element.isJsonArray()) {
+      for (JsonElement child : element.getAsJsonArray()) {
+        collect(child, res);
+      }
+    } else if (element.isJsonObject()) {
+      JsonObject object = element.getAsJsonObject();
+      if (object.has("agg")) {
+        res.add(object);
+      }
+      for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+        collect(entry.getValue(), res);
+      }
+    }
+  }
+
+  private static List<String> names(List<JsonObject> aggregates) {
+    List<String> res = new ArrayList<>();
+    for (JsonObject aggregate : aggregates) {
+      res.add(aggregate.get("agg").getAsString());
+    }
+    return res;
+  }
+
+  @Test
+  public void keepsNativeAggregates() throws Exception {
+    List<JsonObject> aggregates = aggregates(plan(QUERY, true));
+    assertEquals(Arrays.asList("STDDEV", "VAR_POP_FLOAT", "COVAR_SAMP", "CORRELATION"),
+            names(aggregates));
+    List<String> types = new ArrayList<>();
+    for (JsonObject aggregate : aggregates) {
+      JsonObject type = aggregate.getAsJsonObject("type");
+      assertTrue(type.get("nullable").getAsBoolean());
+      types.add(type.get("type").getAsString());
+    }
+    assertEquals(Arrays.asList("DOUBLE", "FLOAT", "DOUBLE", "DOUBLE"), types);
+  }
+
+  @Test
+  public void expandsByDefault() throws Exception {
+    List<String> names = names(aggregates(plan(QUERY, false)));
+    List<String> expanded = Arrays.asList("SUM", "$SUM0", "COUNT", "AVG");
+    assertTrue(names.toString(), names.size() > 4);
+    for (String name : names) {
+      assertTrue(names.toString(), expanded.contains(name));
+    }
+  }
+
+  @Test
+  public void readsNativeAggregates() throws Exception {
+    String plan = plan(QUERY, true);
+    assertEquals(names(aggregates(plan)),
+            names(aggregates(plan("execute calcite " + plan, true))));
+  }
+}
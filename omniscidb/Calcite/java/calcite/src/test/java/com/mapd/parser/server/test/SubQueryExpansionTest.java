@@ -0,0 +1,63 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.DOUBLE;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.mapd.parser.server.CalciteServerHandler;
+
+import org.junit.Test;
+
+/**
+ * Checks which sub-queries reach the plan JSON expanded into joins and
+ * decorrelated: correlated, EXISTS and IN sub-queries are, uncorrelated
+ * scalar sub-queries and queries with NOT IN are not.
+ */
+public class SubQueryExpansionTest {
+  private static final String SCHEMA_JSON = schema(
+          table("t", 1, column("a", BIGINT), column("b", INT), column("d", DOUBLE)),
+          table("u", 2, column("a", BIGINT), column("s", TEXT), column("d", DOUBLE)));
+
+  private static final String[] EXPANDED = {
+          "SELECT a FROM t WHERE EXISTS (SELECT 1 FROM u WHERE u.a = t.a)",
+          "SELECT a FROM t WHERE b IN (SELECT a FROM u WHERE s = 'x')",
+          "SELECT a FROM t WHERE d > (SELECT AVG(d) FROM u WHERE u.a = t.a)",
+          "SELECT a, (SELECT MAX(d) FROM u WHERE u.a = t.a) FROM t ORDER BY a",
+  };
+
+  private static final String[] KEPT = {
+          "SELECT a FROM t WHERE d > (SELECT AVG(d) FROM u)",
+          "SELECT a FROM t WHERE a NOT IN (SELECT a FROM u)",
+  };
+
+  private final CalciteServerHandler handler = newHandler();
+
+  private String plan(String query) throws Exception {
+    return PlanningTestUtils.plan(handler, query, SCHEMA_JSON);
+  }
+
+  @Test
+  public void expandsSubQueries() throws Exception {
+    for (String query : EXPANDED) {
+      String plan = plan(query);
+      assertFalse(plan, plan.contains("\"subquery\""));
+      assertFalse(plan, plan.contains("\"correl\""));
+      assertTrue(plan, plan.contains("LogicalJoin"));
+    }
+  }
+
+  @Test
+  public void keepsSubQueries() throws Exception {
+    for (String query : KEPT) {
+      String plan = plan(query);
+      assertTrue(plan, plan.contains("\"subquery\""));
+    }
+  }
+}
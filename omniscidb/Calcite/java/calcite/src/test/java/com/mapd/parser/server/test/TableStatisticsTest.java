@@ -0,0 +1,182 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.INT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.schema;
+import static com.mapd.parser.server.test.PlanningTestUtils.table;
+import static com.mapd.parser.server.test.PlanningTestUtils.tableWithStats;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.mapd.calcite.parser.MapDTable;
+import com.mapd.calcite.parser.MapDTypeSystem;
+import com.mapd.metadata.SchemaCatalog;
+
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.prepare.RelOptTableImpl;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rel.metadata.MapDRelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.rules.ProjectTableScanNarrowRule;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+/**
+ * Checks that the optional statistics of the schema JSON reach Calcite's
+ * metadata: row count and keys through MapDTable.getStatistic(), selectivity
+ * and distinct row counts through MapDRelMetadataProvider, also for scans
+ * narrowed to the columns they read.
+ */
+public class TableStatisticsTest {
+  private static final String SCHEMA_JSON = schema(
+          tableWithStats("t",
+                  1,
+                  "{\"row_count\":10000,\"unique_keys\":[[\"id\"],[\"missing\"]]}",
+                  column("id", BIGINT, "{\"ndv\":10000,\"min\":0,\"max\":9999}"),
+                  column("x",
+                          INT,
+                          "{\"ndv\":100,\"min\":0,\"max\":1000,\"null_fraction\":0.2}"),
+                  column("s", TEXT, "{\"ndv\":4,\"min\":1,\"max\":2}"),
+                  column("y", INT)),
+          table("u", 2, column("id", BIGINT)));
+
+  private final RelDataTypeFactory typeFactory =
+          new JavaTypeFactoryImpl(new MapDTypeSystem());
+  private final RexBuilder rexBuilder = new RexBuilder(typeFactory);
+  private final SchemaCatalog catalog = SchemaCatalog.fromJson(SCHEMA_JSON);
+
+  private RelNode scan(String tableName) {
+    RelOptCluster cluster = RelOptCluster.create(
+            new HepPlanner(HepProgram.builder().build()), rexBuilder);
+    cluster.setMetadataProvider(MapDRelMetadataProvider.INSTANCE);
+    cluster.invalidateMetadataQuery();
+    MapDTable table = catalog.getTable(tableName);
+    return LogicalTableScan.create(cluster,
+            RelOptTableImpl.create(null,
+                    table.getRowType(typeFactory),
+                    ImmutableList.of(tableName),
+                    table,
+                    (Expression) null),
+            ImmutableList.of());
+  }
+
+  private RexNode inputRef(RelNode scan, int ordinal) {
+    return rexBuilder.makeInputRef(scan, ordinal);
+  }
+
+  private RexNode number(long value) {
+    return rexBuilder.makeExactLiteral(BigDecimal.valueOf(value));
+  }
+
+  @Test
+  public void parsesStatistics() {
+    MapDTable table = catalog.getTable("t");
+    assertEquals(10000.0, table.getStatistic().getRowCount(), 0.0);
+    assertTrue(table.getStatistic().isKey(ImmutableBitSet.of(0)));
+    assertFalse(table.getStatistic().isKey(ImmutableBitSet.of(1)));
+    assertEquals(0.2, table.getColumnStatistics(1).nullFraction, 0.0);
+    // min/max are dropped for non-numeric columns
+    assertEquals(4.0, table.getColumnStatistics(2).ndv, 0.0);
+    assertNull(table.getColumnStatistics(2).min);
+    assertNull(table.getColumnStatistics(3));
+    assertNull(catalog.getTable("u").getStatistic().getRowCount());
+  }
+
+  @Test
+  public void rowCountAndUniqueness() {
+    RelNode scan = scan("t");
+    RelMetadataQuery mq = scan.getCluster().getMetadataQuery();
+    assertEquals(10000.0, mq.getRowCount(scan), 0.0);
+    assertTrue(mq.areColumnsUnique(scan, ImmutableBitSet.of(0)));
+    assertFalse(mq.areColumnsUnique(scan, ImmutableBitSet.of(1)));
+  }
+
+  @Test
+  public void selectivity() {
+    RelNode scan = scan("t");
+    RelMetadataQuery mq = scan.getCluster().getMetadataQuery();
+    RexNode xEquals = rexBuilder.makeCall(
+            SqlStdOperatorTable.EQUALS, inputRef(scan, 1), number(5));
+    assertEquals(0.8 / 100, mq.getSelectivity(scan, xEquals), 1e-9);
+    RexNode xLess = rexBuilder.makeCall(
+            SqlStdOperatorTable.LESS_THAN, inputRef(scan, 1), number(250));
+    assertEquals(0.8 * 0.25, mq.getSelectivity(scan, xLess), 1e-9);
+    RexNode xGreater = rexBuilder.makeCall(
+            SqlStdOperatorTable.LESS_THAN, number(250), inputRef(scan, 1));
+    assertEquals(0.8 * 0.75, mq.getSelectivity(scan, xGreater), 1e-9);
+    RexNode xIsNull =
+            rexBuilder.makeCall(SqlStdOperatorTable.IS_NULL, inputRef(scan, 1));
+    assertEquals(0.2, mq.getSelectivity(scan, xIsNull), 1e-9);
+    RexNode both = rexBuilder.makeCall(SqlStdOperatorTable.AND, xEquals, xLess);
+    assertEquals(0.8 / 100 * 0.8 * 0.25, mq.getSelectivity(scan, both), 1e-9);
+    RelNode filter = LogicalFilter.create(scan, xLess);
+    assertEquals(10000 * 0.8 * 0.25, mq.getRowCount(filter), 1e-6);
+  }
+
+  @Test
+  public void distinctRowCount() {
+    RelNode scan = scan("t");
+    RelMetadataQuery mq = scan.getCluster().getMetadataQuery();
+    assertEquals(100.0, mq.getDistinctRowCount(scan, ImmutableBitSet.of(1), null), 0.0);
+    assertEquals(400.0,
+            mq.getDistinctRowCount(scan, ImmutableBitSet.of(1, 2), null),
+            0.0);
+    // capped by the row count
+    assertEquals(10000.0,
+            mq.getDistinctRowCount(scan, ImmutableBitSet.of(0, 1), null),
+            0.0);
+  }
+
+  @Test
+  public void narrowedTable() {
+    MapDTable table = catalog.getTable("t").narrow(ImmutableBitSet.of(0, 2));
+    assertEquals(10000.0, table.getStatistic().getRowCount(), 0.0);
+    assertTrue(table.getStatistic().isKey(ImmutableBitSet.of(0)));
+    assertEquals(4.0, table.getColumnStatistics(1).ndv, 0.0);
+    assertNull(table.getColumnStatistics(2));
+    // the key column id is not read
+    table = catalog.getTable("t").narrow(ImmutableBitSet.of(1, 2));
+    assertTrue(table.getStatistic().getKeys().isEmpty());
+    assertEquals(0.2, table.getColumnStatistics(0).nullFraction, 0.0);
+  }
+
+  @Test
+  public void narrowedScan() {
+    RelNode scan = scan("t");
+    RelNode project = LogicalProject.create(scan,
+            ImmutableList.of(),
+            ImmutableList.of(inputRef(scan, 2), inputRef(scan, 0)),
+            ImmutableList.of("s", "id"));
+    HepPlanner planner = new HepPlanner(
+            HepProgram.builder()
+                    .addRuleInstance(ProjectTableScanNarrowRule.Config.DEFAULT.toRule())
+                    .build());
+    planner.setRoot(project);
+    RelNode narrowScan = planner.findBestExp().getInput(0);
+    assertEquals(2, narrowScan.getRowType().getFieldCount());
+    RelMetadataQuery mq = narrowScan.getCluster().getMetadataQuery();
+    assertTrue(mq.areColumnsUnique(narrowScan, ImmutableBitSet.of(0)));
+    assertFalse(mq.areColumnsUnique(narrowScan, ImmutableBitSet.of(1)));
+    assertEquals(4.0,
+            mq.getDistinctRowCount(narrowScan, ImmutableBitSet.of(1), null),
+            0.0);
+  }
+}
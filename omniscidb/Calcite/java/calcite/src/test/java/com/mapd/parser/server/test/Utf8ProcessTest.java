@@ -0,0 +1,148 @@
+package com.mapd.parser.server.test;
+
+import static com.mapd.parser.server.test.PlanningTestUtils.BIGINT;
+import static com.mapd.parser.server.test.PlanningTestUtils.TEXT;
+import static com.mapd.parser.server.test.PlanningTestUtils.column;
+import static com.mapd.parser.server.test.PlanningTestUtils.newHandler;
+import static com.mapd.parser.server.test.PlanningTestUtils.optimizationOption;
+import static com.mapd.parser.server.test.PlanningTestUtils.tableJson;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.mapd.parser.server.BatchPlanResult;
+import com.mapd.parser.server.CalciteServerHandler;
+import com.mapd.parser.server.OptimizationOption;
+import com.mapd.parser.server.PlanResult;
+import com.mapd.parser.server.QueryParsingOption;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks that CalciteServerHandler.processUtf8() produces the same plans as
+ * process() and grows the plan buffer when a plan doesn't fit, and that
+ * pollUtf8() and processBatchUtf8() write their plans the same way.
+ */
+public class Utf8ProcessTest {
+  private static final String TABLE_JSON =
+          tableJson("t", 1, null, column("id", BIGINT), column("name", TEXT));
+  private static final String SCHEMA_JSON = "{\"t\":" + TABLE_JSON + "}";
+
+  // the literal has a character outside the BMP, which modified UTF-8 (the
+  // jstring encoding) would encode as a surrogate pair
+  private static final String QUERY =
+          "SELECT id FROM t WHERE name = 'caf\u00e9 \uD83D\uDE00' AND id > 10";
+
+  private static CalciteServerHandler handler;
+
+  @BeforeClass
+  public static void setUp() {
+    handler = newHandler();
+    handler.resetSchemaUtf8(1, utf8("{}"));
+    handler.updateSchemaTableUtf8(2, utf8(TABLE_JSON));
+  }
+
+  private static ByteBuffer utf8(String str) {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer res = ByteBuffer.allocateDirect(bytes.length);
+    res.put(bytes).flip();
+    return res;
+  }
+
+  private static byte[] planBytes(PlanResult result, ByteBuffer planBuffer) {
+    ByteBuffer buffer =
+            (result.planBuffer != null ? result.planBuffer : planBuffer).duplicate();
+    byte[] res = new byte[result.planSize];
+    buffer.clear();
+    buffer.get(res);
+    return res;
+  }
+
+  private static PlanResult processUtf8(
+          QueryParsingOption queryParsingOption, ByteBuffer planBuffer)
+          throws Exception {
+    return handler.processUtf8(utf8("omnisci"),
+            utf8(QUERY),
+            queryParsingOption,
+            optimizationOption(),
+            null,
+            2,
+            planBuffer);
+  }
+
+  @Test
+  public void jsonPlanMatchesProcess() throws Exception {
+    OptimizationOption optimizationOption = optimizationOption();
+    String expected = handler.process("omnisci",
+                                     QUERY,
+                                     new QueryParsingOption(),
+                                     optimizationOption,
+                                     null,
+                                     SCHEMA_JSON)
+                              .planResult;
+    assertTrue(expected.contains("\\uD83D\\uDE00"));
+
+    ByteBuffer large = ByteBuffer.allocateDirect(1 << 16);
+    PlanResult result = processUtf8(new QueryParsingOption(), large);
+    assertNull(result.planBuffer);
+    assertEquals(expected, new String(planBytes(result, large), StandardCharsets.UTF_8));
+
+    ByteBuffer small = ByteBuffer.allocateDirect(16);
+    result = processUtf8(new QueryParsingOption(), small);
+    assertNotNull(result.planBuffer);
+    assertTrue(result.planBuffer.isDirect());
+    assertTrue(result.planBuffer.capacity() >= result.planSize);
+    assertEquals(expected, new String(planBytes(result, small), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void binaryPlanIsWrittenAsIs() throws Exception {
+    QueryParsingOption queryParsingOption = new QueryParsingOption();
+    queryParsingOption.binaryPlan = true;
+    ByteBuffer small = ByteBuffer.allocateDirect(4);
+    PlanResult result = processUtf8(queryParsingOption, small);
+    assertNotNull(result.binaryPlan);
+    assertNotNull(result.planBuffer);
+    assertArrayEquals(result.binaryPlan, planBytes(result, small));
+  }
+
+  @Test
+  public void polledAndBatchPlansMatchProcess() throws Exception {
+    String expected = handler.process("omnisci",
+                                     QUERY,
+                                     new QueryParsingOption(),
+                                     optimizationOption(),
+                                     null,
+                                     SCHEMA_JSON)
+                              .planResult;
+
+    long ticket = handler.submitUtf8(utf8("omnisci"),
+            utf8(QUERY),
+            new QueryParsingOption(),
+            optimizationOption(),
+            null,
+            2);
+    ByteBuffer small = ByteBuffer.allocateDirect(16);
+    PlanResult result = handler.pollUtf8(ticket, -1, small);
+    assertEquals(expected, new String(planBytes(result, small), StandardCharsets.UTF_8));
+
+    BatchPlanResult batch = handler.processBatchUtf8(utf8("omnisci"),
+            new ByteBuffer[] {utf8(QUERY), utf8(QUERY)},
+            new QueryParsingOption(),
+            optimizationOption(),
+            null,
+            2);
+    for (PlanResult batchResult : batch.results) {
+      // every plan has a buffer of its own
+      assertNotNull(batchResult.planBuffer);
+      assertEquals(expected,
+              new String(planBytes(batchResult, null), StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -403,6 +403,12 @@ bool ConfigBuilder::parseCommandLineArgs(int argc,
           ->default_value(config_->opts.enable_left_join_filter_hoisting)
           ->implicit_value(true),
       "Enable hoisting left hand side filters through left joins.");
+  opt_desc.add_options()(
+      "enable-calcite-join-reordering",
+      po::value<bool>(&config_->opts.enable_calcite_join_reordering)
+          ->default_value(config_->opts.enable_calcite_join_reordering)
+          ->implicit_value(true),
+      "Reorder inner joins in Calcite by the estimated cost from table statistics.");
 
   // rs
   opt_desc.add_options()("enable-columnar-output",
@@ -331,15 +331,17 @@ hdk::ir::ExprPtr parseInput(const rapidjson::Value& expr,
   return ra_output[json_i64(input)];
 }
 
-hdk::ir::ExprPtr parseLiteral(const rapidjson::Value& expr) {
-  CHECK(expr.IsObject());
-  const auto& literal = field(expr, "literal");
-  const auto type_name = json_str(field(expr, "type"));
-  const auto target_type_name = json_str(field(expr, "target_type"));
-  const auto scale = json_i64(field(expr, "scale"));
-  const auto precision = json_i64(field(expr, "precision"));
-  const auto type_scale = json_i64(field(expr, "type_scale"));
-  const auto type_precision = json_i64(field(expr, "type_precision"));
+// Parses a literal value whose type members are those of type_info. Literal
+// expressions carry both in one object, the values of a SEARCH share the type
+// members of the sarg.
+hdk::ir::ExprPtr parseLiteral(const rapidjson::Value& literal,
+                              const rapidjson::Value& type_info) {
+  const auto type_name = json_str(field(type_info, "type"));
+  const auto target_type_name = json_str(field(type_info, "target_type"));
+  const auto scale = json_i64(field(type_info, "scale"));
+  const auto precision = json_i64(field(type_info, "precision"));
+  const auto type_scale = json_i64(field(type_info, "type_scale"));
+  const auto type_precision = json_i64(field(type_info, "type_precision"));
 
   auto& ctx = hdk::ir::Context::defaultCtx();
   auto lit_type = buildType(ctx, type_name, false, precision, scale);
@@ -421,6 +423,11 @@ hdk::ir::ExprPtr parseLiteral(const rapidjson::Value& expr) {
   return nullptr;
 }
 
+hdk::ir::ExprPtr parseLiteral(const rapidjson::Value& expr) {
+  CHECK(expr.IsObject());
+  return parseLiteral(field(expr, "literal"), expr);
+}
+
 hdk::ir::ExprPtr parse_case_expr(const rapidjson::Value& expr,
                                  int db_id,
                                  SchemaProviderPtr schema_provider,
@@ -1424,6 +1431,92 @@ hdk::ir::ExprPtr parse_operator_expr(const rapidjson::Value& json_expr,
   }
 }
 
+// Parses Calcite's SEARCH operator in the compact form MapDRelJson writes:
+// the points of the sarg become a single IN list, which is code generated as a
+// bitmap or a hash set lookup, and its ranges become comparisons.
+hdk::ir::ExprPtr parse_search_expr(const rapidjson::Value& expr,
+                                   int db_id,
+                                   SchemaProviderPtr schema_provider,
+                                   RelAlgDagBuilder& root_dag_builder,
+                                   const hdk::ir::ExprPtrVector& ra_output) {
+  const auto& operands = field(expr, "operands");
+  CHECK(operands.IsArray());
+  CHECK_EQ(operands.Size(), 1u);
+  auto arg =
+      parse_expr(*operands.Begin(), db_id, schema_provider, root_dag_builder, ra_output);
+  auto& ctx = arg->ctx();
+  const auto& sarg = field(expr, "sarg");
+  const auto& points = field(sarg, "points");
+  const auto& ranges = field(sarg, "ranges");
+  CHECK(points.IsArray());
+  CHECK(ranges.IsArray());
+
+  auto make_or = [](hdk::ir::ExprPtr lhs, hdk::ir::ExprPtr rhs) {
+    return lhs ? Analyzer::normalizeOperExpr(
+                     hdk::ir::OpType::kOr, hdk::ir::Qualifier::kOne, lhs, rhs)
+               : rhs;
+  };
+  auto make_and = [](hdk::ir::ExprPtr lhs, hdk::ir::ExprPtr rhs) {
+    return lhs ? Analyzer::normalizeOperExpr(
+                     hdk::ir::OpType::kAnd, hdk::ir::Qualifier::kOne, lhs, rhs)
+               : rhs;
+  };
+  auto is_not_null = [&]() {
+    return makeUOper(hdk::ir::OpType::kNot,
+                     makeUOper(hdk::ir::OpType::kIsNull, arg, ctx.boolean(false)),
+                     ctx.boolean(false));
+  };
+
+  hdk::ir::ExprPtr res;
+  if (!points.Empty()) {
+    hdk::ir::ExprPtrList values;
+    for (auto it = points.Begin(); it != points.End(); ++it) {
+      values.push_back(parseLiteral(*it, sarg)->cast(arg->type()));
+    }
+    res = hdk::ir::makeExpr<hdk::ir::InValues>(arg, values);
+    if (json_bool(field(sarg, "negated"))) {
+      res = makeUOper(hdk::ir::OpType::kNot, res, res->type());
+    }
+  }
+  for (auto it = ranges.Begin(); it != ranges.End(); ++it) {
+    hdk::ir::ExprPtr range;
+    if (it->HasMember("lower")) {
+      auto op = json_bool(field(*it, "lower_inclusive")) ? hdk::ir::OpType::kGe
+                                                         : hdk::ir::OpType::kGt;
+      range = Analyzer::normalizeOperExpr(op,
+                                          hdk::ir::Qualifier::kOne,
+                                          arg,
+                                          parseLiteral(field(*it, "lower"), sarg));
+    }
+    if (it->HasMember("upper")) {
+      auto op = json_bool(field(*it, "upper_inclusive")) ? hdk::ir::OpType::kLe
+                                                         : hdk::ir::OpType::kLt;
+      range = make_and(range,
+                       Analyzer::normalizeOperExpr(
+                           op,
+                           hdk::ir::Qualifier::kOne,
+                           arg,
+                           parseLiteral(field(*it, "upper"), sarg)));
+    }
+    res = make_or(res, range ? range : is_not_null());
+  }
+  if (!res) {
+    Datum d;
+    d.boolval = false;
+    res = hdk::ir::makeExpr<hdk::ir::Constant>(ctx.boolean(false), false, d);
+  }
+
+  const auto null_as = json_str(field(sarg, "null_as"));
+  if (null_as == "TRUE") {
+    res = make_or(makeUOper(hdk::ir::OpType::kIsNull, arg, ctx.boolean(false)), res);
+  } else if (null_as == "FALSE") {
+    res = make_and(is_not_null(), res);
+  } else {
+    CHECK_EQ(null_as, "UNKNOWN");
+  }
+  return res;
+}
+
 hdk::ir::ExprPtr parse_expr(const rapidjson::Value& expr,
                             int db_id,
                             SchemaProviderPtr schema_provider,
@@ -1441,6 +1534,8 @@ hdk::ir::ExprPtr parse_expr(const rapidjson::Value& expr,
     const auto op_str = json_str(field(expr, "op"));
     if (op_str == std::string("CASE")) {
       res = parse_case_expr(expr, db_id, schema_provider, root_dag_builder, ra_output);
+    } else if (op_str == std::string("SEARCH")) {
+      res = parse_search_expr(expr, db_id, schema_provider, root_dag_builder, ra_output);
     } else if (op_str == std::string("$SCALAR_QUERY")) {
       res = parse_subquery_expr(expr, db_id, schema_provider, root_dag_builder);
     } else {
@@ -45,6 +45,11 @@ class SchemaProvider {
   virtual int getId() const = 0;
   virtual std::string_view getName() const = 0;
 
+  // Grows with every change of the tables or their columns, so that users of
+  // the schema can skip comparing it with what they saw before. -1 if the
+  // provider doesn't track its changes.
+  virtual int64_t getSchemaVersion() const { return -1; }
+
   virtual std::vector<int> listDatabases() const = 0;
 
   virtual TableInfoList listTables(int db_id) const = 0;
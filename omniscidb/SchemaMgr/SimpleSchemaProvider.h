@@ -19,6 +19,8 @@
 
 #include "Shared/mapd_shared_mutex.h"
 
+#include <atomic>
+
 class SimpleSchemaProvider : public SchemaProvider {
  public:
   SimpleSchemaProvider(hdk::ir::Context& ctx, int id, const std::string& name)
@@ -28,6 +30,8 @@ class SimpleSchemaProvider : public SchemaProvider {
   int getId() const override { return id_; }
   std::string_view getName() const override { return name_; }
 
+  int64_t getSchemaVersion() const override { return schema_version_.load(); }
+
   std::vector<int> listDatabases() const override {
     mapd_shared_lock<mapd_shared_mutex> lock(schema_mutex_);
     std::vector<int> res;
@@ -135,6 +139,7 @@ class SimpleSchemaProvider : public SchemaProvider {
   }
 
   TableInfoPtr addTableInfo(TableInfoPtr table_info) {
+    ++schema_version_;
     table_infos_[*table_info] = table_info;
     table_index_by_name_[table_info->db_id][table_info->name] = table_info;
     return table_info;
@@ -146,6 +151,7 @@ class SimpleSchemaProvider : public SchemaProvider {
   }
 
   ColumnInfoPtr addColumnInfo(ColumnInfoPtr col_info) {
+    ++schema_version_;
     column_infos_[*col_info] = col_info;
     column_index_by_name_[{col_info->db_id, col_info->table_id}][col_info->name] =
         col_info;
@@ -167,6 +173,7 @@ class SimpleSchemaProvider : public SchemaProvider {
     auto tinfo = getTableInfoNoLock(db_id, table_id);
     CHECK(tinfo);
     auto col_infos = listColumnsNoLock(*tinfo);
+    ++schema_version_;
     table_infos_.erase(*tinfo);
     table_index_by_name_.at(db_id).erase(tinfo->name);
     for (auto& col_info : col_infos) {
@@ -186,4 +193,6 @@ class SimpleSchemaProvider : public SchemaProvider {
   ColumnInfoMap column_infos_;
   std::unordered_map<TableRef, ColumnByNameMap> column_index_by_name_;
   mutable mapd_shared_mutex schema_mutex_;
+  // bumped by every change, under the unique schema_mutex_ lock
+  std::atomic<int64_t> schema_version_{0};
 };
@@ -118,6 +118,7 @@ struct OptimizationsConfig {
   size_t constrained_by_in_threshold = 10;
   bool skip_intermediate_count = true;
   bool enable_left_join_filter_hoisting = true;
+  bool enable_calcite_join_reordering = false;
 };
 
 struct ResultSetConfig {